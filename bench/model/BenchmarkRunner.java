@@ -0,0 +1,143 @@
+package model;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Minimal JMH-style measurement loop: timed warmup iterations, then timed measurement
+ * iterations, reporting the mean time per operation with its standard deviation, the bytes
+ * allocated per operation by the benchmark thread, and the GC activity during measurement.
+ *
+ * Settings come from system properties so runs stay reproducible from the command line:
+ * bench.warmup (iterations, default 5), bench.iterations (default 10),
+ * bench.iterationMillis (default 200) and bench.solveRuns (default 3).
+ */
+final class BenchmarkRunner {
+    // Results are folded in here so the JIT cannot drop the measured work
+    static volatile long sink;
+
+    private final int warmupIterations = Integer.getInteger("bench.warmup", 5);
+    private final int measureIterations = Integer.getInteger("bench.iterations", 10);
+    private final long iterationNanos = Long.getLong("bench.iterationMillis", 200) * 1_000_000L;
+    private final int solveRuns = Integer.getInteger("bench.solveRuns", 3);
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    void printHeader() {
+        System.out.printf("%-44s %12s %10s %12s %6s %8s %14s%n",
+                "Benchmark", "ns/op", "error", "B/op", "gc", "gc ms", "states/s");
+    }
+
+    /**
+     * Measure a body that performs opsPerCall operations and returns a checksum
+     */
+    void run(String name, int opsPerCall, LongSupplier body) {
+        for (int i = 0; i < warmupIterations; i++) {
+            timedIteration(body);
+        }
+
+        double[] nsPerOp = new double[measureIterations];
+        long totalCalls = 0;
+        long bytesBefore = allocatedBytes();
+        long[] gcBefore = gcTotals();
+        for (int i = 0; i < measureIterations; i++) {
+            long start = System.nanoTime();
+            long calls = timedIteration(body);
+            nsPerOp[i] = (double) (System.nanoTime() - start) / (calls * opsPerCall);
+            totalCalls += calls;
+        }
+        long bytes = allocatedBytes() - bytesBefore;
+        long[] gcAfter = gcTotals();
+
+        print(name, mean(nsPerOp), stdDev(nsPerOp), (double) bytes / (totalCalls * opsPerCall),
+                gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1], -1);
+    }
+
+    /**
+     * Measure complete solver runs. One operation is one solve; states/s uses the
+     * strategy's own explored-state count.
+     */
+    void runSolve(String name, Supplier<SolverStrategy.Result> solve) {
+        solve.get(); // Warmup run
+
+        double[] nsPerSolve = new double[solveRuns];
+        long states = 0;
+        long elapsed = 0;
+        long bytesBefore = allocatedBytes();
+        long[] gcBefore = gcTotals();
+        String outcome = "";
+        for (int i = 0; i < solveRuns; i++) {
+            long start = System.nanoTime();
+            SolverStrategy.Result result = solve.get();
+            long nanos = System.nanoTime() - start;
+            nsPerSolve[i] = nanos;
+            elapsed += nanos;
+            states += result.statesExplored;
+            outcome = result.solved ? result.moves.size() + " moves"
+                    : (result.cancelled ? "budget hit" : "unsolved");
+            sink += result.moves.size();
+        }
+        long bytes = allocatedBytes() - bytesBefore;
+        long[] gcAfter = gcTotals();
+
+        print(name + " (" + outcome + ")", mean(nsPerSolve), stdDev(nsPerSolve), (double) bytes / solveRuns,
+                gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1],
+                elapsed > 0 ? states * 1_000_000_000.0 / elapsed : 0);
+    }
+
+    private long timedIteration(LongSupplier body) {
+        long end = System.nanoTime() + iterationNanos;
+        long calls = 0;
+        long checksum = 0;
+        do {
+            checksum += body.getAsLong();
+            calls++;
+        } while (System.nanoTime() < end);
+        sink += checksum;
+        return calls;
+    }
+
+    private void print(String name, double nsPerOp, double error, double bytesPerOp,
+                       long gcCount, long gcMillis, double statesPerSecond) {
+        System.out.printf("%-44s %12.1f %10.1f %12.1f %6d %8d %14s%n",
+                name, nsPerOp, error, bytesPerOp, gcCount, gcMillis,
+                statesPerSecond >= 0 ? String.format("%.0f", statesPerSecond) : "-");
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, millis};
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double stdDev(double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+}
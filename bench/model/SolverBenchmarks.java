@@ -0,0 +1,214 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks for the solver hot paths and for complete solves of every built-in level.
+ *
+ * Inputs are boards reached by seeded random walks from each level, so every run
+ * measures the same positions. Lives in package model to reach AISolver's package-private
+ * search methods. Run with bench/run-benchmarks.sh, optionally passing a name filter:
+ *
+ *   bench/run-benchmarks.sh canMove
+ *   bench/run-benchmarks.sh solve.Easy
+ *
+ * Solves are cancelled after bench.solveBudgetMillis (default 5000) so the hard
+ * levels still report a states/s figure. solve.Pinned runs BFS with and without dead
+ * state pruning on a board the DeadlockDetector proves unsolvable.
+ */
+public class SolverBenchmarks {
+    private static final long SEED = 42;
+    private static final int WALK_LENGTH = 200;
+    // Hard-sized board whose Zhou Yu is walled into the bottom row across the exit by two
+    // camps: no built-in level has a dead pattern, so this one shows what pruning saves
+    private static final int[][] PINNED = {
+            {MapModel.GENERAL, MapModel.CAO_CAO, MapModel.CAO_CAO, MapModel.GENERAL, 0},
+            {MapModel.GENERAL, MapModel.CAO_CAO, MapModel.CAO_CAO, MapModel.GENERAL, 0},
+            {MapModel.SOLDIER, MapModel.GUAN_YU, MapModel.GUAN_YU, MapModel.SOLDIER, 0},
+            {MapModel.GENERAL, MapModel.SOLDIER, MapModel.SOLDIER, MapModel.GENERAL, 0},
+            {MapModel.MILITARY_CAMP, 0, 0, MapModel.MILITARY_CAMP, 0},
+            {MapModel.ZHOU_YU, MapModel.ZHOU_YU, MapModel.ZHOU_YU, 0, 0}
+    };
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.printHeader();
+
+        List<int[][]> boards = sampleBoards();
+        AISolver solver = new AISolver(new MapModel(MapModel.LEVELS[0]), null);
+
+        if (matches("AISolver.generateNextStates", filter)) {
+            List<AISolver.State> states = new ArrayList<>();
+            for (int[][] board : boards) {
+                states.add(new AISolver.State(board, new ArrayList<>(), 0));
+            }
+            runner.run("AISolver.generateNextStates", states.size(), () -> {
+                long total = 0;
+                for (AISolver.State state : states) {
+                    total += solver.generateNextStates(state).size();
+                }
+                return total;
+            });
+        }
+
+        if (matches("AISolver.calculateHeuristic", filter)) {
+            runner.run("AISolver.calculateHeuristic", boards.size(), () -> {
+                long total = 0;
+                for (int[][] board : boards) {
+                    total += solver.calculateHeuristic(board);
+                }
+                return total;
+            });
+        }
+
+        if (matches("AISolver.canMove", filter)) {
+            // One operation is one (piece, direction) check
+            List<int[]> checks = new ArrayList<>();
+            List<int[][]> checkBoards = new ArrayList<>();
+            for (int[][] board : boards) {
+                for (int[] piece : PuzzleRules.findPieces(board)) {
+                    for (Direction dir : Direction.values()) {
+                        checks.add(new int[]{piece[0], piece[1], PuzzleRules.pieceWidth(piece[2]),
+                                PuzzleRules.pieceHeight(piece[2]), dir.ordinal()});
+                        checkBoards.add(board);
+                    }
+                }
+            }
+            Direction[] directions = Direction.values();
+            runner.run("AISolver.canMove", checks.size(), () -> {
+                long total = 0;
+                for (int i = 0; i < checks.size(); i++) {
+                    int[] c = checks.get(i);
+                    if (solver.canMove(checkBoards.get(i), c[0], c[1], c[2], c[3], directions[c[4]])) {
+                        total++;
+                    }
+                }
+                return total;
+            });
+        }
+
+        if (matches("AISolver.boardToString", filter)) {
+            runner.run("AISolver.boardToString", boards.size(), () -> {
+                long total = 0;
+                for (int[][] board : boards) {
+                    total += solver.boardToString(board).length();
+                }
+                return total;
+            });
+        }
+
+        if (matches("PuzzleRules.legalMoves", filter)) {
+            runner.run("PuzzleRules.legalMoves", boards.size(), () -> {
+                long total = 0;
+                for (int[][] board : boards) {
+                    total += PuzzleRules.legalMoves(board).size();
+                }
+                return total;
+            });
+        }
+
+        if (matches("PuzzleRules.boardKey", filter)) {
+            runner.run("PuzzleRules.boardKey", boards.size(), () -> {
+                long total = 0;
+                for (int[][] board : boards) {
+                    total += PuzzleRules.boardKey(board).hashCode();
+                }
+                return total;
+            });
+        }
+
+        if (matches("BoardCodec.encode", filter)) {
+            long[] packed = new long[BoardCodec.wordsFor(7, 6)];
+            runner.run("BoardCodec.encode", boards.size(), () -> {
+                long total = 0;
+                for (int[][] board : boards) {
+                    BoardCodec.encode(board, packed, 0);
+                    total += packed[0];
+                }
+                return total;
+            });
+        }
+
+        runSolves(runner, filter);
+        System.out.println("(checksum " + BenchmarkRunner.sink + ")");
+    }
+
+    private static void runSolves(BenchmarkRunner runner, String filter) {
+        long budget = Long.getLong("bench.solveBudgetMillis", 5000);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bench-budget");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Supplier<SolverStrategy>> strategies = Arrays.asList(
+                AStarSolver::new, BreadthFirstSolver::new, IterativeDeepeningSolver::new, BeamSearchSolver::new);
+        for (int level = 0; level < MapModel.LEVELS.length; level++) {
+            int[][] board = MapModel.LEVELS[level];
+            for (Supplier<SolverStrategy> factory : strategies) {
+                String name = "solve." + MapModel.LEVEL_NAMES[level] + "." + factory.get().getName();
+                if (!matches(name, filter)) {
+                    continue;
+                }
+                runner.runSolve(name, () -> {
+                    AtomicBoolean cancel = new AtomicBoolean(false);
+                    ScheduledFuture<?> stop = timer.schedule(() -> cancel.set(true), budget, TimeUnit.MILLISECONDS);
+                    SolverStrategy.Result result = factory.get().solve(PuzzleRules.copyBoard(board), cancel);
+                    stop.cancel(false);
+                    return result;
+                });
+            }
+        }
+
+        for (boolean prune : new boolean[]{true, false}) {
+            String name = "solve.Pinned.BFS" + (prune ? "" : "-unpruned");
+            if (!matches(name, filter)) {
+                continue;
+            }
+            runner.runSolve(name, () -> {
+                AtomicBoolean cancel = new AtomicBoolean(false);
+                ScheduledFuture<?> stop = timer.schedule(() -> cancel.set(true), budget, TimeUnit.MILLISECONDS);
+                SolverStrategy.Result result = new BreadthFirstSolver(20_000_000, prune)
+                        .solve(PuzzleRules.copyBoard(PINNED), cancel);
+                stop.cancel(false);
+                return result;
+            });
+        }
+        timer.shutdownNow();
+    }
+
+    /**
+     * Boards reached by seeded random walks from every level (including the starting boards)
+     */
+    private static List<int[][]> sampleBoards() {
+        List<int[][]> boards = new ArrayList<>();
+        Random random = new Random(SEED);
+        for (int[][] level : MapModel.LEVELS) {
+            int[][] board = PuzzleRules.copyBoard(level);
+            boards.add(board);
+            for (int step = 0; step < WALK_LENGTH; step++) {
+                List<AISolver.Move> moves = PuzzleRules.legalMoves(board);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                board = PuzzleRules.applyMoveCopy(board, moves.get(random.nextInt(moves.size())));
+                boards.add(board);
+            }
+        }
+        return boards;
+    }
+
+    private static boolean matches(String name, String filter) {
+        return filter.isEmpty() || name.contains(filter);
+    }
+}
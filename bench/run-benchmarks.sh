@@ -0,0 +1,18 @@
+#!/bin/sh
+# Compile the game together with the benchmarks and run them.
+#
+# Usage: bench/run-benchmarks.sh [name-filter]
+# Tuning: JAVA_OPTS="-Dbench.iterations=20 -Dbench.solveBudgetMillis=10000" bench/run-benchmarks.sh
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="${TMPDIR:-/tmp}/klotski-bench"
+CP="$ROOT/json.jar:$ROOT/lib/junit-platform-console-standalone-1.13.0-M3.jar"
+
+rm -rf "$OUT"
+mkdir -p "$OUT/classes"
+find "$ROOT" -name '*.java' -not -path "$ROOT/out/*" > "$OUT/sources.txt"
+javac -encoding UTF-8 -nowarn -d "$OUT/classes" -cp "$CP" @"$OUT/sources.txt"
+
+# Fixed heap so allocation and GC numbers are comparable between runs
+java -Xms1g -Xmx1g $JAVA_OPTS -cp "$OUT/classes:$CP" model.SolverBenchmarks "$@"
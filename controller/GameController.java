@@ -2,12 +2,13 @@ package controller;
 
 // Resolve ambiguous imports by using explicit imports
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Stack;
+import java.util.concurrent.ExecutionException;
 import javax.swing.BorderFactory;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.Timer;
 import java.awt.Color;
 import java.awt.Component;
@@ -16,8 +17,20 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Toolkit;
 import model.Direction;
+import model.FileLevelPack;
+import model.GameEngine;
+import model.LevelDefinition;
+import model.LevelPack;
+import model.Log;
 import model.MapModel;
+import model.MoveHistory;
+import model.MoveJournal;
+import model.PieceLayout;
 import model.Prop;
+import model.PuzzleRules;
+import model.SaveExecutor;
+import model.SaveGame;
+import model.SaveSlots;
 import view.game.AnimationHandler;
 import view.game.BoxComponent;
 import view.game.GamePanel;
@@ -30,52 +43,95 @@ import java.io.*;
  * You can design several methods about the game logic in this class.
  */
 public class GameController {
+    private static final Log LOG = Log.get(GameController.class);
+    // One writer thread for every game window, so saves and loads of a user never race
+    private static final SaveExecutor SAVES = new SaveExecutor();
+    // A full snapshot is journaled after this many records, bounding the replay on recovery
+    private static final int JOURNAL_SNAPSHOT_INTERVAL = 64;
+    // Slide time of a single move, and the floor when queued moves speed it up
+    private static final int ANIMATION_MILLIS = 350;
+    private static final int MIN_ANIMATION_MILLIS = 60;
+    // Moves buffered while a piece is sliding
+    private static final int MAX_QUEUED_MOVES = 3;
+    // Kinds of obstacle event collected during a move, shown once the move is on screen
+    private static final int OBSTACLE_RESTORED = 0;
+    private static final int OBSTACLE_WAITING = 1;
+
     private final GamePanel view;
-    private MapModel model;
-    private Stack<int[][]> moveHistory;
+    // The rules: board, history, props and obstacles. This class only presents them.
+    private final GameEngine engine = new GameEngine(LevelPack.builtIn(), 0);
+    // {row, col, kind} of the obstacle events of the move being made
+    private final List<int[]> obstacleEvents = new ArrayList<>();
+    private final MoveQueue inputQueue = new MoveQueue(MAX_QUEUED_MOVES);
+    // The slide of the last move, until it completes
+    private AnimationHandler currentAnimation;
+    // Off to place pieces without sliding, e.g. for fast replay
+    private boolean animationsEnabled = true;
     private String currentUser;
-    private int currentLevel;
-    
-    // Props management
-    private Map<Prop.PropType, Prop> availableProps = new HashMap<>();
-    private ArrayList<int[]> removedObstacles = new ArrayList<>(); // [row, col, stepsRemaining]
+    // The hint search in flight, so a second click does not start another
+    private SwingWorker<List<model.AISolver.Move>, Void> hintSearch;
+
+    // Move journal of the current session; the journal itself is only touched on the SAVES thread
+    private MoveJournal journal;
+    private boolean journalStarted;
+    private int journalRecords;
+
+    // Save slots of the current user; only touched on the SAVES thread
+    private SaveSlots saveSlots;
+    // Slot the game was last saved to or loaded from, offered as the default name
+    private String currentSlot;
 
+    /**
+     * @param model The board the view was built from; the game starts properly with
+     *              setLevel or restartGame, which replace it
+     */
     public GameController(GamePanel view, MapModel model) {
-        this.moveHistory = new Stack<>();
         this.view = view;
-        this.model = model;
-        this.currentLevel = 0; // Default to first level
+        engine.setListener(new GameEngine.Listener() {
+            @Override
+            public void obstacleRestored(int row, int col) {
+                LOG.info(() -> "Obstacle at [" + row + "," + col + "] has been restored");
+                obstacleEvents.add(new int[] {row, col, OBSTACLE_RESTORED});
+            }
+
+            @Override
+            public void obstacleWaiting(int row, int col) {
+                LOG.debug(() -> "Cannot restore obstacle at [" + row + "," + col + "] yet, position is occupied");
+                obstacleEvents.add(new int[] {row, col, OBSTACLE_WAITING});
+            }
+        });
         view.setController(this);
     }
 
-    private int moveCount = 0;
-
     public int getMoveCount() {
-        return moveCount;
+        return engine.getMoveCount();
     }
 
     public void setCurrentUser(String username) {
         this.currentUser = username;
+        // The journal is per user, so the next record starts a new session
+        this.journalStarted = false;
+        this.currentSlot = null;
     }
 
     public void setLevel(int level) {
+        setLevel(LevelPack.builtIn(), level);
+    }
+
+    /**
+     * Start a level from any pack; restartGame and the level count then refer to that pack
+     */
+    public void setLevel(LevelPack pack, int level) {
+        cancelPendingInput();
+        LevelPack previous = engine.getLevelPack();
         // Reset game with specified level
-        this.currentLevel = level;
-        this.model = new MapModel(level);
-        this.moveCount = 0;
-        this.moveHistory.clear();
-        moveHistory.push(model.copyMatrix());
-        view.resetBoard(model.getMatrix());
+        engine.loadLevel(pack, level);
+        closeReplaced(previous);
+        view.resetBoard(engine.getBoard());
         view.updateMoveCount(0);
         
-        // Add debug logging to help trace prop initialization
-        System.out.println("GameController: Setting level to " + level + 
-                         " (" + MapModel.LEVEL_NAMES[level] + ")");
-        System.out.println("Props allowed for this level: " + MapModel.LEVEL_PROPS_ALLOWED[level]);
-        
-        // Always initialize props, even if they're not allowed for this level
-        // This ensures consistent behavior across all levels
-        initializeProps(level);
+        LOG.info(() -> "Setting level to " + level + " (" + engine.getLevel().getName() + "), props allowed: "
+                + engine.getLevel().isPropsAllowed());
         
         // Find the GameFrame and update the prop panel
         view.game.GameFrame gameFrame = null;
@@ -85,42 +141,22 @@ public class GameController {
             // Force update of prop panel visibility and contents
             gameFrame.updatePropPanelVisibility(level);
             
-            // Log prop availability after initialization
-            System.out.println("After initialization - Prop counts: " + 
-                             "Hint: " + getPropCount(Prop.PropType.HINT) + ", " +
-                             "Time Bonus: " + getPropCount(Prop.PropType.TIME_BONUS) + ", " +
-                             "Obstacle Remover: " + getPropCount(Prop.PropType.OBSTACLE_REMOVER));
+            LOG.debug(this::propCounts);
         } else {
-            System.out.println("Warning: Could not find GameFrame to update prop panel");
+            LOG.warn("Could not find GameFrame to update prop panel");
         }
+        startJournal();
         
         view.requestFocusInWindow();
     }
     
     /**
-     * Initialize props based on the difficulty level
+     * Give the player the props of the current level again
      * 
-     * @param level The difficulty level (0-3)
+     * @param level The level index in the current pack (the level being played)
      */
     public void initializeProps(int level) {
-        availableProps.clear();
-        removedObstacles.clear();
-        
-        // Check if props are allowed for this level
-        if (!MapModel.LEVEL_PROPS_ALLOWED[level]) {
-            return; // No props for Easy and Master levels
-        }
-        
-        // Initialize props based on difficulty
-        if (level == 1) { // Hard level
-            availableProps.put(Prop.PropType.HINT, new Prop(Prop.PropType.HINT, 2));
-            availableProps.put(Prop.PropType.TIME_BONUS, new Prop(Prop.PropType.TIME_BONUS, 3));
-            availableProps.put(Prop.PropType.OBSTACLE_REMOVER, new Prop(Prop.PropType.OBSTACLE_REMOVER, 1));
-        } else if (level == 2) { // Expert level
-            availableProps.put(Prop.PropType.HINT, new Prop(Prop.PropType.HINT, 1));
-            availableProps.put(Prop.PropType.TIME_BONUS, new Prop(Prop.PropType.TIME_BONUS, 2));
-            availableProps.put(Prop.PropType.OBSTACLE_REMOVER, new Prop(Prop.PropType.OBSTACLE_REMOVER, 2));
-        }
+        engine.resetProps();
     }
     
     /**
@@ -130,12 +166,7 @@ public class GameController {
      * @return true if the prop is available
      */
     public boolean isPropAvailable(Prop.PropType type) {
-        if (!MapModel.LEVEL_PROPS_ALLOWED[currentLevel]) {
-            return false;
-        }
-        
-        Prop prop = availableProps.get(type);
-        return prop != null && prop.isAvailable();
+        return engine.isPropAvailable(type);
     }
     
     /**
@@ -145,29 +176,36 @@ public class GameController {
      * @return The number of props available, or 0 if none
      */
     public int getPropCount(Prop.PropType type) {
-        Prop prop = availableProps.get(type);
-        return prop != null ? prop.getCount() : 0;
+        return engine.getPropCount(type);
+    }
+    
+    /**
+     * Get the obstacles that are currently removed
+     * 
+     * @return Copies of the {row, col, stepsRemaining} entries (a negative step count means waiting to reappear)
+     */
+    public List<int[]> getRemovedObstacles() {
+        return engine.getRemovedObstacles();
+    }
+    
+    /**
+     * Bring the pieces on screen in line with the model, e.g. after a prop changed the board outside a move
+     */
+    public void refreshBoard() {
+        view.updateBoard(engine.getBoard());
     }
 
     public void restartGame() {
-        restartGame(currentLevel);
+        restartGame(engine.getLevelIndex());
     }
 
     public void restartGame(int level) {
-        // Reset to specified level's initial board state
-        this.currentLevel = level;
-        this.model = new MapModel(level);
-        this.moveCount = 0;
-        this.moveHistory.clear();
-        // Save initial state to allow undo back to start
-        moveHistory.push(model.copyMatrix());
-        view.resetBoard(model.getMatrix());
+        cancelPendingInput();
+        // Reset to specified level's initial board state, with its props
+        engine.loadLevel(engine.getLevelPack(), level);
+        view.resetBoard(engine.getBoard());
         view.updateMoveCount(0);
         
-        // Always initialize props for the level, regardless of whether props are allowed
-        // This ensures prop counts are properly set for all difficulty levels
-        initializeProps(level);
-        
         // Ensure prop panel is visible and properly initialized in GameFrame
         if (view.getParent() != null && view.getParent().getParent() instanceof view.game.GameFrame) {
             view.game.GameFrame gameFrame = (view.game.GameFrame) view.getParent().getParent();
@@ -175,310 +213,278 @@ public class GameController {
             // Force update of prop panel visibility and contents
             gameFrame.updatePropPanelVisibility(level);
             
-            // Log prop panel status for debugging
-            System.out.println("GameController: Updated prop panel for level " + level + 
-                             " (" + MapModel.LEVEL_NAMES[level] + ")");
-            System.out.println("Prop availability: " + 
-                             "Hint: " + getPropCount(Prop.PropType.HINT) + ", " +
-                             "Time Bonus: " + getPropCount(Prop.PropType.TIME_BONUS) + ", " +
-                             "Obstacle Remover: " + getPropCount(Prop.PropType.OBSTACLE_REMOVER));
+            LOG.debug(this::propCounts);
         }
+        startJournal();
         
         view.requestFocusInWindow();
     }
 
 
+    private String propCounts() {
+        return "Prop counts - Hint: " + getPropCount(Prop.PropType.HINT)
+                + ", Time Bonus: " + getPropCount(Prop.PropType.TIME_BONUS)
+                + ", Obstacle Remover: " + getPropCount(Prop.PropType.OBSTACLE_REMOVER);
+    }
+
     public int getLevelCount() {
-        return MapModel.LEVELS.length;
+        return engine.getLevelPack().size();
+    }
+
+    public LevelPack getLevelPack() {
+        return engine.getLevelPack();
+    }
+
+    /**
+     * Close a pack file the game has stopped playing. The controller owns the pack it
+     * plays, so nothing else is reading it once the engine has moved on.
+     */
+    private void closeReplaced(LevelPack previous) {
+        if (previous instanceof FileLevelPack && previous != engine.getLevelPack()) {
+            try {
+                ((FileLevelPack) previous).close();
+            } catch (IOException e) {
+                LOG.warn("Could not close level pack " + ((FileLevelPack) previous).getFile(), e);
+            }
+        }
+    }
+
+    /**
+     * The rules of the level being played
+     */
+    public LevelDefinition getLevelDefinition() {
+        return engine.getLevel();
     }
 
+    /**
+     * Revert the last move, or the last obstacle removal, touching only the cells and the
+     * piece it changed
+     *
+     * @return false if there is nothing to undo
+     */
     public boolean undoMove() {
-        if (moveHistory.isEmpty() || moveCount <= 0) {
+        cancelPendingInput();
+        MoveHistory.Step step = engine.undo();
+        if (step == null) {
             return false;
         }
-
-        int[][] previousState = moveHistory.pop();
-        this.model = new MapModel(previousState);
-        this.moveCount--;
-        view.resetBoard(previousState);
-        view.updateMoveCount(moveCount);
+        int[][] board = engine.getModel().copyMatrix();
+        List<int[]> obstacles = getRemovedObstacles();
+        int timeLeft = timeLeft();
+        if (step.isMove()) {
+            Direction direction = step.getDirection();
+            if (direction != null) {
+                showStep(step, step.getRow() + direction.getRow(), step.getCol() + direction.getCol(),
+                        direction.opposite());
+            } else {
+                showStep(step, -1, -1, null);
+            }
+            journal(j -> j.appendUndo(board, obstacles, timeLeft));
+        } else {
+            // The engine gave back the prop whose effect was undone
+            view.updateBoard(engine.getBoard());
+            refreshPropPanel();
+            journal(j -> j.appendUndoProp(step.getProp(), board, obstacles, timeLeft));
+        }
+        view.updateMoveCount(engine.getMoveCount());
         return true;
     }
 
-    private boolean canMove(int row, int col, int width, int height, Direction direction) {
-        // System.err.println("Checking move from ["+row+"]["+col+"] size "+width+"x"+height+" dir "+direction);
-        
-        // Get the block type being moved
-        int blockType = model.getId(row, col);
-
-        // Check boundaries first
-        if (direction == Direction.UP && row == 0) return false;
-        if (direction == Direction.DOWN && row + height >= model.getHeight()) return false;
-        if (direction == Direction.LEFT && col == 0) return false;
-        if (direction == Direction.RIGHT && col + width >= model.getWidth()) return false;
-
-        // Debug info for military camps
-        System.out.println("canMove check: blockType=" + blockType + ", direction=" + direction);
-        
-        // Check all cells in movement direction
-        if (direction == Direction.UP) {
-            for (int c = col; c < col + width; c++) {
-                int targetCell = model.getId(row - 1, c);
-                System.out.println("  Checking UP at [" + (row-1) + "," + c + "] = " + targetCell);
-                
-                // Only block movement if target cell is occupied by another piece
-                if (targetCell > 0 && targetCell < MapModel.BLOCKED) return false;
-                
-                // Only block movement for BLOCKED cells (always immovable)
-                if (targetCell == MapModel.BLOCKED) return false;
-                
-                // Military camps: allow soldiers to move onto them, block others
-                if (targetCell == MapModel.MILITARY_CAMP) {
-                    if (blockType == MapModel.SOLDIER) {
-                        System.out.println("  Allowing soldier to move onto military camp");
-                    } else {
-                        System.out.println("  Blocking non-soldier from moving onto military camp");
-                        return false;
-                    }
-                }
-            }
+    /**
+     * Re-apply the last undone move or obstacle removal
+     *
+     * @return false if there is nothing to redo
+     */
+    public boolean redoMove() {
+        cancelPendingInput();
+        MoveHistory.Step step = engine.redo();
+        if (step == null) {
+            return false;
         }
-        else if (direction == Direction.DOWN) {
-            for (int c = col; c < col + width; c++) {
-                int targetCell = model.getId(row + height, c);
-                System.out.println("  Checking DOWN at [" + (row+height) + "," + c + "] = " + targetCell);
-                
-                // Only block movement if target cell is occupied by another piece
-                if (targetCell > 0 && targetCell < MapModel.BLOCKED) return false;
-                
-                // Only block movement for BLOCKED cells (always immovable)
-                if (targetCell == MapModel.BLOCKED) return false;
-                
-                // Military camps: allow soldiers to move onto them, block others
-                if (targetCell == MapModel.MILITARY_CAMP) {
-                    if (blockType == MapModel.SOLDIER) {
-                        System.out.println("  Allowing soldier to move onto military camp");
-                    } else {
-                        System.out.println("  Blocking non-soldier from moving onto military camp");
-                        return false;
-                    }
+        int[][] board = engine.getModel().copyMatrix();
+        List<int[]> obstacles = getRemovedObstacles();
+        int timeLeft = timeLeft();
+        if (step.isMove()) {
+            Direction direction = step.getDirection();
+            showStep(step, step.getRow(), step.getCol(), direction);
+            view.updateMoveCount(engine.getMoveCount());
+            if (direction != null) {
+                journal(j -> j.appendMove(step.getRow(), step.getCol(), direction, board, obstacles, timeLeft));
+                if (engine.isWon()) {
+                    logVictory();
+                    showVictory();
                 }
+            } else {
+                // Moves restored from a save do not know their piece; journal the result as a new snapshot
+                startJournal();
             }
+        } else {
+            view.updateBoard(engine.getBoard());
+            refreshPropPanel();
+            journal(j -> j.appendProp(step.getProp(), step.getRow(), step.getCol(), board, obstacles, timeLeft));
         }
-        else if (direction == Direction.LEFT) {
-            for (int r = row; r < row + height; r++) {
-                int targetCell = model.getId(r, col - 1);
-                System.out.println("  Checking LEFT at [" + r + "," + (col-1) + "] = " + targetCell);
-                
-                // Only block movement if target cell is occupied by another piece
-                if (targetCell > 0 && targetCell < MapModel.BLOCKED) return false;
-                
-                // Only block movement for BLOCKED cells (always immovable)
-                if (targetCell == MapModel.BLOCKED) return false;
-                
-                // Military camps: allow soldiers to move onto them, block others
-                if (targetCell == MapModel.MILITARY_CAMP) {
-                    if (blockType == MapModel.SOLDIER) {
-                        System.out.println("  Allowing soldier to move onto military camp");
-                    } else {
-                        System.out.println("  Blocking non-soldier from moving onto military camp");
-                        return false;
-                    }
-                }
-            }
+        return true;
+    }
+
+    public boolean canUndo() {
+        return engine.canUndo();
+    }
+
+    public boolean canRedo() {
+        return engine.canRedo();
+    }
+
+    private void logVictory() {
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("Board after Cao Cao move:\n" + boardToString(engine.getBoard()));
         }
-        else if (direction == Direction.RIGHT) {
-            for (int r = row; r < row + height; r++) {
-                int targetCell = model.getId(r, col + width);
-                System.out.println("  Checking RIGHT at [" + r + "," + (col+width) + "] = " + targetCell);
-                
-                // Only block movement if target cell is occupied by another piece
-                if (targetCell > 0 && targetCell < MapModel.BLOCKED) return false;
-                
-                // Only block movement for BLOCKED cells (always immovable)
-                if (targetCell == MapModel.BLOCKED) return false;
-                
-                // Military camps: allow soldiers to move onto them, block others
-                if (targetCell == MapModel.MILITARY_CAMP) {
-                    if (blockType == MapModel.SOLDIER) {
-                        System.out.println("  Allowing soldier to move onto military camp");
-                    } else {
-                        System.out.println("  Blocking non-soldier from moving onto military camp");
-                        return false;
-                    }
-                }
-            }
+        LOG.info(() -> "Victory: Cao Cao reached the exit in " + engine.getMoveCount() + " moves");
+    }
+
+    /**
+     * Show an undone or redone move by moving just its piece, or let the view diff the
+     * board when the step also changed obstacles or its piece is not known
+     *
+     * @param direction Direction the piece at (fromRow, fromCol) went, null if not known
+     */
+    private void showStep(MoveHistory.Step step, int fromRow, int fromCol, Direction direction) {
+        if (direction == null) {
+            view.updateBoard(engine.getBoard());
+            return;
         }
+        int toRow = fromRow + direction.getRow();
+        int toCol = fromCol + direction.getCol();
+        if (step.changesObstacles() || !view.moveBox(fromRow, fromCol, toRow, toCol)) {
+            view.updateBoard(engine.getBoard());
+        }
+    }
 
-        // System.out.println("Move valid");
-        return true;
+    private void refreshPropPanel() {
+        view.game.GameFrame gameFrame = findGameFrame();
+        if (gameFrame != null) {
+            gameFrame.getPropPanel().updatePropAvailability();
+        }
     }
 
-    public boolean doMove(int row, int col, Direction direction) {
-        // Get the block type at the current position
-        int blockType = model.getId(row, col);
-        
-        // Determine block dimensions based on type
-        int width = 1;
-        int height = 1;
-        final boolean isGeneral = blockType == MapModel.GENERAL; // Make final for lambda usage
-
-        if (blockType == MapModel.CAO_CAO) { // 2x2 block
-            width = 2;
-            height = 2;
-        } else if (blockType == MapModel.GUAN_YU) { // 2x1 block
-            width = 2;
-            height = 1;
-        } else if (blockType == MapModel.GENERAL) { // 1x2 block
-            width = 1;
-            height = 2;
-        } else if (blockType == MapModel.ZHOU_YU) { // 1x3 block
-            width = 3;
-            height = 1;
-        } else if (blockType == MapModel.BLOCKED || blockType == MapModel.MILITARY_CAMP) { // Immovable pieces
+    /**
+     * Move the selected piece in response to player input. While a piece is still sliding
+     * the move is queued and played as soon as the slide ends, with queued slides
+     * shortened so the board keeps up; when the queue is full the running slide is
+     * finished at once to make room.
+     *
+     * @return true if the move was made or queued
+     */
+    public boolean requestMove(Direction direction) {
+        if (view.getSelectedBox() == null) {
             return false;
         }
+        if (currentAnimation == null || !currentAnimation.isRunning()) {
+            BoxComponent box = view.getSelectedBox();
+            return doMove(box.getRow(), box.getCol(), direction);
+        }
+        if (inputQueue.isFull()) {
+            // Back-pressure: catch up instead of letting the backlog grow
+            currentAnimation.finish();
+        }
+        boolean queued = inputQueue.offer(direction);
+        LOG.trace(() -> (queued ? "Queued " : "Dropped ") + direction + ", " + inputQueue.size() + " waiting");
+        return queued;
+    }
 
-        boolean canMove = canMove(row, col, width, height, direction);
+    /**
+     * Play the oldest queued move once the previous slide has finished
+     */
+    private void playQueuedMove() {
+        Direction next = inputQueue.poll();
+        BoxComponent box = view.getSelectedBox();
+        if (next == null || box == null) {
+            inputQueue.clear();
+            return;
+        }
+        int duration = Math.max(MIN_ANIMATION_MILLIS, ANIMATION_MILLIS / (2 + inputQueue.size()));
+        if (!doMove(box.getRow(), box.getCol(), next, duration)) {
+            // The piece hit something; the rest of the queue was typed assuming it would not
+            inputQueue.clear();
+        }
+    }
+
+    /**
+     * Drop queued input and snap any sliding piece to its place, before the board is
+     * replaced or rewound
+     */
+    private void cancelPendingInput() {
+        inputQueue.clear();
+        if (currentAnimation != null) {
+            currentAnimation.finish();
+            currentAnimation = null;
+        }
+    }
+
+    public boolean doMove(int row, int col, Direction direction) {
+        return doMove(row, col, direction, ANIMATION_MILLIS);
+    }
+
+    /**
+     * With animations off, moved pieces jump straight to their new cells. Game state is
+     * the same either way; it is always updated before anything is drawn.
+     */
+    public void setAnimationsEnabled(boolean enabled) {
+        this.animationsEnabled = enabled;
+    }
+
+    private boolean doMove(int row, int col, Direction direction, int animationDuration) {
+        // A piece still sliding from an earlier move jumps to its place first, so the
+        // earlier move is fully shown (and anything it triggers has run) before this one
+        if (currentAnimation != null && currentAnimation.isRunning()) {
+            currentAnimation.finish();
+        }
         
-        // Get the selected box component
-        final BoxComponent box = view.getSelectedBox();
+        // The component of the piece being moved
+        final BoxComponent box = view.getBoxAt(row, col);
+        final int blockType = engine.getModel().getId(row, col);
         
-        if (canMove) {
-            // Calculate new top-left position
+        // Commit the move: all game state is final before anything is drawn
+        obstacleEvents.clear();
+        if (engine.move(row, col, direction)) {
             final int nextRow = row + direction.getRow();
             final int nextCol = col + direction.getCol();
+            LOG.trace(() -> "Moved piece " + blockType + " " + direction + " from [" + row + "," + col + "]");
             
-            // Save current matrix state before modifying
-            final int[][] originalMatrix = model.copyMatrix();
-            
-            // Store original position for animations
-            final int originalX = box.getX();
-            final int originalY = box.getY();
-            
-            // Update the component's logical position
-            box.setRow(nextRow);
-            box.setCol(nextCol);
-            
-            // Clear the old positions in the model
-            clearOldPositions(row, col, width, height);
-            
-            // Set the new positions in the model
-            setNewPositions(nextRow, nextCol, width, height, blockType);
-            
-            // Fixed offset values for consistent positioning
-            int xOffset = view.getWidth() / 2 - (model.getWidth() * view.getGRID_SIZE()) / 2;
-            int yOffset = 100; // Fixed vertical padding value
-            
-            // Ensure minimum offset values
-            if (xOffset < 10) xOffset = 10;
-            if (yOffset < 10) yOffset = 10;
-            
-            // Calculate precise target position - use EXACT grid size value
-            int GRID_SIZE = view.getGRID_SIZE();
-            System.out.println("GRID_SIZE = " + GRID_SIZE);
-            
-            int targetX = xOffset + nextCol * GRID_SIZE;
-            int targetY = yOffset + nextRow * GRID_SIZE;
-            
-            // Debug positioning calculation
-            System.out.println("Target position: (" + targetX + "," + targetY + ")");
-            System.out.println("Current position: (" + box.getX() + "," + box.getY() + ")");
-            System.out.println("Movement delta: (" + (targetX - box.getX()) + "," + (targetY - box.getY()) + ")");
-            
-            // Force minimum movement delta based on direction
-            // This ensures animation always has a meaningful distance to travel
-            int minDelta = GRID_SIZE / 2; // Minimum 35px movement
-            
-            // Set direction-specific deltas
-            if (direction == Direction.LEFT && targetX >= box.getX()) {
-                targetX = box.getX() - GRID_SIZE;
-                System.out.println("Forcing LEFT movement, new targetX: " + targetX);
-            } 
-            else if (direction == Direction.RIGHT && targetX <= box.getX()) {
-                targetX = box.getX() + GRID_SIZE;
-                System.out.println("Forcing RIGHT movement, new targetX: " + targetX);
-            }
-            else if (direction == Direction.UP && targetY >= box.getY()) {
-                targetY = box.getY() - GRID_SIZE;
-                System.out.println("Forcing UP movement, new targetY: " + targetY);
-            }
-            else if (direction == Direction.DOWN && targetY <= box.getY()) {
-                targetY = box.getY() + GRID_SIZE;
-                System.out.println("Forcing DOWN movement, new targetY: " + targetY);
-            }
-            
-            // Debug new delta
-            System.out.println("Adjusted movement delta: (" + 
-                             (targetX - box.getX()) + "," + (targetY - box.getY()) + ")");
-            
-            // Safety check bounds
-            if (targetX < 0) targetX = 0;
-            if (targetY < 0) targetY = 0;
-            if (targetX > view.getWidth() - box.getWidth()) {
-                targetX = view.getWidth() - box.getWidth();
+            int[][] board = engine.getModel().copyMatrix();
+            List<int[]> obstacles = getRemovedObstacles();
+            int timeLeft = timeLeft();
+            journal(j -> j.appendMove(row, col, direction, board, obstacles, timeLeft));
+            List<int[]> events = obstacleEvents.isEmpty() ? java.util.Collections.emptyList()
+                    : new ArrayList<>(obstacleEvents);
+            boolean won = engine.isWon();
+            if (won) {
+                logVictory();
             }
-            if (targetY > view.getHeight() - box.getHeight()) {
-                targetY = view.getHeight() - box.getHeight();
-            }
-            
-            // Mark as animating
-            box.setAnimating(true);
             
-            // Use a fixed animation duration for all pieces - longer to ensure smooth movement
-            int animationDuration = 350; // Increased duration for even smoother animation
-            
-            // Debug print
-            System.out.println("Animating piece " + blockType + 
-                              " dir=" + direction + 
-                              " from [" + row + "," + col + "] to [" + nextRow + "," + nextCol + "]");
-                
-            // Create animation handler with improved version
-            final AnimationHandler animation = new AnimationHandler(
-                box, 
-                targetX, 
-                targetY, 
-                animationDuration, 
-                () -> {
-                    // Animation complete callback
-                    box.setAnimating(false);
-                    
-                    // Special handling for General pieces, but in a unified way
-                    if (isGeneral) {
-                        // The General is a vertical piece (1 wide, 2 tall)
-                        // Update both cells in the matrix to ensure consistency
-                        model.getMatrix()[nextRow][nextCol] = blockType;
-                        
-                        // Set second cell (below first cell)
-                        if (nextRow + 1 < model.getHeight()) {
-                            model.getMatrix()[nextRow + 1][nextCol] = blockType;
-                        }
-                        
-                        // Ensure repaint happens regardless
-                        box.repaint();
-                    } else {
-                        // For other pieces, just repaint
-                        box.repaint();
-                    }
-                    
-                    // Save game state - shared logic for all pieces
-                    moveHistory.push(model.copyMatrix());
-                    moveCount++;
-                    view.updateMoveCount(moveCount);
-                    
-                    // Check for obstacle restoration
-                    checkObstacleRestoration();
-                    
-                    // Check for victory
-                    checkVictoryCondition(blockType, nextRow, nextCol);
+            // Then show it; the animation only moves pixels
+            view.updateMoveCount(engine.getMoveCount());
+            Runnable shown = () -> {
+                if (!events.isEmpty()) {
+                    showObstacleEvents(events);
                 }
-            );
-            
-            // Set block type and start the animation
-            animation.setBlockType(blockType);
-            animation.start();
+                if (won) {
+                    showVictory();
+                } else if (!inputQueue.isEmpty()) {
+                    playQueuedMove();
+                }
+            };
+            if (box == null) {
+                // No component for the piece (e.g. a stale view); bring the view in line with the model
+                view.updateBoard(engine.getBoard());
+                shown.run();
+            } else {
+                animateMove(box, row, col, nextRow, nextCol, direction, blockType, animationDuration, shown);
+            }
             
             return true;
+        } else if (blockType == MapModel.BLOCKED || blockType == MapModel.MILITARY_CAMP) {
+            // Immovable pieces do not shake
+            return false;
         } else {
             // Enhanced collision feedback with small shake animation
             if (box != null) {
@@ -540,190 +546,199 @@ public class GameController {
         }
     }
     
-    // Track military camp positions to preserve them
-    private List<int[]> militaryCampPositions = new ArrayList<>();
-    
     /**
-     * Clear positions for the block being moved
+     * Slide a piece's component to its new cell, then run whenShown. The move has already
+     * been committed; with animations off or a zero duration the component jumps there.
      */
-    private void clearOldPositions(int row, int col, int width, int height) {
-        // Clear military camp positions from previous move
-        militaryCampPositions.clear();
-        
-        for (int r = row; r < row + height; r++) {
-            for (int c = col; c < col + width; c++) {
-                if (r < model.getHeight() && c < model.getWidth()) {
-                    // Check if this position originally had a military camp
-                    // This is crucial for Master level where military camps should remain
-                    if (currentLevel == 3) { // Master level
-                        // Check level 3 model if this position should be a military camp
-                        int originalCell = MapModel.LEVELS[3][r][c];
-                        if (originalCell == MapModel.MILITARY_CAMP) {
-                            System.out.println("Preserving military camp at [" + r + "," + c + "]");
-                            militaryCampPositions.add(new int[]{r, c});
-                        }
-                    }
-                    
-                    // Clear the cell
-                    model.getMatrix()[r][c] = 0;
-                }
-            }
-        }
-    }
-    
-    /**
-     * Set new positions for the block after movement
-     */
-    private void setNewPositions(int nextRow, int nextCol, int width, int height, int blockType) {
-        // Extra logging for debugging military camp movement
-        if (blockType == MapModel.SOLDIER) {
-            System.out.println("GameController: Moving a soldier to [" + nextRow + "," + nextCol + "]");
+    private void animateMove(BoxComponent box, int row, int col, int nextRow, int nextCol, Direction direction,
+                             int blockType, int animationDuration, Runnable whenShown) {
+        // Update the component's logical position
+        view.relocateBox(box, nextRow, nextCol);
+        if (!animationsEnabled || animationDuration <= 0) {
+            view.placeBox(box);
+            box.repaint();
+            whenShown.run();
+            return;
         }
         
-        // Store military camp positions that will be covered by the moved piece
-        List<int[]> coveredMilitaryCamps = new ArrayList<>();
+        // Fixed offset values for consistent positioning
+        int xOffset = view.getWidth() / 2 - (engine.getModel().getWidth() * view.getGRID_SIZE()) / 2;
+        int yOffset = 100; // Fixed vertical padding value
         
-        // First check if we're moving onto any military camps
-        for (int r = 0; r < height; r++) {
-            for (int c = 0; c < width; c++) {
-                int targetRow = nextRow + r;
-                int targetCol = nextCol + c;
-                
-                if (targetRow < model.getHeight() && targetCol < model.getWidth()) {
-                    // Check if target position is a military camp
-                    if (model.getMatrix()[targetRow][targetCol] == MapModel.MILITARY_CAMP) {
-                        // Only soldiers can step on military camps
-                        if (blockType == MapModel.SOLDIER) {
-                            System.out.println("GameController: Soldier will cover military camp at [" + 
-                                             targetRow + "," + targetCol + "]");
-                            coveredMilitaryCamps.add(new int[]{targetRow, targetCol});
-                        }
-                    }
-                }
-            }
+        // Ensure minimum offset values
+        if (xOffset < 10) xOffset = 10;
+        if (yOffset < 10) yOffset = 10;
+        
+        // Calculate precise target position - use EXACT grid size value
+        int GRID_SIZE = view.getGRID_SIZE();
+        
+        int targetX = xOffset + nextCol * GRID_SIZE;
+        int targetY = yOffset + nextRow * GRID_SIZE;
+        
+        // Debug positioning calculation
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("GRID_SIZE = " + GRID_SIZE + ", target position: (" + targetX + "," + targetY
+                    + "), current position: (" + box.getX() + "," + box.getY() + ")");
         }
         
-        // Now update positions with the moved piece
-        for (int r = 0; r < height; r++) {
-            for (int c = 0; c < width; c++) {
-                int targetRow = nextRow + r;
-                int targetCol = nextCol + c;
-                
-                if (targetRow < model.getHeight() && targetCol < model.getWidth()) {
-                    // Special handling for soldiers moving onto military camps
-                    boolean isMilitaryCampPosition = false;
-                    
-                    // Check if this position is a covered military camp
-                    for (int[] campPos : coveredMilitaryCamps) {
-                        if (campPos[0] == targetRow && campPos[1] == targetCol) {
-                            isMilitaryCampPosition = true;
-                            break;
-                        }
-                    }
-                    
-                    // For soldiers stepping on military camps, we still want to 
-                    // update the model to show the soldier (not the camp)
-                    model.getMatrix()[targetRow][targetCol] = blockType;
-                }
+        // Force minimum movement delta based on direction
+        // This ensures animation always has a meaningful distance to travel
+        if (direction == Direction.LEFT && targetX >= box.getX()) {
+            targetX = box.getX() - GRID_SIZE;
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Forcing LEFT movement, new targetX: " + targetX);
+            }
+        } 
+        else if (direction == Direction.RIGHT && targetX <= box.getX()) {
+            targetX = box.getX() + GRID_SIZE;
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Forcing RIGHT movement, new targetX: " + targetX);
             }
         }
-        
-        // Restore military camps that were saved during clearOldPositions
-        // This ensures military camps are preserved when pieces move off them
-        for (int[] campPos : militaryCampPositions) {
-            int row = campPos[0];
-            int col = campPos[1];
-            
-            // Only restore if the position is now empty (not occupied by the moved piece)
-            boolean isOccupiedByMovedPiece = false;
-            for (int r = 0; r < height; r++) {
-                for (int c = 0; c < width; c++) {
-                    if (nextRow + r == row && nextCol + c == col) {
-                        isOccupiedByMovedPiece = true;
-                        break;
-                    }
-                }
-                if (isOccupiedByMovedPiece) break;
+        else if (direction == Direction.UP && targetY >= box.getY()) {
+            targetY = box.getY() - GRID_SIZE;
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Forcing UP movement, new targetY: " + targetY);
             }
-            
-            if (!isOccupiedByMovedPiece) {
-                System.out.println("GameController: Restoring military camp at [" + row + "," + col + "]");
-                model.getMatrix()[row][col] = MapModel.MILITARY_CAMP;
+        }
+        else if (direction == Direction.DOWN && targetY <= box.getY()) {
+            targetY = box.getY() + GRID_SIZE;
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("Forcing DOWN movement, new targetY: " + targetY);
             }
         }
+        
+        // Safety check bounds
+        if (targetX < 0) targetX = 0;
+        if (targetY < 0) targetY = 0;
+        if (targetX > view.getWidth() - box.getWidth()) {
+            targetX = view.getWidth() - box.getWidth();
+        }
+        if (targetY > view.getHeight() - box.getHeight()) {
+            targetY = view.getHeight() - box.getHeight();
+        }
+        
+        // Mark as animating
+        box.setAnimating(true);
+        
+        LOG.debug(() -> "Animating piece " + blockType + " dir=" + direction
+                + " from [" + row + "," + col + "] to [" + nextRow + "," + nextCol + "]");
+        
+        final AnimationHandler animation = new AnimationHandler(box, targetX, targetY, animationDuration, () -> {
+            box.setAnimating(false);
+            box.repaint();
+            if (currentAnimation != null && !currentAnimation.isRunning()) {
+                currentAnimation = null;
+            }
+            whenShown.run();
+        });
+        
+        animation.setBlockType(blockType);
+        currentAnimation = animation;
+        animation.start();
     }
     
+    
     /**
-     * Use the hint prop to show the next best 3 moves
+     * Use the hint prop to show the next best 3 moves. The search runs on a SwingWorker and
+     * the hint is shown, and the prop spent, once it comes back on the EDT
+     *
+     * @return true if a hint search was started
      */
     public boolean useHintProp() {
-        if (!isPropAvailable(Prop.PropType.HINT)) {
+        if (!isPropAvailable(Prop.PropType.HINT) || hintSearch != null) {
             return false;
         }
         
-        // Use AI solver to find the best move
-        model.AISolver solver = new model.AISolver(this.model, this);
-        if (solver.findSolution()) {
-            // Get moves from the solution if available
-            if (solver.getSolutionLength() > 0) {
-                // Get up to 3 steps from the solution
-                int stepsToShow = Math.min(3, solver.getSolutionLength());
-                StringBuilder hintMessage = new StringBuilder();
-                hintMessage.append("<html><b>Hint:</b> Here are the next ").append(stepsToShow).append(" moves:<br><br>");
-                
-                // Get the solution moves
-                List<model.AISolver.Move> solutionMoves = solver.getSolutionMoves(stepsToShow);
-                
-                // Build step-by-step hints
-                for (int i = 0; i < solutionMoves.size(); i++) {
-                    model.AISolver.Move move = solutionMoves.get(i);
-                    int pieceType = model.getId(move.row, move.col);
-                    String pieceName = getPieceNameByType(pieceType);
-                    
-                    hintMessage.append("<b>Step ").append(i+1).append(":</b> Move the ");
-                    hintMessage.append(pieceName).append(" piece at position [").append(move.row + 1).append(", ").append(move.col + 1);
-                    hintMessage.append("] ").append(getDirectionText(move.direction)).append("<br>");
+        // Use a bounded beam search so the hint comes back quickly even on large boards;
+        // its moves head for the exit but need not be part of a full solution. The worker
+        // only sees a snapshot, so the player can keep moving while it runs
+        int level = engine.getLevelIndex();
+        int[][] board = engine.getModel().copyMatrix();
+        int removers = getPropCount(Prop.PropType.OBSTACLE_REMOVER);
+        List<int[]> removed = getRemovedObstacles();
+        hintSearch = new SwingWorker<List<model.AISolver.Move>, Void>() {
+            @Override
+            protected List<model.AISolver.Move> doInBackground() {
+                return model.AISolver.findHint(board, removers, removed, 3);
+            }
+            
+            @Override
+            protected void done() {
+                hintSearch = null;
+                List<model.AISolver.Move> solutionMoves;
+                try {
+                    solutionMoves = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    LOG.warn("Hint search failed: " + e);
+                    solutionMoves = new ArrayList<>();
                 }
-                
-                hintMessage.append("</html>");
-                
-                // Show the hint dialog with the multi-step suggestions
-                JOptionPane.showMessageDialog(view,
-                    hintMessage.toString(),
-                    "Hint - Next " + stepsToShow + " Moves",
-                    JOptionPane.INFORMATION_MESSAGE);
-                
-                // Flash the piece that should be moved next to highlight it
-                // Find the box component for the first move
-                BoxComponent pieceToMove = findBoxAtPosition(solutionMoves.get(0).row, solutionMoves.get(0).col);
-                if (pieceToMove != null) {
-                    highlightNextMove(pieceToMove);
+                // A hint for a board the player has since moved away from would mislead
+                if (engine.getLevelIndex() != level || !Arrays.deepEquals(engine.getBoard(), board)) {
+                    LOG.debug("Board changed during the hint search, hint dropped");
+                    return;
                 }
-                
-                // Consume the prop
-                Prop hintProp = availableProps.get(Prop.PropType.HINT);
-                hintProp.use();
-                
-                return true;
+                showHint(board, solutionMoves);
             }
-            
-            // Fallback message if solution found but no moves available (shouldn't happen)
+        };
+        hintSearch.execute();
+        return true;
+    }
+    
+    /**
+     * Show the hint dialog, flash the next piece and spend the prop; on the EDT
+     */
+    private void showHint(int[][] board, List<model.AISolver.Move> solutionMoves) {
+        if (solutionMoves.isEmpty()) {
             JOptionPane.showMessageDialog(view,
-                "Hint: Try moving a piece toward the exit!",
+                "Sorry, no useful move found from the current position.",
                 "Hint",
-                JOptionPane.INFORMATION_MESSAGE);
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        int stepsToShow = solutionMoves.size();
+        StringBuilder hintMessage = new StringBuilder();
+        hintMessage.append("<html><b>Hint:</b> You could try ").append(stepsToShow == 1 ? "this move" : "these moves")
+                .append(" next:<br><br>");
+        
+        // Build step-by-step hints, replaying each move so later steps name the right piece
+        for (int i = 0; i < solutionMoves.size(); i++) {
+            model.AISolver.Move move = solutionMoves.get(i);
+            if (move.isObstacleRemoval()) {
+                hintMessage.append("<b>Step ").append(i+1).append(":</b> Use an Obstacle Remover on [")
+                        .append(move.row + 1).append(", ").append(move.col + 1).append("]<br>");
+                board = PuzzleRules.copyBoard(board);
+                board[move.row][move.col] = 0;
+                continue;
+            }
+            int pieceType = board[move.row][move.col];
+            String pieceName = getPieceNameByType(pieceType);
             
-            // Consume the prop
-            Prop hintProp = availableProps.get(Prop.PropType.HINT);
-            hintProp.use();
+            hintMessage.append("<b>Step ").append(i+1).append(":</b> Move the ");
+            hintMessage.append(pieceName).append(" piece at position [").append(move.row + 1).append(", ").append(move.col + 1);
+            hintMessage.append("] ").append(getDirectionText(move.direction)).append("<br>");
             
-            return true;
-        } else {
-            JOptionPane.showMessageDialog(view,
-                "Sorry, no solution found from the current position.",
-                "Hint",
-                JOptionPane.ERROR_MESSAGE);
-            return false;
+            board = PuzzleRules.applyMoveCopy(board, move);
+        }
+        
+        hintMessage.append("</html>");
+        
+        // Consume the prop before the modal dialog, so the panel is already up to date behind it
+        engine.consumeProp(Prop.PropType.HINT);
+        journalProp(Prop.PropType.HINT, 0, 0);
+        refreshPropPanel();
+        
+        // Show the hint dialog with the multi-step suggestions
+        JOptionPane.showMessageDialog(view,
+            hintMessage.toString(),
+            "Hint - Suggested Moves",
+            JOptionPane.INFORMATION_MESSAGE);
+        
+        // Flash the piece that should be moved next to highlight it
+        BoxComponent pieceToMove = findBoxAtPosition(solutionMoves.get(0).row, solutionMoves.get(0).col);
+        if (pieceToMove != null) {
+            highlightNextMove(pieceToMove);
         }
     }
     
@@ -731,44 +746,12 @@ public class GameController {
      * Find a box component at a specific position
      */
     private BoxComponent findBoxAtPosition(int row, int col) {
-        for (BoxComponent box : view.getBoxes()) {
-            int pieceType = model.getId(row, col);
-            // For multi-cell pieces, we need to find the top-left corner
-            int originRow = row;
-            int originCol = col;
-            
-            // Check for multi-cell pieces
-            if (pieceType == MapModel.CAO_CAO) { // 2x2
-                if (row > 0 && col > 0 && model.getId(row-1, col-1) == pieceType) {
-                    originRow = row-1;
-                    originCol = col-1;
-                } else if (row > 0 && model.getId(row-1, col) == pieceType) {
-                    originRow = row-1;
-                } else if (col > 0 && model.getId(row, col-1) == pieceType) {
-                    originCol = col-1;
-                }
-            } else if (pieceType == MapModel.GUAN_YU) { // 2x1
-                if (col > 0 && model.getId(row, col-1) == pieceType) {
-                    originCol = col-1;
-                }
-            } else if (pieceType == MapModel.GENERAL) { // 1x2
-                if (row > 0 && model.getId(row-1, col) == pieceType) {
-                    originRow = row-1;
-                }
-            } else if (pieceType == MapModel.ZHOU_YU) { // 1x3
-                if (col > 0 && model.getId(row, col-1) == pieceType) {
-                    originCol = col-1;
-                    if (col > 1 && model.getId(row, col-2) == pieceType) {
-                        originCol = col-2;
-                    }
-                }
-            }
-            
-            if (box.getRow() == originRow && box.getCol() == originCol) {
-                return box;
-            }
+        PieceLayout.Piece piece = engine.getModel().getPieces().pieceAt(row, col);
+        if (piece == null) {
+            return null;
         }
-        return null;
+        BoxComponent box = view.getBoxAt(piece.getRow(), piece.getCol());
+        return box != null && box.getRow() == piece.getRow() && box.getCol() == piece.getCol() ? box : null;
     }
     
     /**
@@ -876,8 +859,8 @@ public class GameController {
         
         if (success) {
             // Consume the prop
-            Prop timeProp = availableProps.get(Prop.PropType.TIME_BONUS);
-            timeProp.use();
+            engine.consumeProp(Prop.PropType.TIME_BONUS);
+            journalProp(Prop.PropType.TIME_BONUS, 0, 0);
         } else {
             JOptionPane.showMessageDialog(view,
                 "Time Bonus can only be used in Time Attack mode!",
@@ -896,11 +879,11 @@ public class GameController {
      * @return true if successful, false if the prop is not available or the target is not a removable obstacle
      */
     public boolean useObstacleRemoverProp(int row, int col) {
-        System.out.println("GameController: Attempting to remove obstacle at [" + row + "," + col + "]");
+        LOG.debug(() -> "Attempting to remove obstacle at [" + row + "," + col + "]");
         
         // Check if the prop is available
         if (!isPropAvailable(Prop.PropType.OBSTACLE_REMOVER)) {
-            System.out.println("GameController: Obstacle remover prop not available");
+            LOG.debug("Obstacle remover prop not available");
             JOptionPane.showMessageDialog(view,
                 "You don't have any obstacle remover props available.",
                 "Obstacle Remover",
@@ -908,14 +891,10 @@ public class GameController {
             return false;
         }
         
-        // Get the cell type directly from the model
-        int cellType = model.getId(row, col);
-        System.out.println("GameController: Cell type at [" + row + "," + col + "]: " + cellType);
-        
         // Check if the target is a removable obstacle
-        if (cellType != MapModel.BLOCKED) {
-            System.out.println("GameController: Target is not a removable obstacle (type=" + cellType + 
-                             ", expected=" + MapModel.BLOCKED + ")");
+        if (!engine.removeObstacle(row, col)) {
+            LOG.debug(() -> "Target at [" + row + "," + col + "] is not a removable obstacle (type="
+                    + engine.getModel().getId(row, col) + ")");
             JOptionPane.showMessageDialog(view,
                 "This prop can only be used on obstacles (gray blocks).",
                 "Obstacle Remover",
@@ -923,177 +902,42 @@ public class GameController {
             return false;
         }
         
-        // Debug helper
-        System.out.println("GameController: Confirmed obstacle at [" + row + "," + col + "]");
-        
-        // Determine how many steps the obstacle will be removed for
-        int stepsRemoved = 3; // Always 3 steps for consistency
-        
-        // Store the obstacle information for restoration
-        removedObstacles.add(new int[] {row, col, stepsRemoved});
-        
-        // Mark the obstacle as temporarily removed using negative value
-        model.getMatrix()[row][col] = -MapModel.BLOCKED;
-        
-        // Consume the prop
-        Prop obstacleProp = availableProps.get(Prop.PropType.OBSTACLE_REMOVER);
-        obstacleProp.use();
-        
-        System.out.println("GameController: Obstacle successfully removed for " + stepsRemoved + " steps");
-        System.out.println("GameController: removedObstacles list now has " + removedObstacles.size() + " items");
+        LOG.info(() -> "Obstacle at [" + row + "," + col + "] removed for " + GameEngine.OBSTACLE_REMOVAL_STEPS
+                + " steps, " + engine.getRemovedObstacles().size() + " removed in total");
+        journalProp(Prop.PropType.OBSTACLE_REMOVER, row, col);
         
         return true;
     }
     
     /**
-     * Check if any removed obstacles need to be restored after a move
+     * Put back the obstacles a move brought back, cell by cell, and tell the player about
+     * them and about any that could not come back because a piece is in the way. The
+     * notices are posted for later and never block the move.
      */
-    private void checkObstacleRestoration() {
-        if (removedObstacles.isEmpty()) {
-            return;
-        }
-        
-        ArrayList<int[]> obstaclesRestored = new ArrayList<>();
-        boolean viewNeedsUpdate = false;
-        
-        // Decrement step counters and restore obstacles that have reached zero
-        for (int[] obstacle : removedObstacles) {
-            int row = obstacle[0];
-            int col = obstacle[1];
-            int stepsLeft = obstacle[2] - 1;
-            
-            // Special case: stepsLeft is negative, which means this obstacle is waiting for its position to become clear
-            boolean waitingToRestore = stepsLeft < 0;
-            
-            if (waitingToRestore) {
-                // This obstacle is just waiting for its position to be clear, don't decrement further
-                stepsLeft = obstacle[2]; // Keep the negative value
-            }
-            
-            System.out.println("Checking obstacle at [" + row + "," + col + "] - Steps left: " + stepsLeft + 
-                             (waitingToRestore ? " (waiting for position to clear)" : ""));
-            
-            if (stepsLeft <= 0) {
-                // Check if the position is currently occupied by a piece
-                int cellValue = model.getId(row, col);
-                System.out.println("  Position content: " + cellValue);
-                
-                if (cellValue == 0) {
-                    // Position is empty, restore the obstacle
-                    model.getMatrix()[row][col] = MapModel.BLOCKED;
-                    obstaclesRestored.add(obstacle);
-                    viewNeedsUpdate = true;
-                    
-                    // Notify the user
-                    JOptionPane.showMessageDialog(view,
-                        "An obstacle has reappeared at position [" + (row+1) + "," + (col+1) + "]!",
-                        "Obstacle Restored",
-                        JOptionPane.INFORMATION_MESSAGE);
-                    
-                    System.out.println("  Obstacle at [" + row + "," + col + "] has been restored");
-                } else {
-                    // Position is occupied, keep the obstacle in the list but mark it as waiting to restore
-                    System.out.println("  Cannot restore obstacle at [" + row + "," + col + "] because position is occupied");
-                    System.out.println("  Will restore when position becomes clear");
-                    
-                    // Set stepsLeft to a special negative value to indicate waiting status
-                    if (stepsLeft == 0) {
-                        obstacle[2] = -1; // -1 means waiting for position to clear
-                    }
-                    
-                    // Show a warning message to the player if this is the first time we're waiting
-                    if (!waitingToRestore) {
-                        JOptionPane.showMessageDialog(view,
-                            "An obstacle is trying to reappear at position [" + (row+1) + "," + (col+1) + "],\n" +
-                            "but the position is currently occupied.\n" +
-                            "The obstacle will reappear when the position becomes clear.",
-                            "Obstacle Waiting",
-                            JOptionPane.WARNING_MESSAGE);
-                    }
-                }
+    private void showObstacleEvents(List<int[]> events) {
+        for (int[] event : events) {
+            int row = event[0];
+            int col = event[1];
+            String notice;
+            if (event[2] == OBSTACLE_RESTORED) {
+                view.restoreObstacle(row, col);
+                notice = "An obstacle has reappeared at [" + (row+1) + "," + (col+1) + "]";
             } else {
-                // Update the steps counter
-                obstacle[2] = stepsLeft;
-                System.out.println("  Obstacle at [" + row + "," + col + "] will reappear in " + stepsLeft + " moves");
+                notice = "An obstacle will reappear at [" + (row+1) + "," + (col+1) + "] once the piece there moves";
             }
-        }
-        
-        // Remove restored obstacles from the list
-        removedObstacles.removeAll(obstaclesRestored);
-        
-        // Update the view if any obstacles were restored
-        if (viewNeedsUpdate) {
-            view.resetBoard(model.getMatrix());
+            SwingUtilities.invokeLater(() -> view.showNotice(notice));
         }
     }
-    
-    private void checkVictoryCondition(int blockType, int nextRow, int nextCol) {
-        // Debug output for movement
-        System.out.printf("Moving block %d to [%d][%d] (model size %dx%d)\n",
-                blockType, nextRow, nextCol, model.getWidth(), model.getHeight());
-
-        // Check victory condition (Cao Cao covering exit position)
-        // Debug victory condition check
-        System.out.printf("Checking victory for block %d at [%d][%d] (model size %dx%d)\n",
-                blockType, nextRow, nextCol, model.getWidth(), model.getHeight());
-
-        // Check victory condition when CaoCao moves to exit position
-        if (blockType == MapModel.CAO_CAO) {
-            // Verify all 4 positions of CaoCao block (2x2)
-            boolean validPosition = true;
-            for (int r = nextRow; r < nextRow + 2; r++) {
-                for (int c = nextCol; c < nextCol + 2; c++) {
-                    if (r >= model.getHeight() || c >= model.getWidth() ||
-                            model.getId(r, c) != MapModel.CAO_CAO) {
-                        validPosition = false;
-                        System.out.printf("  [%d][%d]: %s (expected CAO_CAO)\n",
-                                r, c,
-                                r >= model.getHeight() || c >= model.getWidth() ?
-                                        "OUT_OF_BOUNDS" : model.getId(r, c));
-                    } else {
-                        System.out.printf("  [%d][%d]: OK\n", r, c);
-                    }
-                }
-            }
-
-            // Get the goal position based on board dimensions
-            int goalRow = model.getHeight() - 2;
-            int goalCol = (model.getWidth() / 2) - 1;
-            
-            // Victory occurs when CaoCao covers exit position at the bottom center
-            boolean coversExitPosition = (nextRow == goalRow && nextCol == goalCol);
-
-            // Victory condition - CaoCao must cover exit position at the bottom center
-            if (blockType == MapModel.CAO_CAO && nextRow == goalRow && nextCol == goalCol) {
-                // Additional check that all 4 CaoCao positions are valid
-                boolean allPositionsValid = true;
-                for (int r = nextRow; r < nextRow + 2; r++) {
-                    for (int c = nextCol; c < nextCol + 2; c++) {
-                        if (model.getId(r, c) != MapModel.CAO_CAO) {
-                            allPositionsValid = false;
-                            break;
-                        }
-                    }
-                    if (!allPositionsValid) break;
-                }
-
-                if (allPositionsValid) {
-                    System.out.println("***** VICTORY! CaoCao at exit position with DOWN press *****");
-                    System.out.println("CaoCao covers:");
-                    System.out.println("  [3][1] - [3][2]");
-                    System.out.println("  [4][1] - [4][2]");
-
-                    showVictory();
-                }
-            }
 
-            for (int r = 0; r < model.getHeight(); r++) {
-                for (int c = 0; c < model.getWidth(); c++) {
-                    System.out.printf("%2d ", model.getId(r, c));
-                }
-                System.out.println();
+    private static String boardToString(int[][] board) {
+        StringBuilder text = new StringBuilder();
+        for (int[] row : board) {
+            for (int cell : row) {
+                text.append(String.format("%2d ", cell));
             }
+            text.append('\n');
         }
+        return text.toString();
     }
 
     private void showVictory() {
@@ -1118,56 +962,213 @@ public class GameController {
 
         // More prominent victory message
         JOptionPane.showMessageDialog(view,
-                String.format("<html><h1>VICTORY!</h1><br>You won in %d moves!</html>", moveCount),
+                String.format("<html><h1>VICTORY!</h1><br>You won in %d moves!</html>", engine.getMoveCount()),
                 "Klotski Puzzle Solved!",
                 JOptionPane.INFORMATION_MESSAGE);
 
         restartGame();
     }
 
+    /**
+     * Ask for a slot name and save the game to it in the background
+     */
     public void saveGame() {
         if (currentUser == null || currentUser.isEmpty()) {
             JOptionPane.showMessageDialog(view, "Cannot save in guest mode", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        Object answer = JOptionPane.showInputDialog(view, "Save slot name:", "Save Game",
+                JOptionPane.PLAIN_MESSAGE, null, null, currentSlot != null ? currentSlot : "Slot 1");
+        String name = answer != null ? answer.toString().trim() : "";
+        if (!name.isEmpty()) {
+            saveGame(name);
+        }
+    }
 
-        try {
-            File savesDir = new File("saves");
-            if (!savesDir.exists()) {
-                savesDir.mkdir();
+    /**
+     * Save the game to a slot, replacing any save already in it
+     */
+    public void saveGame(String slotName) {
+        // The snapshot is taken here; encoding and the disk writes happen on the save thread
+        SaveGame save = snapshot();
+        File slotDirectory = slotDirectory();
+        SAVES.submit(() -> slots(slotDirectory).write(slotName, save))
+                .whenComplete((slot, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                currentSlot = slotName;
+                JOptionPane.showMessageDialog(view, "Game saved to \"" + slotName + "\"!", "Success",
+                        JOptionPane.INFORMATION_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(view, "Failed to save game: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                LOG.warn("Could not save slot \"" + slotName + "\"", error);
             }
+        }));
+    }
 
-            File saveFile = new File("saves/" + currentUser + ".sav");
-            try (FileOutputStream fos = new FileOutputStream(saveFile);
-                 DataOutputStream dos = new DataOutputStream(fos)) {
-                
-                // Write username
-                dos.writeUTF(currentUser);
-                
-                // Write move count
-                dos.writeInt(moveCount);
-                
-                // Write board dimensions
-                dos.writeInt(model.getHeight());
-                dos.writeInt(model.getWidth());
-                
-                // Write board state
-                for (int i = 0; i < model.getHeight(); i++) {
-                    for (int j = 0; j < model.getWidth(); j++) {
-                        dos.writeInt(model.getMatrix()[i][j]);
-                    }
+    /**
+     * The current user's save slots, read from the slot index only
+     *
+     * @return Completes on the save thread with the slots, most recently saved first
+     */
+    public java.util.concurrent.CompletableFuture<List<SaveSlots.Slot>> listSaveSlots() {
+        File slotDirectory = slotDirectory();
+        return SAVES.submit(() -> slots(slotDirectory).list());
+    }
+
+    /**
+     * Delete a save slot in the background
+     */
+    public java.util.concurrent.CompletableFuture<Boolean> deleteSaveSlot(String slotName) {
+        File slotDirectory = slotDirectory();
+        return SAVES.submit(() -> slots(slotDirectory).delete(slotName));
+    }
+
+    /**
+     * Whether a journaled session exists that loadGame can resume
+     */
+    public boolean hasResumableSession() {
+        return currentUser != null && !currentUser.isEmpty() && journalFile().isFile();
+    }
+
+    /**
+     * Start a new journal session from the current state (new level, restart or load)
+     */
+    private void startJournal() {
+        if (currentUser == null || currentUser.isEmpty()) {
+            return;
+        }
+        File file = journalFile();
+        SaveGame start = snapshot();
+        journalStarted = true;
+        journalRecords = 0;
+        SAVES.submit(() -> {
+            if (journal != null) {
+                journal.close();
+            }
+            journal = null;
+            journal = MoveJournal.create(file, start);
+            return null;
+        }).exceptionally(this::journalFailed);
+    }
+
+    private interface JournalRecord {
+        void appendTo(MoveJournal journal) throws IOException;
+    }
+
+    /**
+     * Append a record describing a change that was just made. The record must only refer
+     * to copies of the state, since it is written later on the save thread.
+     */
+    private void journal(JournalRecord record) {
+        if (currentUser == null || currentUser.isEmpty()) {
+            return;
+        }
+        if (!journalStarted) {
+            // The opening snapshot already includes this change
+            startJournal();
+            return;
+        }
+        SaveGame checkpoint = ++journalRecords % JOURNAL_SNAPSHOT_INTERVAL == 0 ? snapshot() : null;
+        SAVES.submit(() -> {
+            if (journal != null) {
+                record.appendTo(journal);
+                if (checkpoint != null) {
+                    journal.appendSnapshot(checkpoint);
                 }
-                
-                JOptionPane.showMessageDialog(view, "Game saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
             }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(view, "Failed to save game: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+            return null;
+        }).exceptionally(this::journalFailed);
+    }
+
+    private void journalProp(Prop.PropType type, int row, int col) {
+        int[][] board = engine.getModel().copyMatrix();
+        List<int[]> obstacles = getRemovedObstacles();
+        int timeLeft = timeLeft();
+        journal(j -> j.appendProp(type, row, col, board, obstacles, timeLeft));
+    }
+
+    private Void journalFailed(Throwable error) {
+        LOG.warn("Could not write move journal", error);
+        return null;
+    }
+
+    private int timeLeft() {
+        view.game.GameFrame gameFrame = findGameFrame();
+        return gameFrame != null ? gameFrame.getTimeLeft() : -1;
+    }
+
+    private File slotDirectory() {
+        return new File("saves/" + currentUser);
+    }
+
+    /**
+     * The slots in a user's directory, moving the old single save file into a slot the first
+     * time; runs only on the save thread
+     */
+    private SaveSlots slots(File slotDirectory) throws IOException {
+        if (saveSlots == null || !saveSlots.getDirectory().equals(slotDirectory)) {
+            saveSlots = new SaveSlots(slotDirectory);
+            File legacySave = new File(slotDirectory.getPath() + ".sav");
+            try {
+                saveSlots.importLegacy(legacySave, "Saved game");
+            } catch (IOException e) {
+                LOG.warn("Could not import " + legacySave + ": " + e.getMessage());
+            }
+        }
+        return saveSlots;
+    }
+
+    private File journalFile() {
+        return new File("saves/" + currentUser + ".journal");
+    }
+
+    /**
+     * The newer of the most recently saved slot and the state recovered from the move journal
+     */
+    private SaveGame loadNewest(File slotDirectory, File journalFile) throws IOException {
+        List<SaveSlots.Slot> slots = slots(slotDirectory).list();
+        long slotTime = slots.isEmpty() ? Long.MIN_VALUE : slots.get(0).getSavedAt();
+        if (journalFile.isFile() && journalFile.lastModified() >= slotTime) {
+            try {
+                SaveGame recovered = MoveJournal.recover(journalFile);
+                if (recovered != null) {
+                    LOG.info(() -> "Recovered game from " + journalFile.getName());
+                    return recovered;
+                }
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Ignoring unreadable journal " + journalFile + ": " + e);
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new java.nio.file.NoSuchFileException(slotDirectory.getPath());
+        }
+        return saveSlots.read(slots.get(0).getName());
+    }
+
+    /**
+     * Board, props, obstacles, timer and the full history (history boards are never modified once pushed)
+     */
+    private SaveGame snapshot() {
+        view.game.GameFrame gameFrame = findGameFrame();
+        int timeLeft = gameFrame != null ? gameFrame.getTimeLeft() : -1;
+        int timeLimit = gameFrame != null ? gameFrame.getTimeLimit() : 0;
+        LevelPack levelPack = engine.getLevelPack();
+        String packPath = levelPack instanceof FileLevelPack
+                ? ((FileLevelPack) levelPack).getFile().getAbsolutePath() : null;
+        return new SaveGame(currentUser, packPath, engine.getLevelIndex(), engine.getMoveCount(),
+                engine.getModel().copyMatrix(), engine.getPropCounts(), engine.getRemovedObstacles(), timeLimit,
+                timeLeft, engine.getHistoryBoards());
+    }
+
+    private view.game.GameFrame findGameFrame() {
+        if (view.getParent() != null && view.getParent().getParent() instanceof view.game.GameFrame) {
+            return (view.game.GameFrame) view.getParent().getParent();
         }
+        return null;
     }
 
     public int getCurrentLevel() {
-        return currentLevel;
+        return engine.getLevelIndex();
     }
     
     /**
@@ -1177,7 +1178,14 @@ public class GameController {
      * @return The current MapModel instance
      */
     public MapModel getModel() {
-        return this.model;
+        return engine.getModel();
+    }
+    
+    /**
+     * The rules engine this controller presents; bots and tools can drive it directly
+     */
+    public GameEngine getEngine() {
+        return engine;
     }
     
     /**
@@ -1197,129 +1205,184 @@ public class GameController {
      * @return The selected BoxComponent, or null if no box at position
      */
     public BoxComponent selectBoxAt(int row, int col) {
-        System.out.println("Selecting box at model position [" + row + "," + col + "]");
-        
+        MapModel model = engine.getModel();
         // Check the model first to get the actual piece type at this position
         int blockType = 0;
         try {
             blockType = model.getId(row, col);
-            System.out.println("Block type at position: " + blockType);
         } catch (Exception e) {
-            System.out.println("Error accessing model at [" + row + "," + col + "]: " + e.getMessage());
+            LOG.debug(() -> "Error accessing model at [" + row + "," + col + "]: " + e.getMessage());
             return null;
         }
         
         // Skip if empty cell or invalid coordinates
         if (blockType == 0 || row < 0 || col < 0 || row >= model.getHeight() || col >= model.getWidth()) {
-            System.out.println("No piece at this position or invalid coordinates");
+            LOG.debug(() -> "No piece at [" + row + "," + col + "]");
             return null;
         }
         
-        // For multi-cell pieces, we need to find the top-left corner
-        // This is critical for Cao Cao (2x2), Guan Yu (2x1), etc.
-        int originRow = row;
-        int originCol = col;
-        
-        // Check up and left to find origin of multi-cell pieces
-        if (blockType == MapModel.CAO_CAO) {
-            // For Cao Cao (2x2), find top-left
-            if (row > 0 && col > 0 && model.getId(row-1, col-1) == blockType) {
-                originRow = row-1;
-                originCol = col-1;
-            } else if (row > 0 && model.getId(row-1, col) == blockType) {
-                originRow = row-1;
-            } else if (col > 0 && model.getId(row, col-1) == blockType) {
-                originCol = col-1;
-            }
-        } else if (blockType == MapModel.GUAN_YU) {
-            // For Guan Yu (2x1 horizontal), find leftmost
-            if (col > 0 && model.getId(row, col-1) == blockType) {
-                originCol = col-1;
-            }
-        } else if (blockType == MapModel.GENERAL) {
-            // For General (1x2 vertical), find topmost
-            if (row > 0 && model.getId(row-1, col) == blockType) {
-                originRow = row-1;
-            }
-        } else if (blockType == MapModel.ZHOU_YU) {
-            // For Zhou Yu (1x3 horizontal), find leftmost
-            if (col > 0 && model.getId(row, col-1) == blockType) {
-                originCol = col-1;
-                if (col > 1 && model.getId(row, col-2) == blockType) {
-                    originCol = col-2;
-                }
-            }
+        // The piece layout knows which piece covers the cell, even next to a piece of the same type
+        PieceLayout.Piece piece = model.getPieces().pieceAt(row, col);
+        if (piece == null) {
+            LOG.debug(() -> "Cell [" + row + "," + col + "] is not part of a movable piece");
+            return null;
         }
-        
-        System.out.println("Looking for piece origin at [" + originRow + "," + originCol + "]");
+        int originRow = piece.getRow();
+        int originCol = piece.getCol();
         
         // Find the box component at the origin position
-        for (BoxComponent box : view.getBoxes()) {
-            if (box.getRow() == originRow && box.getCol() == originCol) {
-                // Select this box and deselect any previously selected box
-                BoxComponent previousBox = view.getSelectedBox();
-                if (previousBox != null) {
-                    previousBox.setSelected(false);
-                }
-                box.setSelected(true);
-                // Set this box as the selected box in the view
-                view.selectedBox = box;
-                System.out.println("Found and selected box at [" + originRow + "," + originCol + "]");
-                return box;
+        BoxComponent box = view.getBoxAt(originRow, originCol);
+        if (box != null && box.getRow() == originRow && box.getCol() == originCol) {
+            // Select this box and deselect any previously selected box
+            BoxComponent previousBox = view.getSelectedBox();
+            if (previousBox != null) {
+                previousBox.setSelected(false);
             }
+            box.setSelected(true);
+            // Set this box as the selected box in the view
+            view.selectedBox = box;
+            LOG.trace(() -> "Selected box at [" + originRow + "," + originCol + "]");
+            return box;
         }
         
-        System.out.println("No box component found at position [" + originRow + "," + originCol + "]");
+        LOG.debug(() -> "No box component found at position [" + originRow + "," + originCol + "]");
         return null;
     }
 
-    public boolean loadGame() {
+    public void loadGame() {
+        loadGame(null);
+    }
+
+    /**
+     * Resume the most recent game, journaled session or save slot, reading it off the EDT
+     *
+     * @param onLoaded Run on the EDT once the game has been restored (may be null)
+     */
+    public void loadGame(Runnable onLoaded) {
         if (currentUser == null || currentUser.isEmpty()) {
             JOptionPane.showMessageDialog(view, "Cannot load in guest mode", "Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+            return;
         }
+        // Runs after every save and journal record still queued, so the newest state is read
+        File slotDirectory = slotDirectory();
+        File journalFile = journalFile();
+        LevelPack current = engine.getLevelPack();
+        finishLoad(SAVES.submit(() -> withPack(loadNewest(slotDirectory, journalFile), current)), null, onLoaded);
+    }
 
-        File saveFile = new File("saves/" + currentUser + ".sav");
-        if (!saveFile.exists()) {
-            JOptionPane.showMessageDialog(view, "No saved game found", "Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+    /**
+     * Load one save slot, reading only that slot's file
+     *
+     * @param onLoaded Run on the EDT once the game has been restored (may be null)
+     */
+    public void loadGame(String slotName, Runnable onLoaded) {
+        if (currentUser == null || currentUser.isEmpty()) {
+            JOptionPane.showMessageDialog(view, "Cannot load in guest mode", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        File slotDirectory = slotDirectory();
+        LevelPack current = engine.getLevelPack();
+        finishLoad(SAVES.submit(() -> withPack(slots(slotDirectory).read(slotName), current)), slotName, onLoaded);
+    }
 
-        try (FileInputStream fis = new FileInputStream(saveFile);
-             DataInputStream dis = new DataInputStream(fis)) {
-            
-            // Read username
-            String username = dis.readUTF();
-            if (!username.equals(currentUser)) {
-                throw new Exception("Save file does not belong to current user");
+    /**
+     * A save together with the pack it was played from
+     */
+    private static final class LoadedGame {
+        final SaveGame save;
+        final LevelPack pack;
+
+        LoadedGame(SaveGame save, LevelPack pack) {
+            this.save = save;
+            this.pack = pack;
+        }
+    }
+
+    /**
+     * Find the pack of a save, on the save thread so the pack file is not opened on the EDT
+     *
+     * @param current The pack being played, reused when the save comes from the same file
+     */
+    private static LoadedGame withPack(SaveGame save, LevelPack current) throws IOException {
+        if (save.getPackPath() == null) {
+            return new LoadedGame(save, LevelPack.builtIn());
+        }
+        File packFile = new File(save.getPackPath());
+        if (current instanceof FileLevelPack
+                && ((FileLevelPack) current).getFile().getAbsoluteFile().equals(packFile.getAbsoluteFile())) {
+            return new LoadedGame(save, current);
+        }
+        return new LoadedGame(save, FileLevelPack.open(packFile));
+    }
+
+    private void finishLoad(java.util.concurrent.CompletableFuture<LoadedGame> loading, String slotName,
+                            Runnable onLoaded) {
+        loading.whenComplete((loaded, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                String message = error instanceof java.nio.file.NoSuchFileException
+                        ? "No saved game found" : "Failed to load game: " + error.getMessage();
+                JOptionPane.showMessageDialog(view, message, "Error", JOptionPane.ERROR_MESSAGE);
+                if (!(error instanceof java.nio.file.NoSuchFileException)) {
+                    LOG.warn("Could not load saved game", error);
+                }
+                return;
             }
-            
-            // Read move count
-            moveCount = dis.readInt();
-            
-            // Read board dimensions
-            int height = dis.readInt();
-            int width = dis.readInt();
-            
-            // Read board state
-            int[][] loadedMatrix = new int[height][width];
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    loadedMatrix[i][j] = dis.readInt();
+            if (restore(loaded.save, loaded.pack)) {
+                if (slotName != null) {
+                    currentSlot = slotName;
+                }
+                if (onLoaded != null) {
+                    onLoaded.run();
                 }
             }
-            
-            this.model = new MapModel(loadedMatrix);
-            this.moveHistory.clear();
-            this.moveHistory.push(model.copyMatrix());
-            view.resetBoard(loadedMatrix);
-            view.updateMoveCount(moveCount);
+        }));
+    }
+
+    /**
+     * Switch to a loaded game; a pack opened for it is closed again if the save is rejected
+     */
+    private boolean restore(SaveGame save, LevelPack pack) {
+        LevelPack previous = engine.getLevelPack();
+        try {
+            // The save was verified (magic, version, checksum, board shape) when it was read
+            if (!save.getUsername().equals(currentUser)) {
+                throw new Exception("Save file does not belong to current user");
+            }
+            if (save.getLevelIndex() >= pack.size()) {
+                throw new Exception("Saved level " + (save.getLevelIndex() + 1) + " no longer exists");
+            }
+            LevelDefinition definition = pack.get(save.getLevelIndex());
+            int[][] loadedMatrix = save.getBoard();
+            if (definition.getHeight() != loadedMatrix.length || definition.getWidth() != loadedMatrix[0].length) {
+                throw new Exception("Saved board does not match level " + definition.getName());
+            }
+
+            cancelPendingInput();
+            engine.restore(pack, save.getLevelIndex(), save);
+            closeReplaced(previous);
+            view.updateBoard(engine.getBoard());
+            view.updateMoveCount(engine.getMoveCount());
+
+            view.game.GameFrame gameFrame = findGameFrame();
+            if (gameFrame != null) {
+                // Sets up the panel for the level (which resets props), so restore them afterwards
+                gameFrame.updatePropPanelVisibility(engine.getLevelIndex());
+            }
+            engine.setProps(save.getProps(), save.getRemovedObstacles());
+            if (gameFrame != null) {
+                gameFrame.getPropPanel().updatePropAvailability();
+                gameFrame.setTimeAttackMode(save.getTimeLeftSeconds() >= 0, save.getTimeLimitMinutes(),
+                        Math.max(0, save.getTimeLeftSeconds()));
+            }
+            startJournal();
             view.requestFocusInWindow();
             
             return true;
         } catch (Exception e) {
             JOptionPane.showMessageDialog(view, "Failed to load game: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+            LOG.warn("Could not restore saved game", e);
+            // Closes the pack only if it was opened for this save
+            closeReplaced(pack);
             return false;
         }
     }
@@ -0,0 +1,66 @@
+package controller;
+
+import model.Direction;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Moves the player has asked for while the previous move is still animating.
+ *
+ * The queue is small and bounded: a held arrow key auto-repeats far faster than pieces
+ * can slide, and buffering every repeat would leave the board catching up long after the
+ * key is released. Input is coalesced as it arrives - a move straight back the way the
+ * previous queued move went cancels that move instead of queueing both - and a move that
+ * does not fit is refused, so the caller can apply back-pressure (finish the running
+ * animation early) rather than let latency grow.
+ */
+public class MoveQueue {
+    private final int capacity;
+    private final Deque<Direction> moves = new ArrayDeque<>();
+
+    public MoveQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queue a move, or cancel the newest queued move if this one undoes it
+     *
+     * @return false if the queue is full and the move was not taken
+     */
+    public boolean offer(Direction direction) {
+        Direction last = moves.peekLast();
+        if (last != null && last.opposite() == direction) {
+            moves.pollLast();
+            return true;
+        }
+        if (moves.size() >= capacity) {
+            return false;
+        }
+        moves.addLast(direction);
+        return true;
+    }
+
+    /**
+     * @return The oldest queued move, or null
+     */
+    public Direction poll() {
+        return moves.pollFirst();
+    }
+
+    public int size() {
+        return moves.size();
+    }
+
+    public boolean isEmpty() {
+        return moves.isEmpty();
+    }
+
+    public boolean isFull() {
+        return moves.size() >= capacity;
+    }
+
+    public void clear() {
+        moves.clear();
+    }
+}
@@ -1,6 +1,7 @@
 package model;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.JOptionPane;
@@ -14,6 +15,7 @@ import view.game.BoxComponent;
  * This solver does not use props and focuses on pure puzzle-solving moves.
  */
 public class AISolver {
+    private static final Log LOG = Log.get(AISolver.class);
     private MapModel model;
     private GameController controller;
     private List<Move> solution;
@@ -24,6 +26,9 @@ public class AISolver {
     private static final int MAX_STATES = 1000000; // Further increased limit for complex puzzles
     private static final int REPORT_INTERVAL = 5000; // Report progress every 5000 states
     private static final int MIN_STATES_TO_EXPLORE = 10000; // Minimum states to explore before giving up
+    // The hint search runs while the player waits, so the prop-aware fallback is kept short
+    private static final long HINT_DEADLINE_MILLIS = 2000;
+    private static final int HINT_MAX_STATES = 1_000_000;
     
     // For loading animation
     private Timer animationTimer;
@@ -40,7 +45,7 @@ public class AISolver {
     public static class Move {
         public final int row;
         public final int col;
-        public final Direction direction;
+        public final Direction direction; // null for an obstacle removal step
         
         public Move(int row, int col, Direction direction) {
             this.row = row;
@@ -48,16 +53,31 @@ public class AISolver {
             this.direction = direction;
         }
         
+        /**
+         * Create a step that uses the Obstacle Remover prop on [row, col] instead of sliding a piece
+         */
+        public static Move obstacleRemoval(int row, int col) {
+            return new Move(row, col, null);
+        }
+        
+        public boolean isObstacleRemoval() {
+            return direction == null;
+        }
+        
         @Override
         public String toString() {
+            if (isObstacleRemoval()) {
+                return String.format("Remove obstacle at [%d,%d]", row, col);
+            }
             return String.format("Move piece at [%d,%d] %s", row, col, direction);
         }
     }
     
     /**
      * Represents a state of the puzzle with A* search information
+     * (package-private, like the search hot paths below, for bench/model/SolverBenchmarks)
      */
-    private static class State implements Comparable<State> {
+    static class State implements Comparable<State> {
         public final int[][] board;
         public final List<Move> moves;
         public final int cost; // g(n): cost to reach this state (number of moves)
@@ -117,6 +137,16 @@ public class AISolver {
     private int goalRow = -1;
     private int goalCol = -1;
     
+    // Dead-state patterns for the board being searched, rebuilt for every search
+    private DeadlockDetector deadlockDetector;
+    private int prunedStates = 0;
+    
+    // Cancellation and statistics for headless runs inside a SolverPortfolio
+    private AtomicBoolean cancelFlag = new AtomicBoolean(false);
+    private int lastStatesExplored = 0;
+    private boolean lastHitStateLimit = false;
+    private SolverPortfolio.PortfolioResult lastPortfolioResult;
+    
     public AISolver(MapModel model, GameController controller) {
         this.model = model;
         this.controller = controller;
@@ -136,14 +166,13 @@ public class AISolver {
         // The goal position is always the bottom center of the board
         // For standard boards:
         // - 4x5 (Easy): [3,1]
-        // - 5x6 (Hard): [4,2]
+        // - 5x6 (Hard): [4,1]
         // - 6x7 (Expert/Master): [5,2]
-        goalRow = boardHeight - 2; // Second-to-last row
-        goalCol = (boardWidth / 2) - 1; // Center position (adjusted for 0-indexing and even width)
+        goalRow = PuzzleRules.goalRow(boardHeight); // Second-to-last row
+        goalCol = PuzzleRules.goalCol(boardWidth); // Center position (adjusted for 0-indexing and even width)
         
-        System.out.println("AI Solver: Goal position for Cao Cao calculated as [" + 
-                          goalRow + "," + goalCol + "] for board size " + 
-                          boardHeight + "x" + boardWidth);
+        LOG.debug(() -> "Goal position for Cao Cao calculated as [" + goalRow + "," + goalCol
+                + "] for board size " + boardHeight + "x" + boardWidth);
     }
     
     /**
@@ -159,14 +188,13 @@ public class AISolver {
         isSearching = true;
         startLoadingAnimation();
         
-        // Create a new thread for the A* search to prevent UI freezing
+        // Create a new thread for the search to prevent UI freezing
         new Thread(() -> {
-            boolean found = performAStarSearch();
-            isSearching = false;
+            boolean found = solve();
             stopLoadingAnimation();
             
             if (found) {
-                System.out.println("AI Solver: Solution found with " + solution.size() + " moves");
+                LOG.info(() -> "Solution found with " + solution.size() + " moves");
                 // Notify UI thread that solution is ready
                 javax.swing.SwingUtilities.invokeLater(() -> {
                     if (controller != null) {
@@ -179,7 +207,7 @@ public class AISolver {
                     }
                 });
             } else {
-                System.out.println("AI Solver: No solution found");
+                LOG.info("No solution found");
                 javax.swing.SwingUtilities.invokeLater(() -> {
                     JOptionPane.showMessageDialog(
                         null,
@@ -195,6 +223,107 @@ public class AISolver {
         return true;
     }
     
+    /**
+     * Find a solution on the calling thread by racing the default strategies
+     * (A*, BFS, IDA* and a beam) in a SolverPortfolio. Call this from a background thread.
+     * 
+     * @return true if a verified solution was found
+     */
+    public boolean solve() {
+        if (isSolving) return false;
+        
+        solution.clear();
+        isSearching = true;
+        try {
+            lastPortfolioResult = createPortfolio().solve(model.copyMatrix());
+            SolverStrategy.Result winner = lastPortfolioResult.getWinner();
+            if (winner == null) {
+                return false;
+            }
+            
+            LOG.info(() -> winner.strategyName + " won in " + winner.getElapsedMillis() + " ms");
+            solution.addAll(winner.moves);
+            optimizeSolution();
+            return true;
+        } finally {
+            isSearching = false;
+        }
+    }
+    
+    /**
+     * Build the portfolio for the current game. When the player still has Obstacle Remover
+     * props, a prop-aware search races the pure strategies and may plan removal steps.
+     */
+    private SolverPortfolio createPortfolio() {
+        if (controller == null) {
+            return SolverPortfolio.createDefault();
+        }
+        int removers = controller.getPropCount(Prop.PropType.OBSTACLE_REMOVER);
+        List<int[]> removed = controller.getRemovedObstacles();
+        if (removers == 0 && removed.isEmpty()) {
+            return SolverPortfolio.createDefault();
+        }
+        return SolverPortfolio.createDefault(new PropAwareSolver(removers, removed, 5_000_000));
+    }
+    
+    /**
+     * Find the next few moves for the Hint prop.
+     * Runs a bounded-width beam search, so time and memory stay fixed no matter how hard
+     * the position is. When the beam finds no solution and the player holds Obstacle
+     * Removers, a prop-aware search gets a short deadline to plan with them. Otherwise the
+     * moves are a plausible prefix toward the exit and not necessarily part of a solution.
+     * Touches nothing but its arguments, so it can run off the EDT on a snapshot.
+     * 
+     * @param board    The board to plan from (not modified)
+     * @param removers Obstacle Remover props the player holds
+     * @param removed  {row, col, stepsRemaining} of the obstacles already removed
+     * @param count    The number of moves wanted
+     * @return Up to count moves (which may include obstacle removals), or an empty list
+     *         if the position is dead
+     */
+    public static List<Move> findHint(int[][] board, int removers, List<int[]> removed, int count) {
+        SolverStrategy.Result beam = new BeamSearchSolver().solve(PuzzleRules.copyBoard(board), new AtomicBoolean(false));
+        LOG.debug(() -> "Hint search finished - " + beam);
+        SolverStrategy.Result result = beam;
+        if (!beam.solved && removers > 0) {
+            SolverPortfolio portfolio = new SolverPortfolio(Collections.singletonList(
+                    new PropAwareSolver(removers, removed, HINT_MAX_STATES)),
+                    HINT_DEADLINE_MILLIS, SolverPortfolio.Mode.FIRST_VALID);
+            SolverStrategy.Result planned = portfolio.solve(PuzzleRules.copyBoard(board)).getWinner();
+            if (planned != null) {
+                result = planned;
+            }
+        }
+        return new ArrayList<>(result.moves.subList(0, Math.min(count, result.moves.size())));
+    }
+    
+    /**
+     * Get the report of the last portfolio run (winner, timing of every strategy)
+     * 
+     * @return The last result, or null if solve() has not run yet
+     */
+    public SolverPortfolio.PortfolioResult getLastPortfolioResult() {
+        return lastPortfolioResult;
+    }
+    
+    /**
+     * Run the A* search without any UI feedback, for use as a portfolio strategy
+     */
+    SolverStrategy.Result runHeadlessSearch(String strategyName, AtomicBoolean cancel) {
+        long start = System.nanoTime();
+        this.cancelFlag = cancel;
+        this.isSearching = true;
+        solution.clear();
+        
+        boolean found = performAStarSearch();
+        isSearching = false;
+        
+        // A* may hand back a partial path when it gives up - only report real solutions
+        boolean solved = found && PuzzleRules.isValidSolution(model.getMatrix(), solution);
+        return new SolverStrategy.Result(strategyName, new ArrayList<>(solution), solved,
+                cancel.get(), !solved && lastHitStateLimit, lastStatesExplored, System.nanoTime() - start);
+    }
+    
     /**
      * Perform the actual A* search algorithm
      * @return true if a solution was found
@@ -205,6 +334,19 @@ public class AISolver {
         int initialHeuristic = calculateHeuristic(initialBoard);
         State initialState = new State(initialBoard, new ArrayList<>(), initialHeuristic);
         
+        // Precompute dead patterns from the fixed obstacles before expanding anything
+        deadlockDetector = new DeadlockDetector(initialBoard);
+        prunedStates = 0;
+        if (deadlockDetector.isGoalSealed()) {
+            LOG.debug("The exit is permanently sealed by fixed obstacles - no solution without props");
+            return false;
+        }
+        if (deadlockDetector.isDead(initialBoard)) {
+            LOG.debug("Initial state is a dead state - Cao Cao can never reach the exit");
+            return false;
+        }
+        LOG.debug(() -> "Precomputed " + deadlockDetector.getDeadPatternCount() + " dead placements");
+        
         // Set up A* search with priority queue
         PriorityQueue<State> openSet = new PriorityQueue<>();
         // Use a more efficient way to track visited states - hash the board string
@@ -212,25 +354,25 @@ public class AISolver {
         
         openSet.add(initialState);
         
-        System.out.println("AI Solver: Starting A* search with initial heuristic value: " + initialHeuristic);
-        System.out.println("AI Solver: Goal position for Cao Cao is [" + goalRow + "," + goalCol + "]");
-        
-        // Print initial board state
-        System.out.println("Initial board state:");
-        printBoardState(initialBoard);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Starting A* search with initial heuristic value " + initialHeuristic
+                    + ", goal [" + goalRow + "," + goalCol + "], initial board:\n" + formatBoard(initialBoard));
+        }
         
         int statesExplored = 0;
         int maxOpenSetSize = 1;
+        lastHitStateLimit = false;
         
         // Track best state seen so far in case we need to terminate early
         State bestState = initialState;
         int bestHeuristic = initialHeuristic;
         
         // A* search loop
-        while (!openSet.isEmpty() && isSearching) {
+        while (!openSet.isEmpty() && isSearching && !cancelFlag.get()) {
             // Get state with lowest f-score
             State current = openSet.poll();
             statesExplored++;
+            lastStatesExplored = statesExplored;
             
             // Keep track of the best state seen so far
             if (current.heuristic < bestHeuristic) {
@@ -238,17 +380,18 @@ public class AISolver {
                 bestHeuristic = current.heuristic;
                 
                 // Log when we find a better state
-                if (statesExplored % 1000 == 0) {
-                    System.out.println("AI Solver: Found better state with heuristic: " + bestHeuristic);
+                if (statesExplored % 1000 == 0 && LOG.isTraceEnabled()) {
+                    LOG.trace("Found better state with heuristic: " + bestHeuristic);
                 }
             }
             
             // Progress reporting
             if (statesExplored % REPORT_INTERVAL == 0) {
-                System.out.println("AI Solver: Explored " + statesExplored + 
-                                  " states, current queue size: " + openSet.size() + 
-                                  ", current f-score: " + current.fScore + 
-                                  " (g=" + current.cost + ", h=" + current.heuristic + ")");
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Explored " + statesExplored + " states, current queue size: " + openSet.size()
+                            + ", current f-score: " + current.fScore
+                            + " (g=" + current.cost + ", h=" + current.heuristic + ")");
+                }
                 
                 // Update animation text with progress
                 updateAnimationText("Solving: " + statesExplored + " states");
@@ -261,14 +404,14 @@ public class AISolver {
                 // Optimize solution by removing unnecessary moves
                 optimizeSolution();
                 
-                System.out.println("AI Solver: Found solution with " + solution.size() + 
-                                  " moves after exploring " + statesExplored + " states");
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Found solution with " + solution.size() + " moves after exploring "
+                            + statesExplored + " states (" + prunedStates + " dead states pruned)");
+                }
                 
                 // Verify solution
-                if (verifySolution(initialBoard)) {
-                    System.out.println("AI Solver: Solution verified successfully");
-                } else {
-                    System.out.println("AI Solver: Solution verification failed - may be incorrect");
+                if (!verifySolution(initialBoard)) {
+                    LOG.warn("Solution verification failed - may be incorrect");
                 }
                 
                 return true;
@@ -300,13 +443,16 @@ public class AISolver {
             
             // Safety limit to prevent excessive runtime
             if (statesExplored > MAX_STATES) {
-                System.out.println("AI Solver: Search terminated after exploring " + MAX_STATES + " states");
+                LOG.debug(() -> "Search terminated after exploring " + MAX_STATES + " states");
+                lastHitStateLimit = true;
                 
                 // If we've explored a reasonable number of states but haven't found a solution,
                 // use the best state we've seen so far to provide a partial solution
                 if (statesExplored >= MIN_STATES_TO_EXPLORE && bestState.moves.size() > 0) {
-                    System.out.println("AI Solver: Providing partial solution with " + bestState.moves.size() + 
-                                      " moves (best heuristic: " + bestHeuristic + ")");
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Providing partial solution with " + bestState.moves.size()
+                                + " moves (best heuristic: " + bestHeuristic + ")");
+                    }
                     solution.addAll(bestState.moves);
                     return true;
                 }
@@ -318,27 +464,33 @@ public class AISolver {
         // If we've explored a reasonable number of states but haven't found a solution,
         // use the best state we've seen so far
         if (statesExplored >= MIN_STATES_TO_EXPLORE && bestState.moves.size() > 0) {
-            System.out.println("AI Solver: Providing partial solution with " + bestState.moves.size() + 
-                              " moves (best heuristic: " + bestHeuristic + ")");
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Providing partial solution with " + bestState.moves.size()
+                        + " moves (best heuristic: " + bestHeuristic + ")");
+            }
             solution.addAll(bestState.moves);
             return true;
         }
         
-        System.out.println("AI Solver: No solution found after exploring " + 
-                          statesExplored + " states. Max queue size: " + maxOpenSetSize);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("No solution found after exploring " + statesExplored + " states. Max queue size: "
+                    + maxOpenSetSize + ", dead states pruned: " + prunedStates);
+        }
         return false;
     }
     
     /**
-     * Print a board state to the console for debugging
+     * A board state as text, one row per line, for debug output
      */
-    private void printBoardState(int[][] board) {
+    private static String formatBoard(int[][] board) {
+        StringBuilder text = new StringBuilder();
         for (int r = 0; r < board.length; r++) {
             for (int c = 0; c < board[0].length; c++) {
-                System.out.print(" " + board[r][c] + " ");
+                text.append(' ').append(board[r][c]).append(' ');
             }
-            System.out.println();
+            text.append('\n');
         }
+        return text.toString();
     }
     
     /**
@@ -409,7 +561,7 @@ public class AISolver {
      * @param board The board state to evaluate
      * @return The heuristic value (lower is better)
      */
-    private int calculateHeuristic(int[][] board) {
+    int calculateHeuristic(int[][] board) {
         // Find Cao Cao position (top-left corner)
         int caoCaoRow = -1;
         int caoCaoCol = -1;
@@ -743,14 +895,8 @@ public class AISolver {
         
         isSolving = true;
         
-        // Print board state before execution for debugging
-        System.out.println("AI Solver: Initial board state before execution:");
-        int[][] boardState = model.getMatrix();
-        for (int r = 0; r < boardState.length; r++) {
-            for (int c = 0; c < boardState[0].length; c++) {
-                System.out.print(" " + boardState[r][c] + " ");
-            }
-            System.out.println();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Board before executing the solution:\n" + formatBoard(model.getMatrix()));
         }
         
         // Create a timer to execute moves with delay
@@ -782,8 +928,20 @@ public class AISolver {
             
             // Get the move to execute
             Move move = solution.get(moveIndex[0]);
-            System.out.println("AI Solver: Executing move " + (moveIndex[0] + 1) + 
-                              " of " + solution.size() + ": " + move);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Executing move " + (moveIndex[0] + 1) + " of " + solution.size() + ": " + move);
+            }
+            
+            if (move.isObstacleRemoval()) {
+                if (controller.useObstacleRemoverProp(move.row, move.col)) {
+                    controller.refreshBoard();
+                } else {
+                    LOG.debug("Obstacle removal failed, trying next move");
+                }
+                lastMoveTime[0] = System.currentTimeMillis();
+                moveIndex[0]++;
+                return;
+            }
             
             // Validate move is legal in current board state
             int[][] currentBoard = model.getMatrix();
@@ -791,15 +949,14 @@ public class AISolver {
             
             try {
                 blockType = currentBoard[move.row][move.col];
-                System.out.println("AI Solver: Piece type at [" + move.row + "," + move.col + "]: " + blockType);
                 
                 if (blockType == 0) {
-                    System.out.println("AI Solver: Skipping move - empty cell at position");
+                    LOG.debug(() -> "Skipping move - empty cell at [" + move.row + "," + move.col + "]");
                     moveIndex[0]++;
                     return;
                 }
             } catch (ArrayIndexOutOfBoundsException ex) {
-                System.out.println("AI Solver: Invalid move coordinates [" + move.row + "," + move.col + "]");
+                LOG.debug(() -> "Invalid move coordinates [" + move.row + "," + move.col + "]");
                 moveIndex[0]++;
                 return;
             }
@@ -811,24 +968,17 @@ public class AISolver {
                 // Execute the move
                 boolean moveSuccess = controller.doMove(move.row, move.col, move.direction);
                 if (moveSuccess) {
-                    System.out.println("AI Solver: Move executed successfully");
                     lastMoveTime[0] = System.currentTimeMillis();
                     moveIndex[0]++;
                 } else {
-                    System.out.println("AI Solver: Move failed, trying next move");
+                    LOG.debug("Move failed, trying next move");
                     // Continue with next move instead of stopping on failure
                     moveIndex[0]++;
                 }
             } else {
-                System.out.println("AI Solver: No box at position [" + move.row + "," + move.col + "], trying next move");
-                // Print current board state for debugging
-                System.out.println("Current board state:");
-                final int[][] currentBoardState = model.getMatrix();
-                for (int r = 0; r < currentBoardState.length; r++) {
-                    for (int c = 0; c < currentBoardState[0].length; c++) {
-                        System.out.print(" " + currentBoardState[r][c] + " ");
-                    }
-                    System.out.println();
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("No box at position [" + move.row + "," + move.col + "], trying next move; board:\n"
+                            + formatBoard(model.getMatrix()));
                 }
                 
                 // Continue with next move
@@ -846,30 +996,16 @@ public class AISolver {
         // Goal state is when Cao Cao (2x2 block) is at the bottom center
         // For standard boards:
         // - 4x5 (Easy): Cao Cao at [3,1]
-        // - 5x6 (Hard): Cao Cao at [4,2]
+        // - 5x6 (Hard): Cao Cao at [4,1]
         // - 6x7 (Expert/Master): Cao Cao at [5,2]
-        
-        // Find Cao Cao position
-        for (int r = 0; r < board.length - 1; r++) {
-            for (int c = 0; c < board[0].length - 1; c++) {
-                if (board[r][c] == MapModel.CAO_CAO && 
-                    board[r][c+1] == MapModel.CAO_CAO && 
-                    board[r+1][c] == MapModel.CAO_CAO && 
-                    board[r+1][c+1] == MapModel.CAO_CAO) {
-                    
-                    // Check if Cao Cao's bottom edge is at the goal position
-                    return r + 1 == goalRow && c == goalCol;
-                }
-            }
-        }
-        
-        return false;
+        // This is the same position GameController checks for victory
+        return PuzzleRules.isGoal(board);
     }
     
     /**
      * Generate a string representation of a board state for use in hashsets
      */
-    private String boardToString(int[][] board) {
+    String boardToString(int[][] board) {
         StringBuilder sb = new StringBuilder();
         for (int r = 0; r < board.length; r++) {
             for (int c = 0; c < board[0].length; c++) {
@@ -882,97 +1018,78 @@ public class AISolver {
     /**
      * Generate all possible next states from the current state
      */
-    private List<State> generateNextStates(State current) {
+    List<State> generateNextStates(State current) {
         List<State> nextStates = new ArrayList<>();
         int[][] board = current.board;
         
-        // Track which piece types we've already processed
-        Set<Integer> processedPieces = new HashSet<>();
-        
-        // For each position on the board
-        for (int r = 0; r < board.length; r++) {
-            for (int c = 0; c < board[0].length; c++) {
-                int pieceType = board[r][c];
-                
-                // Skip empty cells, blocked cells, and already processed pieces
-                if (pieceType == 0 || pieceType == MapModel.BLOCKED || 
-                    processedPieces.contains(pieceType)) {
-                    continue;
-                }
-                
-                // Mark this piece as processed
-                processedPieces.add(pieceType);
-                
-                // Determine piece dimensions based on type
-                int width = 1;
-                int height = 1;
-                
-                if (pieceType == MapModel.CAO_CAO) { // 2x2 block
-                    width = 2;
-                    height = 2;
-                } else if (pieceType == MapModel.GUAN_YU) { // 2x1 block
-                    width = 2;
-                    height = 1;
-                } else if (pieceType == MapModel.GENERAL) { // 1x2 block
-                    width = 1;
-                    height = 2;
-                } else if (pieceType == MapModel.ZHOU_YU) { // 1x3 block
-                    width = 3;
-                    height = 1;
-                }
-                
-                // Try moving in each direction
-                for (Direction dir : Direction.values()) {
-                    if (canMove(board, r, c, width, height, dir)) {
-                        // Create a new board with the move applied
-                        int[][] newBoard = deepCopyBoard(board);
-                        
-                        // Create the move
-                        Move move = new Move(r, c, dir);
-                        
-                        // Apply the move to the new board
-                        int dr = 0, dc = 0;
-                        
-                        switch (dir) {
-                            case UP:
-                                dr = -1;
-                                break;
-                            case DOWN:
-                                dr = 1;
-                                break;
-                            case LEFT:
-                                dc = -1;
-                                break;
-                            case RIGHT:
-                                dc = 1;
-                                break;
-                        }
-                        
-                        // Clear the original piece position
-                        for (int i = 0; i < height; i++) {
-                            for (int j = 0; j < width; j++) {
-                                newBoard[r + i][c + j] = 0;
-                            }
+        // Expand every piece on the board, not just the first piece of each type.
+        // PuzzleRules segments pieces the same way GamePanel does and skips
+        // obstacles and military camps, which never move.
+        for (int[] piece : PuzzleRules.findPieces(board)) {
+            int r = piece[0];
+            int c = piece[1];
+            int pieceType = piece[2];
+            int width = PuzzleRules.pieceWidth(pieceType);
+            int height = PuzzleRules.pieceHeight(pieceType);
+            
+            // Try moving in each direction
+            for (Direction dir : Direction.values()) {
+                if (canMove(board, r, c, width, height, dir)) {
+                    // Only the moved piece can turn a live state into a dead one
+                    if (deadlockDetector != null && 
+                        deadlockDetector.isDeadPlacement(pieceType, r + dir.getRow(), c + dir.getCol())) {
+                        prunedStates++;
+                        continue;
+                    }
+                    
+                    // Create a new board with the move applied
+                    int[][] newBoard = deepCopyBoard(board);
+                    
+                    // Create the move
+                    Move move = new Move(r, c, dir);
+                    
+                    // Apply the move to the new board
+                    int dr = 0, dc = 0;
+                    
+                    switch (dir) {
+                        case UP:
+                            dr = -1;
+                            break;
+                        case DOWN:
+                            dr = 1;
+                            break;
+                        case LEFT:
+                            dc = -1;
+                            break;
+                        case RIGHT:
+                            dc = 1;
+                            break;
+                    }
+                    
+                    // Clear the original piece position
+                    for (int i = 0; i < height; i++) {
+                        for (int j = 0; j < width; j++) {
+                            newBoard[r + i][c + j] = 0;
                         }
-                        
-                        // Place the piece in the new position
-                        for (int i = 0; i < height; i++) {
-                            for (int j = 0; j < width; j++) {
-                                newBoard[r + i + dr][c + j + dc] = pieceType;
-                            }
+                    }
+                    
+                    // Place the piece in the new position
+                    for (int i = 0; i < height; i++) {
+                        for (int j = 0; j < width; j++) {
+                            newBoard[r + i + dr][c + j + dc] = pieceType;
                         }
-                        
-                        // Create a new list of moves
-                        List<Move> newMoves = new ArrayList<>(current.moves);
-                        newMoves.add(move);
-                        
-                        // Create a new state
-                        int newHeuristic = calculateHeuristic(newBoard);
-                        State newState = new State(newBoard, newMoves, newHeuristic);
-                        
-                        // Add to next states
-                        nextStates.add(newState);
                     }
+                    
+                    // Create a new list of moves
+                    List<Move> newMoves = new ArrayList<>(current.moves);
+                    newMoves.add(move);
+                    
+                    // Create a new state
+                    int newHeuristic = calculateHeuristic(newBoard);
+                    State newState = new State(newBoard, newMoves, newHeuristic);
+                    
+                    // Add to next states
+                    nextStates.add(newState);
                 }
             }
         }
@@ -1006,7 +1123,7 @@ public class AISolver {
     /**
      * Check if a piece can move in the given direction
      */
-    private boolean canMove(int[][] board, int row, int col, int width, int height, Direction dir) {
+    boolean canMove(int[][] board, int row, int col, int width, int height, Direction dir) {
         int dr = 0, dc = 0;
         int pieceType = board[row][col];
         boolean isSoldier = (pieceType == MapModel.SOLDIER);
@@ -1111,81 +1228,9 @@ public class AISolver {
     private void optimizeSolution() {
         if (solution.size() <= 1) return;
         
-        // Copy the original board
-        int[][] board = model.copyMatrix();
-        List<Move> optimizedSolution = new ArrayList<>();
-        
-        // For each move in the solution
-        for (Move move : solution) {
-            // Get the piece type and dimensions
-            int pieceType = board[move.row][move.col];
-            int width = 1, height = 1;
-            
-            if (pieceType == MapModel.CAO_CAO) { // 2x2 block
-                width = 2;
-                height = 2;
-            } else if (pieceType == MapModel.GUAN_YU) { // 2x1 block
-                width = 2;
-                height = 1;
-            } else if (pieceType == MapModel.GENERAL) { // 1x2 block
-                width = 1;
-                height = 2;
-            } else if (pieceType == MapModel.ZHOU_YU) { // 1x3 block
-                width = 3;
-                height = 1;
-            }
-            
-            // Apply the move to the board
-            int dr = 0, dc = 0;
-            
-            switch (move.direction) {
-                case UP:
-                    dr = -1;
-                    break;
-                case DOWN:
-                    dr = 1;
-                    break;
-                case LEFT:
-                    dc = -1;
-                    break;
-                case RIGHT:
-                    dc = 1;
-                    break;
-            }
-            
-            // Clear the original piece position
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    if (move.row + i < board.length && move.col + j < board[0].length) {
-                        board[move.row + i][move.col + j] = 0;
-                    }
-                }
-            }
-            
-            // Place the piece in the new position
-            for (int i = 0; i < height; i++) {
-                for (int j = 0; j < width; j++) {
-                    if (move.row + i + dr < board.length && 
-                        move.col + j + dc < board[0].length &&
-                        move.row + i + dr >= 0 &&
-                        move.col + j + dc >= 0) {
-                        board[move.row + i + dr][move.col + j + dc] = pieceType;
-                    }
-                }
-            }
-            
-            // Add the move to the optimized solution
-            optimizedSolution.add(move);
-            
-            // If this is the goal state, stop
-            if (isGoalState(board)) {
-                break;
-            }
-        }
-        
-        solution = optimizedSolution;
-        System.out.println("AI Solver: Optimized solution from " + solution.size() + 
-                          " moves to " + optimizedSolution.size() + " moves");
+        int originalLength = solution.size();
+        solution = new SolutionOptimizer().optimize(model.copyMatrix(), solution);
+        LOG.debug(() -> "Optimized solution from " + originalLength + " moves to " + solution.size() + " moves");
     }
     
     /**
@@ -1202,14 +1247,12 @@ public class AISolver {
             try {
                 pieceType = board[move.row][move.col];
             } catch (ArrayIndexOutOfBoundsException e) {
-                System.out.println("AI Solver: Invalid move coordinates in solution: [" + 
-                                  move.row + "," + move.col + "]");
+                LOG.debug(() -> "Invalid move coordinates in solution: [" + move.row + "," + move.col + "]");
                 return false;
             }
             
             if (pieceType == 0) {
-                System.out.println("AI Solver: Invalid move in solution - empty cell at [" + 
-                                  move.row + "," + move.col + "]");
+                LOG.debug(() -> "Invalid move in solution - empty cell at [" + move.row + "," + move.col + "]");
                 return false;
             }
             
@@ -1232,8 +1275,8 @@ public class AISolver {
             
             // Check if the move is valid
             if (!canMove(board, move.row, move.col, width, height, move.direction)) {
-                System.out.println("AI Solver: Invalid move in solution - can't move piece at [" + 
-                                  move.row + "," + move.col + "] " + move.direction);
+                LOG.debug(() -> "Invalid move in solution - can't move piece at [" + move.row + "," + move.col + "] "
+                        + move.direction);
                 return false;
             }
             
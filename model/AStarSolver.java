@@ -0,0 +1,20 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Portfolio adapter for the A* search implemented in AISolver
+ */
+public class AStarSolver implements SolverStrategy {
+
+    @Override
+    public String getName() {
+        return "A*";
+    }
+
+    @Override
+    public Result solve(int[][] board, AtomicBoolean cancel) {
+        AISolver solver = new AISolver(new MapModel(PuzzleRules.copyBoard(board)), null);
+        return solver.runHeadlessSearch(getName(), cancel);
+    }
+}
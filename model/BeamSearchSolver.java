@@ -0,0 +1,189 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded-width beam search for quick hints.
+ *
+ * Only the best {@code width} states of each layer are kept, and the search stops after
+ * {@code maxDepth} layers, so time and memory are bounded by width * maxDepth expansions
+ * no matter how large the board is. The result is not guaranteed to be optimal (or even
+ * complete): if no layer reaches the goal, the path to the most promising state seen is
+ * returned as an unsolved result, which is still a sensible prefix to show as a hint.
+ * That state is never the start itself, so the prefix is not empty while any move is
+ * possible, even when no move improves the score or the start is already dead (an exit
+ * sealed by obstacles that only a prop can clear).
+ */
+public class BeamSearchSolver implements SolverStrategy {
+    private static final int DEFAULT_WIDTH = 256;
+    private static final int DEFAULT_MAX_DEPTH = 160;
+
+    private final int width;
+    private final int maxDepth;
+
+    public BeamSearchSolver() {
+        this(DEFAULT_WIDTH, DEFAULT_MAX_DEPTH);
+    }
+
+    public BeamSearchSolver(int width) {
+        this(width, DEFAULT_MAX_DEPTH);
+    }
+
+    public BeamSearchSolver(int width, int maxDepth) {
+        this.width = width;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public String getName() {
+        return "Beam(" + width + ")";
+    }
+
+    @Override
+    public Result solve(int[][] board, AtomicBoolean cancel) {
+        long start = System.nanoTime();
+        DeadlockDetector detector = new DeadlockDetector(board);
+        // From a dead start every placement is dead, so search by score alone for the prefix
+        boolean prune = !detector.isDead(board);
+
+        Set<String> visited = new HashSet<>();
+        visited.add(PuzzleRules.boardKey(board));
+        List<Node> beam = new ArrayList<>();
+        Node root = new Node(board, null, null, score(board), null);
+        beam.add(root);
+        // Best state after at least one move; null until the first layer is kept
+        Node best = null;
+        int explored = 0;
+        // Once a layer is cut down to the beam width, running dry no longer proves there is no solution
+        boolean truncated = false;
+
+        for (int depth = 0; depth < maxDepth && !beam.isEmpty(); depth++) {
+            List<Node> candidates = new ArrayList<>();
+            Set<String> layerKeys = new HashSet<>();
+            for (Node node : beam) {
+                if (cancel.get()) {
+                    return new Result(getName(), pathTo(best), false, true, explored, System.nanoTime() - start);
+                }
+                explored++;
+                for (AISolver.Move move : PuzzleRules.legalMoves(node.board)) {
+                    int type = node.board[move.row][move.col];
+                    if (prune && detector.isDeadPlacement(type,
+                            move.row + move.direction.getRow(), move.col + move.direction.getCol())) {
+                        continue;
+                    }
+                    int[][] next = PuzzleRules.applyMoveCopy(node.board, move);
+                    String key = PuzzleRules.boardKey(next);
+                    if (visited.contains(key) || !layerKeys.add(key)) {
+                        continue;
+                    }
+                    Node child = new Node(next, node, move, score(next), key);
+                    if (PuzzleRules.isGoal(next)) {
+                        return new Result(getName(), child.path(), true, false, explored, System.nanoTime() - start);
+                    }
+                    candidates.add(child);
+                }
+            }
+
+            // Keep only the most promising states for the next layer
+            candidates.sort(Comparator.comparingInt(n -> n.score));
+            truncated |= candidates.size() > width;
+            beam = candidates.size() > width ? new ArrayList<>(candidates.subList(0, width)) : candidates;
+            // Only kept states are remembered, so the visited set never exceeds width * maxDepth
+            for (Node node : beam) {
+                visited.add(node.key);
+            }
+            if (!beam.isEmpty() && (best == null || beam.get(0).score < best.score)) {
+                best = beam.get(0);
+            }
+        }
+
+        if (truncated || !beam.isEmpty()) {
+            return Result.atLimit(getName(), pathTo(best), explored, System.nanoTime() - start);
+        }
+        return new Result(getName(), pathTo(best), false, false, explored, System.nanoTime() - start);
+    }
+
+    private static List<AISolver.Move> pathTo(Node node) {
+        return node != null ? node.path() : null;
+    }
+
+    /**
+     * Cheap estimate of the distance to the goal (lower is better):
+     * Cao Cao's Manhattan distance plus the occupied cells it still has to pass through
+     */
+    static int score(int[][] board) {
+        int height = board.length;
+        int boardWidth = board[0].length;
+        int goalRow = PuzzleRules.goalRow(height);
+        int goalCol = PuzzleRules.goalCol(boardWidth);
+
+        int caoRow = -1;
+        int caoCol = -1;
+        outer:
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < boardWidth; c++) {
+                if (board[r][c] == MapModel.CAO_CAO) {
+                    caoRow = r;
+                    caoCol = c;
+                    break outer;
+                }
+            }
+        }
+        if (caoRow < 0) {
+            return Integer.MAX_VALUE;
+        }
+
+        int distance = Math.abs(goalRow - caoRow) + Math.abs(goalCol - caoCol);
+
+        // Cells inside the bounding box between Cao Cao and the exit that are still occupied
+        int blocking = 0;
+        int top = Math.min(caoRow, goalRow);
+        int bottom = Math.max(caoRow, goalRow) + 1;
+        int left = Math.min(caoCol, goalCol);
+        int right = Math.max(caoCol, goalCol) + 1;
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                int cell = board[r][c];
+                if (cell != 0 && cell != MapModel.CAO_CAO) {
+                    blocking++;
+                }
+            }
+        }
+
+        return distance * 4 + blocking * 2;
+    }
+
+    /**
+     * Search node with a parent link, so layers never copy move lists
+     */
+    private static class Node {
+        final int[][] board;
+        final Node parent;
+        final AISolver.Move move;
+        final int score;
+        final String key;
+
+        Node(int[][] board, Node parent, AISolver.Move move, int score, String key) {
+            this.board = board;
+            this.parent = parent;
+            this.move = move;
+            this.score = score;
+            this.key = key;
+        }
+
+        List<AISolver.Move> path() {
+            List<AISolver.Move> moves = new ArrayList<>();
+            for (Node node = this; node.parent != null; node = node.parent) {
+                moves.add(node.move);
+            }
+            Collections.reverse(moves);
+            return moves;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package model;
+
+/**
+ * Packs boards into longs at 3 bits per cell, so a search can keep millions of states
+ * without one int[][] and one String per state.
+ *
+ * Cell codes: 0-5 are stored as is (empty and the five piece types), BLOCKED is stored as 6
+ * and MILITARY_CAMP as 7. 21 cells fit in one long, so a 6x7 board takes two longs.
+ * Temporarily removed obstacles (-BLOCKED) have no code; callers clear them first.
+ */
+public final class BoardCodec {
+    private static final int BITS = 3;
+    private static final int CELLS_PER_WORD = 64 / BITS;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int BLOCKED_CODE = 6;
+    private static final int CAMP_CODE = 7;
+
+    private BoardCodec() {
+    }
+
+    /**
+     * Number of longs needed for a board of the given size
+     */
+    public static int wordsFor(int rows, int cols) {
+        return (rows * cols + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+    }
+
+    /**
+     * Pack a board into out[offset .. offset + wordsFor(rows, cols))
+     */
+    public static void encode(int[][] board, long[] out, int offset) {
+        int word = offset;
+        int shift = 0;
+        long packed = 0L;
+        for (int[] row : board) {
+            for (int cell : row) {
+                packed |= (long) toCode(cell) << shift;
+                shift += BITS;
+                if (shift == CELLS_PER_WORD * BITS) {
+                    out[word++] = packed;
+                    packed = 0L;
+                    shift = 0;
+                }
+            }
+        }
+        if (shift > 0) {
+            out[word] = packed;
+        }
+    }
+
+    /**
+     * Unpack a board written by encode into an existing matrix of the same size
+     */
+    public static void decode(long[] in, int offset, int[][] out) {
+        int word = offset;
+        int shift = 0;
+        long packed = in[word];
+        for (int[] row : out) {
+            for (int c = 0; c < row.length; c++) {
+                if (shift == CELLS_PER_WORD * BITS) {
+                    packed = in[++word];
+                    shift = 0;
+                }
+                row[c] = fromCode((int) (packed >>> shift) & MASK);
+                shift += BITS;
+            }
+        }
+    }
+
+    /**
+     * Overwrite one cell of a packed board, where index is row * cols + col
+     */
+    public static void set(long[] key, int offset, int index, int cell) {
+        int word = offset + index / CELLS_PER_WORD;
+        int shift = (index % CELLS_PER_WORD) * BITS;
+        key[word] = (key[word] & ~((long) MASK << shift)) | ((long) toCode(cell) << shift);
+    }
+
+    private static int toCode(int cell) {
+        if (cell >= 0 && cell <= MapModel.ZHOU_YU) {
+            return cell;
+        }
+        if (cell == MapModel.BLOCKED) {
+            return BLOCKED_CODE;
+        }
+        if (cell == MapModel.MILITARY_CAMP) {
+            return CAMP_CODE;
+        }
+        throw new IllegalArgumentException("Cell value " + cell + " cannot be packed");
+    }
+
+    private static int fromCode(int code) {
+        if (code == BLOCKED_CODE) {
+            return MapModel.BLOCKED;
+        }
+        if (code == CAMP_CODE) {
+            return MapModel.MILITARY_CAMP;
+        }
+        return code;
+    }
+}
@@ -0,0 +1,180 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plain breadth-first search. Slower than A* on open boards but always returns a
+ * shortest solution, which makes it a good reference and a strong choice on
+ * heavily constrained layouts where the heuristic is misleading.
+ *
+ * Every slide can be undone and moves one piece by one cell, which flips the parity of the
+ * sum of all piece origins, so a state one move away from a depth-d state sits at depth
+ * d - 1 or d + 1, never at d. Duplicates are therefore only looked for in the previous
+ * and the next layer, each a StateTable of boards packed by BoardCodec, and older layers
+ * are dropped. A state keeps just a parent id and a move in two int arrays indexed by a
+ * global id (its layer's first id plus its id within the layer), which is all the final
+ * path needs.
+ */
+public class BreadthFirstSolver implements SolverStrategy {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int maxStates;
+    private final boolean pruneDeadStates;
+
+    public BreadthFirstSolver() {
+        this(20_000_000);
+    }
+
+    public BreadthFirstSolver(int maxStates) {
+        this(maxStates, true);
+    }
+
+    /**
+     * @param pruneDeadStates False to search without the DeadlockDetector, to measure what it saves
+     */
+    BreadthFirstSolver(int maxStates, boolean pruneDeadStates) {
+        this.maxStates = maxStates;
+        this.pruneDeadStates = pruneDeadStates;
+    }
+
+    @Override
+    public String getName() {
+        return "BFS";
+    }
+
+    @Override
+    public Result solve(int[][] board, AtomicBoolean cancel) {
+        long start = System.nanoTime();
+        // Without pruning, a detector of an empty board never reports anything
+        DeadlockDetector detector = new DeadlockDetector(pruneDeadStates ? board : new int[board.length][board[0].length]);
+        if (detector.isDead(board)) {
+            return new Result(getName(), null, false, false, 0, System.nanoTime() - start);
+        }
+        if (PuzzleRules.isGoal(board)) {
+            return new Result(getName(), null, true, false, 1, System.nanoTime() - start);
+        }
+
+        int rows = board.length;
+        int cols = board[0].length;
+        int goalRow = PuzzleRules.goalRow(rows);
+        int goalCol = PuzzleRules.goalCol(cols);
+        int words = BoardCodec.wordsFor(rows, cols);
+        long[] key = new long[words];
+        long[] nextKey = new long[words];
+
+        StateTable previous = new StateTable(words, 16);
+        StateTable layer = new StateTable(words, 16);
+        BoardCodec.encode(board, key, 0);
+        layer.add(key);
+        int layerBase = 0;
+
+        // Per-state data indexed by global id: the state it was reached from and the move
+        int[] parents = new int[1 << 16];
+        int[] moves = new int[1 << 16];
+        parents[0] = -1;
+
+        int[][] current = new int[rows][cols];
+        boolean[][] used = new boolean[rows][cols];
+        int[] pieces = new int[rows * cols * 3];
+        int explored = 0;
+
+        while (layer.size() > 0) {
+            int nextBase = layerBase + layer.size();
+            StateTable next = new StateTable(words, layer.size());
+
+            for (int local = 0; local < layer.size(); local++) {
+                if (cancel.get()) {
+                    return new Result(getName(), null, false, true, explored, System.nanoTime() - start);
+                }
+                explored++;
+                int id = layerBase + local;
+                layer.get(local, key);
+                BoardCodec.decode(key, 0, current);
+                // The slide that undoes the one that led here goes back to the parent
+                int back = id == 0 ? -1 : moves[id];
+                int backRow = back >>> 16;
+                int backCol = (back >>> 8) & 0xFF;
+                Direction backDir = id == 0 ? null : DIRECTIONS[back & 0xFF];
+
+                int count = PuzzleRules.findPieces(current, used, pieces);
+                for (int p = 0; p < count; p++) {
+                    int row = pieces[p * 3];
+                    int col = pieces[p * 3 + 1];
+                    int type = pieces[p * 3 + 2];
+                    int width = PuzzleRules.pieceWidth(type);
+                    int height = PuzzleRules.pieceHeight(type);
+                    for (Direction dir : DIRECTIONS) {
+                        int newRow = row + dir.getRow();
+                        int newCol = col + dir.getCol();
+                        if (backDir != null && dir == backDir.opposite()
+                                && row == backRow + backDir.getRow() && col == backCol + backDir.getCol()) {
+                            continue;
+                        }
+                        if (!PuzzleRules.canMove(current, row, col, width, height, dir)
+                                || detector.isDeadPlacement(type, newRow, newCol)) {
+                            continue;
+                        }
+                        slide(key, nextKey, cols, row, col, width, height, newRow, newCol, type);
+                        if (previous.indexOf(nextKey) >= 0 || next.indexOf(nextKey) >= 0) {
+                            continue;
+                        }
+                        int nextId = nextBase + next.add(nextKey);
+                        if (nextId >= parents.length) {
+                            parents = Arrays.copyOf(parents, parents.length * 2);
+                            moves = Arrays.copyOf(moves, moves.length * 2);
+                        }
+                        parents[nextId] = id;
+                        moves[nextId] = (row << 16) | (col << 8) | dir.ordinal();
+                        // Only Cao Cao moving can finish the puzzle
+                        if (type == MapModel.CAO_CAO && newRow == goalRow && newCol == goalCol) {
+                            return new Result(getName(), rebuildPath(nextId, parents, moves), true, false,
+                                    explored, System.nanoTime() - start);
+                        }
+                    }
+                }
+
+                if (nextBase + next.size() > maxStates) {
+                    return Result.atLimit(getName(), null, explored, System.nanoTime() - start);
+                }
+            }
+
+            previous = layer;
+            layer = next;
+            layerBase = nextBase;
+        }
+
+        return new Result(getName(), null, false, false, explored, System.nanoTime() - start);
+    }
+
+    /**
+     * Write into out the packed board after sliding a piece, without unpacking the board
+     */
+    private static void slide(long[] key, long[] out, int cols, int row, int col, int width, int height,
+                              int newRow, int newCol, int type) {
+        System.arraycopy(key, 0, out, 0, key.length);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                BoardCodec.set(out, 0, (row + i) * cols + col + j, 0);
+            }
+        }
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                BoardCodec.set(out, 0, (newRow + i) * cols + newCol + j, type);
+            }
+        }
+    }
+
+    private static List<AISolver.Move> rebuildPath(int goalId, int[] parents, int[] moves) {
+        List<AISolver.Move> path = new ArrayList<>();
+        for (int id = goalId; parents[id] >= 0; id = parents[id]) {
+            path.add(new AISolver.Move(moves[id] >>> 16, (moves[id] >>> 8) & 0xFF,
+                    DIRECTIONS[moves[id] & 0xFF]));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
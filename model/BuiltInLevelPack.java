@@ -0,0 +1,53 @@
+package model;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The four levels in MapModel.LEVELS with their prop and time attack rules
+ */
+class BuiltInLevelPack implements LevelPack {
+    static final BuiltInLevelPack INSTANCE = new BuiltInLevelPack();
+
+    private final LevelDefinition[] levels;
+
+    private BuiltInLevelPack() {
+        levels = new LevelDefinition[MapModel.LEVELS.length];
+        for (int level = 0; level < levels.length; level++) {
+            Map<Prop.PropType, Integer> props = new EnumMap<>(Prop.PropType.class);
+            if (level == 1) { // Hard level
+                props.put(Prop.PropType.HINT, 2);
+                props.put(Prop.PropType.TIME_BONUS, 3);
+                props.put(Prop.PropType.OBSTACLE_REMOVER, 1);
+            } else if (level == 2) { // Expert level
+                props.put(Prop.PropType.HINT, 1);
+                props.put(Prop.PropType.TIME_BONUS, 2);
+                props.put(Prop.PropType.OBSTACLE_REMOVER, 2);
+            }
+            boolean enforced = MapModel.LEVEL_TIME_ATTACK_ENFORCED[level];
+            levels[level] = new LevelDefinition(
+                    MapModel.LEVEL_NAMES[level],
+                    MapModel.LEVELS[level],
+                    MapModel.LEVEL_PROPS_ALLOWED[level],
+                    props,
+                    enforced ? MapModel.DEFAULT_MASTER_TIME_LIMIT : 0,
+                    enforced,
+                    -1);
+        }
+    }
+
+    @Override
+    public String getTitle() {
+        return "Classic";
+    }
+
+    @Override
+    public int size() {
+        return levels.length;
+    }
+
+    @Override
+    public LevelDefinition get(int index) {
+        return levels[index];
+    }
+}
@@ -0,0 +1,228 @@
+package model;
+
+import java.util.ArrayDeque;
+
+/**
+ * Precomputed dead-state patterns for one board layout.
+ *
+ * BLOCKED cells and military camps never move during a pure search, so they are analysed once
+ * when the detector is built:
+ * - if a fixed cell lies inside the goal footprint, Cao Cao can never reach the exit at all
+ * - Cao Cao origins that cannot reach the goal through the fixed cells are dead
+ * - origins from which another piece can never leave the goal footprint are dead
+ *   (e.g. a Zhou Yu stuck in a bottom lane that crosses the exit)
+ *
+ * Each pattern is stored as a per-type origin table, so checking a freshly generated state
+ * only costs a single array lookup for the piece that just moved.
+ *
+ * Slides can be undone and a piece never leaves the region its flood fill covers, so a
+ * state reached from a live start is never flagged. The saving is the start check: a board
+ * the detector proves dead is rejected without searching its whole reachable space.
+ */
+public class DeadlockDetector {
+    private final int height;
+    private final int width;
+    private final boolean goalSealed;
+    // deadOrigins[type][row][col] is true when a piece of that type with its origin there is dead
+    private final boolean[][][] deadOrigins;
+    private int deadPatternCount;
+
+    public DeadlockDetector(int[][] board) {
+        this.height = board.length;
+        this.width = board[0].length;
+
+        boolean[][] fixed = new boolean[height][width];
+        boolean sealed = false;
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                fixed[r][c] = PuzzleRules.isFixedCell(board[r][c]);
+                if (fixed[r][c] && PuzzleRules.isInGoalArea(r, c, height, width)) {
+                    sealed = true;
+                }
+            }
+        }
+        this.goalSealed = sealed || PuzzleRules.goalRow(height) < 0 || PuzzleRules.goalCol(width) < 0;
+
+        this.deadOrigins = new boolean[MapModel.ZHOU_YU + 1][][];
+        if (goalSealed) {
+            return;
+        }
+
+        // Only analyse the shapes that actually appear on this board
+        boolean[] present = new boolean[MapModel.ZHOU_YU + 1];
+        for (int[] piece : PuzzleRules.findPieces(board)) {
+            present[piece[2]] = true;
+        }
+
+        for (int type = MapModel.CAO_CAO; type <= MapModel.ZHOU_YU; type++) {
+            if (!present[type]) {
+                continue;
+            }
+            if (type == MapModel.CAO_CAO) {
+                deadOrigins[type] = findCaoCaoDeadOrigins(fixed);
+            } else {
+                deadOrigins[type] = findPinnedOrigins(fixed, type);
+            }
+        }
+    }
+
+    /**
+     * Check if the layout can never be solved without props
+     */
+    public boolean isGoalSealed() {
+        return goalSealed;
+    }
+
+    /**
+     * Number of dead origins found during precomputation (for logging)
+     */
+    public int getDeadPatternCount() {
+        return deadPatternCount;
+    }
+
+    /**
+     * Check if a piece of the given type placed with its origin at [row, col] makes the state dead
+     */
+    public boolean isDeadPlacement(int pieceType, int row, int col) {
+        if (goalSealed) {
+            return true;
+        }
+        if (pieceType < 0 || pieceType >= deadOrigins.length) {
+            return false;
+        }
+        boolean[][] table = deadOrigins[pieceType];
+        return table != null && table[row][col];
+    }
+
+    /**
+     * Full check of a board, used for the start state. During the search only the moved
+     * piece can change the verdict, so isDeadPlacement is enough for generated states.
+     */
+    public boolean isDead(int[][] board) {
+        if (goalSealed) {
+            return true;
+        }
+        for (int[] piece : PuzzleRules.findPieces(board)) {
+            if (isDeadPlacement(piece[2], piece[0], piece[1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cao Cao origins that cannot reach the goal when only fixed cells are considered.
+     * Moves are reversible, so a flood fill from the goal gives exactly the live origins.
+     */
+    private boolean[][] findCaoCaoDeadOrigins(boolean[][] fixed) {
+        boolean[][] live = floodFill(fixed, 2, 2,
+                PuzzleRules.goalRow(height), PuzzleRules.goalCol(width));
+
+        boolean[][] dead = new boolean[height][width];
+        for (int r = 0; r + 1 < height; r++) {
+            for (int c = 0; c + 1 < width; c++) {
+                if (!live[r][c] && placementFits(fixed, r, c, 2, 2)) {
+                    dead[r][c] = true;
+                    deadPatternCount++;
+                }
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * Origins from which a piece can never get off the goal footprint, even on an otherwise
+     * empty board. A piece in such a region permanently blocks Cao Cao.
+     */
+    private boolean[][] findPinnedOrigins(boolean[][] fixed, int type) {
+        int pieceWidth = PuzzleRules.pieceWidth(type);
+        int pieceHeight = PuzzleRules.pieceHeight(type);
+        boolean[][] dead = new boolean[height][width];
+        boolean[][] visited = new boolean[height][width];
+
+        for (int r = 0; r + pieceHeight <= height; r++) {
+            for (int c = 0; c + pieceWidth <= width; c++) {
+                if (visited[r][c] || !placementFits(fixed, r, c, pieceWidth, pieceHeight)) {
+                    continue;
+                }
+
+                boolean[][] region = floodFill(fixed, pieceWidth, pieceHeight, r, c);
+                boolean alwaysOnGoal = true;
+                for (int i = 0; i < height && alwaysOnGoal; i++) {
+                    for (int j = 0; j < width; j++) {
+                        if (region[i][j] && !overlapsGoal(i, j, pieceWidth, pieceHeight)) {
+                            alwaysOnGoal = false;
+                            break;
+                        }
+                    }
+                }
+
+                for (int i = 0; i < height; i++) {
+                    for (int j = 0; j < width; j++) {
+                        if (region[i][j]) {
+                            visited[i][j] = true;
+                            if (alwaysOnGoal) {
+                                dead[i][j] = true;
+                                deadPatternCount++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return dead;
+    }
+
+    /**
+     * Flood fill the origins a piece of the given size can reach when only fixed cells block it
+     */
+    private boolean[][] floodFill(boolean[][] fixed, int pieceWidth, int pieceHeight, int startRow, int startCol) {
+        boolean[][] reached = new boolean[height][width];
+        if (!placementFits(fixed, startRow, startCol, pieceWidth, pieceHeight)) {
+            return reached;
+        }
+
+        ArrayDeque<int[]> queue = new ArrayDeque<>();
+        reached[startRow][startCol] = true;
+        queue.add(new int[]{startRow, startCol});
+
+        while (!queue.isEmpty()) {
+            int[] current = queue.poll();
+            for (Direction dir : Direction.values()) {
+                int nextRow = current[0] + dir.getRow();
+                int nextCol = current[1] + dir.getCol();
+                if (placementFits(fixed, nextRow, nextCol, pieceWidth, pieceHeight)
+                        && !reached[nextRow][nextCol]) {
+                    reached[nextRow][nextCol] = true;
+                    queue.add(new int[]{nextRow, nextCol});
+                }
+            }
+        }
+        return reached;
+    }
+
+    private boolean placementFits(boolean[][] fixed, int row, int col, int pieceWidth, int pieceHeight) {
+        if (row < 0 || col < 0 || row + pieceHeight > height || col + pieceWidth > width) {
+            return false;
+        }
+        for (int i = 0; i < pieceHeight; i++) {
+            for (int j = 0; j < pieceWidth; j++) {
+                if (fixed[row + i][col + j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean overlapsGoal(int row, int col, int pieceWidth, int pieceHeight) {
+        for (int i = 0; i < pieceHeight; i++) {
+            for (int j = 0; j < pieceWidth; j++) {
+                if (PuzzleRules.isInGoalArea(row + i, col + j, height, width)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
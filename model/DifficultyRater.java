@@ -0,0 +1,234 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Rates how hard a board is from the shape of its state space instead of its level index.
+ *
+ * One breadth-first search explores every board reachable from the start and records the
+ * move graph, which gives:
+ * - optimal length: the depth of the first solved board
+ * - reachable states: the size of the start's component
+ * - branching factor: legal moves per board, averaged over the component
+ * - near-optimal paths: move sequences that solve the board in at most optimal + slack
+ *   moves, counted by dynamic programming over the recorded graph
+ *
+ * Boards are packed by BoardCodec into a StateTable, so a 4x5 board rates in well under
+ * a second. Larger boards stop at maxStates: the state count is then a lower bound, but
+ * the optimal length and path count stay exact as long as the search got past
+ * optimal + slack moves deep. Boards whose exit is sealed are rejected up front by the
+ * DeadlockDetector. Props and obstacle timers are ignored (the rating is for the bare
+ * puzzle).
+ */
+public class DifficultyRater {
+    private static final int DEFAULT_MAX_STATES = 1_000_000;
+    private static final int DEFAULT_SLACK = 2;
+
+    private final int maxStates;
+    private final int slack;
+
+    public DifficultyRater() {
+        this(DEFAULT_MAX_STATES, DEFAULT_SLACK);
+    }
+
+    /**
+     * @param maxStates Give up exploring beyond this many boards
+     * @param slack     Extra moves allowed for a path to count as near-optimal
+     */
+    public DifficultyRater(int maxStates, int slack) {
+        this.maxStates = maxStates;
+        this.slack = slack;
+    }
+
+    /**
+     * Rate a board. The board is not modified.
+     */
+    public Rating rate(int[][] start) {
+        long began = System.nanoTime();
+        if (new DeadlockDetector(start).isDead(start)) {
+            return new Rating(-1, true, 1, 0, 0, true, System.nanoTime() - began);
+        }
+        int height = start.length;
+        int width = start[0].length;
+        int words = BoardCodec.wordsFor(height, width);
+        StateTable table = new StateTable(words, 1 << 12);
+        long[] key = new long[words];
+        BoardCodec.encode(start, key, 0);
+        table.add(key);
+
+        int[] depth = new int[1 << 12];
+        int[] edgeStart = new int[1 << 12];
+        int[] edges = new int[1 << 14];
+        int edgeCount = 0;
+        int optimal = -1;
+        int[][] board = new int[height][width];
+
+        // Ids are handed out in discovery order, so the table doubles as the BFS queue
+        int id = 0;
+        for (; id < table.size() && table.size() <= maxStates; id++) {
+            if (id + 1 >= edgeStart.length) {
+                edgeStart = Arrays.copyOf(edgeStart, edgeStart.length * 2);
+            }
+            edgeStart[id] = edgeCount;
+
+            table.get(id, key);
+            BoardCodec.decode(key, 0, board);
+            if (optimal < 0 && PuzzleRules.isGoal(board)) {
+                optimal = depth[id]; // BFS order: the first solved board is the nearest
+            }
+
+            for (int[] piece : PuzzleRules.findPieces(board)) {
+                int pieceWidth = PuzzleRules.pieceWidth(piece[2]);
+                int pieceHeight = PuzzleRules.pieceHeight(piece[2]);
+                for (Direction dir : Direction.values()) {
+                    if (!PuzzleRules.canMove(board, piece[0], piece[1], pieceWidth, pieceHeight, dir)) {
+                        continue;
+                    }
+                    PuzzleRules.applyMove(board, piece[0], piece[1], pieceWidth, pieceHeight, dir);
+                    BoardCodec.encode(board, key, 0);
+                    PuzzleRules.applyMove(board, piece[0] + dir.getRow(), piece[1] + dir.getCol(),
+                            pieceWidth, pieceHeight, dir.opposite());
+
+                    int next = table.indexOf(key);
+                    if (next < 0) {
+                        next = table.add(key);
+                        if (next >= depth.length) {
+                            depth = Arrays.copyOf(depth, depth.length * 2);
+                        }
+                        depth[next] = depth[id] + 1;
+                    }
+                    if (edgeCount == edges.length) {
+                        edges = Arrays.copyOf(edges, edges.length * 2);
+                    }
+                    edges[edgeCount++] = next;
+                }
+            }
+        }
+        boolean complete = id == table.size();
+        int expanded = id;
+        edgeStart[expanded] = edgeCount;
+        double branching = expanded > 0 ? (double) edgeCount / expanded : 0;
+
+        boolean exact = optimal >= 0 || complete;
+        if (!exact) {
+            // Every board shallower than the unexpanded frontier was checked, so no solution is shorter
+            optimal = depth[expanded];
+        }
+
+        // Counting needs every board closer than optimal + slack expanded; over budget
+        // that may not hold and the count is left at zero
+        double paths = 0;
+        if (exact && optimal >= 0 && (complete || depth[expanded] >= optimal + slack)) {
+            paths = countNearOptimalPaths(optimal + slack, depth, expanded, table.size(), edgeStart, edges,
+                    table, board);
+        }
+        return new Rating(optimal, exact, table.size(), branching, paths, complete, System.nanoTime() - began);
+    }
+
+    /**
+     * Number of move sequences from the start (id 0) that end solved within limit moves.
+     * A sequence stops at its first solved board. Such a sequence never leaves the boards
+     * at BFS depth below the limit (all of them expanded), so counting runs over those
+     * instead of the whole component. Counts are doubles because they grow exponentially
+     * with the slack.
+     */
+    private static double countNearOptimalPaths(int limit, int[] depth, int expanded, int states,
+                                                int[] edgeStart, int[] edges, StateTable table, int[][] board) {
+        boolean[] solved = new boolean[states];
+        long[] key = new long[table.width()];
+        for (int id = 0; id < states && depth[id] <= limit; id++) {
+            table.get(id, key);
+            BoardCodec.decode(key, 0, board);
+            solved[id] = PuzzleRules.isGoal(board);
+        }
+
+        double[] current = new double[states];
+        double[] next = new double[states];
+        current[0] = 1;
+        double count = 0;
+        for (int step = 0; step < limit; step++) {
+            // Only boards at depth <= step can carry a count at this step
+            for (int id = 0; id < expanded && depth[id] <= step; id++) {
+                double ways = current[id];
+                if (ways == 0 || solved[id]) {
+                    continue;
+                }
+                current[id] = 0;
+                for (int e = edgeStart[id]; e < edgeStart[id + 1]; e++) {
+                    next[edges[e]] += ways;
+                }
+            }
+            for (int id = 0; id < states && depth[id] <= step + 1; id++) {
+                if (solved[id]) {
+                    count += next[id];
+                    next[id] = 0;
+                }
+                current[id] += next[id];
+                next[id] = 0;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * State-space metrics of one board and the difficulty score derived from them
+     */
+    public static class Rating {
+        public final int optimalLength;
+        public final boolean optimalExact;
+        public final int reachableStates;
+        public final double branchingFactor;
+        public final double nearOptimalPaths;
+        public final boolean complete;
+        public final long elapsedNanos;
+        public final double difficulty;
+
+        /**
+         * @param optimalLength Moves in an optimal solution, -1 if there is none
+         * @param optimalExact  False if the search ran out of budget first; optimalLength is then a lower bound
+         * @param complete      False if reachableStates is only a lower bound
+         */
+        public Rating(int optimalLength, boolean optimalExact, int reachableStates, double branchingFactor,
+                      double nearOptimalPaths, boolean complete, long elapsedNanos) {
+            this.optimalLength = optimalLength;
+            this.optimalExact = optimalExact;
+            this.reachableStates = reachableStates;
+            this.branchingFactor = branchingFactor;
+            this.nearOptimalPaths = nearOptimalPaths;
+            this.complete = complete;
+            this.elapsedNanos = elapsedNanos;
+            this.difficulty = score();
+        }
+
+        public boolean isSolvable() {
+            return optimalLength >= 0;
+        }
+
+        /**
+         * Roughly 0-100. Longer solutions and larger state spaces make a board harder;
+         * many near-optimal routes make it more forgiving. Each term is logarithmic so no
+         * single metric dominates. Unsolvable boards score -1.
+         */
+        private double score() {
+            if (optimalLength < 0) {
+                return -1;
+            }
+            double value = 9 * Math.log(1 + optimalLength) / Math.log(2)
+                    + 4 * Math.log10(Math.max(1, reachableStates))
+                    + 2 * branchingFactor
+                    - 2 * Math.log10(Math.max(1, nearOptimalPaths));
+            return Math.max(0, Math.min(100, value));
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000L;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("difficulty %.1f: %s moves, %d%s states, branching %.2f, %.3g near-optimal paths, %d ms",
+                    difficulty, optimalLength < 0 ? "no" : (optimalExact ? "" : ">=") + optimalLength,
+                    reachableStates, complete ? "" : "+", branchingFactor, nearOptimalPaths, getElapsedMillis());
+        }
+    }
+}
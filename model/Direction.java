@@ -18,4 +18,17 @@ public enum Direction {
     public int getCol() {
         return col;
     }
+
+    public Direction opposite() {
+        switch (this) {
+            case LEFT:
+                return RIGHT;
+            case RIGHT:
+                return LEFT;
+            case UP:
+                return DOWN;
+            default:
+                return UP;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A level pack stored as a text file with one JSON level per line (see LevelDefinition
+ * for the fields). Blank lines and lines starting with # are ignored.
+ *
+ * Opening a pack does not parse it. A sidecar index (pack file name + ".idx") holds the
+ * byte offset of every level, so size() is a file length and get(i) is two seeks and
+ * one line parse. The index is rebuilt in a single streaming pass whenever it is missing
+ * or older than the pack. Only the last few parsed levels are kept, so neither startup
+ * time nor memory grows with the number of levels.
+ *
+ * Index layout: magic, version, pack length and pack modification time (to detect
+ * stale indexes), then one long offset per level.
+ */
+public class FileLevelPack implements LevelPack, Closeable {
+    private static final Log LOG = Log.get(FileLevelPack.class);
+
+    private static final int MAGIC = 0x4B4C5049; // "KLPI"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+    private static final int CACHE_SIZE = 64;
+
+    private final File packFile;
+    private final RandomAccessFile pack;
+    private final RandomAccessFile index;
+    private final int size;
+    private final Map<Integer, LevelDefinition> cache = new LinkedHashMap<Integer, LevelDefinition>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, LevelDefinition> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private FileLevelPack(File packFile, File indexFile) throws IOException {
+        this.packFile = packFile;
+        this.pack = new RandomAccessFile(packFile, "r");
+        this.index = new RandomAccessFile(indexFile, "r");
+        this.size = (int) ((index.length() - HEADER_BYTES) / 8);
+    }
+
+    /**
+     * Open a pack, building or refreshing its index if needed
+     */
+    public static FileLevelPack open(File packFile) throws IOException {
+        if (!packFile.isFile()) {
+            throw new IOException("Level pack not found: " + packFile);
+        }
+        File indexFile = new File(packFile.getPath() + ".idx");
+        if (!isIndexCurrent(packFile, indexFile)) {
+            buildIndex(packFile, indexFile);
+        }
+        return new FileLevelPack(packFile, indexFile);
+    }
+
+    private static boolean isIndexCurrent(File packFile, File indexFile) {
+        if (!indexFile.isFile() || indexFile.length() < HEADER_BYTES
+                || (indexFile.length() - HEADER_BYTES) % 8 != 0) {
+            return false;
+        }
+        try (RandomAccessFile index = new RandomAccessFile(indexFile, "r")) {
+            return index.readInt() == MAGIC
+                    && index.readInt() == VERSION
+                    && index.readLong() == packFile.length()
+                    && index.readLong() == packFile.lastModified();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stream through the pack once, recording where each level line starts. The index is
+     * written to a temporary file and renamed, so a crash never leaves a truncated index.
+     */
+    private static void buildIndex(File packFile, File indexFile) throws IOException {
+        long start = System.nanoTime();
+        File temp = new File(indexFile.getPath() + ".tmp");
+        int levels = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(packFile), 1 << 16);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(packFile.length());
+            out.writeLong(packFile.lastModified());
+
+            long position = 0;
+            long lineStart = 0;
+            boolean blank = true;
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    blank = true;
+                    lineStart = position + 1;
+                } else if (blank && b != ' ' && b != '\t' && b != '\r') {
+                    blank = false;
+                    if (b != '#') {
+                        out.writeLong(lineStart);
+                        levels++;
+                    }
+                }
+                position++;
+            }
+        }
+        if (!temp.renameTo(indexFile)) {
+            indexFile.delete();
+            if (!temp.renameTo(indexFile)) {
+                throw new IOException("Could not write level pack index " + indexFile);
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Indexed " + levels + " levels of " + packFile.getName() + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    public File getFile() {
+        return packFile;
+    }
+
+    @Override
+    public String getTitle() {
+        String name = packFile.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized LevelDefinition get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Level " + index + " of " + size);
+        }
+        LevelDefinition level = cache.get(index);
+        if (level == null) {
+            String line;
+            try {
+                line = readLine(index);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read level " + (index + 1) + " of " + packFile, e);
+            }
+            try {
+                level = LevelDefinition.fromJson(new JSONObject(line), getTitle() + " #" + (index + 1));
+            } catch (JSONException | IllegalArgumentException e) {
+                throw new IllegalStateException("Level " + (index + 1) + " of " + packFile + " is invalid: "
+                        + e.getMessage(), e);
+            }
+            cache.put(index, level);
+        }
+        return level;
+    }
+
+    private String readLine(int level) throws IOException {
+        index.seek(HEADER_BYTES + 8L * level);
+        pack.seek(index.readLong());
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[512];
+        int read;
+        while ((read = pack.read(buffer)) > 0) {
+            int end = 0;
+            while (end < read && buffer[end] != '\n') {
+                end++;
+            }
+            line.write(buffer, 0, end);
+            if (end < read) {
+                break;
+            }
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8).trim();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        cache.clear();
+        try {
+            pack.close();
+        } finally {
+            index.close();
+        }
+    }
+}
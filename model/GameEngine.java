@@ -0,0 +1,624 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rules of one game in progress, with no user interface: the board, moves, undo and
+ * redo, props, the removed-obstacle countdown and the win check.
+ *
+ * GameController drives one of these and only adds the presentation (components,
+ * animation, dialogs, saving); simulations, bots and the fuzzing tools can drive one
+ * directly. Nothing here touches Swing, and a move allocates nothing beyond its history
+ * step, so with history switched off an engine can play millions of moves a second.
+ *
+ * Moves address a piece by its top-left cell, as the board view and the solvers do.
+ * Military camps are taken from the level's starting board: a soldier may stand on one
+ * and the camp comes back when it leaves. Not thread safe.
+ */
+public class GameEngine {
+    // Moves before a removed obstacle tries to reappear
+    public static final int OBSTACLE_REMOVAL_STEPS = 3;
+
+    /**
+     * Told about changes a move makes besides moving its piece; called during move()
+     */
+    public interface Listener {
+        /**
+         * A removed obstacle is back on the board
+         */
+        default void obstacleRestored(int row, int col) {
+        }
+
+        /**
+         * A removed obstacle is due but its cell is occupied; it reappears once the cell is free
+         */
+        default void obstacleWaiting(int row, int col) {
+        }
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+    };
+
+    private LevelPack levelPack;
+    private int levelIndex;
+    private LevelDefinition level;
+    private MapModel model;
+    private boolean[][] camps;
+    // Cells the step being made writes, noted before each write for its history step
+    private final MoveHistory.Changes changes = new MoveHistory.Changes();
+
+    private final MoveHistory history = new MoveHistory();
+    private boolean historyEnabled = true;
+    private final Map<Prop.PropType, Prop> props = new EnumMap<>(Prop.PropType.class);
+    // Removed obstacles as cell keys (row * width + col), in the order they were removed.
+    // Each is either counting down in obstacleTimers or waiting for its cell to be vacated.
+    private int[] removedCells;
+    private int removedCount;
+    private StepTimers obstacleTimers;
+    private boolean[] waiting;
+    private int waitingCount;
+    private final StepTimers.Handler obstacleDue = this::obstacleDue;
+    private int moveCount;
+    private boolean won;
+    private Listener listener = NO_LISTENER;
+
+    /**
+     * Start at a level of a pack
+     */
+    public GameEngine(LevelPack pack, int level) {
+        loadLevel(pack, level);
+    }
+
+    /**
+     * Start a level from its starting board, with its props and an empty history
+     */
+    public void loadLevel(LevelPack pack, int level) {
+        this.levelPack = pack;
+        this.levelIndex = level;
+        this.level = pack.get(level);
+        setBoard(this.level.getBoard());
+        this.moveCount = 0;
+        this.won = false;
+        history.clear();
+        resetProps();
+    }
+
+    /**
+     * Start the current level over
+     */
+    public void restart() {
+        loadLevel(levelPack, levelIndex);
+    }
+
+    /**
+     * Continue a saved game of a level of this pack. The save must be for a board of the
+     * level's size.
+     */
+    public void restore(LevelPack pack, int level, SaveGame save) {
+        this.levelPack = pack;
+        this.levelIndex = level;
+        this.level = pack.get(level);
+        setBoard(save.getBoard());
+        this.moveCount = save.getMoveCount();
+        this.won = false;
+        history.restore(save.getHistory(), save.getBoard());
+        setProps(save.getProps(), save.getRemovedObstacles());
+    }
+
+    private void setBoard(int[][] board) {
+        this.model = new MapModel(board);
+        this.camps = new boolean[board.length][board[0].length];
+        int cells = board.length * board[0].length;
+        this.removedCells = new int[cells];
+        this.removedCount = 0;
+        this.obstacleTimers = new StepTimers(cells, OBSTACLE_REMOVAL_STEPS);
+        this.waiting = new boolean[cells];
+        this.waitingCount = 0;
+        for (int row = 0; row < board.length; row++) {
+            for (int col = 0; col < board[0].length; col++) {
+                camps[row][col] = row < level.getHeight() && col < level.getWidth()
+                        && level.getCell(row, col) == MapModel.MILITARY_CAMP;
+            }
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener != null ? listener : NO_LISTENER;
+    }
+
+    /**
+     * Bots and simulations that never undo can switch history off; moves then allocate nothing
+     */
+    public void setHistoryEnabled(boolean enabled) {
+        this.historyEnabled = enabled;
+        if (!enabled) {
+            history.clear();
+        }
+    }
+
+    public LevelPack getLevelPack() {
+        return levelPack;
+    }
+
+    public int getLevelIndex() {
+        return levelIndex;
+    }
+
+    public LevelDefinition getLevel() {
+        return level;
+    }
+
+    /**
+     * The live board and its piece layout; the view and the solvers read it, only the engine changes it
+     */
+    public MapModel getModel() {
+        return model;
+    }
+
+    /**
+     * The live board; do not modify
+     */
+    public int[][] getBoard() {
+        return model.getMatrix();
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Whether the last move or redo brought Cao Cao to the exit
+     */
+    public boolean isWon() {
+        return won;
+    }
+
+    /**
+     * Check whether the piece whose top-left cell is (row, col) can slide one cell
+     */
+    public boolean canMove(int row, int col, Direction direction) {
+        int[][] board = model.getMatrix();
+        if (row < 0 || col < 0 || row >= board.length || col >= board[0].length) {
+            return false;
+        }
+        // Only a whole piece moves, from its top-left cell: not the lower half of a General
+        // (which would carry off the cell below it)
+        PieceLayout.Piece piece = model.getPieces().pieceAt(row, col);
+        if (piece == null || piece.getRow() != row || piece.getCol() != col) {
+            return false;
+        }
+        int type = piece.getType();
+        int width = piece.getWidth();
+        int height = piece.getHeight();
+        switch (direction) {
+            case UP:
+                if (row == 0) return false;
+                for (int c = col; c < col + width; c++) {
+                    if (!canEnter(board[row - 1][c], type)) return false;
+                }
+                return true;
+            case DOWN:
+                if (row + height >= board.length) return false;
+                for (int c = col; c < col + width; c++) {
+                    if (!canEnter(board[row + height][c], type)) return false;
+                }
+                return true;
+            case LEFT:
+                if (col == 0) return false;
+                for (int r = row; r < row + height; r++) {
+                    if (!canEnter(board[r][col - 1], type)) return false;
+                }
+                return true;
+            case RIGHT:
+                if (col + width >= board[0].length) return false;
+                for (int r = row; r < row + height; r++) {
+                    if (!canEnter(board[r][col + width], type)) return false;
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Empty cells and removed obstacles can be entered by any piece, camps only by soldiers
+     */
+    private static boolean canEnter(int cell, int pieceType) {
+        if (cell == MapModel.MILITARY_CAMP) {
+            return pieceType == MapModel.SOLDIER;
+        }
+        return cell <= 0;
+    }
+
+    /**
+     * Slide the piece whose top-left cell is (row, col) one cell, then count down removed
+     * obstacles and check for the win
+     *
+     * @return false (and nothing changes) if the move is not legal
+     */
+    public boolean move(int row, int col, Direction direction) {
+        if (!canMove(row, col, direction)) {
+            return false;
+        }
+        int[][] board = model.getMatrix();
+        int type = board[row][col];
+        int width = PuzzleRules.pieceWidth(type);
+        int height = PuzzleRules.pieceHeight(type);
+        int nextRow = row + direction.getRow();
+        int nextCol = col + direction.getCol();
+        List<int[]> obstaclesBefore = null;
+        if (historyEnabled) {
+            obstaclesBefore = getRemovedObstacles();
+            changes.clear();
+            noteCells(row, col, width, height);
+            noteCells(nextRow, nextCol, width, height);
+        }
+
+        // Vacate the old cells, leaving any camp a soldier stood on, then fill the new ones
+        for (int r = row; r < row + height; r++) {
+            for (int c = col; c < col + width; c++) {
+                board[r][c] = camps[r][c] ? MapModel.MILITARY_CAMP : 0;
+            }
+        }
+        for (int r = nextRow; r < nextRow + height; r++) {
+            for (int c = nextCol; c < nextCol + width; c++) {
+                board[r][c] = type;
+            }
+        }
+        model.pieceMoved(row, col, direction);
+        moveCount++;
+        if (removedCount > 0) {
+            if (waitingCount > 0) {
+                freeWaitingObstacles(row, col, width, height);
+            }
+            obstacleTimers.advance(obstacleDue);
+        }
+
+        if (historyEnabled) {
+            history.record(MoveHistory.Step.move(row, col, direction, changes, board, obstaclesBefore,
+                    getRemovedObstacles()));
+        }
+        won = type == MapModel.CAO_CAO && isGoal(nextRow, nextCol);
+        return true;
+    }
+
+    private void noteCells(int row, int col, int width, int height) {
+        int[][] board = model.getMatrix();
+        for (int r = row; r < row + height; r++) {
+            for (int c = col; c < col + width; c++) {
+                changes.note(board, r, c);
+            }
+        }
+    }
+
+    /**
+     * Bring back the waiting obstacles on the cells a piece just left (and did not cover
+     * again). A waiting obstacle's cell is occupied, so this is the only time it can become free.
+     */
+    private void freeWaitingObstacles(int row, int col, int width, int height) {
+        int[][] board = model.getMatrix();
+        int boardWidth = board[0].length;
+        for (int r = row; r < row + height; r++) {
+            for (int c = col; c < col + width; c++) {
+                int key = r * boardWidth + c;
+                if (waiting[key] && board[r][c] == 0) {
+                    restoreObstacle(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * A removed obstacle's time is up: it comes back if its cell is free, or else waits
+     * for the piece on it to leave
+     */
+    private void obstacleDue(int key) {
+        int[][] board = model.getMatrix();
+        int row = key / board[0].length;
+        int col = key % board[0].length;
+        int cell = board[row][col];
+        if (cell == 0 || cell == -MapModel.BLOCKED) {
+            restoreObstacle(key);
+        } else {
+            waiting[key] = true;
+            waitingCount++;
+            listener.obstacleWaiting(row, col);
+        }
+    }
+
+    private void restoreObstacle(int key) {
+        int[][] board = model.getMatrix();
+        int row = key / board[0].length;
+        int col = key % board[0].length;
+        if (historyEnabled) {
+            changes.note(board, row, col);
+        }
+        board[row][col] = MapModel.BLOCKED;
+        forgetObstacle(key);
+        listener.obstacleRestored(row, col);
+    }
+
+    private void forgetObstacle(int key) {
+        obstacleTimers.cancel(key);
+        if (waiting[key]) {
+            waiting[key] = false;
+            waitingCount--;
+        }
+        for (int i = 0; i < removedCount; i++) {
+            if (removedCells[i] == key) {
+                System.arraycopy(removedCells, i + 1, removedCells, i, removedCount - i - 1);
+                removedCount--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replace the removed obstacles with {row, col, stepsRemaining} entries. A negative
+     * count is an obstacle waiting for its cell, which stays waiting while the cell is
+     * occupied; any other obstacle whose time is up is due on the next move.
+     */
+    private void setRemovedObstacles(List<int[]> obstacles) {
+        int[][] board = model.getMatrix();
+        obstacleTimers.clear();
+        Arrays.fill(waiting, false);
+        waitingCount = 0;
+        removedCount = 0;
+        for (int[] obstacle : obstacles) {
+            int key = obstacle[0] * board[0].length + obstacle[1];
+            if (isRemoved(key)) {
+                continue;
+            }
+            removedCells[removedCount++] = key;
+            int cell = board[obstacle[0]][obstacle[1]];
+            if (obstacle[2] < 0 && cell != 0 && cell != -MapModel.BLOCKED) {
+                waiting[key] = true;
+                waitingCount++;
+            } else {
+                obstacleTimers.schedule(key, Math.max(1, Math.min(obstacle[2], OBSTACLE_REMOVAL_STEPS)));
+            }
+        }
+    }
+
+    private boolean isRemoved(int key) {
+        for (int i = 0; i < removedCount; i++) {
+            if (removedCells[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isGoal(int row, int col) {
+        int[][] board = model.getMatrix();
+        if (row != PuzzleRules.goalRow(board.length) || col != PuzzleRules.goalCol(board[0].length)) {
+            return false;
+        }
+        for (int r = row; r < row + 2; r++) {
+            for (int c = col; c < col + 2; c++) {
+                if (board[r][c] != MapModel.CAO_CAO) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    /**
+     * Revert the last move or obstacle removal; undoing a removal gives the prop back
+     *
+     * @return The step that was reverted, or null if there is nothing to undo
+     */
+    public MoveHistory.Step undo() {
+        MoveHistory.Step step = history.undo(model.getMatrix());
+        if (step == null) {
+            return null;
+        }
+        restoreObstacles(step.getObstaclesBefore());
+        won = false;
+        if (step.isMove()) {
+            moveCount--;
+            Direction direction = step.getDirection();
+            if (direction != null) {
+                model.pieceMoved(step.getRow() + direction.getRow(), step.getCol() + direction.getCol(),
+                        direction.opposite());
+            } else {
+                model.invalidatePieces();
+            }
+        } else {
+            Prop prop = props.get(step.getProp());
+            if (prop != null) {
+                prop.add(1);
+            } else {
+                props.put(step.getProp(), new Prop(step.getProp(), 1));
+            }
+        }
+        return step;
+    }
+
+    /**
+     * Re-apply the last undone move or obstacle removal
+     *
+     * @return The step that was re-applied, or null if there is nothing to redo
+     */
+    public MoveHistory.Step redo() {
+        MoveHistory.Step step = history.redo(model.getMatrix());
+        if (step == null) {
+            return null;
+        }
+        restoreObstacles(step.getObstaclesAfter());
+        won = false;
+        if (step.isMove()) {
+            moveCount++;
+            Direction direction = step.getDirection();
+            if (direction != null) {
+                model.pieceMoved(step.getRow(), step.getCol(), direction);
+                int toRow = step.getRow() + direction.getRow();
+                int toCol = step.getCol() + direction.getCol();
+                won = model.getId(toRow, toCol) == MapModel.CAO_CAO && isGoal(toRow, toCol);
+            } else {
+                model.invalidatePieces();
+            }
+        } else {
+            Prop prop = props.get(step.getProp());
+            if (prop != null) {
+                prop.use();
+            }
+        }
+        return step;
+    }
+
+    /**
+     * Put back the obstacle timers saved with a step. Steps restored from a save have none,
+     * so then the timers are only made consistent with the board: obstacles that are back
+     * are dropped and removed ones without a timer get a fresh one.
+     */
+    private void restoreObstacles(List<int[]> saved) {
+        if (saved != null) {
+            setRemovedObstacles(saved);
+            return;
+        }
+        int[][] matrix = model.getMatrix();
+        List<int[]> obstacles = new ArrayList<>(getRemovedObstacles());
+        obstacles.removeIf(obstacle -> matrix[obstacle[0]][obstacle[1]] == MapModel.BLOCKED);
+        for (int row = 0; row < matrix.length; row++) {
+            for (int col = 0; col < matrix[row].length; col++) {
+                if (matrix[row][col] == -MapModel.BLOCKED && !isRemoved(row * matrix[0].length + col)) {
+                    obstacles.add(new int[] {row, col, OBSTACLE_REMOVAL_STEPS});
+                }
+            }
+        }
+        setRemovedObstacles(obstacles);
+    }
+
+    /**
+     * Give the player the current level's props again and put every removed obstacle's
+     * timer away (the board is left as it is)
+     */
+    public void resetProps() {
+        props.clear();
+        setRemovedObstacles(Collections.emptyList());
+        if (!level.isPropsAllowed()) {
+            return;
+        }
+        for (Prop.PropType type : Prop.PropType.values()) {
+            int count = level.getPropCount(type);
+            if (count > 0) {
+                props.put(type, new Prop(type, count));
+            }
+        }
+    }
+
+    /**
+     * Replace the prop counts and removed-obstacle timers, e.g. from a save
+     */
+    public void setProps(Map<Prop.PropType, Integer> counts, List<int[]> obstacles) {
+        props.clear();
+        for (Map.Entry<Prop.PropType, Integer> entry : counts.entrySet()) {
+            props.put(entry.getKey(), new Prop(entry.getKey(), entry.getValue()));
+        }
+        setRemovedObstacles(obstacles);
+    }
+
+    /**
+     * Whether the level allows props and the player has one of this type left
+     */
+    public boolean isPropAvailable(Prop.PropType type) {
+        if (!level.isPropsAllowed()) {
+            return false;
+        }
+        Prop prop = props.get(type);
+        return prop != null && prop.isAvailable();
+    }
+
+    public int getPropCount(Prop.PropType type) {
+        Prop prop = props.get(type);
+        return prop != null ? prop.getCount() : 0;
+    }
+
+    /**
+     * Every prop type the player holds, with its count
+     */
+    public Map<Prop.PropType, Integer> getPropCounts() {
+        Map<Prop.PropType, Integer> counts = new EnumMap<>(Prop.PropType.class);
+        for (Prop prop : props.values()) {
+            counts.put(prop.getType(), prop.getCount());
+        }
+        return counts;
+    }
+
+    /**
+     * Use up a prop whose effect happens outside the board (hint, time bonus)
+     *
+     * @return false if none is available
+     */
+    public boolean consumeProp(Prop.PropType type) {
+        return isPropAvailable(type) && props.get(type).use();
+    }
+
+    /**
+     * Use an Obstacle Remover on the obstacle at (row, col); it is gone for
+     * OBSTACLE_REMOVAL_STEPS moves
+     *
+     * @return false if no remover is available or the cell is not an obstacle
+     */
+    public boolean removeObstacle(int row, int col) {
+        int[][] board = model.getMatrix();
+        if (!isPropAvailable(Prop.PropType.OBSTACLE_REMOVER) || board[row][col] != MapModel.BLOCKED) {
+            return false;
+        }
+        List<int[]> obstaclesBefore = null;
+        if (historyEnabled) {
+            obstaclesBefore = getRemovedObstacles();
+            changes.clear();
+            changes.note(board, row, col);
+        }
+        int key = row * board[0].length + col;
+        removedCells[removedCount++] = key;
+        obstacleTimers.schedule(key, OBSTACLE_REMOVAL_STEPS);
+        board[row][col] = -MapModel.BLOCKED;
+        if (historyEnabled) {
+            history.record(MoveHistory.Step.prop(Prop.PropType.OBSTACLE_REMOVER, row, col, changes, board,
+                    obstaclesBefore, getRemovedObstacles()));
+        }
+        props.get(Prop.PropType.OBSTACLE_REMOVER).use();
+        return true;
+    }
+
+    /**
+     * Copies of the {row, col, stepsRemaining} entries of the removed obstacles (a negative
+     * step count means waiting to reappear)
+     */
+    public List<int[]> getRemovedObstacles() {
+        if (removedCount == 0) {
+            return Collections.emptyList();
+        }
+        int width = model.getMatrix()[0].length;
+        List<int[]> obstacles = new ArrayList<>(removedCount);
+        for (int i = 0; i < removedCount; i++) {
+            int key = removedCells[i];
+            obstacles.add(new int[] {key / width, key % width, waiting[key] ? -1 : obstacleTimers.remaining(key)});
+        }
+        return obstacles;
+    }
+
+    /**
+     * The board at the start and after every move, as stored in a SaveGame
+     */
+    public List<int[][]> getHistoryBoards() {
+        return history.toBoards(model.getMatrix());
+    }
+}
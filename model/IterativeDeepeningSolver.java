@@ -0,0 +1,145 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * IDA* search. Memory use is bounded by the search depth plus a capped transposition
+ * table, so it keeps working when A* and BFS would run out of heap.
+ * Uses Cao Cao's Manhattan distance to the exit as an admissible lower bound.
+ */
+public class IterativeDeepeningSolver implements SolverStrategy {
+    private final int maxDepth;
+    private final int tableLimit;
+
+    private int[][] board;
+    private DeadlockDetector detector;
+    private AtomicBoolean cancel;
+    private Map<String, Integer> transpositions;
+    private List<AISolver.Move> path;
+    private int explored;
+    private int nextBound;
+
+    public IterativeDeepeningSolver() {
+        this(300, 500_000);
+    }
+
+    public IterativeDeepeningSolver(int maxDepth, int tableLimit) {
+        this.maxDepth = maxDepth;
+        this.tableLimit = tableLimit;
+    }
+
+    @Override
+    public String getName() {
+        return "IDA*";
+    }
+
+    @Override
+    public synchronized Result solve(int[][] startBoard, AtomicBoolean cancel) {
+        long start = System.nanoTime();
+        this.board = PuzzleRules.copyBoard(startBoard);
+        this.detector = new DeadlockDetector(startBoard);
+        this.cancel = cancel;
+        this.transpositions = new HashMap<>();
+        this.path = new ArrayList<>();
+        this.explored = 0;
+
+        if (detector.isDead(board)) {
+            return new Result(getName(), null, false, false, 0, System.nanoTime() - start);
+        }
+
+        int bound = lowerBound(board);
+        while (bound <= maxDepth) {
+            nextBound = Integer.MAX_VALUE;
+            transpositions.clear();
+            if (search(0, bound)) {
+                return new Result(getName(), new ArrayList<>(path), true, false, explored, System.nanoTime() - start);
+            }
+            if (cancel.get()) {
+                return new Result(getName(), null, false, true, explored, System.nanoTime() - start);
+            }
+            if (nextBound == Integer.MAX_VALUE) {
+                break; // Whole reachable space exhausted
+            }
+            bound = nextBound;
+        }
+        if (bound > maxDepth) {
+            return Result.atLimit(getName(), null, explored, System.nanoTime() - start);
+        }
+        return new Result(getName(), null, false, false, explored, System.nanoTime() - start);
+    }
+
+    /**
+     * Depth-first search below the current f-bound, applying and undoing moves in place
+     */
+    private boolean search(int depth, int bound) {
+        if (cancel.get()) {
+            return false;
+        }
+        explored++;
+
+        int f = depth + lowerBound(board);
+        if (f > bound) {
+            nextBound = Math.min(nextBound, f);
+            return false;
+        }
+        if (PuzzleRules.isGoal(board)) {
+            return true;
+        }
+
+        String key = PuzzleRules.boardKey(board);
+        Integer seenDepth = transpositions.get(key);
+        if (seenDepth != null && seenDepth <= depth) {
+            return false;
+        }
+        if (seenDepth != null || transpositions.size() < tableLimit) {
+            transpositions.put(key, depth);
+        }
+
+        for (AISolver.Move move : PuzzleRules.legalMoves(board)) {
+            int type = board[move.row][move.col];
+            int width = PuzzleRules.pieceWidth(type);
+            int height = PuzzleRules.pieceHeight(type);
+            int newRow = move.row + move.direction.getRow();
+            int newCol = move.col + move.direction.getCol();
+            if (detector.isDeadPlacement(type, newRow, newCol) || undoesLastMove(move)) {
+                continue;
+            }
+
+            PuzzleRules.applyMove(board, move.row, move.col, width, height, move.direction);
+            path.add(move);
+            if (search(depth + 1, bound)) {
+                return true;
+            }
+            path.remove(path.size() - 1);
+            PuzzleRules.applyMove(board, newRow, newCol, width, height, move.direction.opposite());
+        }
+        return false;
+    }
+
+    private boolean undoesLastMove(AISolver.Move move) {
+        if (path.isEmpty()) {
+            return false;
+        }
+        AISolver.Move last = path.get(path.size() - 1);
+        return last.row + last.direction.getRow() == move.row
+                && last.col + last.direction.getCol() == move.col
+                && last.direction == move.direction.opposite();
+    }
+
+    private int lowerBound(int[][] state) {
+        int goalRow = PuzzleRules.goalRow(state.length);
+        int goalCol = PuzzleRules.goalCol(state[0].length);
+        for (int r = 0; r < state.length; r++) {
+            for (int c = 0; c < state[0].length; c++) {
+                if (state[r][c] == MapModel.CAO_CAO) {
+                    return Math.abs(goalRow - r) + Math.abs(goalCol - c);
+                }
+            }
+        }
+        return 0;
+    }
+}
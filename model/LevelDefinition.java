@@ -0,0 +1,181 @@
+package model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * One playable level: the starting board plus the rules that come with it.
+ *
+ * Built-in levels are created from MapModel's tables, external ones are parsed from a line
+ * of a level pack (see FileLevelPack):
+ *
+ *   {"name": "Crossing", "board": [[3,1,1,3],...], "propsAllowed": true,
+ *    "props": {"hint": 2, "timeBonus": 3, "obstacleRemover": 1},
+ *    "timeLimit": 5, "timeAttackEnforced": true, "optimal": 81}
+ *
+ * Only "board" is required, so the output of tools.LevelGenerator is a valid pack as-is.
+ */
+public class LevelDefinition {
+    private final String name;
+    private final int[][] board;
+    private final boolean propsAllowed;
+    private final Map<Prop.PropType, Integer> props;
+    private final int timeLimitMinutes;
+    private final boolean timeAttackEnforced;
+    private final int optimalLength;
+
+    /**
+     * @param timeLimitMinutes Time limit for time attack, 0 to let the player choose
+     * @param optimalLength    Precomputed optimal solution length, -1 if unknown
+     * @throws IllegalArgumentException if a piece cell is not part of a whole piece
+     */
+    public LevelDefinition(String name, int[][] board, boolean propsAllowed, Map<Prop.PropType, Integer> props,
+                           int timeLimitMinutes, boolean timeAttackEnforced, int optimalLength) {
+        int[] fragment = PuzzleRules.findFragment(board);
+        if (fragment != null) {
+            throw new IllegalArgumentException("Level '" + name + "' has a cell at [" + fragment[0] + ","
+                    + fragment[1] + "] that is not part of a whole piece");
+        }
+        this.name = name;
+        this.board = PuzzleRules.copyBoard(board);
+        this.propsAllowed = propsAllowed;
+        this.props = props.isEmpty() ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new EnumMap<>(props));
+        this.timeLimitMinutes = timeLimitMinutes;
+        this.timeAttackEnforced = timeAttackEnforced;
+        this.optimalLength = optimalLength;
+    }
+
+    /**
+     * Parse a level pack record
+     *
+     * @param defaultName Used when the record has no "name"
+     * @throws IllegalArgumentException if the board is missing or malformed
+     */
+    public static LevelDefinition fromJson(JSONObject json, String defaultName) {
+        JSONArray rows = json.optJSONArray("board");
+        if (rows == null || rows.length() < 2) {
+            throw new IllegalArgumentException("Level '" + json.optString("name", defaultName) + "' has no board");
+        }
+        int width = rows.getJSONArray(0).length();
+        int[][] board = new int[rows.length()][width];
+        for (int r = 0; r < rows.length(); r++) {
+            JSONArray row = rows.getJSONArray(r);
+            if (row.length() != width) {
+                throw new IllegalArgumentException("Row " + r + " has " + row.length() + " cells, expected " + width);
+            }
+            for (int c = 0; c < width; c++) {
+                board[r][c] = row.getInt(c);
+            }
+        }
+
+        Map<Prop.PropType, Integer> props = new EnumMap<>(Prop.PropType.class);
+        JSONObject counts = json.optJSONObject("props");
+        if (counts != null) {
+            putCount(props, Prop.PropType.HINT, counts.optInt("hint", 0));
+            putCount(props, Prop.PropType.TIME_BONUS, counts.optInt("timeBonus", 0));
+            putCount(props, Prop.PropType.OBSTACLE_REMOVER, counts.optInt("obstacleRemover", 0));
+        }
+        return new LevelDefinition(
+                json.optString("name", defaultName),
+                board,
+                json.optBoolean("propsAllowed", !props.isEmpty()),
+                props,
+                json.optInt("timeLimit", 0),
+                json.optBoolean("timeAttackEnforced", false),
+                json.optInt("optimal", -1));
+    }
+
+    private static void putCount(Map<Prop.PropType, Integer> props, Prop.PropType type, int count) {
+        if (count > 0) {
+            props.put(type, count);
+        }
+    }
+
+    public JSONObject toJson() {
+        JSONArray rows = new JSONArray();
+        for (int[] row : board) {
+            JSONArray cells = new JSONArray();
+            for (int cell : row) {
+                cells.put(cell);
+            }
+            rows.put(cells);
+        }
+        JSONObject json = new JSONObject()
+                .put("name", name)
+                .put("board", rows)
+                .put("propsAllowed", propsAllowed);
+        if (!props.isEmpty()) {
+            json.put("props", new JSONObject()
+                    .put("hint", getPropCount(Prop.PropType.HINT))
+                    .put("timeBonus", getPropCount(Prop.PropType.TIME_BONUS))
+                    .put("obstacleRemover", getPropCount(Prop.PropType.OBSTACLE_REMOVER)));
+        }
+        if (timeLimitMinutes > 0) {
+            json.put("timeLimit", timeLimitMinutes);
+        }
+        if (timeAttackEnforced) {
+            json.put("timeAttackEnforced", true);
+        }
+        if (optimalLength >= 0) {
+            json.put("optimal", optimalLength);
+        }
+        return json;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return A fresh copy of the starting board
+     */
+    public int[][] getBoard() {
+        return PuzzleRules.copyBoard(board);
+    }
+
+    /**
+     * Cell of the starting board without copying it
+     */
+    public int getCell(int row, int col) {
+        return board[row][col];
+    }
+
+    public int getHeight() {
+        return board.length;
+    }
+
+    public int getWidth() {
+        return board[0].length;
+    }
+
+    public boolean isPropsAllowed() {
+        return propsAllowed;
+    }
+
+    public int getPropCount(Prop.PropType type) {
+        return props.getOrDefault(type, 0);
+    }
+
+    public int getTimeLimitMinutes() {
+        return timeLimitMinutes;
+    }
+
+    public boolean isTimeAttackEnforced() {
+        return timeAttackEnforced;
+    }
+
+    public int getOptimalLength() {
+        return optimalLength;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + getWidth() + "x" + getHeight()
+                + (optimalLength >= 0 ? ", " + optimalLength + " moves" : "") + ")";
+    }
+}
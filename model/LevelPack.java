@@ -0,0 +1,35 @@
+package model;
+
+/**
+ * An ordered collection of levels. Implementations may parse levels lazily, so callers
+ * that only need a listing should use getName instead of get.
+ */
+public interface LevelPack {
+
+    /**
+     * Name shown for the pack as a whole
+     */
+    String getTitle();
+
+    int size();
+
+    /**
+     * @throws IndexOutOfBoundsException if index is not in [0, size())
+     * @throws IllegalStateException     if the level cannot be read or parsed
+     */
+    LevelDefinition get(int index);
+
+    /**
+     * Name of a level, for menus
+     */
+    default String getName(int index) {
+        return get(index).getName();
+    }
+
+    /**
+     * The levels compiled into MapModel
+     */
+    static LevelPack builtIn() {
+        return BuiltInLevelPack.INSTANCE;
+    }
+}
@@ -0,0 +1,268 @@
+package model;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
+
+/**
+ * A small level-gated logger shared by the model, view and controller.
+ *
+ * Every call first compares its level against one global threshold, so a disabled
+ * message costs a field read and no string is built. Messages that are expensive to
+ * build (anything with concatenation, board dumps) are passed as a Supplier and only
+ * evaluated when the level is enabled; multi-line dumps should sit behind
+ * isDebugEnabled() instead.
+ *
+ * Enabled records are evaluated on the calling thread (so they capture the state at the
+ * time of the call) and handed to a fixed-size ring buffer; a daemon thread formats them
+ * and writes them to stdout (TRACE to INFO) or stderr (WARN and ERROR). A caller never
+ * waits on the terminal. If the buffer is full the record is dropped and counted, and
+ * the count is reported with the next record written. The buffer is flushed at JVM
+ * shutdown.
+ *
+ * The threshold comes from the system property klotski.log (TRACE, DEBUG, INFO, WARN,
+ * ERROR or OFF) and defaults to INFO.
+ */
+public final class Log {
+    public enum Level {
+        TRACE, DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final long SHUTDOWN_FLUSH_MILLIS = 2000;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile Level threshold = parseLevel(System.getProperty("klotski.log"));
+    private static final RingAppender APPENDER = new RingAppender(BUFFER_SIZE);
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /**
+     * A logger whose records are prefixed with the simple name of the class
+     */
+    public static Log get(Class<?> owner) {
+        return new Log(owner.getSimpleName());
+    }
+
+    public static Level getLevel() {
+        return threshold;
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    /**
+     * Block until every buffered record has been written, or the timeout passes
+     */
+    public static void flush(long timeoutMillis) {
+        APPENDER.flush(timeoutMillis);
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold.ordinal() && level != Level.OFF;
+    }
+
+    public boolean isTraceEnabled() {
+        return isEnabled(Level.TRACE);
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void trace(String message) {
+        if (isEnabled(Level.TRACE)) {
+            APPENDER.append(Level.TRACE, name, message, null);
+        }
+    }
+
+    public void trace(Supplier<String> message) {
+        if (isEnabled(Level.TRACE)) {
+            APPENDER.append(Level.TRACE, name, message.get(), null);
+        }
+    }
+
+    public void debug(String message) {
+        if (isEnabled(Level.DEBUG)) {
+            APPENDER.append(Level.DEBUG, name, message, null);
+        }
+    }
+
+    public void debug(Supplier<String> message) {
+        if (isEnabled(Level.DEBUG)) {
+            APPENDER.append(Level.DEBUG, name, message.get(), null);
+        }
+    }
+
+    public void info(String message) {
+        if (isEnabled(Level.INFO)) {
+            APPENDER.append(Level.INFO, name, message, null);
+        }
+    }
+
+    public void info(Supplier<String> message) {
+        if (isEnabled(Level.INFO)) {
+            APPENDER.append(Level.INFO, name, message.get(), null);
+        }
+    }
+
+    public void warn(String message) {
+        if (isEnabled(Level.WARN)) {
+            APPENDER.append(Level.WARN, name, message, null);
+        }
+    }
+
+    public void warn(Supplier<String> message) {
+        if (isEnabled(Level.WARN)) {
+            APPENDER.append(Level.WARN, name, message.get(), null);
+        }
+    }
+
+    public void warn(String message, Throwable error) {
+        if (isEnabled(Level.WARN)) {
+            APPENDER.append(Level.WARN, name, message, error);
+        }
+    }
+
+    public void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) {
+            APPENDER.append(Level.ERROR, name, message, error);
+        }
+    }
+
+    private static Level parseLevel(String value) {
+        if (value != null) {
+            try {
+                return Level.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Log: unknown level \"" + value + "\", using INFO");
+            }
+        }
+        return Level.INFO;
+    }
+
+    /**
+     * Fixed-size ring of pending records drained by one daemon thread
+     */
+    private static final class RingAppender implements Runnable {
+        private final Level[] levels;
+        private final String[] names;
+        private final String[] messages;
+        private final Throwable[] errors;
+        private final long[] times;
+
+        // All guarded by this
+        private int head;
+        private int size;
+        private int dropped;
+        private long appended;
+        private long written;
+
+        RingAppender(int capacity) {
+            levels = new Level[capacity];
+            names = new String[capacity];
+            messages = new String[capacity];
+            errors = new Throwable[capacity];
+            times = new long[capacity];
+            Thread thread = new Thread(this, "log-appender");
+            thread.setDaemon(true);
+            thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(SHUTDOWN_FLUSH_MILLIS), "log-shutdown"));
+        }
+
+        synchronized void append(Level level, String name, String message, Throwable error) {
+            if (size == levels.length) {
+                dropped++;
+                return;
+            }
+            int slot = (head + size) % levels.length;
+            levels[slot] = level;
+            names[slot] = name;
+            messages[slot] = message;
+            errors[slot] = error;
+            times[slot] = System.currentTimeMillis();
+            size++;
+            appended++;
+            notifyAll();
+        }
+
+        synchronized void flush(long timeoutMillis) {
+            long target = appended;
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (written < target) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return;
+                }
+                try {
+                    wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            StringBuilder line = new StringBuilder(128);
+            while (true) {
+                Level level;
+                String name;
+                String message;
+                Throwable error;
+                long time;
+                int lost;
+                synchronized (this) {
+                    while (size == 0) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    level = levels[head];
+                    name = names[head];
+                    message = messages[head];
+                    error = errors[head];
+                    time = times[head];
+                    names[head] = null;
+                    messages[head] = null;
+                    errors[head] = null;
+                    head = (head + 1) % levels.length;
+                    size--;
+                    lost = dropped;
+                    dropped = 0;
+                }
+
+                PrintStream out = level.ordinal() >= Level.WARN.ordinal() ? System.err : System.out;
+                if (lost > 0) {
+                    out.println("Log: " + lost + " messages dropped (buffer full)");
+                }
+                line.setLength(0);
+                line.append(TIME_FORMAT.format(Instant.ofEpochMilli(time))).append(' ').append(level);
+                for (int pad = level.name().length(); pad < 5; pad++) {
+                    line.append(' ');
+                }
+                line.append(' ').append(name).append(": ").append(message);
+                out.println(line);
+                if (error != null) {
+                    error.printStackTrace(out);
+                }
+
+                synchronized (this) {
+                    written++;
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -45,6 +45,7 @@ public class MapModel {
     public static final int DEFAULT_MASTER_TIME_LIMIT = 5;
     
     int[][] matrix;
+    private PieceLayout pieces; // Built on first use, see getPieces
     public static final int[][][] LEVELS = {
         // Level 0 - Easy (4x5) Classic configuration
         {
@@ -60,28 +61,30 @@ public class MapModel {
             {0, BLOCKED, CAO_CAO, CAO_CAO, BLOCKED},
             {SOLDIER, SOLDIER, 0, 0, SOLDIER},
             {GENERAL, GENERAL, SOLDIER, SOLDIER, GENERAL},
-            {0, GENERAL, GUAN_YU, GUAN_YU, GENERAL},
+            {GENERAL, GENERAL, GUAN_YU, GUAN_YU, GENERAL},
             {0, SOLDIER, 0, BLOCKED, SOLDIER}
         },
-        // Level 2 - Expert (6x7) with more blocks
+        // Level 2 - Expert (6x7) with more blocks. The exit row stays free of fixed obstacles
+        // and the bottom piece is two wide: a three-wide piece in a six-wide row always
+        // covers an exit column, which left the level without a solution
         {
             {0, 0, CAO_CAO, CAO_CAO, 0, 0},
             {0, 0, CAO_CAO, CAO_CAO, 0, 0},
             {SOLDIER, BLOCKED, 0, 0, BLOCKED, SOLDIER},
             {GENERAL, SOLDIER, SOLDIER, SOLDIER, SOLDIER, GENERAL},
             {GENERAL, GUAN_YU, GUAN_YU, GUAN_YU, GUAN_YU, GENERAL},
-            {SOLDIER, 0, 0, BLOCKED, 0, SOLDIER},
-            {0, 0, ZHOU_YU, ZHOU_YU, ZHOU_YU, 0}
+            {SOLDIER, 0, 0, 0, 0, SOLDIER},
+            {0, 0, GUAN_YU, GUAN_YU, 0, 0}
         },
-        // Level 3 - Master (6x7) with Military Camp obstacles
+        // Level 3 - Master (6x7) with Military Camp obstacles, solvable for the same reasons
         {
             {0, MILITARY_CAMP, CAO_CAO, CAO_CAO, MILITARY_CAMP, 0},
             {0, 0, CAO_CAO, CAO_CAO, 0, 0},
             {SOLDIER, BLOCKED, 0, 0, BLOCKED, SOLDIER},
             {GENERAL, SOLDIER, SOLDIER, SOLDIER, SOLDIER, GENERAL},
             {GENERAL, GUAN_YU, GUAN_YU, GUAN_YU, GUAN_YU, GENERAL},
-            {SOLDIER, MILITARY_CAMP, 0, BLOCKED, MILITARY_CAMP, SOLDIER},
-            {0, 0, ZHOU_YU, ZHOU_YU, ZHOU_YU, 0}
+            {SOLDIER, MILITARY_CAMP, 0, 0, MILITARY_CAMP, SOLDIER},
+            {0, 0, GUAN_YU, GUAN_YU, 0, 0}
         }
     };
 
@@ -105,6 +108,39 @@ public class MapModel {
         this.matrix = matrix;
     }
 
+    /**
+     * The pieces on the board with stable ids and a cell to piece index, built on first use.
+     * Code that changes the matrix directly must call pieceMoved or invalidatePieces.
+     */
+    public PieceLayout getPieces() {
+        if (pieces == null) {
+            pieces = PieceLayout.of(matrix);
+        }
+        return pieces;
+    }
+
+    /**
+     * Keep the piece layout in step after the piece at (row, col) moved one cell in the matrix
+     */
+    public void pieceMoved(int row, int col, Direction direction) {
+        if (pieces == null) {
+            return;
+        }
+        int id = pieces.idAt(row, col);
+        if (id == PieceLayout.NO_PIECE) {
+            pieces = null;
+        } else {
+            pieces.move(id, direction);
+        }
+    }
+
+    /**
+     * Drop the piece layout after a change pieceMoved cannot describe; it is rebuilt when next needed
+     */
+    public void invalidatePieces() {
+        pieces = null;
+    }
+
     public int getWidth() {
         return this.matrix[0].length;
     }
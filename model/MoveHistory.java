@@ -0,0 +1,398 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Undo and redo stacks of board changes.
+ *
+ * Each step keeps only the cells it changed, packed one int per cell with the value
+ * before and after, so a typical move costs a few ints rather than a board copy, and
+ * undo or redo writes just those cells back into the live board. The caller notes each
+ * cell in a Changes buffer before writing it, so building a step looks only at those
+ * cells, never at the whole board. Moves also remember
+ * which piece moved, so the view can slide one component instead of rebuilding the
+ * board, and both steps record the removed-obstacle timers before and after, so undo
+ * puts the obstacle countdown back exactly.
+ *
+ * A step is either a move or a prop use that changed the board (the obstacle remover).
+ * Recording a new step clears the redo stack.
+ */
+public class MoveHistory {
+    // Cell values range from -9 (removed obstacle) to 10 (military camp); 5 bits each
+    private static final int VALUE_BITS = 5;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+    private static final int VALUE_OFFSET = 16;
+
+    private final Deque<Step> undo = new ArrayDeque<>();
+    private final Deque<Step> redo = new ArrayDeque<>();
+    private int moveSteps;
+
+    /**
+     * The cells a step is about to change, each noted with its old value before it is
+     * written. One buffer is reused for every step, so noting allocates nothing.
+     */
+    public static class Changes {
+        // Packed like a step's cells, with only the value before filled in
+        private int[] cells = new int[16];
+        private int count;
+
+        /**
+         * Start noting the cells of a new step
+         */
+        public void clear() {
+            count = 0;
+        }
+
+        /**
+         * Note a cell that is about to be written; noting a cell again keeps its first value
+         */
+        public void note(int[][] board, int row, int col) {
+            int cell = row * board[0].length + col;
+            for (int i = 0; i < count; i++) {
+                if (cells[i] >>> (2 * VALUE_BITS) == cell) {
+                    return;
+                }
+            }
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count * 2);
+            }
+            cells[count++] = cell << (2 * VALUE_BITS) | (board[row][col] + VALUE_OFFSET) << VALUE_BITS;
+        }
+
+        /**
+         * The noted cells whose value actually changed, packed with their new value
+         */
+        int[] toCells(int[][] board) {
+            int width = board[0].length;
+            int[] changed = new int[count];
+            int next = 0;
+            for (int i = 0; i < count; i++) {
+                int cell = cells[i] >>> (2 * VALUE_BITS);
+                int after = board[cell / width][cell % width];
+                if (Step.before(cells[i]) != after) {
+                    changed[next++] = cells[i] | (after + VALUE_OFFSET);
+                }
+            }
+            return next == count ? changed : Arrays.copyOf(changed, next);
+        }
+    }
+
+    /**
+     * One undoable change to the board
+     */
+    public static class Step {
+        private final int row;
+        private final int col;
+        private final Direction direction;
+        private final Prop.PropType prop;
+        private final int[] cells;
+        private final List<int[]> obstaclesBefore;
+        private final List<int[]> obstaclesAfter;
+
+        private Step(int row, int col, Direction direction, Prop.PropType prop, int[] cells,
+                     List<int[]> obstaclesBefore, List<int[]> obstaclesAfter) {
+            this.row = row;
+            this.col = col;
+            this.direction = direction;
+            this.prop = prop;
+            this.cells = cells;
+            this.obstaclesBefore = obstaclesBefore;
+            this.obstaclesAfter = obstaclesAfter;
+        }
+
+        /**
+         * A move of the piece whose top-left cell was at (row, col)
+         *
+         * @param changes The cells the move and any obstacle that reappeared wrote
+         * @param after   Board after the move
+         */
+        public static Step move(int row, int col, Direction direction, Changes changes, int[][] after,
+                                List<int[]> obstaclesBefore, List<int[]> obstaclesAfter) {
+            return new Step(row, col, direction, null, changes.toCells(after), store(obstaclesBefore),
+                    store(obstaclesAfter));
+        }
+
+        /**
+         * A prop use that changed the board
+         */
+        public static Step prop(Prop.PropType prop, int row, int col, Changes changes, int[][] after,
+                                List<int[]> obstaclesBefore, List<int[]> obstaclesAfter) {
+            return new Step(row, col, null, prop, changes.toCells(after), store(obstaclesBefore),
+                    store(obstaclesAfter));
+        }
+
+        public boolean isMove() {
+            return prop == null;
+        }
+
+        /**
+         * Top-left cell of the moved piece before the move, or the prop's target cell
+         */
+        public int getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /**
+         * The prop used, null for moves
+         */
+        public Prop.PropType getProp() {
+            return prop;
+        }
+
+        /**
+         * Whether any obstacle appeared or disappeared in this step, i.e. more than one
+         * piece changed on screen
+         */
+        public boolean changesObstacles() {
+            for (int packed : cells) {
+                if (isObstacle(before(packed)) || isObstacle(after(packed))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Removed-obstacle entries before the step, or null if unknown (restored from a save)
+         */
+        public List<int[]> getObstaclesBefore() {
+            return copy(obstaclesBefore);
+        }
+
+        /**
+         * Removed-obstacle entries after the step, or null if unknown
+         */
+        public List<int[]> getObstaclesAfter() {
+            return copy(obstaclesAfter);
+        }
+
+        /**
+         * Number of cells this step changed
+         */
+        public int size() {
+            return cells.length;
+        }
+
+        void revert(int[][] board) {
+            int width = board[0].length;
+            for (int packed : cells) {
+                int cell = packed >>> (2 * VALUE_BITS);
+                board[cell / width][cell % width] = before(packed);
+            }
+        }
+
+        void apply(int[][] board) {
+            int width = board[0].length;
+            for (int packed : cells) {
+                int cell = packed >>> (2 * VALUE_BITS);
+                board[cell / width][cell % width] = after(packed);
+            }
+        }
+
+        private static boolean isObstacle(int value) {
+            return value == MapModel.BLOCKED || value == -MapModel.BLOCKED;
+        }
+
+        private static int before(int packed) {
+            return ((packed >>> VALUE_BITS) & VALUE_MASK) - VALUE_OFFSET;
+        }
+
+        private static int after(int packed) {
+            return (packed & VALUE_MASK) - VALUE_OFFSET;
+        }
+    }
+
+    /**
+     * Add a step that has just been made; this ends any redo chain
+     */
+    public void record(Step step) {
+        undo.push(step);
+        redo.clear();
+        if (step.isMove()) {
+            moveSteps++;
+        }
+    }
+
+    public boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    /**
+     * Number of moves that can be undone
+     */
+    public int getMoveCount() {
+        return moveSteps;
+    }
+
+    /**
+     * Revert the newest step in place
+     *
+     * @return The step that was reverted, or null if there is nothing to undo
+     */
+    public Step undo(int[][] board) {
+        Step step = undo.poll();
+        if (step == null) {
+            return null;
+        }
+        step.revert(board);
+        redo.push(step);
+        if (step.isMove()) {
+            moveSteps--;
+        }
+        return step;
+    }
+
+    /**
+     * Re-apply the most recently undone step in place
+     *
+     * @return The step that was re-applied, or null if there is nothing to redo
+     */
+    public Step redo(int[][] board) {
+        Step step = redo.poll();
+        if (step == null) {
+            return null;
+        }
+        step.apply(board);
+        undo.push(step);
+        if (step.isMove()) {
+            moveSteps++;
+        }
+        return step;
+    }
+
+    public void clear() {
+        undo.clear();
+        redo.clear();
+        moveSteps = 0;
+    }
+
+    /**
+     * The board at the start and after every move, as stored in a SaveGame, rebuilt by
+     * walking back from the current board
+     */
+    public List<int[][]> toBoards(int[][] current) {
+        List<int[][]> boards = new ArrayList<>(moveSteps + 1);
+        int[][] board = PuzzleRules.copyBoard(current);
+        for (Step step : undo) {
+            if (step.isMove()) {
+                boards.add(PuzzleRules.copyBoard(board));
+            }
+            step.revert(board);
+        }
+        boards.add(board);
+        Collections.reverse(boards);
+        return boards;
+    }
+
+    /**
+     * Replace the history with the steps between consecutive boards of a SaveGame. The
+     * boards are taken after every move only, so an obstacle that turned from BLOCKED to
+     * removed is split off into an Obstacle Remover step of its own ahead of the move,
+     * and a removal made after the last move is found against the current board. The
+     * pieces and obstacle timers of those steps are not known, only the cells.
+     */
+    public void restore(List<int[][]> boards, int[][] current) {
+        clear();
+        Iterator<int[][]> iterator = boards.iterator();
+        if (!iterator.hasNext()) {
+            return;
+        }
+        int[][] previous = iterator.next();
+        while (iterator.hasNext()) {
+            int[][] next = iterator.next();
+            previous = pushRemovals(previous, next);
+            undo.push(new Step(-1, -1, null, null, diff(previous, next), null, null));
+            moveSteps++;
+            previous = next;
+        }
+        pushRemovals(previous, current);
+    }
+
+    /**
+     * Push a prop step for every obstacle removed between two boards
+     *
+     * @return the earlier board with those obstacles removed
+     */
+    private int[][] pushRemovals(int[][] before, int[][] after) {
+        int width = before[0].length;
+        int[][] board = before;
+        for (int r = 0; r < before.length; r++) {
+            for (int c = 0; c < width; c++) {
+                if (before[r][c] == MapModel.BLOCKED && after[r][c] == -MapModel.BLOCKED) {
+                    if (board == before) {
+                        board = PuzzleRules.copyBoard(before);
+                    }
+                    board[r][c] = -MapModel.BLOCKED;
+                    int cell = (r * width + c) << (2 * VALUE_BITS)
+                            | (MapModel.BLOCKED + VALUE_OFFSET) << VALUE_BITS
+                            | (-MapModel.BLOCKED + VALUE_OFFSET);
+                    undo.push(new Step(r, c, null, Prop.PropType.OBSTACLE_REMOVER, new int[]{cell}, null, null));
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * The cells that differ between two whole boards, for steps rebuilt from a save
+     */
+    private static int[] diff(int[][] before, int[][] after) {
+        int width = before[0].length;
+        int changes = 0;
+        for (int r = 0; r < before.length; r++) {
+            for (int c = 0; c < width; c++) {
+                if (before[r][c] != after[r][c]) {
+                    changes++;
+                }
+            }
+        }
+        int[] cells = new int[changes];
+        int next = 0;
+        for (int r = 0; r < before.length; r++) {
+            for (int c = 0; c < width; c++) {
+                if (before[r][c] != after[r][c]) {
+                    cells[next++] = (r * width + c) << (2 * VALUE_BITS)
+                            | (before[r][c] + VALUE_OFFSET) << VALUE_BITS
+                            | (after[r][c] + VALUE_OFFSET);
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Copy for keeping in a step; almost every step has no removed obstacles, so those share one empty list
+     */
+    private static List<int[]> store(List<int[]> obstacles) {
+        return obstacles != null && obstacles.isEmpty() ? Collections.emptyList() : copy(obstacles);
+    }
+
+    private static List<int[]> copy(List<int[]> obstacles) {
+        if (obstacles == null) {
+            return null;
+        }
+        List<int[]> copy = new ArrayList<>(obstacles.size());
+        for (int[] obstacle : obstacles) {
+            copy.add(obstacle.clone());
+        }
+        return copy;
+    }
+}
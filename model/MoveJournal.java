@@ -0,0 +1,434 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of one play session, used for crash recovery and replay.
+ *
+ * The session starts with a full SaveGame snapshot; after that every move, undo and prop
+ * use appends a small record (typically 20-30 bytes) instead of rewriting the whole save.
+ * A fresh snapshot is appended every so often so recovery never has to replay a long tail.
+ * Records store the cells that changed rather than re-deriving them from the move, so
+ * replay is exact even where the game's rules (camps, reappearing obstacles) differ from
+ * PuzzleRules.
+ *
+ * Layout (version 1):
+ *   "KJNL" magic, version byte, session start time (8 bytes, epoch millis)
+ * then records of
+ *   type byte, varint payload length, payload, CRC32 of type, length and payload (4 bytes)
+ * Every payload starts with the milliseconds since the previous record. A snapshot then
+ * holds SaveGame bytes; move, undo, prop and undone-prop records hold their own fields
+ * followed by the changed cells, the removed obstacle list and the seconds left (-1 when
+ * off).
+ *
+ * Records are written with one call each and snapshots are synced to disk, so after a
+ * crash the file ends with at most one torn record, which reading stops at.
+ *
+ * A journal is not thread safe; GameController only touches it on the save thread.
+ */
+public class MoveJournal implements Closeable {
+    private static final Log LOG = Log.get(MoveJournal.class);
+
+    public static final int FORMAT_VERSION = 1;
+
+    public static final int SNAPSHOT = 1;
+    public static final int MOVE = 2;
+    public static final int UNDO = 3;
+    public static final int PROP = 4;
+    public static final int UNDO_PROP = 5;
+
+    private static final byte[] MAGIC = {'K', 'J', 'N', 'L'};
+    private static final int HEADER_BYTES = MAGIC.length + 1 + 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+
+    private final File file;
+    private final FileOutputStream out;
+    private int[][] lastBoard;
+    private long lastMillis;
+
+    private MoveJournal(File file, FileOutputStream out, int[][] board, long startMillis) {
+        this.file = file;
+        this.out = out;
+        this.lastBoard = board;
+        this.lastMillis = startMillis;
+    }
+
+    /**
+     * Start a new session, replacing any previous journal at the same path
+     *
+     * @param start State the session starts from
+     */
+    public static MoveJournal create(File file, SaveGame start) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        long now = System.currentTimeMillis();
+        FileOutputStream out = new FileOutputStream(file, false);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(HEADER_BYTES);
+        header.write(MAGIC, 0, MAGIC.length);
+        header.write(FORMAT_VERSION);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            header.write((int) (now >>> shift));
+        }
+        try {
+            out.write(header.toByteArray());
+            MoveJournal journal = new MoveJournal(file, out, start.getBoard(), now);
+            journal.appendSnapshot(start);
+            return journal;
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Record a full snapshot, so recovery can start here; synced to disk
+     */
+    public void appendSnapshot(SaveGame state) throws IOException {
+        ByteArrayOutputStream payload = startPayload();
+        byte[] save = state.encode();
+        payload.write(save, 0, save.length);
+        lastBoard = state.getBoard();
+        append(SNAPSHOT, payload);
+        out.getFD().sync();
+    }
+
+    /**
+     * Record a move of the piece whose top-left cell was at (row, col)
+     *
+     * @param board     Board after the move (and any obstacle that reappeared)
+     * @param obstacles Removed obstacles after the move
+     */
+    public void appendMove(int row, int col, Direction direction, int[][] board, List<int[]> obstacles,
+                           int timeLeftSeconds) throws IOException {
+        ByteArrayOutputStream payload = startPayload();
+        SaveGame.writeVarint(payload, row);
+        SaveGame.writeVarint(payload, col);
+        SaveGame.writeVarint(payload, direction.ordinal());
+        appendState(MOVE, payload, board, obstacles, timeLeftSeconds);
+    }
+
+    /**
+     * Record that the last move was undone
+     */
+    public void appendUndo(int[][] board, List<int[]> obstacles, int timeLeftSeconds) throws IOException {
+        appendState(UNDO, startPayload(), board, obstacles, timeLeftSeconds);
+    }
+
+    /**
+     * Record one use of a prop
+     *
+     * @param row Target cell for the obstacle remover, otherwise 0
+     * @param col Target cell for the obstacle remover, otherwise 0
+     */
+    public void appendProp(Prop.PropType type, int row, int col, int[][] board, List<int[]> obstacles,
+                           int timeLeftSeconds) throws IOException {
+        ByteArrayOutputStream payload = startPayload();
+        SaveGame.writeVarint(payload, type.ordinal());
+        SaveGame.writeVarint(payload, row);
+        SaveGame.writeVarint(payload, col);
+        appendState(PROP, payload, board, obstacles, timeLeftSeconds);
+    }
+
+    /**
+     * Record that a prop use was undone and the prop given back
+     */
+    public void appendUndoProp(Prop.PropType type, int[][] board, List<int[]> obstacles, int timeLeftSeconds)
+            throws IOException {
+        ByteArrayOutputStream payload = startPayload();
+        SaveGame.writeVarint(payload, type.ordinal());
+        appendState(UNDO_PROP, payload, board, obstacles, timeLeftSeconds);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private ByteArrayOutputStream startPayload() {
+        long now = System.currentTimeMillis();
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(32);
+        SaveGame.writeVarint(payload, (int) Math.min(Integer.MAX_VALUE, Math.max(0, now - lastMillis)));
+        lastMillis = now;
+        return payload;
+    }
+
+    private void appendState(int type, ByteArrayOutputStream payload, int[][] board, List<int[]> obstacles,
+                             int timeLeftSeconds) throws IOException {
+        SaveGame.writeDelta(payload, lastBoard, board);
+        SaveGame.writeVarint(payload, obstacles.size());
+        for (int[] obstacle : obstacles) {
+            SaveGame.writeVarint(payload, obstacle[0]);
+            SaveGame.writeVarint(payload, obstacle[1]);
+            SaveGame.writeVarint(payload, SaveGame.zigzag(obstacle[2]));
+        }
+        SaveGame.writeVarint(payload, SaveGame.zigzag(timeLeftSeconds));
+        lastBoard = board;
+        append(type, payload);
+    }
+
+    private void append(int type, ByteArrayOutputStream payload) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(payload.size() + 10);
+        record.write(type);
+        SaveGame.writeVarint(record, payload.size());
+        payload.writeTo(record);
+        CRC32 crc = new CRC32();
+        byte[] body = record.toByteArray();
+        crc.update(body, 0, body.length);
+        long checksum = crc.getValue();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            record.write((int) (checksum >>> shift));
+        }
+        out.write(record.toByteArray());
+    }
+
+    /**
+     * One record of a journal, with the board as it was after the record
+     */
+    public static class Entry {
+        private final int type;
+        private final long timeMillis;
+        private final int row;
+        private final int col;
+        private final Direction direction;
+        private final Prop.PropType prop;
+        private final int[][] board;
+        private final int moveCount;
+
+        Entry(int type, long timeMillis, int row, int col, Direction direction, Prop.PropType prop,
+              int[][] board, int moveCount) {
+            this.type = type;
+            this.timeMillis = timeMillis;
+            this.row = row;
+            this.col = col;
+            this.direction = direction;
+            this.prop = prop;
+            this.board = board;
+            this.moveCount = moveCount;
+        }
+
+        /**
+         * SNAPSHOT, MOVE, UNDO, PROP or UNDO_PROP
+         */
+        public int getType() {
+            return type;
+        }
+
+        /**
+         * When the record was written, in epoch millis
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        /**
+         * Direction of a move, null for other records
+         */
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /**
+         * Prop used, null for other records
+         */
+        public Prop.PropType getProp() {
+            return prop;
+        }
+
+        public int[][] getBoard() {
+            return board;
+        }
+
+        public int getMoveCount() {
+            return moveCount;
+        }
+    }
+
+    /**
+     * Every intact record of a journal, in order. Reading stops quietly at a torn or
+     * corrupted record, since only the last one can be damaged by a crash.
+     *
+     * @throws IOException if the file cannot be read or is not a journal
+     */
+    public static List<Entry> read(File file) throws IOException {
+        Replay replay = new Replay(Files.readAllBytes(file.toPath()));
+        replay.run();
+        return Collections.unmodifiableList(replay.entries);
+    }
+
+    /**
+     * Rebuild the state after the last intact record: the newest snapshot plus the moves,
+     * undos and prop uses journaled after it
+     *
+     * @return The recovered game, or null if the journal holds no complete snapshot
+     */
+    public static SaveGame recover(File file) throws IOException {
+        Replay replay = new Replay(Files.readAllBytes(file.toPath()));
+        replay.run();
+        return replay.toSaveGame();
+    }
+
+    /**
+     * Folds the records of a journal into the game state they describe
+     */
+    private static class Replay {
+        private final byte[] data;
+        private final List<Entry> entries = new ArrayList<>();
+
+        private SaveGame base;
+        private int[][] board;
+        private List<int[][]> history;
+        private int moveCount;
+        private Map<Prop.PropType, Integer> props;
+        private List<int[]> obstacles;
+        private int timeLeftSeconds;
+
+        Replay(byte[] data) throws IOException {
+            this.data = data;
+            if (data.length < HEADER_BYTES) {
+                throw new IOException("Journal is truncated (" + data.length + " bytes)");
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (data[i] != MAGIC[i]) {
+                    throw new IOException("Not a move journal");
+                }
+            }
+            int version = data[MAGIC.length] & 0xFF;
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported journal format version " + version);
+            }
+        }
+
+        void run() {
+            long millis = ByteBuffer.wrap(data, MAGIC.length + 1, 8).getLong();
+            int position = HEADER_BYTES;
+            while (position < data.length) {
+                ByteBuffer frame = ByteBuffer.wrap(data, position, data.length - position);
+                try {
+                    int type = frame.get() & 0xFF;
+                    int length = SaveGame.readVarint(frame);
+                    if (length > MAX_RECORD_BYTES || length + 4 > frame.remaining()) {
+                        throw new IOException("torn record");
+                    }
+                    int payloadStart = frame.position();
+                    CRC32 crc = new CRC32();
+                    crc.update(data, position, payloadStart + length - position);
+                    long stored = ByteBuffer.wrap(data, payloadStart + length, 4).getInt() & 0xFFFFFFFFL;
+                    if (crc.getValue() != stored) {
+                        throw new IOException("checksum mismatch");
+                    }
+                    ByteBuffer payload = ByteBuffer.wrap(data, payloadStart, length);
+                    millis += SaveGame.readVarint(payload);
+                    apply(type, payload, millis);
+                    position = payloadStart + length + 4;
+                } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                    LOG.info("Stopped at byte " + position + " of " + data.length + " (" + e + ")");
+                    return;
+                }
+            }
+        }
+
+        private void apply(int type, ByteBuffer payload, long millis) throws IOException {
+            if (type == SNAPSHOT) {
+                byte[] save = new byte[payload.remaining()];
+                payload.get(save);
+                base = SaveGame.decode(save);
+                board = base.getBoard();
+                history = new ArrayList<>(base.getHistory());
+                moveCount = base.getMoveCount();
+                props = new EnumMap<>(Prop.PropType.class);
+                props.putAll(base.getProps());
+                obstacles = base.getRemovedObstacles();
+                timeLeftSeconds = base.getTimeLeftSeconds();
+                entries.add(new Entry(type, millis, 0, 0, null, null, board, moveCount));
+                return;
+            }
+            if (base == null) {
+                throw new IOException("record before the first snapshot");
+            }
+            int row = 0;
+            int col = 0;
+            Direction direction = null;
+            Prop.PropType prop = null;
+            if (type == MOVE) {
+                row = SaveGame.readVarint(payload);
+                col = SaveGame.readVarint(payload);
+                direction = Direction.values()[SaveGame.readVarint(payload)];
+            } else if (type == PROP) {
+                prop = Prop.PropType.values()[SaveGame.readVarint(payload)];
+                row = SaveGame.readVarint(payload);
+                col = SaveGame.readVarint(payload);
+            } else if (type == UNDO_PROP) {
+                prop = Prop.PropType.values()[SaveGame.readVarint(payload)];
+            } else if (type != UNDO) {
+                throw new IOException("unknown record type " + type);
+            }
+
+            int[][] next = SaveGame.readDelta(payload, board);
+            List<int[]> nextObstacles = new ArrayList<>();
+            int count = SaveGame.readVarint(payload);
+            for (int i = 0; i < count; i++) {
+                nextObstacles.add(new int[]{SaveGame.readVarint(payload), SaveGame.readVarint(payload),
+                        SaveGame.unzigzag(SaveGame.readVarint(payload))});
+            }
+            int nextTimeLeft = SaveGame.unzigzag(SaveGame.readVarint(payload));
+            if (payload.hasRemaining()) {
+                throw new IOException("unexpected trailing bytes");
+            }
+
+            // Mirrors GameController: moves push the new board, undo pops the newest entry
+            if (type == MOVE) {
+                history.add(next);
+                moveCount++;
+            } else if (type == UNDO) {
+                if (!history.isEmpty()) {
+                    history.remove(history.size() - 1);
+                }
+                moveCount = Math.max(0, moveCount - 1);
+            } else if (type == UNDO_PROP) {
+                props.merge(prop, 1, Integer::sum);
+            } else {
+                props.computeIfPresent(prop, (key, left) -> Math.max(0, left - 1));
+            }
+            board = next;
+            obstacles = nextObstacles;
+            timeLeftSeconds = nextTimeLeft;
+            entries.add(new Entry(type, millis, row, col, direction, prop, board, moveCount));
+        }
+
+        SaveGame toSaveGame() {
+            if (base == null) {
+                return null;
+            }
+            return new SaveGame(base.getUsername(), base.getPackPath(), base.getLevelIndex(), moveCount,
+                    PuzzleRules.copyBoard(board), props, obstacles, base.getTimeLimitMinutes(),
+                    timeLeftSeconds, Collections.unmodifiableList(history));
+        }
+    }
+}
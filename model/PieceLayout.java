@@ -0,0 +1,153 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The pieces on a board as objects with stable ids, kept alongside MapModel's grid of type
+ * codes.
+ *
+ * The grid alone cannot tell two touching pieces of the same type apart (two Generals
+ * stacked in a column are four cells of 3), so code that needs "which piece is here"
+ * used to scan neighbors for an origin. Here every movable piece gets an id when the
+ * layout is built, an index maps each cell to the id of the piece covering it, and moves
+ * update only the cells the piece leaves and enters. Looking up the piece at a cell is
+ * one array read and never ambiguous.
+ *
+ * Fixed cells (obstacles, camps) belong to no piece, nor would a fragment that is not a
+ * whole piece, though levels and saves with one are rejected when they are loaded.
+ */
+public class PieceLayout {
+    public static final int NO_PIECE = -1;
+
+    private final List<Piece> pieces;
+    private final int[][] owner;
+
+    /**
+     * One movable piece; its id never changes while the layout is kept up to date
+     */
+    public static class Piece {
+        private final int id;
+        private final int type;
+        private final int width;
+        private final int height;
+        private int row;
+        private int col;
+
+        Piece(int id, int type, int row, int col) {
+            this.id = id;
+            this.type = type;
+            this.width = PuzzleRules.pieceWidth(type);
+            this.height = PuzzleRules.pieceHeight(type);
+            this.row = row;
+            this.col = col;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Block type code, e.g. MapModel.CAO_CAO
+         */
+        public int getType() {
+            return type;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Row of the top-left cell
+         */
+        public int getRow() {
+            return row;
+        }
+
+        /**
+         * Column of the top-left cell
+         */
+        public int getCol() {
+            return col;
+        }
+
+        public boolean covers(int cellRow, int cellCol) {
+            return cellRow >= row && cellRow < row + height && cellCol >= col && cellCol < col + width;
+        }
+    }
+
+    private PieceLayout(List<Piece> pieces, int[][] owner) {
+        this.pieces = pieces;
+        this.owner = owner;
+    }
+
+    /**
+     * Identify the pieces of a board; ids follow the row-major order of their top-left cells
+     */
+    public static PieceLayout of(int[][] board) {
+        int[][] owner = new int[board.length][board[0].length];
+        for (int[] row : owner) {
+            Arrays.fill(row, NO_PIECE);
+        }
+        List<Piece> pieces = new ArrayList<>();
+        for (int[] found : PuzzleRules.findPieces(board)) {
+            Piece piece = new Piece(pieces.size(), found[2], found[0], found[1]);
+            pieces.add(piece);
+            mark(owner, piece, piece.id);
+        }
+        return new PieceLayout(pieces, owner);
+    }
+
+    public List<Piece> getPieces() {
+        return Collections.unmodifiableList(pieces);
+    }
+
+    public Piece get(int id) {
+        return pieces.get(id);
+    }
+
+    /**
+     * @return The id of the piece covering the cell, or NO_PIECE (also outside the board)
+     */
+    public int idAt(int row, int col) {
+        if (row < 0 || col < 0 || row >= owner.length || col >= owner[0].length) {
+            return NO_PIECE;
+        }
+        return owner[row][col];
+    }
+
+    /**
+     * @return The piece covering the cell, or null
+     */
+    public Piece pieceAt(int row, int col) {
+        int id = idAt(row, col);
+        return id == NO_PIECE ? null : pieces.get(id);
+    }
+
+    /**
+     * Shift a piece one cell, updating only the cells it leaves and enters. The grid itself
+     * is updated by the caller; this does not check the move is legal.
+     */
+    public void move(int id, Direction direction) {
+        Piece piece = pieces.get(id);
+        mark(owner, piece, NO_PIECE);
+        piece.row += direction.getRow();
+        piece.col += direction.getCol();
+        mark(owner, piece, id);
+    }
+
+    private static void mark(int[][] owner, Piece piece, int id) {
+        for (int r = piece.row; r < piece.row + piece.height; r++) {
+            for (int c = piece.col; c < piece.col + piece.width; c++) {
+                owner[r][c] = id;
+            }
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shortest-plan A* search that may use the Obstacle Remover prop.
+ *
+ * Follows the rules in GameController: a removed obstacle stays open for three moves,
+ * then comes back as soon as its cell is empty. The prop itself does not cost a move,
+ * and removing an obstacle earlier than the move that enters it only wastes its timer,
+ * so removals are always planned right before that move.
+ *
+ * A search state is the board packed by BoardCodec plus one long holding the remaining
+ * removers (4 bits) and a 3-bit timer for each obstacle, so a 6x7 state is three longs
+ * in a StateTable rather than a matrix and a string key.
+ *
+ * The search runs in two layers. The first plans with no removers at all; the second
+ * plans with the player's removers but only looks for plans shorter than the first one,
+ * and the first plan is returned when it finds none. Holding removers multiplies the
+ * states (every removal starts timers), so without the first layer a player with one
+ * remover could hit the state limit on a board a player with none gets solved.
+ */
+public class PropAwareSolver implements SolverStrategy {
+    // Same duration as GameController.useObstacleRemoverProp
+    private static final int REMOVAL_STEPS = 3;
+
+    // Timer codes per obstacle: in place, waiting for its cell to clear, or (steps left + 1)
+    private static final int IN_PLACE = 0;
+    private static final int WAITING = 1;
+
+    private static final int REMOVER_BITS = 4;
+    private static final int TIMER_BITS = 3;
+    private static final int MAX_REMOVERS = (1 << REMOVER_BITS) - 1;
+    private static final int MAX_OBSTACLES = (64 - REMOVER_BITS) / TIMER_BITS;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int removers;
+    private final List<int[]> activeRemovals;
+    private final int maxStates;
+
+    /**
+     * @param removers Obstacle Remover props the player still has
+     */
+    public PropAwareSolver(int removers) {
+        this(removers, Collections.emptyList(), 5_000_000);
+    }
+
+    /**
+     * @param removers       Obstacle Remover props the player still has
+     * @param activeRemovals Obstacles already removed, as {row, col, stepsRemaining} like GameController keeps them
+     * @param maxStates      Give up after this many distinct states in either layer
+     */
+    public PropAwareSolver(int removers, List<int[]> activeRemovals, int maxStates) {
+        this.removers = Math.min(removers, MAX_REMOVERS);
+        this.activeRemovals = new ArrayList<>(activeRemovals);
+        this.maxStates = maxStates;
+    }
+
+    @Override
+    public String getName() {
+        return "A*+props";
+    }
+
+    @Override
+    public Result solve(int[][] startBoard, AtomicBoolean cancel) {
+        long start = System.nanoTime();
+        Result boardsOnly = search(startBoard, 0, Integer.MAX_VALUE, cancel, start);
+        if (removers == 0 || boardsOnly.cancelled) {
+            return boardsOnly;
+        }
+
+        int bound = boardsOnly.solved ? boardsOnly.moves.size() : Integer.MAX_VALUE;
+        Result withProps = search(startBoard, removers, bound, cancel, start);
+        int explored = boardsOnly.statesExplored + withProps.statesExplored;
+        long elapsed = System.nanoTime() - start;
+        if (withProps.solved || withProps.cancelled || !boardsOnly.solved) {
+            // Without a first plan, the second layer is the whole search and its verdict stands
+            return new Result(getName(), withProps.moves, withProps.solved, withProps.cancelled,
+                    withProps.limitReached, explored, elapsed);
+        }
+        return new Result(getName(), boardsOnly.moves, true, false, explored, elapsed);
+    }
+
+    /**
+     * A* over boards and prop states
+     *
+     * @param removers Removers to plan with
+     * @param bound    Only plans of fewer slides are searched for
+     */
+    private Result search(int[][] startBoard, int removers, int bound, AtomicBoolean cancel, long start) {
+        Obstacles obstacles = new Obstacles(startBoard);
+        int[][] board = obstacles.openBoard(startBoard);
+        long props = obstacles.initialProps(removers, activeRemovals);
+
+        // Obstacles may disappear, so only camps count as fixed for dead-state pruning
+        DeadlockDetector detector = new DeadlockDetector(obstacles.clearedBoard(startBoard));
+        if (detector.isDead(board) || lowerBound(board) >= bound) {
+            return new Result(getName(), null, false, false, 0, System.nanoTime() - start);
+        }
+
+        int rows = board.length;
+        int cols = board[0].length;
+        int words = BoardCodec.wordsFor(rows, cols);
+        StateTable table = new StateTable(words + 1, 1 << 16);
+        long[] key = new long[words + 1];
+        pack(board, props, key, words);
+        table.add(key);
+
+        // Per-state data indexed by table id
+        int[] parents = new int[1 << 16];
+        int[] costs = new int[1 << 16];
+        int[] moves = new int[1 << 16];
+        BitSet closed = new BitSet();
+        parents[0] = -1;
+
+        // Bucket queue by estimated total cost; LIFO inside a bucket explores deeper states first
+        List<IntStack> buckets = new ArrayList<>();
+        push(buckets, lowerBound(board), 0);
+        int bucket = lowerBound(board);
+
+        int[][] current = new int[rows][cols];
+        int[][] next = new int[rows][cols];
+        long[] nextKey = new long[words + 1];
+        boolean[][] used = new boolean[rows][cols];
+        int[] pieces = new int[rows * cols * 3];
+        int[] piece = new int[3];
+        int explored = 0;
+
+        while (true) {
+            while (bucket < buckets.size() && buckets.get(bucket).isEmpty()) {
+                bucket++;
+            }
+            if (bucket >= buckets.size()) {
+                break; // Reachable space exhausted
+            }
+            if (cancel.get()) {
+                return new Result(getName(), null, false, true, explored, System.nanoTime() - start);
+            }
+            int id = buckets.get(bucket).pop();
+            if (closed.get(id)) {
+                continue; // Stale entry, the state was reached again more cheaply
+            }
+            closed.set(id);
+            explored++;
+
+            table.get(id, key);
+            BoardCodec.decode(key, 0, current);
+            long currentProps = key[words];
+            if (PuzzleRules.isGoal(current)) {
+                return new Result(getName(), rebuildPath(id, parents, moves, table, obstacles, rows, cols),
+                        true, false, explored, System.nanoTime() - start);
+            }
+
+            boolean canRemove = Obstacles.removersLeft(currentProps) > 0;
+            int count = PuzzleRules.findPieces(current, used, pieces);
+            for (int p = 0; p < count; p++) {
+                System.arraycopy(pieces, p * 3, piece, 0, 3);
+                int type = piece[2];
+                int width = PuzzleRules.pieceWidth(type);
+                int height = PuzzleRules.pieceHeight(type);
+                for (Direction dir : DIRECTIONS) {
+                    // A slide into empty cells needs no removal; only then is the slower check needed
+                    List<int[]> removals = PuzzleRules.canMove(current, piece[0], piece[1], width, height, dir)
+                            ? Collections.emptyList()
+                            : canRemove ? obstacles.removalsNeeded(current, currentProps, piece, dir) : null;
+                    if (removals == null
+                            || detector.isDeadPlacement(type, piece[0] + dir.getRow(), piece[1] + dir.getCol())) {
+                        continue;
+                    }
+
+                    for (int r = 0; r < rows; r++) {
+                        System.arraycopy(current[r], 0, next[r], 0, cols);
+                    }
+                    long nextProps = obstacles.apply(next, currentProps, piece, dir, removals);
+                    int nextCost = costs[id] + 1;
+                    int estimate = nextCost + lowerBound(next);
+                    if (estimate >= bound) {
+                        continue;
+                    }
+                    slide(key, nextKey, next, obstacles, cols, piece, dir);
+                    nextKey[words] = nextProps;
+
+                    int nextId = table.indexOf(nextKey);
+                    if (nextId < 0) {
+                        nextId = table.add(nextKey);
+                        if (nextId >= parents.length) {
+                            parents = Arrays.copyOf(parents, parents.length * 2);
+                            costs = Arrays.copyOf(costs, costs.length * 2);
+                            moves = Arrays.copyOf(moves, moves.length * 2);
+                        }
+                    } else if (closed.get(nextId) || costs[nextId] <= nextCost) {
+                        continue;
+                    }
+                    parents[nextId] = id;
+                    costs[nextId] = nextCost;
+                    moves[nextId] = (piece[0] << 16) | (piece[1] << 8) | dir.ordinal();
+                    push(buckets, estimate, nextId);
+                }
+            }
+
+            if (table.size() > maxStates) {
+                return Result.atLimit(getName(), null, explored, System.nanoTime() - start);
+            }
+        }
+
+        return new Result(getName(), null, false, false, explored, System.nanoTime() - start);
+    }
+
+    private static void pack(int[][] board, long props, long[] key, int words) {
+        BoardCodec.encode(board, key, 0);
+        key[words] = props;
+    }
+
+    /**
+     * Pack the board after a slide from the packed board before it: only the cells the piece
+     * left and entered and the obstacle cells can differ
+     */
+    private static void slide(long[] key, long[] out, int[][] next, Obstacles obstacles, int cols,
+                              int[] piece, Direction dir) {
+        System.arraycopy(key, 0, out, 0, key.length - 1);
+        int type = piece[2];
+        int width = PuzzleRules.pieceWidth(type);
+        int height = PuzzleRules.pieceHeight(type);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                BoardCodec.set(out, 0, (piece[0] + i) * cols + piece[1] + j, 0);
+            }
+        }
+        int row = piece[0] + dir.getRow();
+        int col = piece[1] + dir.getCol();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                BoardCodec.set(out, 0, (row + i) * cols + col + j, type);
+            }
+        }
+        for (int[] cell : obstacles.cells) {
+            BoardCodec.set(out, 0, cell[0] * cols + cell[1], next[cell[0]][cell[1]]);
+        }
+    }
+
+    private static void push(List<IntStack> buckets, int estimate, int id) {
+        while (buckets.size() <= estimate) {
+            buckets.add(new IntStack());
+        }
+        buckets.get(estimate).push(id);
+    }
+
+    /**
+     * Walk the parent links back to the start, then replay forward so each slide can be
+     * preceded by the obstacle removals it needed
+     */
+    private List<AISolver.Move> rebuildPath(int goalId, int[] parents, int[] moves, StateTable table,
+                                            Obstacles obstacles, int rows, int cols) {
+        List<Integer> chain = new ArrayList<>();
+        for (int id = goalId; parents[id] >= 0; id = parents[id]) {
+            chain.add(id);
+        }
+        Collections.reverse(chain);
+
+        List<AISolver.Move> path = new ArrayList<>();
+        long[] key = new long[table.width()];
+        int[][] board = new int[rows][cols];
+        for (int id : chain) {
+            table.get(parents[id], key);
+            BoardCodec.decode(key, 0, board);
+            int row = moves[id] >>> 16;
+            int col = (moves[id] >>> 8) & 0xFF;
+            Direction dir = DIRECTIONS[moves[id] & 0xFF];
+            int[] piece = {row, col, board[row][col]};
+            for (int[] cell : obstacles.removalsNeeded(board, key[key.length - 1], piece, dir)) {
+                path.add(AISolver.Move.obstacleRemoval(cell[0], cell[1]));
+            }
+            path.add(new AISolver.Move(row, col, dir));
+        }
+        return path;
+    }
+
+    /**
+     * Cao Cao's Manhattan distance to the exit plus the number of other pieces on the exit,
+     * each of which has to move off it at least once. A move shifts Cao Cao by one cell or
+     * moves one other piece, changing the sum by at most one, so the bound is consistent and
+     * the first goal taken from the queue is a shortest plan.
+     */
+    private static int lowerBound(int[][] board) {
+        int goalRow = PuzzleRules.goalRow(board.length);
+        int goalCol = PuzzleRules.goalCol(board[0].length);
+        int onExit = piecesOnExit(board, goalRow, goalCol);
+        for (int r = 0; r < board.length; r++) {
+            for (int c = 0; c < board[0].length; c++) {
+                if (board[r][c] == MapModel.CAO_CAO) {
+                    return Math.abs(goalRow - r) + Math.abs(goalCol - c) + onExit;
+                }
+            }
+        }
+        return onExit;
+    }
+
+    /**
+     * Fewest pieces other than Cao Cao that can cover the 2x2 exit: two exit cells of a wide
+     * piece side by side, or of a General one above the other, may be a single piece
+     */
+    private static int piecesOnExit(int[][] board, int row, int col) {
+        int topLeft = board[row][col];
+        int topRight = board[row][col + 1];
+        int bottomLeft = board[row + 1][col];
+        int bottomRight = board[row + 1][col + 1];
+        int count = blocker(topLeft) + blocker(topRight) + blocker(bottomLeft) + blocker(bottomRight);
+        if (topLeft == topRight && isWide(topLeft)) {
+            count--;
+        }
+        if (bottomLeft == bottomRight && isWide(bottomLeft)) {
+            count--;
+        }
+        if (topLeft == MapModel.GENERAL && bottomLeft == MapModel.GENERAL) {
+            count--;
+        }
+        if (topRight == MapModel.GENERAL && bottomRight == MapModel.GENERAL) {
+            count--;
+        }
+        return count;
+    }
+
+    private static int blocker(int cell) {
+        return PuzzleRules.isMovablePiece(cell) && cell != MapModel.CAO_CAO ? 1 : 0;
+    }
+
+    private static boolean isWide(int cell) {
+        return cell == MapModel.GUAN_YU || cell == MapModel.ZHOU_YU;
+    }
+
+    /**
+     * Replay a plan with the prop rules: removal steps must target an obstacle that is in place
+     * while a remover is left, and every slide must be legal on the resulting board
+     */
+    @Override
+    public boolean isValidSolution(int[][] startBoard, List<AISolver.Move> moves) {
+        Obstacles obstacles = new Obstacles(startBoard);
+        int[][] board = obstacles.openBoard(startBoard);
+        long props = obstacles.initialProps(removers, activeRemovals);
+        List<int[]> pending = new ArrayList<>();
+
+        for (AISolver.Move move : moves) {
+            if (move.isObstacleRemoval()) {
+                pending.add(new int[]{move.row, move.col});
+                continue;
+            }
+            if (move.row < 0 || move.row >= board.length || move.col < 0 || move.col >= board[0].length
+                    || !PuzzleRules.isMovablePiece(board[move.row][move.col])) {
+                return false;
+            }
+            int[] piece = {move.row, move.col, board[move.row][move.col]};
+            List<int[]> needed = obstacles.removalsNeeded(board, props, piece, move.direction);
+            if (needed == null || !sameCells(needed, pending)) {
+                return false;
+            }
+            props = obstacles.apply(board, props, piece, move.direction, needed);
+            pending.clear();
+        }
+        return pending.isEmpty() && PuzzleRules.isGoal(board);
+    }
+
+    private static boolean sameCells(List<int[]> needed, List<int[]> pending) {
+        if (needed.size() != pending.size()) {
+            return false;
+        }
+        for (int[] cell : needed) {
+            boolean found = false;
+            for (int[] other : pending) {
+                if (cell[0] == other[0] && cell[1] == other[1]) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Growable stack of state ids for one queue bucket
+     */
+    private static class IntStack {
+        private int[] items = new int[16];
+        private int size;
+
+        void push(int id) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = id;
+        }
+
+        int pop() {
+            return items[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    /**
+     * The obstacles of one board and the packed prop state that goes with them
+     */
+    private static class Obstacles {
+        final int[][] index; // Obstacle number per cell, -1 if the cell is not a removable obstacle
+        final int[][] cells;
+
+        Obstacles(int[][] board) {
+            index = new int[board.length][board[0].length];
+            List<int[]> found = new ArrayList<>();
+            for (int r = 0; r < board.length; r++) {
+                for (int c = 0; c < board[0].length; c++) {
+                    boolean obstacle = board[r][c] == MapModel.BLOCKED || board[r][c] == -MapModel.BLOCKED;
+                    if (obstacle && found.size() < MAX_OBSTACLES) {
+                        index[r][c] = found.size();
+                        found.add(new int[]{r, c});
+                    } else {
+                        index[r][c] = -1;
+                    }
+                }
+            }
+            cells = found.toArray(new int[0][]);
+        }
+
+        /**
+         * Board as the search sees it: cells of already removed obstacles are plain empty cells
+         */
+        int[][] openBoard(int[][] board) {
+            int[][] copy = PuzzleRules.copyBoard(board);
+            for (int[] cell : cells) {
+                if (copy[cell[0]][cell[1]] == -MapModel.BLOCKED) {
+                    copy[cell[0]][cell[1]] = 0;
+                }
+            }
+            return copy;
+        }
+
+        /**
+         * Board with every removable obstacle cleared, the most open layout the props allow
+         */
+        int[][] clearedBoard(int[][] board) {
+            int[][] copy = PuzzleRules.copyBoard(board);
+            for (int[] cell : cells) {
+                copy[cell[0]][cell[1]] = 0;
+            }
+            return copy;
+        }
+
+        long initialProps(int removers, List<int[]> activeRemovals) {
+            long props = removers;
+            for (int[] removal : activeRemovals) {
+                int i = index[removal[0]][removal[1]];
+                if (i >= 0) {
+                    int code = removal[2] > 0 ? Math.min(removal[2], REMOVAL_STEPS) + 1 : WAITING;
+                    props = withTimer(props, i, code);
+                }
+            }
+            return props;
+        }
+
+        static int removersLeft(long props) {
+            return (int) (props & MAX_REMOVERS);
+        }
+
+        static int timer(long props, int i) {
+            return (int) ((props >>> (REMOVER_BITS + i * TIMER_BITS)) & ((1 << TIMER_BITS) - 1));
+        }
+
+        static long withTimer(long props, int i, int code) {
+            int shift = REMOVER_BITS + i * TIMER_BITS;
+            return (props & ~(((1L << TIMER_BITS) - 1) << shift)) | ((long) code << shift);
+        }
+
+        /**
+         * Obstacles that must be removed before the piece can slide in the given direction
+         *
+         * @return the cells to remove (empty for a plain move), or null if the move is impossible
+         */
+        List<int[]> removalsNeeded(int[][] board, long props, int[] piece, Direction dir) {
+            int type = piece[2];
+            int width = PuzzleRules.pieceWidth(type);
+            int height = PuzzleRules.pieceHeight(type);
+            int row = piece[0];
+            int col = piece[1];
+            if (row + height > board.length || col + width > board[0].length) {
+                return null;
+            }
+
+            // Cells the leading edge of the piece moves into
+            int firstRow, firstCol, count, stepRow, stepCol;
+            switch (dir) {
+                case UP:
+                    firstRow = row - 1; firstCol = col; count = width; stepRow = 0; stepCol = 1;
+                    break;
+                case DOWN:
+                    firstRow = row + height; firstCol = col; count = width; stepRow = 0; stepCol = 1;
+                    break;
+                case LEFT:
+                    firstRow = row; firstCol = col - 1; count = height; stepRow = 1; stepCol = 0;
+                    break;
+                default:
+                    firstRow = row; firstCol = col + width; count = height; stepRow = 1; stepCol = 0;
+                    break;
+            }
+            if (firstRow < 0 || firstCol < 0 || firstRow + stepRow * (count - 1) >= board.length
+                    || firstCol + stepCol * (count - 1) >= board[0].length) {
+                return null;
+            }
+
+            List<int[]> removals = Collections.emptyList();
+            for (int k = 0; k < count; k++) {
+                int r = firstRow + stepRow * k;
+                int c = firstCol + stepCol * k;
+                int cell = board[r][c];
+                if (cell == 0) {
+                    continue;
+                }
+                int i = index[r][c];
+                if (cell != MapModel.BLOCKED || i < 0 || timer(props, i) != IN_PLACE) {
+                    return null;
+                }
+                if (removals.isEmpty()) {
+                    removals = new ArrayList<>(2);
+                }
+                removals.add(new int[]{r, c});
+            }
+            return removals.size() <= removersLeft(props) ? removals : null;
+        }
+
+        /**
+         * Remove the given obstacles, slide the piece in place and advance every timer by one move
+         *
+         * @return the new packed prop state
+         */
+        long apply(int[][] board, long props, int[] piece, Direction dir, List<int[]> removals) {
+            for (int[] cell : removals) {
+                board[cell[0]][cell[1]] = 0;
+                props = withTimer(props, index[cell[0]][cell[1]], REMOVAL_STEPS + 1);
+                props--; // One remover used (the count lives in the low bits)
+            }
+
+            int type = piece[2];
+            PuzzleRules.applyMove(board, piece[0], piece[1],
+                    PuzzleRules.pieceWidth(type), PuzzleRules.pieceHeight(type), dir);
+
+            // Same as GameController.checkObstacleRestoration after every move
+            for (int i = 0; i < cells.length; i++) {
+                int code = timer(props, i);
+                if (code == IN_PLACE) {
+                    continue;
+                }
+                if (code <= WAITING + 1) {
+                    int r = cells[i][0];
+                    int c = cells[i][1];
+                    if (board[r][c] == 0) {
+                        board[r][c] = MapModel.BLOCKED;
+                        props = withTimer(props, i, IN_PLACE);
+                    } else {
+                        props = withTimer(props, i, WAITING);
+                    }
+                } else {
+                    props = withTimer(props, i, code - 1);
+                }
+            }
+            return props;
+        }
+    }
+}
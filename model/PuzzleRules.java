@@ -0,0 +1,338 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Board rules shared by the solver and its analysis helpers.
+ * Works directly on int[][] matrices so it can be used without a GameController or any Swing code.
+ *
+ * Conventions (same as GamePanel and GameController):
+ * - a piece is identified by its top-left cell (its origin)
+ * - pieces are segmented greedily in row-major order
+ * - the goal is reached when Cao Cao's top-left cell is at [height - 2, width / 2 - 1]
+ */
+public final class PuzzleRules {
+
+    private PuzzleRules() {
+    }
+
+    /**
+     * Width in cells of a piece type (1 for soldiers and unknown types)
+     */
+    public static int pieceWidth(int pieceType) {
+        switch (pieceType) {
+            case MapModel.CAO_CAO:
+            case MapModel.GUAN_YU:
+                return 2;
+            case MapModel.ZHOU_YU:
+                return 3;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Height in cells of a piece type (1 for soldiers and unknown types)
+     */
+    public static int pieceHeight(int pieceType) {
+        switch (pieceType) {
+            case MapModel.CAO_CAO:
+            case MapModel.GENERAL:
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Check if a cell value belongs to a piece the player can slide
+     */
+    public static boolean isMovablePiece(int cell) {
+        return cell >= MapModel.CAO_CAO && cell <= MapModel.ZHOU_YU;
+    }
+
+    /**
+     * Check if a cell never changes during a pure (prop-free) search
+     */
+    public static boolean isFixedCell(int cell) {
+        return cell == MapModel.BLOCKED || cell == MapModel.MILITARY_CAMP;
+    }
+
+    /**
+     * Goal row for Cao Cao's top-left cell
+     */
+    public static int goalRow(int boardHeight) {
+        return boardHeight - 2;
+    }
+
+    /**
+     * Goal column for Cao Cao's top-left cell
+     */
+    public static int goalCol(int boardWidth) {
+        return (boardWidth / 2) - 1;
+    }
+
+    /**
+     * Check if Cao Cao covers the exit
+     */
+    public static boolean isGoal(int[][] board) {
+        int row = goalRow(board.length);
+        int col = goalCol(board[0].length);
+        if (row < 0 || col < 0) {
+            return false;
+        }
+        return board[row][col] == MapModel.CAO_CAO
+                && board[row][col + 1] == MapModel.CAO_CAO
+                && board[row + 1][col] == MapModel.CAO_CAO
+                && board[row + 1][col + 1] == MapModel.CAO_CAO;
+    }
+
+    /**
+     * Check if a cell is inside the goal footprint (the 2x2 area Cao Cao must cover)
+     */
+    public static boolean isInGoalArea(int row, int col, int boardHeight, int boardWidth) {
+        int goalRow = goalRow(boardHeight);
+        int goalCol = goalCol(boardWidth);
+        return row >= goalRow && row <= goalRow + 1 && col >= goalCol && col <= goalCol + 1;
+    }
+
+    /**
+     * Segment the board into pieces.
+     *
+     * @return one {row, col, type} entry per movable piece, ordered by origin
+     */
+    public static List<int[]> findPieces(int[][] board) {
+        int[] found = new int[board.length * board[0].length * 3];
+        int count = findPieces(board, new boolean[board.length][board[0].length], found);
+        List<int[]> pieces = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            pieces.add(new int[]{found[i * 3], found[i * 3 + 1], found[i * 3 + 2]});
+        }
+        return pieces;
+    }
+
+    /**
+     * Segment the board into pieces without allocating, for searches that do it per state.
+     *
+     * @param used   Scratch matrix the size of the board; cleared here
+     * @param pieces Receives row, col, type for each piece, three ints per piece; rows * cols * 3
+     *               ints always suffice
+     * @return the number of pieces found
+     */
+    public static int findPieces(int[][] board, boolean[][] used, int[] pieces) {
+        int height = board.length;
+        int width = board[0].length;
+        for (boolean[] row : used) {
+            Arrays.fill(row, false);
+        }
+        int count = 0;
+
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                int type = board[r][c];
+                if (used[r][c] || !isMovablePiece(type)) {
+                    continue;
+                }
+
+                int pieceWidth = pieceWidth(type);
+                int pieceHeight = pieceHeight(type);
+                if (!fits(board, used, r, c, pieceWidth, pieceHeight, type)) {
+                    // Malformed fragment (e.g. half a General) - it can never move, skip it.
+                    // Levels reject these (see findFragment), so only damaged boards have them
+                    used[r][c] = true;
+                    continue;
+                }
+
+                for (int i = 0; i < pieceHeight; i++) {
+                    for (int j = 0; j < pieceWidth; j++) {
+                        used[r + i][c + j] = true;
+                    }
+                }
+                pieces[count * 3] = r;
+                pieces[count * 3 + 1] = c;
+                pieces[count * 3 + 2] = type;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find a cell of a piece type that is not part of a whole piece, such as half a General.
+     * Such a cell never moves but looks like a piece, so levels are rejected for it.
+     *
+     * @return {row, col} of the first such cell, or null if every piece is whole
+     */
+    public static int[] findFragment(int[][] board) {
+        boolean[][] covered = new boolean[board.length][board[0].length];
+        for (int[] piece : findPieces(board)) {
+            for (int r = piece[0]; r < piece[0] + pieceHeight(piece[2]); r++) {
+                for (int c = piece[1]; c < piece[1] + pieceWidth(piece[2]); c++) {
+                    covered[r][c] = true;
+                }
+            }
+        }
+        for (int r = 0; r < board.length; r++) {
+            for (int c = 0; c < board[0].length; c++) {
+                if (isMovablePiece(board[r][c]) && !covered[r][c]) {
+                    return new int[] {r, c};
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean fits(int[][] board, boolean[][] used, int row, int col,
+                                int width, int height, int type) {
+        if (row + height > board.length || col + width > board[0].length) {
+            return false;
+        }
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (used[row + i][col + j] || board[row + i][col + j] != type) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if the piece at [row, col] can slide one cell in the given direction.
+     * Any non-empty target cell blocks the move (obstacles, camps and other pieces alike).
+     */
+    public static boolean canMove(int[][] board, int row, int col, int width, int height, Direction dir) {
+        switch (dir) {
+            case UP:
+                if (row <= 0) return false;
+                for (int j = 0; j < width; j++) {
+                    if (board[row - 1][col + j] != 0) return false;
+                }
+                return true;
+            case DOWN:
+                if (row + height >= board.length) return false;
+                for (int j = 0; j < width; j++) {
+                    if (board[row + height][col + j] != 0) return false;
+                }
+                return true;
+            case LEFT:
+                if (col <= 0) return false;
+                for (int i = 0; i < height; i++) {
+                    if (board[row + i][col - 1] != 0) return false;
+                }
+                return true;
+            case RIGHT:
+                if (col + width >= board[0].length) return false;
+                for (int i = 0; i < height; i++) {
+                    if (board[row + i][col + width] != 0) return false;
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Slide a piece in place. The caller must have checked canMove first.
+     */
+    public static void applyMove(int[][] board, int row, int col, int width, int height, Direction dir) {
+        int type = board[row][col];
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                board[row + i][col + j] = 0;
+            }
+        }
+        int newRow = row + dir.getRow();
+        int newCol = col + dir.getCol();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                board[newRow + i][newCol + j] = type;
+            }
+        }
+    }
+
+    /**
+     * List every legal one-cell slide on the board
+     */
+    public static List<AISolver.Move> legalMoves(int[][] board) {
+        List<AISolver.Move> moves = new ArrayList<>();
+        for (int[] piece : findPieces(board)) {
+            int width = pieceWidth(piece[2]);
+            int height = pieceHeight(piece[2]);
+            for (Direction dir : Direction.values()) {
+                if (canMove(board, piece[0], piece[1], width, height, dir)) {
+                    moves.add(new AISolver.Move(piece[0], piece[1], dir));
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Apply a move to a copy of the board.
+     *
+     * @return the new board, or null if the move is not legal on this board
+     */
+    public static int[][] applyMoveCopy(int[][] board, AISolver.Move move) {
+        if (move.isObstacleRemoval()) {
+            return null; // Prop steps are only understood by PropAwareSolver
+        }
+        if (move.row < 0 || move.row >= board.length || move.col < 0 || move.col >= board[0].length) {
+            return null;
+        }
+        int type = board[move.row][move.col];
+        if (!isMovablePiece(type)) {
+            return null;
+        }
+        int width = pieceWidth(type);
+        int height = pieceHeight(type);
+        if (move.row + height > board.length || move.col + width > board[0].length
+                || !canMove(board, move.row, move.col, width, height, move.direction)) {
+            return null;
+        }
+        int[][] next = copyBoard(board);
+        applyMove(next, move.row, move.col, width, height, move.direction);
+        return next;
+    }
+
+    /**
+     * Replay a move list and check that it is legal and ends with Cao Cao on the exit
+     */
+    public static boolean isValidSolution(int[][] board, List<AISolver.Move> moves) {
+        int[][] current = board;
+        for (AISolver.Move move : moves) {
+            current = applyMoveCopy(current, move);
+            if (current == null) {
+                return false;
+            }
+        }
+        return isGoal(current);
+    }
+
+    /**
+     * Compact string key for hash sets (one char per cell)
+     */
+    public static String boardKey(int[][] board) {
+        char[] key = new char[board.length * board[0].length];
+        int index = 0;
+        for (int[] row : board) {
+            for (int cell : row) {
+                key[index++] = (char) (cell + 32);
+            }
+        }
+        return new String(key);
+    }
+
+    /**
+     * Deep copy a board
+     */
+    public static int[][] copyBoard(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int i = 0; i < board.length; i++) {
+            copy[i] = board[i].clone();
+        }
+        return copy;
+    }
+}
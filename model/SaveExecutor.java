@@ -0,0 +1,60 @@
+package model;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The single background thread for save files, so the EDT never waits on the disk.
+ *
+ * Slot saves, loads, listings and move journal appends all run here one at a time, in
+ * submission order, so a load always sees every write queued before it. Each save goes
+ * to a temp file that is then atomically renamed over the old one (see SaveGame.writeTo),
+ * so a crash mid-write leaves the previous save intact. Work still queued at JVM
+ * shutdown is given a few seconds to finish.
+ */
+public class SaveExecutor {
+    private static final Log LOG = Log.get(SaveExecutor.class);
+
+    private static final long SHUTDOWN_FLUSH_SECONDS = 5;
+
+    private final ExecutorService writer;
+
+    public SaveExecutor() {
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "save-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS),
+                "save-shutdown"));
+    }
+
+    /**
+     * Run file work on the save thread, in order with every other task
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> done = new CompletableFuture<>();
+        writer.execute(() -> {
+            try {
+                done.complete(task.call());
+            } catch (Exception e) {
+                done.completeExceptionally(e);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Block until every task queued so far has run, or the timeout passes
+     */
+    public void flush(long timeout, TimeUnit unit) {
+        try {
+            writer.submit(() -> { }).get(timeout, unit);
+        } catch (Exception e) {
+            LOG.warn("Flush did not finish: " + e);
+        }
+    }
+}
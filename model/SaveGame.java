@@ -0,0 +1,421 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Everything needed to resume a game, and its compact binary file format.
+ *
+ * Layout (version 1):
+ *   "KSAV" magic, version byte, payload, CRC32 of everything before it (4 bytes)
+ * Payload, with every integer a varint (zigzag where it can be negative):
+ *   username, level pack path ("" for the built-in levels), level index, move count,
+ *   height and width, the board as nibbles (two cells per byte), prop counts,
+ *   removed obstacles {row, col, steps}, time attack limit and seconds left (-1 when off),
+ *   then the move history: the first board in full and every later board as the list of
+ *   cells that changed since the previous one.
+ *
+ * A 6x7 board is 21 bytes and a typical move adds 5, so the whole file is read and
+ * written with one call, and writes are atomic (temp file plus rename). Any damage
+ * (bad magic, CRC mismatch, truncation, impossible values, no Cao Cao) is
+ * reported as an IOException instead of a broken board.
+ */
+public class SaveGame {
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'K', 'S', 'A', 'V'};
+    private static final int MAX_SIDE = 16;
+    private static final int REMOVED_OBSTACLE = -MapModel.BLOCKED;
+    // Nibble codes: 0-10 are stored as themselves, 11 is a temporarily removed obstacle
+    private static final int REMOVED_CODE = 11;
+
+    private final String username;
+    private final String packPath;
+    private final int levelIndex;
+    private final int moveCount;
+    private final int[][] board;
+    private final Map<Prop.PropType, Integer> props;
+    private final List<int[]> removedObstacles;
+    private final int timeLimitMinutes;
+    private final int timeLeftSeconds;
+    private final List<int[][]> history;
+
+    /**
+     * @param packPath         Level pack file, null for the built-in levels
+     * @param timeLeftSeconds  Seconds left in time attack, -1 if time attack is off
+     * @param history          Boards from the start of the level to the current one
+     */
+    public SaveGame(String username, String packPath, int levelIndex, int moveCount, int[][] board,
+                    Map<Prop.PropType, Integer> props, List<int[]> removedObstacles,
+                    int timeLimitMinutes, int timeLeftSeconds, List<int[][]> history) {
+        this.username = username;
+        this.packPath = packPath;
+        this.levelIndex = levelIndex;
+        this.moveCount = moveCount;
+        this.board = board;
+        this.props = props;
+        this.removedObstacles = removedObstacles;
+        this.timeLimitMinutes = timeLimitMinutes;
+        this.timeLeftSeconds = timeLeftSeconds;
+        this.history = history;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPackPath() {
+        return packPath;
+    }
+
+    public int getLevelIndex() {
+        return levelIndex;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int[][] getBoard() {
+        return board;
+    }
+
+    public Map<Prop.PropType, Integer> getProps() {
+        return props;
+    }
+
+    public List<int[]> getRemovedObstacles() {
+        return removedObstacles;
+    }
+
+    public int getTimeLimitMinutes() {
+        return timeLimitMinutes;
+    }
+
+    public int getTimeLeftSeconds() {
+        return timeLeftSeconds;
+    }
+
+    public List<int[][]> getHistory() {
+        return history;
+    }
+
+    /**
+     * Write the save with a single buffered write to a temp file in the same directory,
+     * flushed to disk and then renamed over the target, so readers only ever see the old
+     * save or the complete new one
+     */
+    public void writeTo(File file) throws IOException {
+        writeAtomically(file, encode());
+    }
+
+    static void writeAtomically(File file, byte[] data) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read and verify a save with a single read
+     */
+    public static SaveGame readFrom(File file) throws IOException {
+        return decode(Files.readAllBytes(file.toPath()));
+    }
+
+    public byte[] encode() {
+        int height = board.length;
+        int width = board[0].length;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + height * width / 2 + history.size() * 6);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(FORMAT_VERSION);
+
+        writeString(out, username);
+        writeString(out, packPath != null ? packPath : "");
+        writeVarint(out, levelIndex);
+        writeVarint(out, moveCount);
+        writeVarint(out, height);
+        writeVarint(out, width);
+        writeBoard(out, board);
+
+        writeVarint(out, props.size());
+        for (Map.Entry<Prop.PropType, Integer> entry : props.entrySet()) {
+            writeVarint(out, entry.getKey().ordinal());
+            writeVarint(out, entry.getValue());
+        }
+        writeVarint(out, removedObstacles.size());
+        for (int[] obstacle : removedObstacles) {
+            writeVarint(out, obstacle[0]);
+            writeVarint(out, obstacle[1]);
+            writeVarint(out, zigzag(obstacle[2]));
+        }
+        writeVarint(out, timeLimitMinutes);
+        writeVarint(out, zigzag(timeLeftSeconds));
+
+        writeVarint(out, history.size());
+        int[][] previous = null;
+        for (int[][] snapshot : history) {
+            if (previous == null) {
+                writeBoard(out, snapshot);
+            } else {
+                writeDelta(out, previous, snapshot);
+            }
+            previous = snapshot;
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] body = out.toByteArray();
+        crc.update(body, 0, body.length);
+        long checksum = crc.getValue();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write((int) (checksum >>> shift));
+        }
+        return out.toByteArray();
+    }
+
+    public static SaveGame decode(byte[] data) throws IOException {
+        if (data.length < MAGIC.length + 1 + 4) {
+            throw new IOException("Save file is truncated (" + data.length + " bytes)");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                throw new IOException("Not a save file (it may use the old format)");
+            }
+        }
+        int version = data[MAGIC.length] & 0xFF;
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported save format version " + version);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        long stored = ByteBuffer.wrap(data, data.length - 4, 4).getInt() & 0xFFFFFFFFL;
+        if (crc.getValue() != stored) {
+            throw new IOException("Save file is corrupted (checksum mismatch)");
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(data, MAGIC.length + 1, data.length - MAGIC.length - 1 - 4);
+        try {
+            String username = readString(in);
+            String packPath = readString(in);
+            int levelIndex = readVarint(in);
+            int moveCount = readVarint(in);
+            int height = readVarint(in);
+            int width = readVarint(in);
+            if (height < 2 || width < 2 || height > MAX_SIDE || width > MAX_SIDE) {
+                throw new IOException("Save file has an invalid board size " + width + "x" + height);
+            }
+            int[][] board = readBoard(in, height, width);
+            validateBoard(board);
+
+            Map<Prop.PropType, Integer> props = new EnumMap<>(Prop.PropType.class);
+            int propCount = readVarint(in);
+            Prop.PropType[] types = Prop.PropType.values();
+            for (int i = 0; i < propCount; i++) {
+                int type = readVarint(in);
+                if (type >= types.length) {
+                    throw new IOException("Save file has an unknown prop type " + type);
+                }
+                props.put(types[type], readVarint(in));
+            }
+
+            int obstacleCount = readVarint(in);
+            List<int[]> removedObstacles = new ArrayList<>();
+            for (int i = 0; i < obstacleCount; i++) {
+                int row = readVarint(in);
+                int col = readVarint(in);
+                int steps = unzigzag(readVarint(in));
+                if (row >= height || col >= width) {
+                    throw new IOException("Save file has a removed obstacle outside the board");
+                }
+                removedObstacles.add(new int[]{row, col, steps});
+            }
+            int timeLimitMinutes = readVarint(in);
+            int timeLeftSeconds = unzigzag(readVarint(in));
+
+            int historySize = readVarint(in);
+            List<int[][]> history = new ArrayList<>();
+            int[][] previous = null;
+            for (int i = 0; i < historySize; i++) {
+                int[][] snapshot = previous == null ? readBoard(in, height, width) : readDelta(in, previous);
+                history.add(snapshot);
+                previous = snapshot;
+            }
+            if (in.hasRemaining()) {
+                throw new IOException("Save file has " + in.remaining() + " unexpected trailing bytes");
+            }
+            return new SaveGame(username, packPath.isEmpty() ? null : packPath, levelIndex, moveCount, board,
+                    props, removedObstacles, timeLimitMinutes, timeLeftSeconds,
+                    Collections.unmodifiableList(history));
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Save file is truncated");
+        }
+    }
+
+    /**
+     * Reject boards MapModel could not play: there must be exactly one Cao Cao and no piece
+     * fragments, as for levels; the checksum already catches damaged files.
+     */
+    private static void validateBoard(int[][] board) throws IOException {
+        if (PuzzleRules.findFragment(board) != null) {
+            throw new IOException("Save file contains an invalid board");
+        }
+        int caoCao = 0;
+        for (int[] piece : PuzzleRules.findPieces(board)) {
+            if (piece[2] == MapModel.CAO_CAO) {
+                caoCao++;
+            }
+        }
+        if (caoCao != 1) {
+            throw new IOException("Save file contains an invalid board");
+        }
+    }
+
+    static void writeBoard(ByteArrayOutputStream out, int[][] board) {
+        int width = board[0].length;
+        int cells = board.length * width;
+        for (int i = 0; i < cells; i += 2) {
+            int high = toNibble(board[i / width][i % width]);
+            int low = i + 1 < cells ? toNibble(board[(i + 1) / width][(i + 1) % width]) : 0;
+            out.write(high << 4 | low);
+        }
+    }
+
+    static int[][] readBoard(ByteBuffer in, int height, int width) throws IOException {
+        int[][] board = new int[height][width];
+        int cells = height * width;
+        for (int i = 0; i < cells; i += 2) {
+            int packed = in.get() & 0xFF;
+            board[i / width][i % width] = fromNibble(packed >>> 4);
+            if (i + 1 < cells) {
+                board[(i + 1) / width][(i + 1) % width] = fromNibble(packed & 0xF);
+            }
+        }
+        return board;
+    }
+
+    static void writeDelta(ByteArrayOutputStream out, int[][] previous, int[][] board) {
+        int width = board[0].length;
+        int changes = 0;
+        for (int i = 0; i < board.length * width; i++) {
+            if (board[i / width][i % width] != previous[i / width][i % width]) {
+                changes++;
+            }
+        }
+        writeVarint(out, changes);
+        for (int i = 0; i < board.length * width; i++) {
+            if (board[i / width][i % width] != previous[i / width][i % width]) {
+                writeVarint(out, i);
+                out.write(toNibble(board[i / width][i % width]));
+            }
+        }
+    }
+
+    static int[][] readDelta(ByteBuffer in, int[][] previous) throws IOException {
+        int height = previous.length;
+        int width = previous[0].length;
+        int[][] board = PuzzleRules.copyBoard(previous);
+        int changes = readVarint(in);
+        for (int c = 0; c < changes; c++) {
+            int cell = readVarint(in);
+            if (cell >= height * width) {
+                throw new IOException("Save file history refers to a cell outside the board");
+            }
+            board[cell / width][cell % width] = fromNibble(in.get());
+        }
+        return board;
+    }
+
+    static int toNibble(int cell) {
+        if (cell == REMOVED_OBSTACLE) {
+            return REMOVED_CODE;
+        }
+        if (cell < 0 || cell > MapModel.MILITARY_CAMP) {
+            throw new IllegalArgumentException("Cell value " + cell + " cannot be saved");
+        }
+        return cell;
+    }
+
+    static int fromNibble(int code) throws IOException {
+        if (code == REMOVED_CODE) {
+            return REMOVED_OBSTACLE;
+        }
+        boolean known = code == 0 || PuzzleRules.isMovablePiece(code)
+                || code == MapModel.BLOCKED || code == MapModel.MILITARY_CAMP;
+        if (!known) {
+            throw new IOException("Save file contains an unknown cell code " + code);
+        }
+        return code;
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static String readString(ByteBuffer in) throws IOException {
+        int length = readVarint(in);
+        if (length > in.remaining()) {
+            throw new IOException("Save file is truncated");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarint(ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Save file contains an out-of-range number");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Save file contains a malformed number");
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,337 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * The named save slots of one user: a directory with one SaveGame file per slot and a
+ * small index describing them.
+ *
+ * Listing slots reads only the index (level, move count, time and a thumbnail of the
+ * board per slot), so a menu never has to open and verify every save. Loading a slot
+ * reads just that slot's file. Slot files and the index are both replaced atomically; if
+ * the index is missing or damaged it is rebuilt from the slot files.
+ *
+ * Index layout (version 1):
+ *   "KSIX" magic, version byte, varint slot count, then per slot: name, file name,
+ *   level pack path ("" for the built-in levels), level index, move count, save time
+ *   (8 bytes, epoch millis), height, width and the board as nibbles; CRC32 of it all.
+ *
+ * Not thread safe; GameController only uses it on the save thread.
+ */
+public class SaveSlots {
+    private static final Log LOG = Log.get(SaveSlots.class);
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'K', 'S', 'I', 'X'};
+    private static final String INDEX_NAME = "index.bin";
+    private static final String SLOT_PREFIX = "slot-";
+    private static final String SLOT_SUFFIX = ".sav";
+
+    private final File directory;
+    private List<Slot> slots;
+
+    /**
+     * @param directory Where this user's slots live; created on the first write
+     */
+    public SaveSlots(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * What the index knows about a slot
+     */
+    public static class Slot {
+        private final String name;
+        private final String fileName;
+        private final String packPath;
+        private final int levelIndex;
+        private final int moveCount;
+        private final long savedAt;
+        private final int[][] board;
+
+        Slot(String name, String fileName, String packPath, int levelIndex, int moveCount, long savedAt,
+             int[][] board) {
+            this.name = name;
+            this.fileName = fileName;
+            this.packPath = packPath;
+            this.levelIndex = levelIndex;
+            this.moveCount = moveCount;
+            this.savedAt = savedAt;
+            this.board = board;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Level pack file, null for the built-in levels
+         */
+        public String getPackPath() {
+            return packPath;
+        }
+
+        public int getLevelIndex() {
+            return levelIndex;
+        }
+
+        /**
+         * Name of the level for menus, without opening a level pack
+         */
+        public String getLevelLabel() {
+            if (packPath == null) {
+                LevelPack builtIn = LevelPack.builtIn();
+                return levelIndex < builtIn.size() ? builtIn.getName(levelIndex) : "Level " + (levelIndex + 1);
+            }
+            String title = new File(packPath).getName();
+            int dot = title.lastIndexOf('.');
+            return (dot > 0 ? title.substring(0, dot) : title) + " #" + (levelIndex + 1);
+        }
+
+        public int getMoveCount() {
+            return moveCount;
+        }
+
+        /**
+         * When the slot was written, in epoch millis
+         */
+        public long getSavedAt() {
+            return savedAt;
+        }
+
+        /**
+         * The saved board, for drawing a thumbnail; do not modify
+         */
+        public int[][] getBoard() {
+            return board;
+        }
+    }
+
+    /**
+     * Every slot, most recently saved first
+     */
+    public List<Slot> list() throws IOException {
+        return Collections.unmodifiableList(new ArrayList<>(slots()));
+    }
+
+    /**
+     * @return The slot with this name, or null
+     */
+    public Slot find(String name) throws IOException {
+        for (Slot slot : slots()) {
+            if (slot.name.equals(name)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read and verify a single slot
+     *
+     * @throws NoSuchFileException if there is no slot with this name
+     */
+    public SaveGame read(String name) throws IOException {
+        Slot slot = find(name);
+        if (slot == null) {
+            throw new NoSuchFileException(name);
+        }
+        return SaveGame.readFrom(new File(directory, slot.fileName));
+    }
+
+    /**
+     * Create or overwrite a slot
+     */
+    public Slot write(String name, SaveGame save) throws IOException {
+        Slot existing = find(name);
+        String fileName = existing != null ? existing.fileName : nextFileName();
+        save.writeTo(new File(directory, fileName));
+
+        Slot slot = new Slot(name, fileName, save.getPackPath(), save.getLevelIndex(), save.getMoveCount(),
+                System.currentTimeMillis(), save.getBoard());
+        List<Slot> updated = new ArrayList<>(slots);
+        updated.remove(existing);
+        updated.add(0, slot);
+        writeIndex(updated);
+        slots = updated;
+        return slot;
+    }
+
+    /**
+     * @return false if there was no slot with this name
+     */
+    public boolean delete(String name) throws IOException {
+        Slot slot = find(name);
+        if (slot == null) {
+            return false;
+        }
+        List<Slot> updated = new ArrayList<>(slots);
+        updated.remove(slot);
+        writeIndex(updated);
+        slots = updated;
+        Files.deleteIfExists(new File(directory, slot.fileName).toPath());
+        return true;
+    }
+
+    /**
+     * Move a save from the old one-file-per-user layout into a slot, then remove the old file
+     */
+    public void importLegacy(File legacySave, String name) throws IOException {
+        if (!legacySave.isFile()) {
+            return;
+        }
+        SaveGame save = SaveGame.readFrom(legacySave);
+        if (find(name) == null) {
+            write(name, save);
+        }
+        Files.delete(legacySave.toPath());
+        LOG.info(() -> "Imported " + legacySave.getName() + " as slot \"" + name + "\"");
+    }
+
+    private List<Slot> slots() throws IOException {
+        if (slots == null) {
+            File index = new File(directory, INDEX_NAME);
+            if (index.isFile()) {
+                try {
+                    slots = decodeIndex(Files.readAllBytes(index.toPath()));
+                } catch (IOException e) {
+                    LOG.warn("Rebuilding damaged index " + index + ": " + e.getMessage());
+                    slots = rebuildIndex();
+                }
+            } else {
+                slots = rebuildIndex();
+            }
+        }
+        return slots;
+    }
+
+    private String nextFileName() {
+        int number = 1;
+        while (new File(directory, SLOT_PREFIX + number + SLOT_SUFFIX).exists()) {
+            number++;
+        }
+        return SLOT_PREFIX + number + SLOT_SUFFIX;
+    }
+
+    /**
+     * Recreate the index by reading every slot file; slot names fall back to the file names
+     */
+    private List<Slot> rebuildIndex() throws IOException {
+        List<Slot> rebuilt = new ArrayList<>();
+        File[] files = directory.listFiles((dir, fileName) ->
+                fileName.startsWith(SLOT_PREFIX) && fileName.endsWith(SLOT_SUFFIX));
+        if (files == null || files.length == 0) {
+            return rebuilt;
+        }
+        for (File file : files) {
+            try {
+                SaveGame save = SaveGame.readFrom(file);
+                String fileName = file.getName();
+                String name = "Slot " + fileName.substring(SLOT_PREFIX.length(), fileName.length() - SLOT_SUFFIX.length());
+                rebuilt.add(new Slot(name, fileName, save.getPackPath(), save.getLevelIndex(), save.getMoveCount(),
+                        file.lastModified(), save.getBoard()));
+            } catch (IOException e) {
+                LOG.warn("Skipping unreadable slot " + file + ": " + e.getMessage());
+            }
+        }
+        rebuilt.sort(Comparator.comparingLong(Slot::getSavedAt).reversed());
+        writeIndex(rebuilt);
+        return rebuilt;
+    }
+
+    private void writeIndex(List<Slot> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + entries.size() * 48);
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(FORMAT_VERSION);
+        SaveGame.writeVarint(out, entries.size());
+        for (Slot slot : entries) {
+            SaveGame.writeString(out, slot.name);
+            SaveGame.writeString(out, slot.fileName);
+            SaveGame.writeString(out, slot.packPath != null ? slot.packPath : "");
+            SaveGame.writeVarint(out, slot.levelIndex);
+            SaveGame.writeVarint(out, slot.moveCount);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (slot.savedAt >>> shift));
+            }
+            SaveGame.writeVarint(out, slot.board.length);
+            SaveGame.writeVarint(out, slot.board[0].length);
+            SaveGame.writeBoard(out, slot.board);
+        }
+        CRC32 crc = new CRC32();
+        byte[] body = out.toByteArray();
+        crc.update(body, 0, body.length);
+        long checksum = crc.getValue();
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write((int) (checksum >>> shift));
+        }
+        SaveGame.writeAtomically(new File(directory, INDEX_NAME), out.toByteArray());
+    }
+
+    private static List<Slot> decodeIndex(byte[] data) throws IOException {
+        if (data.length < MAGIC.length + 1 + 4) {
+            throw new IOException("Slot index is truncated");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                throw new IOException("Not a slot index");
+            }
+        }
+        int version = data[MAGIC.length] & 0xFF;
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported slot index version " + version);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        if (crc.getValue() != (ByteBuffer.wrap(data, data.length - 4, 4).getInt() & 0xFFFFFFFFL)) {
+            throw new IOException("Slot index is corrupted (checksum mismatch)");
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(data, MAGIC.length + 1, data.length - MAGIC.length - 1 - 4);
+        try {
+            int count = SaveGame.readVarint(in);
+            List<Slot> entries = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String name = SaveGame.readString(in);
+                String fileName = SaveGame.readString(in);
+                if (!fileName.matches(SLOT_PREFIX + "[0-9]+" + Pattern.quote(SLOT_SUFFIX))) {
+                    throw new IOException("Slot index refers to an unexpected file " + fileName);
+                }
+                String packPath = SaveGame.readString(in);
+                int levelIndex = SaveGame.readVarint(in);
+                int moveCount = SaveGame.readVarint(in);
+                long savedAt = in.getLong();
+                int height = SaveGame.readVarint(in);
+                int width = SaveGame.readVarint(in);
+                if (height < 1 || width < 1 || height * width > 256) {
+                    throw new IOException("Slot index has an invalid board size");
+                }
+                int[][] board = SaveGame.readBoard(in, height, width);
+                entries.add(new Slot(name, fileName, packPath.isEmpty() ? null : packPath, levelIndex, moveCount,
+                        savedAt, board));
+            }
+            if (in.hasRemaining()) {
+                throw new IOException("Slot index has unexpected trailing bytes");
+            }
+            return entries;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Slot index is truncated");
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shortens a solution without changing where it ends.
+ *
+ * Passes, in order:
+ * 1. drop everything after the first goal state
+ * 2. cut cycles - whenever a board repeats, the moves between the two visits are removed
+ * 3. cancel inverse pairs - a piece moved one way and later straight back is dropped when
+ *    the moves in between never needed the cell it occupied
+ * 4. window shortcuts - a small BFS from each path state looks for a shorter route to a
+ *    state a few steps further along the path
+ *
+ * Every pass keeps the solution legal; plans that contain prop steps or an illegal move are
+ * returned unchanged.
+ */
+public class SolutionOptimizer {
+    private final int window;
+    private final int maxWindowStates;
+
+    public SolutionOptimizer() {
+        this(8, 20_000);
+    }
+
+    /**
+     * @param window          How many path steps a shortcut may replace (0 disables the BFS pass)
+     * @param maxWindowStates Cap on boards visited by one shortcut search
+     */
+    public SolutionOptimizer(int window, int maxWindowStates) {
+        this.window = window;
+        this.maxWindowStates = maxWindowStates;
+    }
+
+    /**
+     * @param board The board the solution starts from (not modified)
+     * @param moves The move sequence to shorten
+     * @return A legal sequence that reaches the same final state in at most as many moves,
+     *         or a copy of moves unchanged if it contains an illegal move
+     */
+    public List<AISolver.Move> optimize(int[][] board, List<AISolver.Move> moves) {
+        for (AISolver.Move move : moves) {
+            if (move.isObstacleRemoval()) {
+                return new ArrayList<>(moves); // Timers make prop plans order-sensitive
+            }
+        }
+        if (replay(board, moves) == null) {
+            return new ArrayList<>(moves); // Not a legal sequence, leave it alone
+        }
+
+        List<AISolver.Move> result = cutCycles(board, truncateAtGoal(board, moves));
+        result = cancelInversePairs(board, result);
+        if (window > 1) {
+            result = shortcutWindows(board, result);
+        }
+        return result;
+    }
+
+    private List<AISolver.Move> truncateAtGoal(int[][] board, List<AISolver.Move> moves) {
+        List<AISolver.Move> result = new ArrayList<>();
+        int[][] current = board;
+        for (AISolver.Move move : moves) {
+            if (PuzzleRules.isGoal(current)) {
+                break;
+            }
+            result.add(move);
+            current = PuzzleRules.applyMoveCopy(current, move);
+        }
+        return result;
+    }
+
+    /**
+     * Remove every loop along the path, keeping the first visit of each board
+     */
+    private List<AISolver.Move> cutCycles(int[][] board, List<AISolver.Move> moves) {
+        List<AISolver.Move> result = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        Map<String, Integer> positions = new HashMap<>();
+
+        String startKey = PuzzleRules.boardKey(board);
+        keys.add(startKey);
+        positions.put(startKey, 0);
+
+        int[][] current = board;
+        for (AISolver.Move move : moves) {
+            current = PuzzleRules.applyMoveCopy(current, move);
+            String key = PuzzleRules.boardKey(current);
+            Integer seen = positions.get(key);
+            if (seen != null) {
+                // Back on an earlier board: forget everything since then
+                while (keys.size() > seen + 1) {
+                    positions.remove(keys.remove(keys.size() - 1));
+                }
+                while (result.size() > seen) {
+                    result.remove(result.size() - 1);
+                }
+            } else {
+                result.add(move);
+                keys.add(key);
+                positions.put(key, keys.size() - 1);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drop a move together with the next move of the same piece when that move undoes it,
+     * provided the sequence without both is still legal
+     */
+    private List<AISolver.Move> cancelInversePairs(int[][] board, List<AISolver.Move> moves) {
+        List<AISolver.Move> result = new ArrayList<>(moves);
+        int i = 0;
+        while (i < result.size()) {
+            AISolver.Move first = result.get(i);
+            int row = first.row + first.direction.getRow();
+            int col = first.col + first.direction.getCol();
+
+            boolean cancelled = false;
+            for (int k = i + 1; k < result.size(); k++) {
+                AISolver.Move later = result.get(k);
+                if (later.row != row || later.col != col) {
+                    continue;
+                }
+                // Next move of the same piece
+                if (later.direction == first.direction.opposite()) {
+                    List<AISolver.Move> candidate = new ArrayList<>(result);
+                    candidate.remove(k);
+                    candidate.remove(i);
+                    // The piece ends where it started, so if the rest is still legal it ends on the same board
+                    if (replay(board, candidate) != null) {
+                        result = candidate;
+                        cancelled = true;
+                    }
+                }
+                break;
+            }
+            if (!cancelled) {
+                i++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replace stretches of the path with shorter routes found by a bounded BFS
+     */
+    private List<AISolver.Move> shortcutWindows(int[][] board, List<AISolver.Move> moves) {
+        List<AISolver.Move> result = new ArrayList<>(moves);
+        int i = 0;
+        while (i < result.size()) {
+            // Boards along the path from position i
+            List<int[][]> path = new ArrayList<>();
+            int[][] current = replayPrefix(board, result, i);
+            path.add(current);
+            int end = Math.min(result.size(), i + window);
+            for (int k = i; k < end; k++) {
+                current = PuzzleRules.applyMoveCopy(current, result.get(k));
+                path.add(current);
+            }
+            Map<String, Integer> targets = new HashMap<>();
+            for (int k = 2; k < path.size(); k++) {
+                targets.put(PuzzleRules.boardKey(path.get(k)), k);
+            }
+
+            Shortcut shortcut = searchWindow(path.get(0), targets);
+            if (shortcut != null) {
+                List<AISolver.Move> spliced = new ArrayList<>(result.subList(0, i));
+                spliced.addAll(shortcut.moves);
+                spliced.addAll(result.subList(i + shortcut.replaced, result.size()));
+                result = spliced;
+            }
+            i++;
+        }
+        return result;
+    }
+
+    /**
+     * Breadth-first search from a path board towards the later path boards,
+     * keeping the route with the largest saving
+     *
+     * @return the best shortcut found, or null if none saves a move
+     */
+    private Shortcut searchWindow(int[][] start, Map<String, Integer> targets) {
+        Shortcut best = null;
+        if (targets.isEmpty()) {
+            return null;
+        }
+        Map<String, String> parents = new HashMap<>();
+        Map<String, AISolver.Move> reachedBy = new HashMap<>();
+        String startKey = PuzzleRules.boardKey(start);
+        parents.put(startKey, null);
+
+        ArrayDeque<int[][]> frontier = new ArrayDeque<>();
+        frontier.add(start);
+        int bestSaving = 0;
+        for (int depth = 1; depth < window && !frontier.isEmpty(); depth++) {
+            ArrayDeque<int[][]> nextFrontier = new ArrayDeque<>();
+            for (int[][] current : frontier) {
+                String currentKey = PuzzleRules.boardKey(current);
+                for (AISolver.Move move : PuzzleRules.legalMoves(current)) {
+                    int[][] next = PuzzleRules.applyMoveCopy(current, move);
+                    String key = PuzzleRules.boardKey(next);
+                    if (parents.containsKey(key)) {
+                        continue;
+                    }
+                    parents.put(key, currentKey);
+                    reachedBy.put(key, move);
+                    nextFrontier.add(next);
+
+                    Integer target = targets.get(key);
+                    if (target != null && target - depth > bestSaving) {
+                        bestSaving = target - depth;
+                        best = new Shortcut(rebuild(key, parents, reachedBy), target);
+                    }
+                }
+                if (parents.size() > maxWindowStates) {
+                    return best;
+                }
+            }
+            frontier = nextFrontier;
+        }
+        return best;
+    }
+
+    /**
+     * A shorter route and the number of path steps it replaces
+     */
+    private static class Shortcut {
+        final List<AISolver.Move> moves;
+        final int replaced;
+
+        Shortcut(List<AISolver.Move> moves, int replaced) {
+            this.moves = moves;
+            this.replaced = replaced;
+        }
+    }
+
+    private List<AISolver.Move> rebuild(String key, Map<String, String> parents, Map<String, AISolver.Move> reachedBy) {
+        List<AISolver.Move> moves = new ArrayList<>();
+        while (parents.get(key) != null) {
+            moves.add(0, reachedBy.get(key));
+            key = parents.get(key);
+        }
+        return moves;
+    }
+
+    private int[][] replayPrefix(int[][] board, List<AISolver.Move> moves, int count) {
+        int[][] current = board;
+        for (int k = 0; k < count; k++) {
+            current = PuzzleRules.applyMoveCopy(current, moves.get(k));
+        }
+        return current;
+    }
+
+    /**
+     * @return the final board, or null if a move is illegal
+     */
+    private int[][] replay(int[][] board, List<AISolver.Move> moves) {
+        int[][] current = board;
+        for (AISolver.Move move : moves) {
+            current = PuzzleRules.applyMoveCopy(current, move);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+}
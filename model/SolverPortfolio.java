@@ -0,0 +1,222 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Races several solver strategies on separate threads.
+ *
+ * In FIRST_VALID mode the first verified solution wins and the other strategies are cancelled.
+ * In BEST_WITHIN_DEADLINE mode every strategy runs until the deadline and the shortest
+ * verified solution wins. Either way the report keeps the timing of every strategy so the
+ * defaults per level can be tuned.
+ */
+public class SolverPortfolio {
+    private static final Log LOG = Log.get(SolverPortfolio.class);
+
+    public enum Mode {
+        FIRST_VALID,
+        BEST_WITHIN_DEADLINE
+    }
+
+    // How long cancelled strategies get to report their statistics
+    private static final long CANCEL_GRACE_MILLIS = 200;
+    private static final long DEFAULT_DEADLINE_MILLIS = 30_000;
+    // Wider than the hint beam: it runs in the background and shorter solutions are worth it
+    private static final int PORTFOLIO_BEAM_WIDTH = 1024;
+    // How often a run started with a stop flag checks it while waiting for results
+    private static final long STOP_POLL_MILLIS = 20;
+
+    private final List<SolverStrategy> strategies;
+    private final long deadlineMillis;
+    private final Mode mode;
+
+    public SolverPortfolio(List<SolverStrategy> strategies, long deadlineMillis, Mode mode) {
+        if (strategies == null || strategies.isEmpty()) {
+            throw new IllegalArgumentException("Portfolio needs at least one strategy");
+        }
+        this.strategies = new ArrayList<>(strategies);
+        this.deadlineMillis = deadlineMillis;
+        this.mode = mode;
+    }
+
+    /**
+     * Default portfolio used by the AI Solve button: A*, BFS, IDA* and a wide beam racing for
+     * the first answer
+     *
+     * @param extraStrategies Additional strategies to race alongside the defaults (e.g. a prop-aware solver)
+     */
+    public static SolverPortfolio createDefault(SolverStrategy... extraStrategies) {
+        List<SolverStrategy> strategies = defaultStrategies();
+        strategies.addAll(Arrays.asList(extraStrategies));
+        return new SolverPortfolio(strategies, DEFAULT_DEADLINE_MILLIS, Mode.FIRST_VALID);
+    }
+
+    /**
+     * Fresh instances of the default strategies. The beam is not optimal but finds a short
+     * solution to boards like Hard in well under a second, where the complete searches need
+     * millions of states; on a machine with fewer cores than strategies it is often the
+     * only one to answer before the deadline.
+     */
+    public static List<SolverStrategy> defaultStrategies() {
+        return new ArrayList<>(Arrays.asList(new AStarSolver(), new BreadthFirstSolver(),
+                new IterativeDeepeningSolver(), new BeamSearchSolver(PORTFOLIO_BEAM_WIDTH)));
+    }
+
+    /**
+     * Run all strategies on the board and pick the winner
+     */
+    public PortfolioResult solve(int[][] board) {
+        return solve(board, new AtomicBoolean(false));
+    }
+
+    /**
+     * Run all strategies on the board and pick the winner, giving up early once the
+     * caller sets stop (the strategies are then cancelled as at the deadline)
+     */
+    public PortfolioResult solve(int[][] board, AtomicBoolean stop) {
+        long start = System.nanoTime();
+        AtomicBoolean cancel = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(strategies.size(), runnable -> {
+            Thread thread = new Thread(runnable, "solver-portfolio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<SolverStrategy.Result> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<SolverStrategy.Result>, SolverStrategy> pending = new HashMap<>();
+
+        for (SolverStrategy strategy : strategies) {
+            int[][] copy = PuzzleRules.copyBoard(board);
+            pending.put(completion.submit(() -> strategy.solve(copy, cancel)), strategy);
+        }
+
+        List<SolverStrategy.Result> runs = new ArrayList<>();
+        SolverStrategy.Result winner = null;
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        try {
+            while (!pending.isEmpty() && !stop.get()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break; // Deadline reached
+                }
+                Future<SolverStrategy.Result> done = completion.poll(
+                        Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(STOP_POLL_MILLIS)), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    continue;
+                }
+                SolverStrategy strategy = pending.remove(done);
+                SolverStrategy.Result result = collect(done, strategy, start);
+                runs.add(result);
+
+                if (result.solved && strategy.isValidSolution(board, result.moves)) {
+                    if (winner == null || result.moves.size() < winner.moves.size()) {
+                        winner = result;
+                    }
+                    if (mode == Mode.FIRST_VALID) {
+                        break;
+                    }
+                } else if (result.solved) {
+                    LOG.warn("Rejected invalid solution from " + result.strategyName);
+                }
+            }
+
+            // Stop the losers and give them a moment to report how far they got
+            cancel.set(true);
+            long graceDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CANCEL_GRACE_MILLIS);
+            while (!pending.isEmpty()) {
+                long remaining = graceDeadline - System.nanoTime();
+                Future<SolverStrategy.Result> done = remaining > 0
+                        ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    break;
+                }
+                runs.add(collect(done, pending.remove(done), start));
+            }
+            for (Map.Entry<Future<SolverStrategy.Result>, SolverStrategy> entry : pending.entrySet()) {
+                entry.getKey().cancel(true);
+                runs.add(new SolverStrategy.Result(entry.getValue().getName(), null, false, true, 0,
+                        System.nanoTime() - start));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel.set(true);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PortfolioResult result = new PortfolioResult(winner, runs, System.nanoTime() - start);
+        LOG.info(result::toString);
+        return result;
+    }
+
+    private SolverStrategy.Result collect(Future<SolverStrategy.Result> future, SolverStrategy strategy, long start) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error("Strategy " + strategy.getName() + " failed", e.getCause());
+        }
+        return new SolverStrategy.Result(strategy.getName(), null, false, false, 0, System.nanoTime() - start);
+    }
+
+    /**
+     * Outcome of a portfolio run
+     */
+    public static class PortfolioResult {
+        private final SolverStrategy.Result winner;
+        private final List<SolverStrategy.Result> runs;
+        private final long elapsedNanos;
+
+        PortfolioResult(SolverStrategy.Result winner, List<SolverStrategy.Result> runs, long elapsedNanos) {
+            this.winner = winner;
+            this.runs = runs;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return The winning run, or null if no strategy produced a valid solution
+         */
+        public SolverStrategy.Result getWinner() {
+            return winner;
+        }
+
+        public String getWinnerName() {
+            return winner != null ? winner.strategyName : "none";
+        }
+
+        /**
+         * @return Every strategy's run in completion order, including cancelled ones
+         */
+        public List<SolverStrategy.Result> getRuns() {
+            return runs;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000L;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("winner=").append(getWinnerName())
+              .append(" after ").append(getElapsedMillis()).append(" ms");
+            for (SolverStrategy.Result run : runs) {
+                sb.append("; ").append(run);
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A headless search algorithm that can be raced against others by SolverPortfolio.
+ * Implementations must poll the cancel flag regularly and return promptly once it is set.
+ */
+public interface SolverStrategy {
+
+    /**
+     * Short name used in logs and portfolio reports
+     */
+    String getName();
+
+    /**
+     * Search for a solution starting from the given board.
+     * The board must not be modified.
+     *
+     * @param board  The starting board
+     * @param cancel Set by the caller when the result is no longer needed
+     * @return The search outcome (never null)
+     */
+    Result solve(int[][] board, AtomicBoolean cancel);
+
+    /**
+     * Check a solution produced by this strategy by replaying it from the given board.
+     * Strategies that emit prop steps override this with their own rules.
+     */
+    default boolean isValidSolution(int[][] board, List<AISolver.Move> moves) {
+        return PuzzleRules.isValidSolution(board, moves);
+    }
+
+    /**
+     * Outcome of a single strategy run.
+     *
+     * An unsolved run ends one of three ways: cancelled by the caller, stopped at the
+     * strategy's own state or depth limit (limitReached), or with the search space
+     * exhausted. Only the last one means the board has no solution.
+     */
+    class Result {
+        public final String strategyName;
+        public final List<AISolver.Move> moves;
+        public final boolean solved;
+        public final boolean cancelled;
+        public final boolean limitReached;
+        public final int statesExplored;
+        public final long elapsedNanos;
+
+        public Result(String strategyName, List<AISolver.Move> moves, boolean solved,
+                      boolean cancelled, int statesExplored, long elapsedNanos) {
+            this(strategyName, moves, solved, cancelled, false, statesExplored, elapsedNanos);
+        }
+
+        public Result(String strategyName, List<AISolver.Move> moves, boolean solved,
+                      boolean cancelled, boolean limitReached, int statesExplored, long elapsedNanos) {
+            this.strategyName = strategyName;
+            this.moves = moves != null ? moves : new ArrayList<>();
+            this.solved = solved;
+            this.cancelled = cancelled;
+            this.limitReached = limitReached;
+            this.statesExplored = statesExplored;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * A run that gave up at its own state or depth limit before exhausting the search
+         */
+        public static Result atLimit(String strategyName, List<AISolver.Move> moves,
+                                     int statesExplored, long elapsedNanos) {
+            return new Result(strategyName, moves, false, false, true, statesExplored, elapsedNanos);
+        }
+
+        /**
+         * True when the run ended without a solution but did not prove there is none
+         */
+        public boolean isInconclusive() {
+            return !solved && (cancelled || limitReached);
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000L;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s, %d moves, %d states, %d ms",
+                    strategyName,
+                    solved ? "solved" : cancelled ? "cancelled" : limitReached ? "limit reached" : "no solution",
+                    moves.size(), statesExplored, getElapsedMillis());
+        }
+    }
+}
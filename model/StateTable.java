@@ -0,0 +1,132 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of fixed-width long keys (e.g. boards packed by BoardCodec).
+ *
+ * Every key gets a dense id in insertion order, so searches can keep parents, costs
+ * and moves in plain int arrays indexed by that id instead of per-state objects.
+ *
+ * Keys live in fixed-size pages, so growing never copies (or briefly doubles) the key
+ * storage, and the slot array is filled up to 75%. Each slot holds the key's hash next to
+ * its id, so probing past other keys and rehashing never touch the pages; only a slot
+ * with an equal hash is compared in full. A two-long key costs about 27 bytes.
+ */
+public class StateTable {
+    private static final long EMPTY = -1L;
+    private static final int PAGE_SHIFT = 16;
+    private static final int KEYS_PER_PAGE = 1 << PAGE_SHIFT;
+
+    private final int width;
+    private long[][] pages;
+    // Hash in the high 32 bits, id in the low 32 bits
+    private long[] slots;
+    private int size;
+
+    /**
+     * @param width    Number of longs per key
+     * @param expected Expected number of keys (the table grows past it)
+     */
+    public StateTable(int width, int expected) {
+        this.width = width;
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 4 / 3)) << 1;
+        this.pages = new long[16][];
+        this.slots = new long[capacity];
+        Arrays.fill(slots, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    /**
+     * @return the id of the key, or -1 if it is not in the table
+     */
+    public int indexOf(long[] key) {
+        int hash = hash(key);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long entry = slots[slot];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if ((int) (entry >>> 32) == hash && matches((int) entry, key)) {
+                return (int) entry;
+            }
+        }
+    }
+
+    /**
+     * Add a key that is not in the table yet
+     *
+     * @return the new key's id
+     */
+    public int add(long[] key) {
+        if (size + 1 > slots.length - (slots.length >>> 2)) {
+            rehash(slots.length * 2);
+        }
+        int id = size++;
+        int page = id >>> PAGE_SHIFT;
+        if (page == pages.length) {
+            pages = Arrays.copyOf(pages, pages.length * 2);
+        }
+        if (pages[page] == null) {
+            pages[page] = new long[KEYS_PER_PAGE * width];
+        }
+        System.arraycopy(key, 0, pages[page], (id & (KEYS_PER_PAGE - 1)) * width, width);
+        insert(((long) hash(key) << 32) | id);
+        return id;
+    }
+
+    /**
+     * Copy the key with the given id into out
+     */
+    public void get(int id, long[] out) {
+        System.arraycopy(pages[id >>> PAGE_SHIFT], (id & (KEYS_PER_PAGE - 1)) * width, out, 0, width);
+    }
+
+    private boolean matches(int id, long[] key) {
+        long[] page = pages[id >>> PAGE_SHIFT];
+        int base = (id & (KEYS_PER_PAGE - 1)) * width;
+        for (int i = 0; i < width; i++) {
+            if (page[base + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(long entry) {
+        int mask = slots.length - 1;
+        int slot = (int) (entry >>> 32) & mask;
+        while (slots[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = entry;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        Arrays.fill(slots, EMPTY);
+        for (long entry : old) {
+            if (entry != EMPTY) {
+                insert(entry);
+            }
+        }
+    }
+
+    private int hash(long[] key) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < width; i++) {
+            h = (h ^ key[i]) * 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return (int) (h ^ (h >>> 32));
+    }
+}
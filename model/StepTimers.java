@@ -0,0 +1,124 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Timers counted in moves rather than time, for prop effects that wear off after a number
+ * of steps (a removed obstacle coming back, for one).
+ *
+ * A timing wheel: each timer is filed in the slot of the step it is due on, so advancing
+ * one step looks at a single slot and touches only the timers due then. A step with
+ * nothing due costs an array read, however many timers are pending. Delays must be
+ * shorter than the wheel.
+ *
+ * Timers are identified by a small non-negative key (a cell index, row * width + col), at
+ * most one timer per key. Cancelling or rescheduling leaves the old slot entry in place;
+ * it is skipped when its slot comes round, since the key is no longer due on that step.
+ */
+public class StepTimers {
+    private static final int NONE = -1;
+
+    /**
+     * Called for each timer as it becomes due
+     */
+    public interface Handler {
+        void due(int key);
+    }
+
+    private final int mask;
+    private final int[][] slots;
+    private final int[] slotSizes;
+    // Step each key is due on, or NONE
+    private final long[] dueStep;
+    private long step;
+    private int pending;
+
+    /**
+     * @param keys     Keys run from 0 to keys - 1
+     * @param maxDelay The longest delay that will be scheduled
+     */
+    public StepTimers(int keys, int maxDelay) {
+        int size = Integer.highestOneBit(Math.max(1, maxDelay)) << 1;
+        this.mask = size - 1;
+        this.slots = new int[size][4];
+        this.slotSizes = new int[size];
+        this.dueStep = new long[keys];
+        Arrays.fill(dueStep, NONE);
+    }
+
+    /**
+     * Start (or restart) the timer of a key, due after the given number of steps (at least 1)
+     */
+    public void schedule(int key, int delay) {
+        if (delay < 1 || delay > mask) {
+            throw new IllegalArgumentException("Delay " + delay + " outside 1.." + mask);
+        }
+        if (dueStep[key] == NONE) {
+            pending++;
+        }
+        long due = step + delay;
+        dueStep[key] = due;
+        int slot = (int) (due & mask);
+        if (slotSizes[slot] == slots[slot].length) {
+            slots[slot] = Arrays.copyOf(slots[slot], slotSizes[slot] * 2);
+        }
+        slots[slot][slotSizes[slot]++] = key;
+    }
+
+    public void cancel(int key) {
+        if (dueStep[key] != NONE) {
+            dueStep[key] = NONE;
+            pending--;
+        }
+    }
+
+    public boolean isScheduled(int key) {
+        return dueStep[key] != NONE;
+    }
+
+    /**
+     * @return Steps until the key's timer is due, or -1 if it has none
+     */
+    public int remaining(int key) {
+        return dueStep[key] == NONE ? -1 : (int) (dueStep[key] - step);
+    }
+
+    /**
+     * Whether any timer is running
+     */
+    public boolean isEmpty() {
+        return pending == 0;
+    }
+
+    /**
+     * Count one step and hand every timer due on it to the handler; those timers are
+     * finished before the handler runs, so it may schedule them again
+     */
+    public void advance(Handler handler) {
+        step++;
+        int slot = (int) (step & mask);
+        int size = slotSizes[slot];
+        if (size == 0) {
+            return;
+        }
+        int[] keys = slots[slot];
+        slotSizes[slot] = 0;
+        for (int i = 0; i < size; i++) {
+            int key = keys[i];
+            if (dueStep[key] == step) {
+                dueStep[key] = NONE;
+                pending--;
+                handler.due(key);
+            }
+        }
+    }
+
+    /**
+     * Cancel every timer
+     */
+    public void clear() {
+        Arrays.fill(dueStep, NONE);
+        Arrays.fill(slotSizes, 0);
+        pending = 0;
+    }
+}
@@ -0,0 +1,91 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class BoardCodecTest {
+    private static final int[] CELLS = {0, MapModel.CAO_CAO, MapModel.GUAN_YU, MapModel.GENERAL,
+            MapModel.SOLDIER, MapModel.ZHOU_YU, MapModel.BLOCKED, MapModel.MILITARY_CAMP};
+
+    private static int[][] randomBoard(Random random, int rows, int cols) {
+        int[][] board = new int[rows][cols];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                board[r][c] = CELLS[random.nextInt(CELLS.length)];
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Every cell code survives encode and decode on every board size up to 8x8, including
+     * the cells that straddle two longs
+     */
+    @Test
+    void decodeReturnsEncodedBoard() {
+        Random random = new Random(29);
+        for (int rows = 2; rows <= 8; rows++) {
+            for (int cols = 2; cols <= 8; cols++) {
+                for (int i = 0; i < 50; i++) {
+                    int[][] board = randomBoard(random, rows, cols);
+                    long[] packed = new long[BoardCodec.wordsFor(rows, cols) + 1];
+                    BoardCodec.encode(board, packed, 1);
+                    int[][] decoded = new int[rows][cols];
+                    BoardCodec.decode(packed, 1, decoded);
+                    assertArrayEquals(board, decoded, rows + "x" + cols);
+                }
+            }
+        }
+    }
+
+    /**
+     * Setting single cells of a packed board gives the same longs as packing the edited board
+     */
+    @Test
+    void setMatchesEncode() {
+        Random random = new Random(30);
+        int rows = 7;
+        int cols = 6;
+        int[][] board = randomBoard(random, rows, cols);
+        long[] packed = new long[BoardCodec.wordsFor(rows, cols)];
+        BoardCodec.encode(board, packed, 0);
+        long[] expected = new long[packed.length];
+        for (int i = 0; i < 1000; i++) {
+            int row = random.nextInt(rows);
+            int col = random.nextInt(cols);
+            board[row][col] = CELLS[random.nextInt(CELLS.length)];
+            BoardCodec.set(packed, 0, row * cols + col, board[row][col]);
+            BoardCodec.encode(board, expected, 0);
+            assertArrayEquals(expected, packed, "edit " + i);
+        }
+    }
+
+    /**
+     * Ids are dense and stable across growth, and lookups find every key and nothing else
+     */
+    @Test
+    void stateTableFindsEveryKey() {
+        Random random = new Random(31);
+        int words = BoardCodec.wordsFor(7, 6);
+        StateTable table = new StateTable(words, 16);
+        long[][] keys = new long[50_000][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new long[words];
+            BoardCodec.encode(randomBoard(random, 7, 6), keys[i], 0);
+            assertEquals(-1, table.indexOf(keys[i]));
+            assertEquals(i, table.add(keys[i]));
+        }
+
+        long[] out = new long[words];
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, table.indexOf(keys[i]));
+            table.get(i, out);
+            assertArrayEquals(keys[i], out);
+        }
+        assertEquals(keys.length, table.size());
+    }
+}
@@ -0,0 +1,72 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class DeadlockDetectorTest {
+    // Zhou Yu walled into the bottom row across the exit by two camps
+    private static final int[][] PINNED = {
+            {MapModel.GENERAL, MapModel.CAO_CAO, MapModel.CAO_CAO, MapModel.GENERAL, 0},
+            {MapModel.GENERAL, MapModel.CAO_CAO, MapModel.CAO_CAO, MapModel.GENERAL, 0},
+            {MapModel.SOLDIER, MapModel.GUAN_YU, MapModel.GUAN_YU, MapModel.SOLDIER, 0},
+            {MapModel.GENERAL, MapModel.SOLDIER, MapModel.SOLDIER, MapModel.GENERAL, 0},
+            {MapModel.MILITARY_CAMP, 0, 0, MapModel.MILITARY_CAMP, 0},
+            {MapModel.ZHOU_YU, MapModel.ZHOU_YU, MapModel.ZHOU_YU, 0, 0}
+    };
+
+    static IntStream levels() {
+        return IntStream.range(0, MapModel.LEVELS.length);
+    }
+
+    /**
+     * Pruning must never cut a state a real solution passes through
+     */
+    @ParameterizedTest
+    @MethodSource("levels")
+    void neverFlagsStateOnSolutionPath(int level) {
+        int[][] board = PuzzleRules.copyBoard(MapModel.LEVELS[level]);
+        DeadlockDetector detector = new DeadlockDetector(board);
+        SolverStrategy.Result result = SolverPortfolio.createDefault().solve(PuzzleRules.copyBoard(board)).getWinner();
+        assertNotNull(result, MapModel.LEVEL_NAMES[level]);
+
+        assertFalse(detector.isDead(board));
+        for (AISolver.Move move : result.moves) {
+            int type = board[move.row][move.col];
+            board = PuzzleRules.applyMoveCopy(board, move);
+            assertFalse(detector.isDeadPlacement(type, move.row + move.direction.getRow(),
+                    move.col + move.direction.getCol()), () -> MapModel.LEVEL_NAMES[level] + ": " + move);
+            assertFalse(detector.isDead(board), () -> MapModel.LEVEL_NAMES[level] + ": " + move);
+        }
+        assertTrue(PuzzleRules.isGoal(board));
+    }
+
+    /**
+     * On a board the detector proves dead, BFS answers without expanding a state instead of
+     * running into its state limit
+     */
+    @Test
+    void prunesPinnedBoard() {
+        DeadlockDetector detector = new DeadlockDetector(PINNED);
+        assertFalse(detector.isGoalSealed());
+        assertTrue(detector.isDead(PINNED));
+
+        SolverStrategy.Result pruned = new BreadthFirstSolver(100_000, true)
+                .solve(PuzzleRules.copyBoard(PINNED), new AtomicBoolean());
+        SolverStrategy.Result unpruned = new BreadthFirstSolver(100_000, false)
+                .solve(PuzzleRules.copyBoard(PINNED), new AtomicBoolean());
+
+        assertFalse(pruned.solved);
+        assertFalse(pruned.isInconclusive());
+        assertEquals(0, pruned.statesExplored);
+        assertTrue(unpruned.limitReached, unpruned::toString);
+    }
+}
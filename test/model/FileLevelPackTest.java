@@ -0,0 +1,101 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileLevelPackTest {
+    @TempDir
+    File dir;
+
+    private static String level(String name, int builtIn) {
+        return new JSONObject().put("name", name).put("board", new JSONArray(MapModel.LEVELS[builtIn])).toString();
+    }
+
+    private File write(String text, long modified) throws IOException {
+        File file = new File(dir, "pack.jsonl");
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(modified));
+        return file;
+    }
+
+    private static File indexOf(File pack) {
+        return new File(pack.getPath() + ".idx");
+    }
+
+    @Test
+    void indexSkipsBlankAndCommentLines() throws IOException {
+        File file = write("# two levels\n" + level("A", 0) + "\n\n   \n" + level("B", 1) + "\n", 1_000_000_000L);
+
+        try (FileLevelPack pack = FileLevelPack.open(file)) {
+            assertEquals(2, pack.size());
+            assertEquals("A", pack.get(0).getName());
+            assertEquals("B", pack.get(1).getName());
+            assertArrayEquals(MapModel.LEVELS[1], pack.get(1).getBoard());
+        }
+        assertTrue(indexOf(file).isFile());
+    }
+
+    /**
+     * An edited pack gets a new index even when its length stays the same, as long as the
+     * modification time moved
+     */
+    @Test
+    void editedPackIsReindexed() throws IOException {
+        File file = write(level("A", 0) + "\n" + level("B", 1) + "\n", 1_000_000_000L);
+        try (FileLevelPack pack = FileLevelPack.open(file)) {
+            assertEquals("B", pack.get(1).getName());
+        }
+        byte[] before = Files.readAllBytes(indexOf(file).toPath());
+
+        // Same length, levels swapped
+        write(level("B", 1) + "\n" + level("A", 0) + "\n", 1_000_002_000L);
+        try (FileLevelPack pack = FileLevelPack.open(file)) {
+            assertEquals(2, pack.size());
+            assertEquals("B", pack.get(0).getName());
+            assertEquals("A", pack.get(1).getName());
+        }
+        assertNotEquals(new String(before, StandardCharsets.ISO_8859_1),
+                new String(Files.readAllBytes(indexOf(file).toPath()), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void grownPackIsReindexed() throws IOException {
+        File file = write(level("A", 0) + "\n", 1_000_000_000L);
+        try (FileLevelPack pack = FileLevelPack.open(file)) {
+            assertEquals(1, pack.size());
+        }
+
+        write(level("A", 0) + "\n" + level("C", 2) + "\n", 1_000_000_000L);
+        try (FileLevelPack pack = FileLevelPack.open(file)) {
+            assertEquals(2, pack.size());
+            assertEquals("C", pack.get(1).getName());
+        }
+    }
+
+    @Test
+    void damagedIndexIsRebuilt() throws IOException {
+        File file = write(level("A", 0) + "\n" + level("B", 1) + "\n", 1_000_000_000L);
+        FileLevelPack.open(file).close();
+        try (RandomAccessFile index = new RandomAccessFile(indexOf(file), "rw")) {
+            index.setLength(index.length() - 3);
+        }
+
+        try (FileLevelPack pack = FileLevelPack.open(file)) {
+            assertEquals(2, pack.size());
+            assertEquals("B", pack.get(1).getName());
+        }
+    }
+}
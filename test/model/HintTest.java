@@ -0,0 +1,25 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class HintTest {
+
+    /**
+     * The hint runs on a snapshot off the EDT; the moves it returns must still be legal
+     * when played from the board it was given
+     */
+    @Test
+    void hintMovesArePlayable() {
+        GameEngine engine = new GameEngine(LevelPack.builtIn(), 1);
+
+        List<AISolver.Move> hint = AISolver.findHint(engine.getModel().copyMatrix(),
+                engine.getPropCount(Prop.PropType.OBSTACLE_REMOVER), engine.getRemovedObstacles(), 3);
+
+        assertEquals(3, hint.size());
+        Replays.play(1, hint);
+    }
+}
@@ -0,0 +1,63 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+class PropAwareSolverTest {
+    private static final int HARD = 1;
+
+    /**
+     * Hard's shortest plan is 33 slides; spending the level's one remover on the right
+     * obstacle cuts it to 23 slides and the removal
+     */
+    @Test
+    void removerShortensHard() {
+        int[][] board = new GameEngine(LevelPack.builtIn(), HARD).getModel().copyMatrix();
+
+        SolverStrategy.Result pure = new BreadthFirstSolver().solve(board, new AtomicBoolean());
+        SolverStrategy.Result withRemover = new PropAwareSolver(1, Collections.emptyList(), 20_000_000)
+                .solve(board, new AtomicBoolean());
+
+        assertTrue(pure.solved, pure::toString);
+        assertEquals(33, pure.moves.size());
+        assertTrue(withRemover.solved, withRemover::toString);
+        assertEquals(1, removals(withRemover.moves));
+        assertEquals(23, withRemover.moves.size() - removals(withRemover.moves));
+        assertTrue(Replays.play(HARD, withRemover.moves).isWon());
+    }
+
+    /**
+     * With the state limit AISolver uses, the remover search runs out of states on Hard; the
+     * plan without removals must still come back rather than no solution
+     */
+    @Test
+    void removerNeverDoesWorseThanNone() {
+        int[][] board = new GameEngine(LevelPack.builtIn(), HARD).getModel().copyMatrix();
+
+        SolverStrategy.Result none = new PropAwareSolver(0, Collections.emptyList(), 5_000_000)
+                .solve(board, new AtomicBoolean());
+        SolverStrategy.Result one = new PropAwareSolver(1, Collections.emptyList(), 5_000_000)
+                .solve(board, new AtomicBoolean());
+
+        assertTrue(none.solved, none::toString);
+        assertTrue(one.solved, one::toString);
+        assertTrue(one.moves.size() <= none.moves.size(), one::toString);
+        assertTrue(Replays.play(HARD, one.moves).isWon());
+    }
+
+    private static int removals(List<AISolver.Move> moves) {
+        int count = 0;
+        for (AISolver.Move move : moves) {
+            if (move.isObstacleRemoval()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,47 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Plays solver output through GameEngine, so a test checks solutions against the rules
+ * the player gets and not against the solver's own model of them.
+ */
+final class Replays {
+    private Replays() {
+    }
+
+    /**
+     * Start the built-in level and play the moves, failing on the first one the engine refuses
+     *
+     * @return the engine after the last move
+     */
+    static GameEngine play(int level, List<AISolver.Move> moves) {
+        GameEngine engine = new GameEngine(LevelPack.builtIn(), level);
+        for (int i = 0; i < moves.size(); i++) {
+            AISolver.Move move = moves.get(i);
+            boolean accepted = move.isObstacleRemoval()
+                    ? engine.removeObstacle(move.row, move.col)
+                    : engine.move(move.row, move.col, move.direction);
+            int step = i;
+            assertTrue(accepted, () -> MapModel.LEVEL_NAMES[level] + ": step " + step + " (" + move
+                    + ") was refused");
+        }
+        return engine;
+    }
+
+    /**
+     * Play seeded random legal moves, so a test gets a game with history that is the same
+     * on every run
+     */
+    static void walk(GameEngine engine, long seed, int moves) {
+        Random random = new Random(seed);
+        for (int i = 0; i < moves; i++) {
+            List<AISolver.Move> legal = PuzzleRules.legalMoves(engine.getModel().copyMatrix());
+            AISolver.Move move = legal.get(random.nextInt(legal.size()));
+            assertTrue(engine.move(move.row, move.col, move.direction), () -> "Refused " + move);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SaveGameTest {
+    private static final int HARD = 1;
+
+    @TempDir
+    File dir;
+
+    /**
+     * A Hard game with moves, a removed obstacle and time attack on, saved the way
+     * GameController does it
+     */
+    private static GameEngine playedGame() {
+        return playedGame(2);
+    }
+
+    private static GameEngine playedGame(int movesAfterRemoval) {
+        GameEngine engine = new GameEngine(LevelPack.builtIn(), HARD);
+        Replays.walk(engine, 7, 12);
+        assertTrue(engine.removeObstacle(5, 3));
+        Replays.walk(engine, 8, movesAfterRemoval);
+        return engine;
+    }
+
+    private static SaveGame snapshot(GameEngine engine) {
+        return new SaveGame("alice", null, engine.getLevelIndex(), engine.getMoveCount(),
+                engine.getModel().copyMatrix(), engine.getPropCounts(), engine.getRemovedObstacles(), 5, 123,
+                engine.getHistoryBoards());
+    }
+
+    @Test
+    void encodeDecodeKeepsEveryField() throws IOException {
+        SaveGame save = snapshot(playedGame());
+
+        SaveGame loaded = SaveGame.decode(save.encode());
+
+        assertSameSave(save, loaded);
+    }
+
+    @Test
+    void fileRoundTrip() throws IOException {
+        SaveGame save = snapshot(playedGame());
+        File file = new File(dir, "slot.ksav");
+
+        save.writeTo(file);
+
+        assertSameSave(save, SaveGame.readFrom(file));
+    }
+
+    /**
+     * A restored game is the same game: same board, props and obstacle timers, and undo
+     * walks back through the same boards and gives the remover back, also when the
+     * removal was the last thing done before saving
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, 2})
+    void restoredGameMatchesOriginal(int movesAfterRemoval) throws IOException {
+        GameEngine original = playedGame(movesAfterRemoval);
+        GameEngine restored = new GameEngine(LevelPack.builtIn(), 0);
+        restored.restore(LevelPack.builtIn(), HARD, SaveGame.decode(snapshot(original).encode()));
+
+        assertArrayEquals(original.getBoard(), restored.getBoard());
+        assertEquals(original.getMoveCount(), restored.getMoveCount());
+        assertEquals(original.getPropCounts(), restored.getPropCounts());
+        assertEquals(cells(original.getRemovedObstacles()), cells(restored.getRemovedObstacles()));
+        while (original.canUndo()) {
+            assertTrue(restored.canUndo());
+            original.undo();
+            restored.undo();
+            assertArrayEquals(original.getBoard(), restored.getBoard());
+            assertEquals(original.getPropCounts(), restored.getPropCounts());
+            assertEquals(original.getMoveCount(), restored.getMoveCount());
+        }
+        assertFalse(restored.canUndo());
+    }
+
+    @Test
+    void everyFlippedByteIsDetected() {
+        byte[] data = snapshot(playedGame()).encode();
+        for (int i = 0; i < data.length; i++) {
+            byte[] damaged = data.clone();
+            damaged[i] ^= 0x10;
+            assertThrows(IOException.class, () -> SaveGame.decode(damaged), "byte " + i);
+        }
+    }
+
+    @Test
+    void everyTruncationIsDetected() {
+        byte[] data = snapshot(playedGame()).encode();
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = Arrays.copyOf(data, length);
+            assertThrows(IOException.class, () -> SaveGame.decode(truncated), length + " bytes");
+        }
+    }
+
+    @Test
+    void checksumMismatchIsReported() {
+        byte[] data = snapshot(playedGame()).encode();
+        data[data.length / 2] ^= 0x01;
+
+        IOException error = assertThrows(IOException.class, () -> SaveGame.decode(data));
+        assertTrue(error.getMessage().contains("checksum"), error.getMessage());
+    }
+
+    private static void assertSameSave(SaveGame expected, SaveGame actual) {
+        assertEquals(expected.getUsername(), actual.getUsername());
+        assertNull(actual.getPackPath());
+        assertEquals(expected.getLevelIndex(), actual.getLevelIndex());
+        assertEquals(expected.getMoveCount(), actual.getMoveCount());
+        assertArrayEquals(expected.getBoard(), actual.getBoard());
+        assertEquals(expected.getProps(), actual.getProps());
+        assertEquals(cells(expected.getRemovedObstacles()), cells(actual.getRemovedObstacles()));
+        assertEquals(expected.getTimeLimitMinutes(), actual.getTimeLimitMinutes());
+        assertEquals(expected.getTimeLeftSeconds(), actual.getTimeLeftSeconds());
+        assertEquals(expected.getHistory().size(), actual.getHistory().size());
+        for (int i = 0; i < expected.getHistory().size(); i++) {
+            assertArrayEquals(expected.getHistory().get(i), actual.getHistory().get(i), "history " + i);
+        }
+    }
+
+    private static String cells(List<int[]> obstacles) {
+        StringBuilder text = new StringBuilder();
+        for (int[] obstacle : obstacles) {
+            text.append(Arrays.toString(obstacle));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SolverPortfolioTest {
+
+    static IntStream levels() {
+        return IntStream.range(0, MapModel.LEVELS.length);
+    }
+
+    /**
+     * Every built-in level must be solved by the portfolio the AI Solve button starts, within
+     * its default deadline, and the winning moves must win the game when played
+     */
+    @ParameterizedTest
+    @MethodSource("levels")
+    void defaultPortfolioSolvesBuiltInLevel(int level) {
+        GameEngine engine = new GameEngine(LevelPack.builtIn(), level);
+        int removers = engine.getPropCount(Prop.PropType.OBSTACLE_REMOVER);
+        // As AISolver builds it for a player who still holds every prop of the level
+        SolverPortfolio portfolio = removers > 0
+                ? SolverPortfolio.createDefault(new PropAwareSolver(removers, engine.getRemovedObstacles(), 5_000_000))
+                : SolverPortfolio.createDefault();
+
+        SolverPortfolio.PortfolioResult result = portfolio.solve(engine.getModel().copyMatrix());
+
+        assertNotNull(result.getWinner(), () -> MapModel.LEVEL_NAMES[level] + ": " + result);
+        assertTrue(Replays.play(level, result.getWinner().moves).isWon(),
+                () -> MapModel.LEVEL_NAMES[level] + ": " + result.getWinnerName() + " did not win");
+    }
+}
@@ -0,0 +1,65 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SolverStrategiesTest {
+    private static final long DEADLINE_MILLIS = 5000;
+    // Time a cancelled strategy may take to notice the flag
+    private static final long CANCEL_SLACK_MILLIS = 2000;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "test-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static Stream<Arguments> levelsAndStrategies() {
+        int strategies = SolverPortfolio.defaultStrategies().size();
+        return IntStream.range(0, MapModel.LEVELS.length).boxed()
+                .flatMap(level -> IntStream.range(0, strategies).mapToObj(strategy -> Arguments.of(level, strategy)));
+    }
+
+    @AfterAll
+    static void stopTimer() {
+        TIMER.shutdownNow();
+    }
+
+    /**
+     * Every built-in level is solvable, so within the deadline each portfolio strategy must
+     * either find moves that win the game when played, or give up; never report no solution
+     */
+    @ParameterizedTest
+    @MethodSource("levelsAndStrategies")
+    void strategySolvesOrGivesUp(int level, int strategy) {
+        SolverStrategy solver = SolverPortfolio.defaultStrategies().get(strategy);
+        AtomicBoolean cancel = new AtomicBoolean(false);
+        ScheduledFuture<?> stop = TIMER.schedule(() -> cancel.set(true), DEADLINE_MILLIS, TimeUnit.MILLISECONDS);
+        SolverStrategy.Result result;
+        try {
+            result = solver.solve(PuzzleRules.copyBoard(MapModel.LEVELS[level]), cancel);
+        } finally {
+            stop.cancel(false);
+        }
+
+        String name = MapModel.LEVEL_NAMES[level] + " " + result;
+        assertTrue(result.getElapsedMillis() < DEADLINE_MILLIS + CANCEL_SLACK_MILLIS, name);
+        if (result.solved) {
+            assertTrue(Replays.play(level, result.moves).isWon(), name);
+        } else {
+            assertTrue(result.isInconclusive(), () -> name + " claims the level has no solution");
+        }
+    }
+}
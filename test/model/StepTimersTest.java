@@ -0,0 +1,137 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class StepTimersTest {
+
+    @Test
+    void timerFiresAfterExactlyItsDelay() {
+        StepTimers timers = new StepTimers(8, 3);
+        List<Integer> fired = new ArrayList<>();
+        timers.schedule(5, 3);
+
+        timers.advance(fired::add);
+        timers.advance(fired::add);
+        assertEquals(1, timers.remaining(5));
+        assertTrue(fired.isEmpty());
+
+        timers.advance(fired::add);
+        assertEquals(Arrays.asList(5), fired);
+        assertFalse(timers.isScheduled(5));
+        assertEquals(-1, timers.remaining(5));
+        assertTrue(timers.isEmpty());
+    }
+
+    @Test
+    void rescheduleReplacesTheOldDueStep() {
+        StepTimers timers = new StepTimers(8, 3);
+        List<Integer> fired = new ArrayList<>();
+        timers.schedule(2, 1);
+        timers.schedule(2, 3);
+
+        timers.advance(fired::add);
+        timers.advance(fired::add);
+        assertTrue(fired.isEmpty());
+        timers.advance(fired::add);
+
+        assertEquals(Arrays.asList(2), fired);
+        assertTrue(timers.isEmpty());
+    }
+
+    @Test
+    void cancelledTimerNeverFires() {
+        StepTimers timers = new StepTimers(8, 3);
+        List<Integer> fired = new ArrayList<>();
+        timers.schedule(1, 2);
+        timers.schedule(4, 2);
+        timers.cancel(1);
+
+        timers.advance(fired::add);
+        timers.advance(fired::add);
+
+        assertEquals(Arrays.asList(4), fired);
+        assertTrue(timers.isEmpty());
+    }
+
+    /**
+     * A handler that schedules its key again, as a waiting obstacle does, gets it back later
+     */
+    @Test
+    void handlerMayScheduleAgain() {
+        StepTimers timers = new StepTimers(4, 3);
+        List<Integer> firedOn = new ArrayList<>();
+        int[] step = {0};
+        timers.schedule(0, 3);
+        for (step[0] = 1; step[0] <= 9; step[0]++) {
+            timers.advance(key -> {
+                firedOn.add(step[0]);
+                timers.schedule(key, 3);
+            });
+        }
+
+        assertEquals(Arrays.asList(3, 6, 9), firedOn);
+    }
+
+    @Test
+    void delayOutsideTheWheelIsRejected() {
+        StepTimers timers = new StepTimers(4, 3);
+
+        assertThrows(IllegalArgumentException.class, () -> timers.schedule(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> timers.schedule(0, 4));
+    }
+
+    /**
+     * Random schedules, cancels and steps against a plain array of countdowns
+     */
+    @Test
+    void matchesCountdownModel() {
+        int keys = 42;
+        int maxDelay = 7;
+        Random random = new Random(50);
+        StepTimers timers = new StepTimers(keys, maxDelay);
+        int[] left = new int[keys];
+        Arrays.fill(left, -1);
+
+        for (int round = 0; round < 20_000; round++) {
+            int key = random.nextInt(keys);
+            int action = random.nextInt(4);
+            if (action == 0) {
+                int delay = 1 + random.nextInt(maxDelay);
+                timers.schedule(key, delay);
+                left[key] = delay;
+            } else if (action == 1) {
+                timers.cancel(key);
+                left[key] = -1;
+            } else {
+                List<Integer> expected = new ArrayList<>();
+                for (int k = 0; k < keys; k++) {
+                    if (left[k] > 0 && --left[k] == 0) {
+                        expected.add(k);
+                        left[k] = -1;
+                    }
+                }
+                List<Integer> fired = new ArrayList<>();
+                timers.advance(fired::add);
+                fired.sort(null);
+                assertEquals(expected, fired, "round " + round);
+            }
+
+            boolean any = false;
+            for (int k = 0; k < keys; k++) {
+                assertEquals(left[k], timers.remaining(k), "round " + round + " key " + k);
+                any |= left[k] > 0;
+            }
+            assertEquals(!any, timers.isEmpty());
+        }
+    }
+}
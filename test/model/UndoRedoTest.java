@@ -0,0 +1,115 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class UndoRedoTest {
+    private static final int HARD = 1;
+
+    /**
+     * Board, move count, props and obstacle timers after one step of a game
+     */
+    private static String state(GameEngine engine) {
+        StringBuilder text = new StringBuilder(Arrays.deepToString(engine.getBoard()))
+                .append(' ').append(engine.getMoveCount())
+                .append(' ').append(engine.getPropCounts());
+        for (int[] obstacle : engine.getRemovedObstacles()) {
+            text.append(' ').append(Arrays.toString(obstacle));
+        }
+        return text.toString();
+    }
+
+    /**
+     * A Hard game that removes an obstacle and plays on until it comes back, with the
+     * state after every step
+     */
+    private static List<String> play(GameEngine engine) {
+        List<String> states = new ArrayList<>();
+        states.add(state(engine));
+        for (int i = 0; i < 6; i++) {
+            Replays.walk(engine, i, 1);
+            states.add(state(engine));
+        }
+        assertTrue(engine.removeObstacle(5, 3));
+        states.add(state(engine));
+        for (int i = 0; i < GameEngine.OBSTACLE_REMOVAL_STEPS + 4; i++) {
+            Replays.walk(engine, 100 + i, 1);
+            states.add(state(engine));
+        }
+        return states;
+    }
+
+    /**
+     * Undoing every step walks back through exactly the states the game went through, and
+     * redoing them all comes forward through the same states again
+     */
+    @Test
+    void undoAndRedoRetraceTheGame() {
+        GameEngine engine = new GameEngine(LevelPack.builtIn(), HARD);
+        List<String> states = play(engine);
+
+        for (int i = states.size() - 1; i > 0; i--) {
+            assertEquals(states.get(i), state(engine), "before undo " + i);
+            assertNotNull(engine.undo());
+        }
+        assertEquals(states.get(0), state(engine));
+        assertFalse(engine.canUndo());
+        assertNull(engine.undo());
+
+        for (int i = 1; i < states.size(); i++) {
+            assertNotNull(engine.redo());
+            assertEquals(states.get(i), state(engine), "after redo " + i);
+        }
+        assertFalse(engine.canRedo());
+    }
+
+    /**
+     * The pieces the engine tracks follow undo and redo, so a later move is judged on the
+     * board the player sees
+     */
+    @Test
+    void piecesFollowUndo() {
+        GameEngine engine = new GameEngine(LevelPack.builtIn(), HARD);
+        play(engine);
+        for (int i = 0; i < 5; i++) {
+            engine.undo();
+        }
+
+        PieceLayout fresh = PieceLayout.of(engine.getModel().copyMatrix());
+        PieceLayout tracked = engine.getModel().getPieces();
+        int[][] board = engine.getBoard();
+        for (int r = 0; r < board.length; r++) {
+            for (int c = 0; c < board[0].length; c++) {
+                assertEquals(origin(fresh.pieceAt(r, c)), origin(tracked.pieceAt(r, c)), "cell " + r + "," + c);
+            }
+        }
+        Replays.walk(engine, 5, 10);
+    }
+
+    @Test
+    void newMoveClearsRedo() {
+        GameEngine engine = new GameEngine(LevelPack.builtIn(), HARD);
+        Replays.walk(engine, 1, 4);
+        engine.undo();
+        engine.undo();
+        assertTrue(engine.canRedo());
+
+        Replays.walk(engine, 2, 1);
+
+        assertFalse(engine.canRedo());
+        assertEquals(3, engine.getMoveCount());
+    }
+
+    private static String origin(PieceLayout.Piece piece) {
+        return piece == null ? "none" : piece.getType() + "@" + piece.getRow() + "," + piece.getCol();
+    }
+}
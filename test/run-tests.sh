@@ -0,0 +1,18 @@
+#!/bin/sh
+# Compile the game together with the tests and run them on the JUnit console launcher.
+#
+# Usage: test/run-tests.sh [launcher options], e.g. test/run-tests.sh --include-classname='.*SaveGame.*'
+set -e
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+OUT="${TMPDIR:-/tmp}/klotski-test"
+JUNIT="$ROOT/lib/junit-platform-console-standalone-1.13.0-M3.jar"
+CP="$ROOT/json.jar:$JUNIT"
+
+rm -rf "$OUT"
+mkdir -p "$OUT/classes"
+find "$ROOT" -name '*.java' -not -path "$ROOT/out/*" > "$OUT/sources.txt"
+javac -encoding UTF-8 -nowarn -d "$OUT/classes" -cp "$CP" @"$OUT/sources.txt"
+
+java -Xmx2g $JAVA_OPTS -jar "$JUNIT" execute --disable-banner --details=tree \
+    --class-path "$OUT/classes:$ROOT/json.jar" --scan-class-path "$@"
@@ -0,0 +1,321 @@
+package tools;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.AISolver;
+import model.AStarSolver;
+import model.BeamSearchSolver;
+import model.BreadthFirstSolver;
+import model.IterativeDeepeningSolver;
+import model.PuzzleRules;
+import model.SolverPortfolio;
+import model.SolverStrategy;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Headless batch solver for validating level packs offline.
+ *
+ * Reads one board per line, either as a bare matrix ([[3,1,1,3],...]) or as an object
+ * ({"id": "pack-1", "board": [[...]]}), solves the boards in parallel and writes one JSON
+ * result per line as soon as each board finishes. The throughput summary goes to stderr
+ * so stdout stays machine-readable.
+ *
+ * An unsolved board is reported as timedOut (the deadline cut it short), limitReached
+ * (the strategy stopped at its own state or depth cap) or neither, which means the search
+ * was exhausted and the board really has no solution.
+ *
+ * Usage: java -cp .:json.jar tools.BatchSolver [options] [input-file]
+ *   --strategy=astar|bfs|ida|beam|portfolio  (default bfs)
+ *   --deadline=MILLIS                        per-board time limit (default 10000)
+ *   --threads=N                              solver threads (default: all cores); a portfolio
+ *                                            board takes one per strategy
+ *   --out=FILE                               write results to a file instead of stdout
+ */
+public class BatchSolver {
+    private final String strategy;
+    private final long deadlineMillis;
+    private final int threads;
+
+    private final AtomicInteger solved = new AtomicInteger();
+    private final AtomicInteger gaveUp = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong totalStates = new AtomicLong();
+
+    public BatchSolver(String strategy, long deadlineMillis, int threads) {
+        this.strategy = strategy;
+        this.deadlineMillis = deadlineMillis;
+        this.threads = threads;
+        createStrategy(); // Fail fast on an unknown name
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String strategy = "bfs";
+        long deadline = 10_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String input = null;
+        String output = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--strategy=")) {
+                strategy = arg.substring("--strategy=".length());
+            } else if (arg.startsWith("--deadline=")) {
+                deadline = Long.parseLong(arg.substring("--deadline=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Math.max(1, Integer.parseInt(arg.substring("--threads=".length())));
+            } else if (arg.startsWith("--out=")) {
+                output = arg.substring("--out=".length());
+            } else if (arg.startsWith("--")) {
+                System.err.println("Unknown option " + arg);
+                System.exit(2);
+            } else {
+                input = arg;
+            }
+        }
+
+        BatchSolver batch;
+        try {
+            batch = new BatchSolver(strategy, deadline, threads);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        // The solvers log progress to System.out; keep that off the JSON stream
+        PrintStream results = System.out;
+        System.setOut(System.err);
+
+        try (Reader reader = input != null ? new FileReader(input) : new InputStreamReader(System.in);
+             PrintWriter writer = output != null ? new PrintWriter(new FileWriter(output))
+                     : new PrintWriter(results)) {
+            batch.run(new BufferedReader(reader), writer);
+        }
+    }
+
+    /**
+     * Solve every board from the reader and stream the results to the writer
+     */
+    public void run(BufferedReader reader, PrintWriter writer) throws IOException, InterruptedException {
+        // Every portfolio board runs its strategies on threads of their own, so fewer boards run at once
+        int workerCount = strategy.equalsIgnoreCase("portfolio")
+                ? Math.max(1, threads / PortfolioStrategy.SIZE) : threads;
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, daemon("batch-solver"));
+        ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(daemon("batch-deadline"));
+        // Bounded hand-off so a huge input file is never held in memory at once
+        Semaphore inFlight = new Semaphore(workerCount * 2);
+        long start = System.nanoTime();
+        int boards = 0;
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int index = boards++;
+            String id;
+            int[][] board;
+            try {
+                Object record = line.startsWith("[") ? new JSONArray(line) : new JSONObject(line);
+                id = record instanceof JSONObject ? ((JSONObject) record).optString("id", String.valueOf(index))
+                        : String.valueOf(index);
+                board = parseBoard(record instanceof JSONObject ? ((JSONObject) record).getJSONArray("board")
+                        : (JSONArray) record);
+            } catch (JSONException | IllegalArgumentException e) {
+                failed.incrementAndGet();
+                emit(writer, new JSONObject()
+                        .put("index", index)
+                        .put("line", lineNumber)
+                        .put("error", e.getMessage()));
+                continue;
+            }
+
+            inFlight.acquire();
+            workers.execute(() -> {
+                try {
+                    emit(writer, solveOne(index, id, board, deadlines));
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                    emit(writer, new JSONObject().put("index", index).put("id", id)
+                            .put("error", String.valueOf(e)));
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        deadlines.shutdownNow();
+        writer.flush();
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.err.printf("%.1f boards/sec - %d boards (%d solved, %d unsolved, %d gave up, %d errors) in %.2f s, "
+                        + "%d threads, strategy %s, %d states explored%n",
+                boards / Math.max(seconds, 1e-9), boards, solved.get(),
+                boards - solved.get() - gaveUp.get() - failed.get(), gaveUp.get(),
+                failed.get(), seconds, threads, strategy, totalStates.get());
+    }
+
+    private JSONObject solveOne(int index, String id, int[][] board, ScheduledExecutorService deadlines) {
+        SolverStrategy solver = createStrategy();
+        AtomicBoolean cancel = new AtomicBoolean(false);
+        ScheduledFuture<?> stop = deadlines.schedule(() -> cancel.set(true), deadlineMillis, TimeUnit.MILLISECONDS);
+        SolverStrategy.Result result;
+        try {
+            result = solver.solve(board, cancel);
+        } finally {
+            stop.cancel(false);
+        }
+
+        boolean valid = result.solved && solver.isValidSolution(board, result.moves);
+        if (valid) {
+            solved.incrementAndGet();
+        } else if (result.isInconclusive()) {
+            gaveUp.incrementAndGet();
+        }
+        totalStates.addAndGet(result.statesExplored);
+
+        JSONArray solution = new JSONArray();
+        if (valid) {
+            for (AISolver.Move move : result.moves) {
+                solution.put(new JSONArray(Arrays.asList(move.row, move.col,
+                        move.isObstacleRemoval() ? "REMOVE" : move.direction.name())));
+            }
+        }
+        return new JSONObject()
+                .put("index", index)
+                .put("id", id)
+                .put("strategy", result.strategyName)
+                .put("solved", valid)
+                .put("timedOut", !valid && result.cancelled)
+                .put("limitReached", !valid && result.limitReached)
+                .put("length", valid ? result.moves.size() : -1)
+                .put("states", result.statesExplored)
+                .put("millis", result.getElapsedMillis())
+                .put("solution", solution);
+    }
+
+    private SolverStrategy createStrategy() {
+        switch (strategy.toLowerCase()) {
+            case "astar":
+                return new AStarSolver();
+            case "bfs":
+                return new BreadthFirstSolver();
+            case "ida":
+                return new IterativeDeepeningSolver();
+            case "beam":
+                return new BeamSearchSolver();
+            case "portfolio":
+                return new PortfolioStrategy(deadlineMillis);
+            default:
+                throw new IllegalArgumentException("Unknown strategy " + strategy
+                        + " (expected astar, bfs, ida, beam or portfolio)");
+        }
+    }
+
+    /**
+     * Parse and sanity-check a rectangular board matrix
+     */
+    static int[][] parseBoard(JSONArray rows) {
+        if (rows.length() == 0) {
+            throw new IllegalArgumentException("Empty board");
+        }
+        int width = rows.getJSONArray(0).length();
+        int[][] board = new int[rows.length()][width];
+        for (int r = 0; r < rows.length(); r++) {
+            JSONArray row = rows.getJSONArray(r);
+            if (row.length() != width) {
+                throw new IllegalArgumentException("Row " + r + " has " + row.length() + " cells, expected " + width);
+            }
+            for (int c = 0; c < width; c++) {
+                board[r][c] = row.getInt(c);
+            }
+        }
+        if (board.length < 2 || width < 2) {
+            throw new IllegalArgumentException("Board must be at least 2x2");
+        }
+        return board;
+    }
+
+    private static void emit(PrintWriter writer, JSONObject result) {
+        synchronized (writer) {
+            writer.println(result.toString());
+            writer.flush();
+        }
+    }
+
+    private static java.util.concurrent.ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The default portfolio wrapped as a single strategy, with its own per-board deadline
+     */
+    private static class PortfolioStrategy implements SolverStrategy {
+        // Strategies raced per board, each on its own thread
+        static final int SIZE = SolverPortfolio.defaultStrategies().size();
+
+        private final long deadlineMillis;
+
+        PortfolioStrategy(long deadlineMillis) {
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        @Override
+        public String getName() {
+            return "Portfolio";
+        }
+
+        @Override
+        public Result solve(int[][] board, AtomicBoolean cancel) {
+            SolverPortfolio portfolio = new SolverPortfolio(SolverPortfolio.defaultStrategies(),
+                    deadlineMillis, SolverPortfolio.Mode.FIRST_VALID);
+            SolverPortfolio.PortfolioResult report = portfolio.solve(PuzzleRules.copyBoard(board), cancel);
+            int states = 0;
+            boolean cancelled = false;
+            boolean limitReached = false;
+            boolean exhausted = false;
+            for (Result run : report.getRuns()) {
+                states += run.statesExplored;
+                cancelled |= run.cancelled;
+                limitReached |= run.limitReached;
+                exhausted |= !run.solved && !run.isInconclusive();
+            }
+            Result winner = report.getWinner();
+            if (winner != null) {
+                return new Result(report.getWinnerName(), winner.moves, true, false, states,
+                        report.getElapsedMillis() * 1_000_000L);
+            }
+            // One exhausted run proves there is no solution; otherwise say why the others stopped
+            return new Result(report.getWinnerName(), null, false, !exhausted && cancelled,
+                    !exhausted && !cancelled && limitReached, states, report.getElapsedMillis() * 1_000_000L);
+        }
+    }
+}
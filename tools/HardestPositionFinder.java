@@ -0,0 +1,306 @@
+package tools;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.BoardCodec;
+import model.Direction;
+import model.MapModel;
+import model.PuzzleRules;
+import model.StateTable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Finds the starting positions farthest from a solution for one board topology.
+ *
+ * The topology is taken from a template board: its size, its fixed cells (obstacles and
+ * camps) and its piece set. Every solved arrangement of that piece set is enumerated, then
+ * a single breadth-first search runs backwards from all of them at once. Because moves are
+ * reversible, the BFS depth of a board is exactly its optimal solution length.
+ *
+ * Boards are packed by BoardCodec into a StateTable, and ids are handed out in BFS order,
+ * so each layer is a contiguous id range: the table is the whole search state (no queue,
+ * no parents, no per-board objects). A 6x7 board costs two longs plus its hash slots,
+ * about 21 bytes: the Hard topology (5x6, about 54M boards) needs -Xmx4g.
+ *
+ * Prints the distance histogram and the max-distance boards as JSON lines.
+ *
+ * Usage: java -cp .:json.jar tools.HardestPositionFinder [options]
+ *   --level=N           use MapModel.LEVELS[N] as the template (default 0)
+ *   --board=JSON        or give the template matrix directly
+ *   --top=N             how many max-distance boards to print (default 10)
+ *   --maxStates=N       give up beyond this many boards (default 200000000)
+ *   --out=FILE          write the report to a file instead of stdout
+ */
+public class HardestPositionFinder {
+    private final int height;
+    private final int width;
+    private final int[][] fixedCells;
+    private final Map<Integer, Integer> pieceCounts;
+    private final int maxStates;
+
+    private StateTable table;
+    private final List<Integer> histogram = new ArrayList<>();
+    private int lastLayerStart;
+
+    public HardestPositionFinder(int[][] template, int maxStates) {
+        this.height = template.length;
+        this.width = template[0].length;
+        this.maxStates = maxStates;
+
+        fixedCells = new int[height][width];
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                if (PuzzleRules.isFixedCell(template[r][c])) {
+                    fixedCells[r][c] = template[r][c];
+                }
+            }
+        }
+        pieceCounts = new LinkedHashMap<>();
+        for (int[] piece : PuzzleRules.findPieces(template)) {
+            pieceCounts.merge(piece[2], 1, Integer::sum);
+        }
+        if (pieceCounts.getOrDefault(MapModel.CAO_CAO, 0) != 1) {
+            throw new IllegalArgumentException("Template must contain exactly one Cao Cao");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[][] template = MapModel.LEVELS[0];
+        int top = 10;
+        int maxStates = 200_000_000;
+        String output = null;
+
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--level=")) {
+                template = MapModel.LEVELS[Integer.parseInt(value)];
+            } else if (arg.startsWith("--board=")) {
+                template = BatchSolver.parseBoard(new JSONArray(value));
+            } else if (arg.startsWith("--top=")) {
+                top = Integer.parseInt(value);
+            } else if (arg.startsWith("--maxStates=")) {
+                maxStates = Integer.parseInt(value);
+            } else if (arg.startsWith("--out=")) {
+                output = value;
+            } else {
+                System.err.println("Unknown option " + arg);
+                System.exit(2);
+            }
+        }
+
+        HardestPositionFinder finder = new HardestPositionFinder(template, maxStates);
+        long start = System.nanoTime();
+        boolean complete = finder.search();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        try (PrintWriter writer = output != null ? new PrintWriter(new FileWriter(output)) : new PrintWriter(System.out)) {
+            finder.report(writer, top, complete, seconds);
+        }
+    }
+
+    /**
+     * Run the backward search
+     *
+     * @return false if it stopped at maxStates (the histogram is then a prefix)
+     */
+    public boolean search() {
+        int words = BoardCodec.wordsFor(height, width);
+        table = new StateTable(words, 1 << 16);
+        histogram.clear();
+
+        int[][] board = new int[height][width];
+        for (int r = 0; r < height; r++) {
+            board[r] = fixedCells[r].clone();
+        }
+        int goalRow = PuzzleRules.goalRow(height);
+        int goalCol = PuzzleRules.goalCol(width);
+        if (!fits(board, goalRow, goalCol, 2, 2)) {
+            return true; // The exit is covered by fixed cells, nothing is solvable
+        }
+        fill(board, goalRow, goalCol, 2, 2, MapModel.CAO_CAO);
+
+        Map<Integer, Integer> remaining = new LinkedHashMap<>(pieceCounts);
+        remaining.put(MapModel.CAO_CAO, 0);
+        int pieceArea = 0;
+        for (Map.Entry<Integer, Integer> entry : remaining.entrySet()) {
+            pieceArea += entry.getValue() * PuzzleRules.pieceWidth(entry.getKey()) * PuzzleRules.pieceHeight(entry.getKey());
+        }
+        int freeCells = 0;
+        for (int[] row : board) {
+            for (int cell : row) {
+                if (cell == 0) {
+                    freeCells++;
+                }
+            }
+        }
+        if (pieceArea > freeCells) {
+            return true;
+        }
+        long[] key = new long[words];
+        enumerateGoals(board, 0, remaining, freeCells - pieceArea, key);
+        System.err.println("HardestPositionFinder: " + table.size() + " solved arrangements");
+
+        // Layered BFS: ids [layerStart, layerEnd) are exactly the boards at the current depth
+        int layerStart = 0;
+        while (layerStart < table.size()) {
+            int layerEnd = table.size();
+            histogram.add(layerEnd - layerStart);
+            lastLayerStart = layerStart;
+            for (int id = layerStart; id < layerEnd; id++) {
+                table.get(id, key);
+                BoardCodec.decode(key, 0, board);
+                expand(board, key);
+                if (table.size() > maxStates) {
+                    return false;
+                }
+            }
+            System.err.println("HardestPositionFinder: depth " + (histogram.size() - 1) + " - "
+                    + (layerEnd - layerStart) + " boards, " + table.size() + " total");
+            layerStart = layerEnd;
+        }
+        return true;
+    }
+
+    private void expand(int[][] board, long[] key) {
+        for (int[] piece : PuzzleRules.findPieces(board)) {
+            int pieceWidth = PuzzleRules.pieceWidth(piece[2]);
+            int pieceHeight = PuzzleRules.pieceHeight(piece[2]);
+            for (Direction dir : Direction.values()) {
+                if (!PuzzleRules.canMove(board, piece[0], piece[1], pieceWidth, pieceHeight, dir)) {
+                    continue;
+                }
+                PuzzleRules.applyMove(board, piece[0], piece[1], pieceWidth, pieceHeight, dir);
+                BoardCodec.encode(board, key, 0);
+                PuzzleRules.applyMove(board, piece[0] + dir.getRow(), piece[1] + dir.getCol(),
+                        pieceWidth, pieceHeight, dir.opposite());
+                if (table.indexOf(key) < 0) {
+                    table.add(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Place the remaining pieces in every possible way. Cells are filled in row-major order
+     * and each free cell is either left empty or becomes the top-left of a piece, so every
+     * arrangement is produced exactly once.
+     */
+    private void enumerateGoals(int[][] board, int cell, Map<Integer, Integer> remaining, int emptiesLeft,
+                                long[] key) {
+        while (cell < height * width && board[cell / width][cell % width] != 0) {
+            cell++;
+        }
+        if (cell == height * width) {
+            setReserved(board, -1, 0);
+            BoardCodec.encode(board, key, 0);
+            setReserved(board, 0, -1);
+            if (table.indexOf(key) < 0) {
+                table.add(key);
+            }
+            return;
+        }
+        int row = cell / width;
+        int col = cell % width;
+
+        if (emptiesLeft > 0) {
+            board[row][col] = -1; // Reserved as empty while the rest is filled
+            enumerateGoals(board, cell + 1, remaining, emptiesLeft - 1, key);
+            board[row][col] = 0;
+        }
+        for (Map.Entry<Integer, Integer> entry : remaining.entrySet()) {
+            int type = entry.getKey();
+            if (entry.getValue() == 0) {
+                continue;
+            }
+            int pieceWidth = PuzzleRules.pieceWidth(type);
+            int pieceHeight = PuzzleRules.pieceHeight(type);
+            if (!fits(board, row, col, pieceWidth, pieceHeight)) {
+                continue;
+            }
+            fill(board, row, col, pieceWidth, pieceHeight, type);
+            entry.setValue(entry.getValue() - 1);
+            enumerateGoals(board, cell + 1, remaining, emptiesLeft, key);
+            entry.setValue(entry.getValue() + 1);
+            fill(board, row, col, pieceWidth, pieceHeight, 0);
+        }
+    }
+
+    private void setReserved(int[][] board, int from, int to) {
+        for (int[] row : board) {
+            for (int c = 0; c < row.length; c++) {
+                if (row[c] == from) {
+                    row[c] = to;
+                }
+            }
+        }
+    }
+
+    private boolean fits(int[][] board, int row, int col, int pieceWidth, int pieceHeight) {
+        if (row < 0 || col < 0 || row + pieceHeight > height || col + pieceWidth > width) {
+            return false;
+        }
+        for (int i = 0; i < pieceHeight; i++) {
+            for (int j = 0; j < pieceWidth; j++) {
+                if (board[row + i][col + j] != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void fill(int[][] board, int row, int col, int pieceWidth, int pieceHeight, int value) {
+        for (int i = 0; i < pieceHeight; i++) {
+            for (int j = 0; j < pieceWidth; j++) {
+                board[row + i][col + j] = value;
+            }
+        }
+    }
+
+    /**
+     * Write the summary, the histogram and up to top max-distance boards
+     */
+    public void report(PrintWriter writer, int top, boolean complete, double seconds) {
+        int maxDistance = histogram.size() - 1;
+        JSONObject summary = new JSONObject()
+                .put("width", width)
+                .put("height", height)
+                .put("states", table.size())
+                .put("maxDistance", maxDistance)
+                .put("complete", complete)
+                .put("seconds", Math.round(seconds * 1000) / 1000.0);
+        JSONArray counts = new JSONArray();
+        for (int count : histogram) {
+            counts.put(count);
+        }
+        summary.put("histogram", counts);
+        writer.println(summary.toString());
+
+        if (maxDistance < 0) {
+            return;
+        }
+        long[] key = new long[table.width()];
+        int[][] board = new int[height][width];
+        int end = complete ? table.size() : lastLayerStart + histogram.get(maxDistance);
+        for (int id = lastLayerStart; id < end && id < lastLayerStart + top; id++) {
+            table.get(id, key);
+            BoardCodec.decode(key, 0, board);
+            JSONArray rows = new JSONArray();
+            for (int[] row : board) {
+                JSONArray cells = new JSONArray();
+                for (int cell : row) {
+                    cells.put(cell);
+                }
+                rows.put(cells);
+            }
+            writer.println(new JSONObject().put("optimal", maxDistance).put("board", rows).toString());
+        }
+    }
+}
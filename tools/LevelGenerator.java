@@ -0,0 +1,494 @@
+package tools;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.BoardCodec;
+import model.DifficultyRater;
+import model.Direction;
+import model.MapModel;
+import model.PuzzleRules;
+import model.StateTable;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Generates random solvable levels by searching backwards from a solved layout.
+ *
+ * Each candidate starts as a solved board: Cao Cao on the exit and the rest of the piece
+ * mix scattered at random. A breadth-first search explores every board reachable from it
+ * (moves are reversible, so this is exactly the set of boards that can reach it), then a
+ * second BFS from all solved boards in that set gives every board's optimal solution
+ * length. The start is the farthest board whose length falls inside the target band, so
+ * every emitted level is solvable and its optimal length is known exactly.
+ *
+ * Output is one JSON object per line ({"board": [[...]], "optimal": n, "difficulty": d, ...}),
+ * which tools.BatchSolver reads directly. The difficulty comes from model.DifficultyRater.
+ *
+ * Some settings can never be met (a band longer than any board of the piece mix reaches,
+ * pieces that do not fit), so the run stops at a candidate or time limit and reports how
+ * many levels it actually produced; the exit status is 1 if that is fewer than --count.
+ *
+ * Usage: java -cp .:json.jar tools.LevelGenerator [options]
+ *   --width=4 --height=5                   board size (default 4x5)
+ *   --pieces=general:4,guan:1,soldier:4    piece mix besides Cao Cao; also zhou, blocked, camp
+ *   --min=20 --max=80                      band of optimal solution lengths
+ *   --count=100                            levels to generate
+ *   --threads=N                            worker threads (default: all cores)
+ *   --seed=S                               base random seed (default 1)
+ *   --maxStates=200000                     skip candidates with larger state spaces
+ *   --maxCandidates=N                      give up after N candidates (default 1000 per level, 0: no limit)
+ *   --seconds=0                            give up after this long (0: no limit)
+ *   --out=FILE                             write levels to a file instead of stdout
+ */
+public class LevelGenerator {
+    private static final int PLACEMENT_ATTEMPTS = 50;
+    // Default candidate budget for each level asked for
+    private static final int CANDIDATES_PER_LEVEL = 1000;
+
+    private final int width;
+    private final int height;
+    private final Map<Integer, Integer> pieceMix;
+    private final int minLength;
+    private final int maxLength;
+    private final int maxStates;
+    private final DifficultyRater rater;
+
+    private final AtomicLong candidates = new AtomicLong();
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    public LevelGenerator(int width, int height, Map<Integer, Integer> pieceMix,
+                          int minLength, int maxLength, int maxStates) {
+        if (width < 2 || height < 2) {
+            throw new IllegalArgumentException("Board must be at least 2x2");
+        }
+        this.width = width;
+        this.height = height;
+        this.pieceMix = new LinkedHashMap<>(pieceMix);
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.maxStates = maxStates;
+        this.rater = new DifficultyRater(maxStates, 2);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int width = 4;
+        int height = 5;
+        String pieces = "general:4,guan:1,soldier:4";
+        int min = 20;
+        int max = 80;
+        int count = 100;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        int maxStates = 200_000;
+        long maxCandidates = -1;
+        long seconds = 0;
+        String output = null;
+
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--width=")) {
+                width = Integer.parseInt(value);
+            } else if (arg.startsWith("--height=")) {
+                height = Integer.parseInt(value);
+            } else if (arg.startsWith("--pieces=")) {
+                pieces = value;
+            } else if (arg.startsWith("--min=")) {
+                min = Integer.parseInt(value);
+            } else if (arg.startsWith("--max=")) {
+                max = Integer.parseInt(value);
+            } else if (arg.startsWith("--count=")) {
+                count = Integer.parseInt(value);
+            } else if (arg.startsWith("--threads=")) {
+                threads = Math.max(1, Integer.parseInt(value));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--maxStates=")) {
+                maxStates = Integer.parseInt(value);
+            } else if (arg.startsWith("--maxCandidates=")) {
+                maxCandidates = Long.parseLong(value);
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Long.parseLong(value);
+            } else if (arg.startsWith("--out=")) {
+                output = value;
+            } else {
+                System.err.println("Unknown option " + arg);
+                System.exit(2);
+            }
+        }
+
+        LevelGenerator generator;
+        try {
+            generator = new LevelGenerator(width, height, parsePieceMix(pieces), min, max, maxStates);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        if (maxCandidates < 0) {
+            maxCandidates = CANDIDATES_PER_LEVEL * (long) count;
+        }
+
+        PrintStream results = System.out;
+        System.setOut(System.err);
+        int produced;
+        try (PrintWriter writer = output != null ? new PrintWriter(new FileWriter(output)) : new PrintWriter(results)) {
+            produced = generator.generate(count, threads, seed, maxCandidates, seconds * 1000, writer);
+        }
+        if (produced < count) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Generate levels on all worker threads until count have been written, or a limit is
+     * reached
+     *
+     * @param maxCandidates Stop after trying this many candidates, 0 for no limit
+     * @param timeLimitMillis Stop after this long, 0 for no limit
+     * @return The number of levels written
+     */
+    public int generate(int count, int threads, long seed, long maxCandidates, long timeLimitMillis,
+                        PrintWriter writer) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicBoolean limitReached = new AtomicBoolean();
+        long start = System.nanoTime();
+        long deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1_000_000 : Long.MAX_VALUE;
+
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(seed * 1_000_003L + t);
+            workers.execute(() -> {
+                while (accepted.get() < count && !limitReached.get()) {
+                    if ((maxCandidates > 0 && candidates.get() >= maxCandidates) || System.nanoTime() > deadline) {
+                        limitReached.set(true);
+                        break;
+                    }
+                    JSONObject level = tryGenerate(random);
+                    if (level != null && accepted.incrementAndGet() <= count) {
+                        synchronized (writer) {
+                            writer.println(level.toString());
+                            writer.flush();
+                        }
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        int produced = Math.min(count, accepted.get());
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        System.err.printf("%.0f levels/min - %d levels from %d candidates in %.2f s on %d threads%n",
+                produced * 60 / Math.max(seconds, 1e-9), produced, candidates.get(), seconds, threads);
+        if (produced < count && limitReached.get()) {
+            System.err.printf("Stopped at the %s limit after %d of %d levels%n",
+                    System.nanoTime() > deadline ? "time" : "candidate", produced, count);
+        }
+        return produced;
+    }
+
+    /**
+     * Build one candidate and rate it
+     *
+     * @return the level as JSON, or null if the candidate was rejected
+     */
+    JSONObject tryGenerate(Random random) {
+        candidates.incrementAndGet();
+        int[][] solved = randomSolvedBoard(random);
+        if (solved == null) {
+            return null;
+        }
+
+        Component component = explore(solved);
+        if (component == null) {
+            return null; // State space over budget
+        }
+        int[] distances = component.distancesFromGoals();
+
+        // Farthest boards inside the band, one picked at random
+        int best = -1;
+        List<Integer> picks = new ArrayList<>();
+        for (int id = 0; id < distances.length; id++) {
+            int distance = distances[id];
+            if (distance < minLength || distance > maxLength || distance < best) {
+                continue;
+            }
+            if (distance > best) {
+                best = distance;
+                picks.clear();
+            }
+            picks.add(id);
+        }
+        if (picks.isEmpty()) {
+            return null;
+        }
+
+        int[][] start = component.board(picks.get(random.nextInt(picks.size())));
+        if (!seen.add(PuzzleRules.boardKey(start))) {
+            return null; // Already emitted by this run
+        }
+
+        DifficultyRater.Rating rating = rater.rate(start);
+        JSONArray rows = new JSONArray();
+        for (int[] row : start) {
+            JSONArray cells = new JSONArray();
+            for (int cell : row) {
+                cells.put(cell);
+            }
+            rows.put(cells);
+        }
+        return new JSONObject()
+                .put("board", rows)
+                .put("optimal", best)
+                .put("difficulty", Math.round(rating.difficulty * 10) / 10.0)
+                .put("states", component.size())
+                .put("goalStates", component.goalCount())
+                .put("branching", Math.round(rating.branchingFactor * 100) / 100.0)
+                .put("nearOptimalPaths", rating.nearOptimalPaths);
+    }
+
+    /**
+     * Cao Cao on the exit, then every other piece and fixed cell at a random free position
+     */
+    private int[][] randomSolvedBoard(Random random) {
+        int[][] board = new int[height][width];
+        int goalRow = PuzzleRules.goalRow(height);
+        int goalCol = PuzzleRules.goalCol(width);
+        if (goalCol < 0 || goalCol + 1 >= width) {
+            return null;
+        }
+        place(board, MapModel.CAO_CAO, goalRow, goalCol);
+
+        List<Integer> pieces = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : pieceMix.entrySet()) {
+            for (int i = 0; i < entry.getValue(); i++) {
+                pieces.add(entry.getKey());
+            }
+        }
+        // Large pieces first, they are the hardest to fit
+        Collections.sort(pieces, (a, b) -> PuzzleRules.pieceWidth(b) * PuzzleRules.pieceHeight(b)
+                - PuzzleRules.pieceWidth(a) * PuzzleRules.pieceHeight(a));
+
+        for (int type : pieces) {
+            int pieceWidth = PuzzleRules.isFixedCell(type) ? 1 : PuzzleRules.pieceWidth(type);
+            int pieceHeight = PuzzleRules.isFixedCell(type) ? 1 : PuzzleRules.pieceHeight(type);
+            boolean placed = false;
+            for (int attempt = 0; attempt < PLACEMENT_ATTEMPTS && !placed; attempt++) {
+                int row = random.nextInt(height - pieceHeight + 1);
+                int col = random.nextInt(width - pieceWidth + 1);
+                if (isFree(board, row, col, pieceWidth, pieceHeight)) {
+                    place(board, type, row, col);
+                    placed = true;
+                }
+            }
+            if (!placed) {
+                return null;
+            }
+        }
+        return board;
+    }
+
+    private static boolean isFree(int[][] board, int row, int col, int width, int height) {
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (board[row + i][col + j] != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void place(int[][] board, int type, int row, int col) {
+        int pieceWidth = PuzzleRules.isFixedCell(type) ? 1 : PuzzleRules.pieceWidth(type);
+        int pieceHeight = PuzzleRules.isFixedCell(type) ? 1 : PuzzleRules.pieceHeight(type);
+        for (int i = 0; i < pieceHeight; i++) {
+            for (int j = 0; j < pieceWidth; j++) {
+                board[row + i][col + j] = type;
+            }
+        }
+    }
+
+    /**
+     * Breadth-first search over every board reachable from the seed, recording the move graph
+     *
+     * @return the explored component, or null if it has more than maxStates boards
+     */
+    private Component explore(int[][] seed) {
+        int words = BoardCodec.wordsFor(height, width);
+        StateTable table = new StateTable(words, 1 << 12);
+        long[] key = new long[words];
+        BoardCodec.encode(seed, key, 0);
+        table.add(key);
+
+        int[] edgeStart = new int[1 << 12];
+        int[] edges = new int[1 << 14];
+        int edgeCount = 0;
+        List<Integer> goals = new ArrayList<>();
+        int[][] board = new int[height][width];
+
+        // Ids are handed out in discovery order, so the table doubles as the BFS queue
+        for (int id = 0; id < table.size(); id++) {
+            if (table.size() > maxStates) {
+                return null;
+            }
+            if (id + 1 >= edgeStart.length) {
+                edgeStart = Arrays.copyOf(edgeStart, edgeStart.length * 2);
+            }
+            edgeStart[id] = edgeCount;
+
+            table.get(id, key);
+            BoardCodec.decode(key, 0, board);
+            if (PuzzleRules.isGoal(board)) {
+                goals.add(id);
+            }
+
+            for (int[] piece : PuzzleRules.findPieces(board)) {
+                int pieceWidth = PuzzleRules.pieceWidth(piece[2]);
+                int pieceHeight = PuzzleRules.pieceHeight(piece[2]);
+                for (Direction dir : Direction.values()) {
+                    if (!PuzzleRules.canMove(board, piece[0], piece[1], pieceWidth, pieceHeight, dir)) {
+                        continue;
+                    }
+                    // Apply, encode and undo in place instead of copying the board
+                    PuzzleRules.applyMove(board, piece[0], piece[1], pieceWidth, pieceHeight, dir);
+                    BoardCodec.encode(board, key, 0);
+                    PuzzleRules.applyMove(board, piece[0] + dir.getRow(), piece[1] + dir.getCol(),
+                            pieceWidth, pieceHeight, dir.opposite());
+
+                    int next = table.indexOf(key);
+                    if (next < 0) {
+                        next = table.add(key);
+                    }
+                    if (edgeCount == edges.length) {
+                        edges = Arrays.copyOf(edges, edges.length * 2);
+                    }
+                    edges[edgeCount++] = next;
+                }
+            }
+        }
+        edgeStart[table.size()] = edgeCount;
+        return new Component(table, edgeStart, edges, goals, height, width);
+    }
+
+    /**
+     * Parse "general:4,guan:1,soldier:4" into piece type counts
+     */
+    static Map<Integer, Integer> parsePieceMix(String spec) {
+        Map<Integer, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Bad piece entry '" + part + "', expected name:count");
+            }
+            int type;
+            switch (pair[0].toLowerCase()) {
+                case "general":
+                    type = MapModel.GENERAL;
+                    break;
+                case "guan":
+                    type = MapModel.GUAN_YU;
+                    break;
+                case "soldier":
+                    type = MapModel.SOLDIER;
+                    break;
+                case "zhou":
+                    type = MapModel.ZHOU_YU;
+                    break;
+                case "blocked":
+                    type = MapModel.BLOCKED;
+                    break;
+                case "camp":
+                    type = MapModel.MILITARY_CAMP;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown piece '" + pair[0]
+                            + "' (expected general, guan, soldier, zhou, blocked or camp)");
+            }
+            mix.merge(type, Integer.parseInt(pair[1]), Integer::sum);
+        }
+        return mix;
+    }
+
+    /**
+     * One connected set of boards and the moves between them
+     */
+    private static class Component {
+        private final StateTable table;
+        private final int[] edgeStart;
+        private final int[] edges;
+        private final List<Integer> goals;
+        private final int height;
+        private final int width;
+
+        Component(StateTable table, int[] edgeStart, int[] edges, List<Integer> goals, int height, int width) {
+            this.table = table;
+            this.edgeStart = edgeStart;
+            this.edges = edges;
+            this.goals = goals;
+            this.height = height;
+            this.width = width;
+        }
+
+        int size() {
+            return table.size();
+        }
+
+        int goalCount() {
+            return goals.size();
+        }
+
+        /**
+         * Multi-source BFS from every solved board: each board's optimal solution length
+         */
+        int[] distancesFromGoals() {
+            int[] distances = new int[table.size()];
+            Arrays.fill(distances, -1);
+            int[] queue = new int[table.size()];
+            int head = 0;
+            int tail = 0;
+            for (int goal : goals) {
+                distances[goal] = 0;
+                queue[tail++] = goal;
+            }
+            while (head < tail) {
+                int id = queue[head++];
+                for (int e = edgeStart[id]; e < edgeStart[id + 1]; e++) {
+                    int next = edges[e];
+                    if (distances[next] < 0) {
+                        distances[next] = distances[id] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+            return distances;
+        }
+
+        int[][] board(int id) {
+            long[] key = new long[table.width()];
+            table.get(id, key);
+            int[][] board = new int[height][width];
+            BoardCodec.decode(key, 0, board);
+            return board;
+        }
+    }
+}
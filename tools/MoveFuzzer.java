@@ -0,0 +1,632 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import model.Direction;
+import model.GameEngine;
+import model.LevelDefinition;
+import model.LevelPack;
+import model.MapModel;
+import model.MoveHistory;
+import model.PieceLayout;
+import model.Prop;
+import model.PuzzleRules;
+
+/**
+ * Property-based fuzzer for the move rules of GameEngine.
+ *
+ * Worker threads play random sequences on every level of a pack: moves of real pieces,
+ * moves addressed to arbitrary cells and off-board directions (which must be refused),
+ * undo, redo and obstacle removal. After every step the board is checked against an
+ * independent model kept by the fuzzer:
+ * <ul>
+ *   <li>the move was accepted exactly when the reference rules allow it, and moved the
+ *       cells the reference rules say it moves</li>
+ *   <li>every piece type covers as many cells as at the start, and no two pieces overlap</li>
+ *   <li>camps are never lost: a camp cell is a camp or holds a soldier, and camps appear
+ *       nowhere else</li>
+ *   <li>obstacles only stand where the level put them, and each missing one has a timer</li>
+ *   <li>the engine's piece layout, move count and undo/redo agree with the reference</li>
+ * </ul>
+ * The first failing sequence is shrunk (delta debugging: drop ever smaller chunks of
+ * steps while it still fails) and printed as a replayable list of steps.
+ *
+ * History stays on, since undo and redo are under test; even so one core runs well over
+ * a million checked steps a second.
+ *
+ * Usage: java -cp . tools.MoveFuzzer [options]
+ *   --seconds=N         how long to run (default 60)
+ *   --threads=N         worker threads (default: all cores)
+ *   --length=N          steps per sequence before the level is reloaded (default 200)
+ *   --level=N           fuzz only this level of the built-in pack (default: all)
+ *   --seed=N            base random seed (default 1)
+ */
+public class MoveFuzzer {
+    private static final int MOVE = 0;
+    private static final int UNDO = 1;
+    private static final int REDO = 2;
+    private static final int REMOVE_OBSTACLE = 3;
+    // Enough Obstacle Removers that a sequence never runs out
+    private static final int FUZZ_REMOVERS = 1000;
+
+    private final LevelPack pack;
+    private final int[] levels;
+    private final int length;
+    private final long seed;
+
+    private final AtomicLong steps = new AtomicLong();
+    private final AtomicLong sequences = new AtomicLong();
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private final AtomicReference<Failure> failure = new AtomicReference<>();
+
+    /**
+     * A sequence of steps from a level's start that breaks an invariant
+     */
+    public static class Failure {
+        private final int level;
+        private final List<Integer> steps;
+        private final String message;
+
+        Failure(int level, List<Integer> steps, String message) {
+            this.level = level;
+            this.steps = steps;
+            this.message = message;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * The encoded steps; see describe()
+         */
+        public List<Integer> getSteps() {
+            return steps;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public MoveFuzzer(LevelPack pack, int[] levels, int length, long seed) {
+        this.pack = pack;
+        this.levels = levels;
+        this.length = length;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long seconds = 60;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int length = 200;
+        int level = -1;
+        long seed = 1;
+
+        for (String arg : args) {
+            String value = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--seconds=")) {
+                seconds = Long.parseLong(value);
+            } else if (arg.startsWith("--threads=")) {
+                threads = Math.max(1, Integer.parseInt(value));
+            } else if (arg.startsWith("--length=")) {
+                length = Math.max(1, Integer.parseInt(value));
+            } else if (arg.startsWith("--level=")) {
+                level = Integer.parseInt(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else {
+                System.err.println("Unknown option " + arg);
+                System.exit(2);
+            }
+        }
+
+        LevelPack pack = LevelPack.builtIn();
+        int[] levels;
+        if (level >= 0) {
+            if (level >= pack.size()) {
+                System.err.println("No level " + level + " (the pack has " + pack.size() + ")");
+                System.exit(2);
+            }
+            levels = new int[] {level};
+        } else {
+            levels = new int[pack.size()];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = i;
+            }
+        }
+
+        MoveFuzzer fuzzer = new MoveFuzzer(pack, levels, length, seed);
+        Failure found = fuzzer.run(threads, seconds * 1000);
+        if (found == null) {
+            return;
+        }
+        Failure shrunk = fuzzer.shrink(found);
+        System.out.println("FAILED on level " + shrunk.getLevel() + " (" + pack.get(shrunk.getLevel()).getName()
+                + ") after " + shrunk.getSteps().size() + " steps (shrunk from " + found.getSteps().size() + "):");
+        System.out.println("  " + shrunk.getMessage());
+        for (int step : shrunk.getSteps()) {
+            System.out.println("  " + describe(step));
+        }
+        System.exit(1);
+    }
+
+    /**
+     * Fuzz until the time is up or an invariant breaks
+     *
+     * @return The first failure found, not yet shrunk, or null
+     */
+    public Failure run(int threads, long millis) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "move-fuzzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            long workerSeed = seed * 1_000_003L + i;
+            workers.execute(() -> fuzz(new Random(workerSeed)));
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(millis, TimeUnit.MILLISECONDS)) {
+            stop.set(true);
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.err.printf("%d steps in %d sequences, %.1fs, %.0f steps/s on %d threads%n",
+                steps.get(), sequences.get(), elapsed, steps.get() / elapsed, threads);
+        return failure.get();
+    }
+
+    private void fuzz(Random random) {
+        List<Integer> played = new ArrayList<>(length);
+        while (!stop.get()) {
+            int level = levels[random.nextInt(levels.length)];
+            Checker checker = new Checker(pack, level);
+            played.clear();
+            for (int i = 0; i < length; i++) {
+                int step = checker.randomStep(random);
+                played.add(step);
+                String error = checker.play(step);
+                if (error != null) {
+                    failure.compareAndSet(null, new Failure(level, new ArrayList<>(played), error));
+                    stop.set(true);
+                    return;
+                }
+            }
+            steps.addAndGet(length);
+            sequences.incrementAndGet();
+        }
+    }
+
+    /**
+     * Play a sequence from the level's start
+     *
+     * @return The first invariant it breaks, or null
+     */
+    public String replay(int level, List<Integer> sequence) {
+        Checker checker = new Checker(pack, level);
+        for (int step : sequence) {
+            String error = checker.play(step);
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Make a failing sequence as short as possible while it still fails
+     */
+    public Failure shrink(Failure failure) {
+        List<Integer> sequence = failure.getSteps();
+        String message = failure.getMessage();
+        int chunks = 2;
+        while (sequence.size() >= 2) {
+            int chunk = (sequence.size() + chunks - 1) / chunks;
+            boolean reduced = false;
+            for (int from = 0; from < sequence.size(); from += chunk) {
+                List<Integer> candidate = new ArrayList<>(sequence.subList(0, from));
+                candidate.addAll(sequence.subList(Math.min(sequence.size(), from + chunk), sequence.size()));
+                String error = replay(failure.getLevel(), candidate);
+                if (error != null) {
+                    sequence = candidate;
+                    message = error;
+                    chunks = Math.max(chunks - 1, 2);
+                    reduced = true;
+                    break;
+                }
+            }
+            if (!reduced) {
+                if (chunks >= sequence.size()) {
+                    break;
+                }
+                chunks = Math.min(sequence.size(), chunks * 2);
+            }
+        }
+        return new Failure(failure.getLevel(), sequence, message);
+    }
+
+    private static int encode(int kind, int row, int col, Direction direction) {
+        return kind << 24 | row << 16 | col << 8 | (direction != null ? direction.ordinal() : 0);
+    }
+
+    /**
+     * A readable form of an encoded step, e.g. "move [3,0] DOWN" (0-based row and column)
+     */
+    public static String describe(int step) {
+        int row = step >> 16 & 0xff;
+        int col = step >> 8 & 0xff;
+        switch (step >>> 24) {
+            case MOVE:
+                return "move [" + row + "," + col + "] " + Direction.values()[step & 0xff];
+            case UNDO:
+                return "undo";
+            case REDO:
+                return "redo";
+            default:
+                return "remove obstacle [" + row + "," + col + "]";
+        }
+    }
+
+    /**
+     * One engine and the fuzzer's own model of what it should hold
+     */
+    private static class Checker {
+        private final GameEngine engine;
+        private final int height;
+        private final int width;
+        private final int[][] start;
+        private final int[] typeCells = new int[MapModel.ZHOU_YU + 1];
+
+        // Reference state: the pieces by index, their origins, and the move count
+        private final int[] pieceType;
+        private int[] pieceRow;
+        private int[] pieceCol;
+        private int moveCount;
+        // Reference undo and redo stacks: {board, piece rows, piece cols, move count}
+        private final List<Object[]> past = new ArrayList<>();
+        private final List<Object[]> future = new ArrayList<>();
+
+        private final int[][] expected;
+        private final int[][] claimed;
+        private int generation;
+
+        Checker(LevelPack pack, int level) {
+            engine = new GameEngine(pack, level);
+            Map<Prop.PropType, Integer> props = new EnumMap<>(Prop.PropType.class);
+            props.put(Prop.PropType.OBSTACLE_REMOVER, FUZZ_REMOVERS);
+            engine.setProps(props, Collections.emptyList());
+
+            LevelDefinition definition = pack.get(level);
+            start = definition.getBoard();
+            height = start.length;
+            width = start[0].length;
+            for (int[] row : start) {
+                for (int cell : row) {
+                    if (PuzzleRules.isMovablePiece(cell)) {
+                        typeCells[cell]++;
+                    }
+                }
+            }
+            List<PieceLayout.Piece> pieces = PieceLayout.of(start).getPieces();
+            pieceType = new int[pieces.size()];
+            pieceRow = new int[pieces.size()];
+            pieceCol = new int[pieces.size()];
+            for (int i = 0; i < pieces.size(); i++) {
+                pieceType[i] = pieces.get(i).getType();
+                pieceRow[i] = pieces.get(i).getRow();
+                pieceCol[i] = pieces.get(i).getCol();
+            }
+            expected = new int[height][width];
+            claimed = new int[height][width];
+        }
+
+        /**
+         * Mostly moves of real pieces, some moves from arbitrary cells, a little undo,
+         * redo and obstacle removal
+         */
+        int randomStep(Random random) {
+            int roll = random.nextInt(100);
+            Direction direction = Direction.values()[random.nextInt(4)];
+            if (roll < 75) {
+                int piece = random.nextInt(pieceType.length);
+                return encode(MOVE, pieceRow[piece], pieceCol[piece], direction);
+            } else if (roll < 85) {
+                return encode(MOVE, random.nextInt(height), random.nextInt(width), direction);
+            } else if (roll < 91) {
+                return encode(UNDO, 0, 0, null);
+            } else if (roll < 95) {
+                return encode(REDO, 0, 0, null);
+            } else {
+                return encode(REMOVE_OBSTACLE, random.nextInt(height), random.nextInt(width), null);
+            }
+        }
+
+        /**
+         * Apply one step to the engine and the reference, then compare them
+         *
+         * @return A description of the first broken invariant, or null
+         */
+        String play(int step) {
+            int row = step >> 16 & 0xff;
+            int col = step >> 8 & 0xff;
+            try {
+                String error;
+                switch (step >>> 24) {
+                    case MOVE:
+                        error = move(row, col, Direction.values()[step & 0xff]);
+                        break;
+                    case UNDO:
+                        error = rewind(past, future, true);
+                        break;
+                    case REDO:
+                        error = rewind(future, past, false);
+                        break;
+                    default:
+                        error = removeObstacle(row, col);
+                        break;
+                }
+                return error != null ? error : checkBoard();
+            } catch (RuntimeException e) {
+                return describe(step) + " threw " + e;
+            }
+        }
+
+        private String move(int row, int col, Direction direction) {
+            int[][] board = engine.getBoard();
+            int piece = pieceAt(row, col);
+            boolean legal = piece >= 0 && canMove(board, piece, direction);
+            if (legal) {
+                copy(board, expected);
+                applyMove(expected, piece, direction);
+            }
+            Object[] before = legal ? save(board) : null;
+            boolean moved = engine.move(row, col, direction);
+            if (moved != legal) {
+                return "move [" + row + "," + col + "] " + direction + " was " + (moved ? "accepted" : "refused")
+                        + " but the reference rules " + (legal ? "allow" : "forbid") + " it";
+            }
+            if (!legal) {
+                return null;
+            }
+            pieceRow[piece] += direction.getRow();
+            pieceCol[piece] += direction.getCol();
+            moveCount++;
+            past.add(before);
+            future.clear();
+            for (int r = 0; r < height; r++) {
+                for (int c = 0; c < width; c++) {
+                    // The move may also have brought back an obstacle on a free cell
+                    int actual = engine.getBoard()[r][c];
+                    boolean restored = actual == MapModel.BLOCKED && start[r][c] == MapModel.BLOCKED
+                            && (expected[r][c] == 0 || expected[r][c] == -MapModel.BLOCKED);
+                    if (actual != expected[r][c] && !restored) {
+                        return "move [" + row + "," + col + "] " + direction + " left " + actual + " at [" + r + ","
+                                + c + "], expected " + expected[r][c];
+                    }
+                }
+            }
+            if (engine.isWon() != (pieceType[piece] == MapModel.CAO_CAO && isGoal(piece))) {
+                return "win flag is " + engine.isWon() + " after moving piece " + piece + " to [" + pieceRow[piece]
+                        + "," + pieceCol[piece] + "]";
+            }
+            return null;
+        }
+
+        private String removeObstacle(int row, int col) {
+            int[][] board = engine.getBoard();
+            boolean legal = board[row][col] == MapModel.BLOCKED && engine.isPropAvailable(Prop.PropType.OBSTACLE_REMOVER);
+            Object[] before = legal ? save(board) : null;
+            boolean removed = engine.removeObstacle(row, col);
+            if (removed != legal) {
+                return "remove obstacle [" + row + "," + col + "] was " + (removed ? "accepted" : "refused");
+            }
+            if (removed) {
+                past.add(before);
+                future.clear();
+                if (board[row][col] != -MapModel.BLOCKED) {
+                    return "removed obstacle [" + row + "," + col + "] left " + board[row][col];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Undo or redo, and check the engine went back to the state the reference saved
+         */
+        private String rewind(List<Object[]> from, List<Object[]> to, boolean undo) {
+            String name = undo ? "undo" : "redo";
+            Object[] current = save(engine.getBoard());
+            MoveHistory.Step step = undo ? engine.undo() : engine.redo();
+            if ((step != null) == from.isEmpty()) {
+                return name + " returned " + step + " with " + from.size() + " steps to " + name;
+            }
+            if (step == null) {
+                return null;
+            }
+            to.add(current);
+            Object[] state = from.remove(from.size() - 1);
+            int[][] board = (int[][]) state[0];
+            if (!Arrays.deepEquals(board, engine.getBoard())) {
+                return name + " did not restore the board: " + Arrays.deepToString(engine.getBoard()) + ", expected "
+                        + Arrays.deepToString(board);
+            }
+            pieceRow = (int[]) state[1];
+            pieceCol = (int[]) state[2];
+            moveCount = (Integer) state[3];
+            return null;
+        }
+
+        private Object[] save(int[][] board) {
+            int[][] copy = new int[height][width];
+            copy(board, copy);
+            return new Object[] {copy, pieceRow.clone(), pieceCol.clone(), moveCount};
+        }
+
+        /**
+         * The invariants that hold after any step
+         */
+        private String checkBoard() {
+            int[][] board = engine.getBoard();
+            if (engine.getMoveCount() != moveCount) {
+                return "move count is " + engine.getMoveCount() + ", expected " + moveCount;
+            }
+
+            // Every piece covers cells of its own type, no cell is covered twice
+            generation++;
+            PieceLayout layout = engine.getModel().getPieces();
+            for (int piece = 0; piece < pieceType.length; piece++) {
+                int type = pieceType[piece];
+                int top = pieceRow[piece];
+                int left = pieceCol[piece];
+                for (int r = top; r < top + PuzzleRules.pieceHeight(type); r++) {
+                    for (int c = left; c < left + PuzzleRules.pieceWidth(type); c++) {
+                        if (board[r][c] != type) {
+                            return "piece " + piece + " (type " + type + ") at [" + top + "," + left + "] has "
+                                    + board[r][c] + " at [" + r + "," + c + "]";
+                        }
+                        if (claimed[r][c] == generation) {
+                            return "two pieces overlap at [" + r + "," + c + "]";
+                        }
+                        claimed[r][c] = generation;
+                    }
+                }
+                PieceLayout.Piece known = layout.pieceAt(top, left);
+                if (known == null || known.getRow() != top || known.getCol() != left || known.getType() != type) {
+                    return "engine piece layout lost piece " + piece + " (type " + type + ") at [" + top + ","
+                            + left + "]";
+                }
+            }
+
+            int[] cells = new int[typeCells.length];
+            List<int[]> removed = engine.getRemovedObstacles();
+            for (int r = 0; r < height; r++) {
+                for (int c = 0; c < width; c++) {
+                    int cell = board[r][c];
+                    if (PuzzleRules.isMovablePiece(cell)) {
+                        cells[cell]++;
+                        // Fragments that are not a whole piece never move
+                        if (claimed[r][c] != generation && start[r][c] != cell) {
+                            return "stray cell of type " + cell + " at [" + r + "," + c + "]";
+                        }
+                    }
+                    boolean camp = start[r][c] == MapModel.MILITARY_CAMP;
+                    if (camp && cell != MapModel.MILITARY_CAMP && cell != MapModel.SOLDIER) {
+                        return "camp at [" + r + "," + c + "] holds " + cell;
+                    }
+                    if (!camp && cell == MapModel.MILITARY_CAMP) {
+                        return "camp appeared at [" + r + "," + c + "]";
+                    }
+                    boolean obstacle = start[r][c] == MapModel.BLOCKED;
+                    if (!obstacle && (cell == MapModel.BLOCKED || cell == -MapModel.BLOCKED)) {
+                        return "obstacle " + cell + " appeared at [" + r + "," + c + "]";
+                    }
+                    if (obstacle && cell != MapModel.BLOCKED && !hasTimer(removed, r, c)) {
+                        return "obstacle at [" + r + "," + c + "] is " + cell + " with no timer to bring it back";
+                    }
+                    if (cell == MapModel.BLOCKED && hasTimer(removed, r, c)) {
+                        return "obstacle at [" + r + "," + c + "] is back but still has a timer";
+                    }
+                }
+            }
+            for (int type = 1; type < cells.length; type++) {
+                if (cells[type] != typeCells[type]) {
+                    return "type " + type + " covers " + cells[type] + " cells, expected " + typeCells[type];
+                }
+            }
+            for (int[] obstacle : removed) {
+                if (obstacle[2] < -1 || obstacle[2] > GameEngine.OBSTACLE_REMOVAL_STEPS) {
+                    return "obstacle timer at [" + obstacle[0] + "," + obstacle[1] + "] is " + obstacle[2];
+                }
+            }
+            return null;
+        }
+
+        private static boolean hasTimer(List<int[]> removed, int row, int col) {
+            for (int[] obstacle : removed) {
+                if (obstacle[0] == row && obstacle[1] == col) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int pieceAt(int row, int col) {
+            for (int piece = 0; piece < pieceType.length; piece++) {
+                if (pieceRow[piece] == row && pieceCol[piece] == col) {
+                    return piece;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * The reference rules: every cell the piece slides into must be empty, a removed
+         * obstacle, or (for a soldier) a camp
+         */
+        private boolean canMove(int[][] board, int piece, Direction direction) {
+            int type = pieceType[piece];
+            int top = pieceRow[piece] + direction.getRow();
+            int left = pieceCol[piece] + direction.getCol();
+            int bottom = top + PuzzleRules.pieceHeight(type);
+            int right = left + PuzzleRules.pieceWidth(type);
+            if (top < 0 || left < 0 || bottom > height || right > width) {
+                return false;
+            }
+            for (int r = top; r < bottom; r++) {
+                for (int c = left; c < right; c++) {
+                    int cell = board[r][c];
+                    boolean own = r - pieceRow[piece] >= 0 && r - pieceRow[piece] < PuzzleRules.pieceHeight(type)
+                            && c - pieceCol[piece] >= 0 && c - pieceCol[piece] < PuzzleRules.pieceWidth(type);
+                    if (own || cell == 0 || cell == -MapModel.BLOCKED
+                            || cell == MapModel.MILITARY_CAMP && type == MapModel.SOLDIER) {
+                        continue;
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void applyMove(int[][] board, int piece, Direction direction) {
+            int type = pieceType[piece];
+            int top = pieceRow[piece];
+            int left = pieceCol[piece];
+            for (int r = top; r < top + PuzzleRules.pieceHeight(type); r++) {
+                for (int c = left; c < left + PuzzleRules.pieceWidth(type); c++) {
+                    board[r][c] = start[r][c] == MapModel.MILITARY_CAMP ? MapModel.MILITARY_CAMP : 0;
+                }
+            }
+            top += direction.getRow();
+            left += direction.getCol();
+            for (int r = top; r < top + PuzzleRules.pieceHeight(type); r++) {
+                for (int c = left; c < left + PuzzleRules.pieceWidth(type); c++) {
+                    board[r][c] = type;
+                }
+            }
+        }
+
+        private boolean isGoal(int piece) {
+            return pieceRow[piece] == PuzzleRules.goalRow(height) && pieceCol[piece] == PuzzleRules.goalCol(width);
+        }
+
+        private static void copy(int[][] from, int[][] to) {
+            for (int r = 0; r < from.length; r++) {
+                System.arraycopy(from[r], 0, to[r], 0, from[r].length);
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package view.game;
 
+import model.Log;
+
 import javax.swing.Timer;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -24,6 +26,7 @@ public class AnimationHandler {
     private Timer timer;
     private long startTimeNano;
     private Runnable onComplete;
+    private boolean completed;
     private int blockType;
     private Direction moveDirection;
     private EasingType easingType = EasingType.EASE_OUT_CUBIC; // Default easing
@@ -50,7 +53,8 @@ public class AnimationHandler {
     private static final float DISTANCE_FACTOR = 0.9f; // How much distance affects duration
     
     // Debug and optimization settings
-    private static boolean DEBUG_OUTPUT = false; // Enable/disable debug console output
+    private static final Log LOG = Log.get(AnimationHandler.class);
+    private static boolean DEBUG_OUTPUT = false; // Enable/disable per-animation trace output
     private static boolean ANTI_JITTER = true;   // Enable jitter prevention at animation end
     
     /**
@@ -68,8 +72,8 @@ public class AnimationHandler {
         // Calculate the intended direction based on controller movement intent
         int deltaX = targetX - startX;
         int deltaY = targetY - startY;
-        if (DEBUG_OUTPUT) {
-            System.out.println("Original delta: (" + deltaX + "," + deltaY + ")");
+        if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+            LOG.trace("Original delta: (" + deltaX + "," + deltaY + ")");
         }
         
         // Force movement even if delta is incorrectly 0,0
@@ -84,8 +88,8 @@ public class AnimationHandler {
             this.targetX = startX + (moveDirection[0] * 70);
             this.targetY = startY + (moveDirection[1] * 70);
             
-            if (DEBUG_OUTPUT) {
-                System.out.println("FORCED MOVEMENT: Grid unit move in direction " + 
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("FORCED MOVEMENT: Grid unit move in direction " + 
                                  moveDirection[0] + "," + moveDirection[1]);
             }
         } else {
@@ -96,16 +100,16 @@ public class AnimationHandler {
                 int direction = deltaX > 0 ? 1 : -1;
                 this.targetX = startX + (direction * 70);
                 this.targetY = startY;
-                if (DEBUG_OUTPUT) {
-                    System.out.println("Normalized to exact 70px horizontal movement");
+                if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                    LOG.trace("Normalized to exact 70px horizontal movement");
                 }
             } else if (Math.abs(deltaY) > 0 && Math.abs(deltaX) == 0) {
                 // Vertical movement - standardize to 70 pixels
                 int direction = deltaY > 0 ? 1 : -1;
                 this.targetX = startX;
                 this.targetY = startY + (direction * 70);
-                if (DEBUG_OUTPUT) {
-                    System.out.println("Normalized to exact 70px vertical movement");
+                if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                    LOG.trace("Normalized to exact 70px vertical movement");
                 }
             } else {
                 // Use original values if not a clear horizontal/vertical movement
@@ -125,8 +129,8 @@ public class AnimationHandler {
             // Adaptive duration with a minimum value
             this.duration = Math.max(MIN_DURATION, 
                 (int)(BASE_DURATION + (distance * DISTANCE_FACTOR)));
-            if (DEBUG_OUTPUT) {
-                System.out.println("Adaptive animation duration: " + this.duration + "ms");
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("Adaptive animation duration: " + this.duration + "ms");
             }
         } else {
             this.duration = duration;
@@ -134,8 +138,8 @@ public class AnimationHandler {
         this.onComplete = onComplete;
         
         // Debug positions
-        if (DEBUG_OUTPUT) {
-            System.out.println("Animation initialized: startX=" + startX + ", startY=" + startY + 
+        if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+            LOG.trace("Animation initialized: startX=" + startX + ", startY=" + startY + 
                               ", targetX=" + this.targetX + ", targetY=" + this.targetY);
         }
         
@@ -149,13 +153,13 @@ public class AnimationHandler {
         
         if (diffX > diffY) {
             this.moveDirection = Direction.HORIZONTAL;
-            if (DEBUG_OUTPUT) {
-                System.out.println("HORIZONTAL MOVEMENT - Y will be fixed at " + fixedY);
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("HORIZONTAL MOVEMENT - Y will be fixed at " + fixedY);
             }
         } else {
             this.moveDirection = Direction.VERTICAL;
-            if (DEBUG_OUTPUT) {
-                System.out.println("VERTICAL MOVEMENT - X will be fixed at " + fixedX);
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("VERTICAL MOVEMENT - X will be fixed at " + fixedX);
             }
         }
         
@@ -313,8 +317,8 @@ public class AnimationHandler {
         }
         
         // Debug output (only if enabled)
-        if (DEBUG_OUTPUT) {
-            System.out.println("ANIMATION: progress=" + progress + 
+        if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+            LOG.trace("ANIMATION: progress=" + progress + 
                              ", direction=" + moveDirection +
                              ", position=[" + newX + "," + newY + "]");
         }
@@ -334,9 +338,17 @@ public class AnimationHandler {
                 box.setLocation(fixedX, targetY);
             }
             
-            if (onComplete != null) {
-                onComplete.run();
-            }
+            complete();
+        }
+    }
+    
+    private void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        if (onComplete != null) {
+            onComplete.run();
         }
     }
     
@@ -355,6 +367,30 @@ public class AnimationHandler {
         timer.stop();
     }
     
+    /**
+     * Jumps to the end of a running animation and runs the completion callback now
+     */
+    public void finish() {
+        if (completed) {
+            return;
+        }
+        timer.stop();
+        if (moveDirection == Direction.HORIZONTAL) {
+            box.setLocation(targetX, fixedY);
+        } else {
+            box.setLocation(fixedX, targetY);
+        }
+        box.repaint();
+        complete();
+    }
+    
+    /**
+     * @return true between start() and the completion callback
+     */
+    public boolean isRunning() {
+        return timer.isRunning() && !completed;
+    }
+    
     /**
      * Enables or disables debug output for all animations
      * 
@@ -407,15 +443,15 @@ public class AnimationHandler {
             // Left direction
             direction[0] = -1;
             direction[1] = 0;
-            if (DEBUG_OUTPUT) {
-                System.out.println("Detected LEFT intent from row/col and target");
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("Detected LEFT intent from row/col and target");
             }
         } else if (targetX > startX) {
             // Right direction
             direction[0] = 1;
             direction[1] = 0;
-            if (DEBUG_OUTPUT) {
-                System.out.println("Detected RIGHT intent from row/col and target");
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("Detected RIGHT intent from row/col and target");
             }
         } 
         // Check if key press intent was up/down
@@ -423,15 +459,15 @@ public class AnimationHandler {
             // Up direction
             direction[0] = 0;
             direction[1] = -1;
-            if (DEBUG_OUTPUT) {
-                System.out.println("Detected UP intent from row/col and target");
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("Detected UP intent from row/col and target");
             }
         } else if (targetY > startY) {
             // Down direction
             direction[0] = 0;
             direction[1] = 1;
-            if (DEBUG_OUTPUT) {
-                System.out.println("Detected DOWN intent from row/col and target");
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("Detected DOWN intent from row/col and target");
             }
         } 
         // Fallback - use controller-provided positions
@@ -440,8 +476,8 @@ public class AnimationHandler {
             // We just need to make SOME movement
             direction[0] = 1;
             direction[1] = 0;
-            if (DEBUG_OUTPUT) {
-                System.out.println("FALLBACK direction - defaulting to RIGHT");
+            if (DEBUG_OUTPUT && LOG.isTraceEnabled()) {
+                LOG.trace("FALLBACK direction - defaulting to RIGHT");
             }
         }
         
@@ -12,6 +12,7 @@ public class BoxComponent extends JComponent {
     private boolean isSelected;
     private boolean movable;
     private boolean isAnimating;
+    private int blockType; // Cell code this component shows, e.g. MapModel.CAO_CAO
 
 
     public BoxComponent(Color color, int row, int col) {
@@ -128,6 +129,14 @@ public class BoxComponent extends JComponent {
         this.isAnimating = animating;
     }
 
+    public int getBlockType() {
+        return blockType;
+    }
+
+    public void setBlockType(int blockType) {
+        this.blockType = blockType;
+    }
+
     public boolean isMovable() {
         return movable;
     }
@@ -2,9 +2,13 @@ package view.game;
 
 import controller.GameController;
 import model.AISolver;
+import model.LevelDefinition;
+import model.Log;
 import model.MapModel;
 import model.Prop;
+import model.SolverPortfolio;
 import view.FrameUtil;
+import view.menu.SaveSlotDialog;
 import view.menu.SelectionMenuFrame;
 
 import javax.swing.*;
@@ -13,6 +17,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 public class GameFrame extends JFrame {
+    private static final Log LOG = Log.get(GameFrame.class);
+
 
     private GameController controller;
     private JButton restartBtn;
@@ -40,7 +46,7 @@ public class GameFrame extends JFrame {
      * This method is called by PropPanel when the Obstacle Remover prop is used
      */
     public void handleObstacleRemoval() {
-        System.out.println("GameFrame: Starting direct obstacle removal process");
+        LOG.debug("Starting direct obstacle removal process");
         
         // First check if prop is available
         if (!controller.isPropAvailable(Prop.PropType.OBSTACLE_REMOVER)) {
@@ -85,8 +91,7 @@ public class GameFrame extends JFrame {
             this.controller.restartGame();
             gamePanel.requestFocusInWindow();
         } catch (Exception e) {
-            System.err.println("Error creating GamePanel:");
-            e.printStackTrace();
+            LOG.error("Error creating GamePanel", e);
             throw e;
         }
 
@@ -167,7 +172,8 @@ public class GameFrame extends JFrame {
             new SwingWorker<Boolean, Void>() {
                 @Override
                 protected Boolean doInBackground() {
-                    return solver.findSolution();
+                    // Already off the EDT, so run the portfolio search directly
+                    return solver.solve();
                 }
                 
                 @Override
@@ -178,9 +184,12 @@ public class GameFrame extends JFrame {
                         
                         if (solutionFound) {
                             int solutionLength = solver.getSolutionLength();
+                            SolverPortfolio.PortfolioResult report = solver.getLastPortfolioResult();
                             int option = JOptionPane.showConfirmDialog(
                                 GameFrame.this,
-                                "Solution found with " + solutionLength + " moves!\nExecute solution?",
+                                "Solution found with " + solutionLength + " moves!\n" +
+                                "(" + report.getWinnerName() + " in " + report.getWinner().getElapsedMillis() + " ms)\n" +
+                                "Execute solution?",
                                 "AI Solution",
                                 JOptionPane.YES_NO_OPTION,
                                 JOptionPane.INFORMATION_MESSAGE
@@ -232,14 +241,20 @@ public class GameFrame extends JFrame {
             gamePanel.requestFocusInWindow();
         });
         
+        JButton redoBtn = new JButton("Redo");
+        redoBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
+        redoBtn.addActionListener(e -> {
+            controller.redoMove();
+            gamePanel.requestFocusInWindow();
+        });
+        
         this.loadBtn = new JButton("Load");
         loadBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
         loadBtn.addActionListener(e -> {
             if (guestMode) {
                 JOptionPane.showMessageDialog(this, "Guest users cannot load games");
             } else {
-                controller.loadGame();
-                gamePanel.requestFocusInWindow();
+                new SaveSlotDialog(this, controller, gamePanel::requestFocusInWindow).setVisible(true);
             }
         });
         
@@ -264,6 +279,8 @@ public class GameFrame extends JFrame {
         controlPanel.add(restartBtn);
         controlPanel.add(Box.createRigidArea(new Dimension(0, 10)));
         controlPanel.add(undoBtn);
+        controlPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+        controlPanel.add(redoBtn);
         controlPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         controlPanel.add(loadBtn);
         controlPanel.add(Box.createRigidArea(new Dimension(0, 10)));
@@ -349,10 +366,11 @@ public class GameFrame extends JFrame {
      */
     public void updatePropPanelVisibility(int level) {
         if (propPanel != null) {
-            boolean propsAllowed = MapModel.LEVEL_PROPS_ALLOWED[level];
+            LevelDefinition definition = controller.getLevelDefinition();
+            boolean propsAllowed = definition.isPropsAllowed();
             
-            System.out.println("Updating prop panel for level " + level + 
-                             " (name: " + MapModel.LEVEL_NAMES[level] + 
+            LOG.debug("Updating prop panel for level " + level + 
+                             " (name: " + definition.getName() + 
                              ", props allowed: " + propsAllowed + ")");
             
             // Always make the panel visible regardless of level
@@ -360,19 +378,12 @@ public class GameFrame extends JFrame {
             
             if (!propsAllowed) {
                 // For levels with no props, display information but keep panel visible
-                if (level == 3) { // Master level
-                    propPanel.setToolTipText("Props are disabled in Master difficulty");
-                    propPanel.setBorder(BorderFactory.createTitledBorder(
-                        BorderFactory.createLineBorder(Color.RED, 2),
-                        "Props (Disabled in Master)"
-                    ));
-                } else { // Easy level
-                    propPanel.setToolTipText("Props are disabled in Easy difficulty");
-                    propPanel.setBorder(BorderFactory.createTitledBorder(
-                        BorderFactory.createLineBorder(Color.GRAY, 2),
-                        "Props (Disabled in Easy)"
-                    ));
-                }
+                propPanel.setToolTipText("Props are disabled in " + definition.getName() + " difficulty");
+                propPanel.setBorder(BorderFactory.createTitledBorder(
+                    // Red for time attack levels like Master, gray for the rest like Easy
+                    BorderFactory.createLineBorder(definition.isTimeAttackEnforced() ? Color.RED : Color.GRAY, 2),
+                    "Props (Disabled in " + definition.getName() + ")"
+                ));
             } else {
                 // Show active prop panel for Hard and Expert levels
                 propPanel.setToolTipText("Use props to help solve the puzzle");
@@ -385,7 +396,7 @@ public class GameFrame extends JFrame {
                 controller.initializeProps(level);
                 
                 // Log prop counts for debugging
-                System.out.println("Level " + level + " prop counts: " +
+                LOG.debug("Level " + level + " prop counts: " +
                                  "Hint: " + controller.getPropCount(Prop.PropType.HINT) + ", " +
                                  "Time Bonus: " + controller.getPropCount(Prop.PropType.TIME_BONUS) + ", " +
                                  "Obstacle Remover: " + controller.getPropCount(Prop.PropType.OBSTACLE_REMOVER));
@@ -400,12 +411,23 @@ public class GameFrame extends JFrame {
             this.revalidate();
             this.repaint();
         } else {
-            System.out.println("Warning: PropPanel is null when trying to update visibility for level " + level);
+            LOG.warn("PropPanel is null when trying to update visibility for level " + level);
         }
     }
     
     // Store remaining time
     private int currentTimeLeft = 0;
+
+    /**
+     * @return Seconds left in time attack mode, or -1 if time attack is off
+     */
+    public int getTimeLeft() {
+        return timeAttackMode ? currentTimeLeft : -1;
+    }
+
+    public int getTimeLimit() {
+        return timeLimit;
+    }
     
     /**
      * Adds time to the countdown timer (for Time Bonus prop)
@@ -484,6 +506,17 @@ public class GameFrame extends JFrame {
      * @param minutes Time limit in minutes (3, 5, or 7)
      */
     public void setTimeAttackMode(boolean enabled, int minutes) {
+        setTimeAttackMode(enabled, minutes, minutes * 60);
+    }
+
+    /**
+     * Enables or disables time attack mode, resuming with the given time left (e.g. from a save)
+     *
+     * @param enabled     Whether time attack mode is enabled
+     * @param minutes     The level's time limit in minutes
+     * @param secondsLeft Seconds left on the countdown
+     */
+    public void setTimeAttackMode(boolean enabled, int minutes, int secondsLeft) {
         this.timeAttackMode = enabled;
         this.timeLimit = minutes;
         
@@ -496,8 +529,8 @@ public class GameFrame extends JFrame {
             // Show timer label
             timerLabel.setVisible(true);
             
-            // Convert minutes to seconds and store in the field for consistent use
-            currentTimeLeft = minutes * 60;
+            // Store the remaining seconds in the field for consistent use
+            currentTimeLeft = secondsLeft;
             
             // Format and display initial time
             updateTimerDisplay(currentTimeLeft);
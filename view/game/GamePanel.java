@@ -2,20 +2,27 @@ package view.game;
 
 import controller.GameController;
 import model.Direction;
+import model.Log;
 import model.MapModel;
 
 import javax.swing.*;
 import javax.swing.border.Border;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * It is the subclass of ListenerPanel, so that it should implement those four methods: do move left, up, down ,right.
  * The class contains a grids, which is the corresponding GUI view of the matrix variable in MapMatrix.
  */
 public class GamePanel extends ListenerPanel {
+    private static final Log LOG = Log.get(GamePanel.class);
+
     private List<BoxComponent> boxes;
+    // Component covering each cell, kept in step with the boxes' rows and columns
+    private BoxComponent[][] boxGrid;
     private MapModel model;
     private GameController controller;
     private JLabel stepLabel;
@@ -57,13 +64,6 @@ public class GamePanel extends ListenerPanel {
         // Use the adaptive grid size
         GRID_SIZE = adaptiveGridSize;
         
-        System.out.println("Using adaptive grid size: " + GRID_SIZE + " for board " + 
-                         model.getWidth() + "x" + model.getHeight() + 
-                         " (max dimension: " + maxDimension + ")");
-        
-        System.out.println("Standardized GRID_SIZE: " + GRID_SIZE + 
-                         " for board " + model.getWidth() + "x" + model.getHeight());
-        
         // Calculate board dimensions
         int boardWidth = model.getWidth() * GRID_SIZE;
         int boardHeight = model.getHeight() * GRID_SIZE;
@@ -75,7 +75,10 @@ public class GamePanel extends ListenerPanel {
         int width = boardWidth + horizontalPadding * 2;
         int height = boardHeight + verticalPadding * 2 + exitSpace;
         
-        System.out.println("Panel dimensions: " + width + "x" + height);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Grid size " + GRID_SIZE + " for board " + model.getWidth() + "x" + model.getHeight()
+                    + " (max dimension: " + maxDimension + "), panel " + width + "x" + height);
+        }
         
         // Set sizes and ensure proper layout
         // Set the panel size with a little extra margin to ensure no scrolling is needed
@@ -95,8 +98,7 @@ public class GamePanel extends ListenerPanel {
         try {
             initialGame();
         } catch (Exception e) {
-            System.err.println("Error during initialGame():");
-            e.printStackTrace();
+            LOG.error("Error during initialGame()", e);
             throw e;
         }
     }
@@ -110,160 +112,155 @@ public class GamePanel extends ListenerPanel {
      */
     public void initialGame() {
         this.steps = 0;
-        // Debug model dimensions and contents
-        // System.out.println("Initializing game with model dimensions: " + 
-        //     model.getHeight() + "x" + model.getWidth());
-        // System.out.println("Model matrix:");
-        // for (int i = 0; i < model.getHeight(); i++) {
-        //     for (int j = 0; j < model.getWidth(); j++) {
-        //         System.out.print(model.getId(i, j) + " ");
-        //     }
-        //     System.out.println();
-        // }
-        
-        // Initialize game board from full model
-        int[][] map = new int[model.getHeight()][model.getWidth()];
-        for (int i = 0; i < model.getHeight(); i++) {
-            for (int j = 0; j < model.getWidth(); j++) {
-                map[i][j] = model.getId(i, j);
-            }
-        }
+        boxGrid = new BoxComponent[model.getHeight()][model.getWidth()];
+        
         // Create components for all blocks
+        for (int[] piece : scanPieces(model.getMatrix())) {
+            BoxComponent box = createBox(piece);
+            placeBox(box, piece[1], piece[2]);
+            LOG.trace(() -> "Block at " + piece[1] + "," + piece[2] + " positioned at " + box.getX() + "," + box.getY());
+            boxes.add(box);
+            this.add(box);
+            indexBox(box, box);
+        }
+        this.repaint();
+    }
+
+    /**
+     * The components a matrix is drawn with, as {type, row, col, rows, cols}, in row-major
+     * order of their top-left cells. Cells of multi-cell pieces are consumed as they are
+     * found, so a fragment that does not form a whole piece gets no component.
+     */
+    private static List<int[]> scanPieces(int[][] matrix) {
+        int[][] map = copyOf(matrix);
+        List<int[]> pieces = new ArrayList<>();
         for (int i = 0; i < map.length; i++) {
             for (int j = 0; j < map[0].length; j++) {
-                if (map[i][j] == 0) continue; // Skip empty cells
-                
-                BoxComponent box = null;
                 int blockType = map[i][j];
+                if (blockType == 0) continue; // Skip empty cells
                 
-                switch(blockType) {
+                int rows = 0;
+                int cols = 0;
+                switch (blockType) {
                     case MapModel.CAO_CAO: // 2x2
                         if (i < map.length - 1 && j < map[0].length - 1) {
-                            box = new BoxComponent(Color.RED, i, j);
-                            box.setSize(GRID_SIZE * 2, GRID_SIZE * 2);
+                            rows = 2;
+                            cols = 2;
                         }
                         break;
                     case MapModel.GUAN_YU: // 2x1 horizontal
-                        if (j < map[0].length - 1 && map[i][j] == MapModel.GUAN_YU && map[i][j+1] == MapModel.GUAN_YU) {
-                            box = new BoxComponent(Color.ORANGE, i, j);
-                            box.setSize(GRID_SIZE * 2, GRID_SIZE);
-                            map[i][j+1] = 0; // Mark adjacent cell as processed
+                        if (j < map[0].length - 1 && map[i][j+1] == MapModel.GUAN_YU) {
+                            rows = 1;
+                            cols = 2;
                         }
                         break;
                     case MapModel.GENERAL: // 1x2 vertical
-                        if (i < map.length - 1 && map[i][j] == MapModel.GENERAL && map[i+1][j] == MapModel.GENERAL) {
-                            box = new BoxComponent(Color.BLUE, i, j);
-                            box.setSize(GRID_SIZE, GRID_SIZE * 2);
-                            map[i+1][j] = 0; // Mark lower cell as processed
+                        if (i < map.length - 1 && map[i+1][j] == MapModel.GENERAL) {
+                            rows = 2;
+                            cols = 1;
                         }
                         break;
-                    case MapModel.SOLDIER: // 1x1
-                        box = new BoxComponent(Color.GREEN, i, j);
-                        box.setSize(GRID_SIZE, GRID_SIZE);
-                        break;
                     case MapModel.ZHOU_YU: // 1x3 horizontal
                         if (j < map[0].length - 2) {
-                            box = new BoxComponent(Color.MAGENTA, i, j);
-                            box.setSize(GRID_SIZE * 3, GRID_SIZE);
+                            rows = 1;
+                            cols = 3;
                         }
                         break;
-                    case MapModel.BLOCKED: // Immovable
-                        box = new BoxComponent(Color.DARK_GRAY, i, j);
-                        box.setSize(GRID_SIZE, GRID_SIZE);
-                        box.setMovable(false);
-                        break;
-                    case -MapModel.BLOCKED: // Temporarily removed obstacle (lighter color)
-                        box = new BoxComponent(new Color(200, 200, 200), i, j); // Light gray color
-                        box.setSize(GRID_SIZE, GRID_SIZE);
-                        // Allow this to be movable (it's a temporarily removed obstacle)
-                        box.setMovable(true);
-                        break;
-                    case MapModel.MILITARY_CAMP: // Military camp - only soldiers can step on
-                        box = new BoxComponent(new Color(139, 69, 19), i, j); // Brown color for military camp
-                        box.setSize(GRID_SIZE, GRID_SIZE);
-                        box.setMovable(false); // Military camps are immovable
-                        // Add Chinese character text display for military camp
-                        JLabel campLabel = new JLabel("军营");
-                        campLabel.setForeground(Color.WHITE);
-                        campLabel.setFont(new Font("SimSun", Font.BOLD, GRID_SIZE / 3));
-                        campLabel.setHorizontalAlignment(JLabel.CENTER);
-                        campLabel.setBounds(0, 0, GRID_SIZE, GRID_SIZE);
-                        box.setLayout(new BorderLayout());
-                        box.add(campLabel, BorderLayout.CENTER);
+                    case MapModel.SOLDIER:
+                    case MapModel.BLOCKED:
+                    case -MapModel.BLOCKED:
+                    case MapModel.MILITARY_CAMP:
+                        rows = 1;
+                        cols = 1;
                         break;
                 }
-                
-                if (box != null) {
-                // Fixed offsets to ensure consistent positioning across all pieces
-                // Calculate precise centered position using fixed values instead of dynamic ones
-                int boardWidth = model.getWidth() * GRID_SIZE;
-                int boardHeight = model.getHeight() * GRID_SIZE;
-                
-                // Fixed padding values that won't change with panel resizing
-                int xOffset = horizontalPadding;
-                int yOffset = verticalPadding;
-                
-                // Ensure these are consistent with what's used in paintComponent
-                if (xOffset < 100) xOffset = 100;
-                if (yOffset < 80) yOffset = 80;
-                
-                // Calculate precise grid-aligned position
-                int x = xOffset + j * GRID_SIZE;
-                int y = yOffset + i * GRID_SIZE;
-                
-                // Debug precise positioning
-                System.out.println("Box at [" + i + "," + j + "] positioned at exact coordinates: " + 
-                                  x + "," + y + " with grid size " + GRID_SIZE);
-                
-                // Ensure all block types maintain proper grid alignment
-                switch (blockType) {
-                    case MapModel.GUAN_YU: // 2x1 horizontal
-                        if (box.getWidth() != GRID_SIZE * 2) {
-                            box.setSize(GRID_SIZE * 2, GRID_SIZE);
-                        }
-                        break;
-                    case MapModel.GENERAL: // 1x2 vertical
-                        if (box.getHeight() != GRID_SIZE * 2) {
-                            box.setSize(GRID_SIZE, GRID_SIZE * 2);
-                        }
-                        break;
-                    case MapModel.CAO_CAO: // 2x2
-                        if (box.getWidth() != GRID_SIZE * 2 || box.getHeight() != GRID_SIZE * 2) {
-                            box.setSize(GRID_SIZE * 2, GRID_SIZE * 2);
-                        }
-                        break;
-                    case MapModel.ZHOU_YU: // 3x1 horizontal
-                        if (box.getWidth() != GRID_SIZE * 3) {
-                            box.setSize(GRID_SIZE * 3, GRID_SIZE);
-                        }
-                        break;
+                if (rows == 0) {
+                    continue;
                 }
-                    
-                    System.out.printf("Block at %d,%d positioned at %d,%d (offset %d,%d)\n",
-                        i, j, x, y, xOffset, yOffset);
-                    box.setLocation(x, y);
-                    boxes.add(box);
-                    this.add(box);
-                    // Mark all occupied cells as processed
-                    for (int r = i; r < i + box.getHeight()/GRID_SIZE; r++) {
-                        for (int c = j; c < j + box.getWidth()/GRID_SIZE; c++) {
-                            if (r < map.length && c < map[0].length) {
-                                map[r][c] = 0;
-                            }
-                        }
+                pieces.add(new int[] {blockType, i, j, rows, cols});
+                // Mark all occupied cells as processed
+                for (int r = i; r < i + rows; r++) {
+                    for (int c = j; c < j + cols; c++) {
+                        map[r][c] = 0;
                     }
                 }
             }
         }
-        this.repaint();
+        return pieces;
+    }
+
+    /**
+     * Build the component for one entry of scanPieces
+     */
+    private BoxComponent createBox(int[] piece) {
+        int blockType = piece[0];
+        int i = piece[1];
+        int j = piece[2];
+        BoxComponent box;
+        switch (blockType) {
+            case MapModel.CAO_CAO:
+                box = new BoxComponent(Color.RED, i, j);
+                break;
+            case MapModel.GUAN_YU:
+                box = new BoxComponent(Color.ORANGE, i, j);
+                break;
+            case MapModel.GENERAL:
+                box = new BoxComponent(Color.BLUE, i, j);
+                break;
+            case MapModel.ZHOU_YU:
+                box = new BoxComponent(Color.MAGENTA, i, j);
+                break;
+            case MapModel.BLOCKED: // Immovable
+                box = new BoxComponent(Color.DARK_GRAY, i, j, false);
+                break;
+            case -MapModel.BLOCKED: // Temporarily removed obstacle (lighter color)
+                // Allow this to be movable (it's a temporarily removed obstacle)
+                box = new BoxComponent(new Color(200, 200, 200), i, j, true);
+                break;
+            case MapModel.MILITARY_CAMP: // Military camp - only soldiers can step on
+                box = new BoxComponent(new Color(139, 69, 19), i, j, false); // Brown color for military camp
+                // Add Chinese character text display for military camp
+                JLabel campLabel = new JLabel("军营");
+                campLabel.setForeground(Color.WHITE);
+                campLabel.setFont(new Font("SimSun", Font.BOLD, GRID_SIZE / 3));
+                campLabel.setHorizontalAlignment(JLabel.CENTER);
+                campLabel.setBounds(0, 0, GRID_SIZE, GRID_SIZE);
+                box.setLayout(new BorderLayout());
+                box.add(campLabel, BorderLayout.CENTER);
+                break;
+            default: // Soldier
+                box = new BoxComponent(Color.GREEN, i, j);
+                break;
+        }
+        box.setBlockType(blockType);
+        box.setSize(GRID_SIZE * piece[4], GRID_SIZE * piece[3]);
+        return box;
+    }
+
+    /**
+     * Put a component at the pixel position of a cell. The fixed offsets are the same ones
+     * paintComponent uses for the board, so pieces stay aligned with the grid.
+     */
+    private void placeBox(BoxComponent box, int row, int col) {
+        int xOffset = Math.max(horizontalPadding, 100);
+        int yOffset = Math.max(verticalPadding, 80);
+        box.setLocation(xOffset + col * GRID_SIZE, yOffset + row * GRID_SIZE);
+    }
+
+    private static int[][] copyOf(int[][] matrix) {
+        int[][] copy = new int[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i].clone();
+        }
+        return copy;
     }
 
 
     @Override
     public void doMouseClick(Point point) {
         Component component = this.getComponentAt(point);
-        System.out.println("GamePanel: Mouse click detected at " + point);
-        System.out.println("GamePanel: Component at click point: " + (component == null ? "null" : component.getClass().getSimpleName()));
+        LOG.trace(() -> "Mouse click at " + point + " on "
+                + (component == null ? "null" : component.getClass().getSimpleName()));
         
         if (component instanceof BoxComponent clickedComponent) {
             // Get the game frame reference (parent container)
@@ -274,7 +271,7 @@ public class GamePanel extends ListenerPanel {
             
             // Check if we're in obstacle selection mode - new approach
             if (obstacleSelectionMode) {
-                System.out.println("GamePanel: In obstacle selection mode, handling click");
+                LOG.debug("In obstacle selection mode, handling click");
                 handleObstacleSelection(clickedComponent);
                 return; // Exit after handling obstacle selection
             }
@@ -306,26 +303,21 @@ public class GamePanel extends ListenerPanel {
         int pieceType = controller.getModel().getId(row, col);
         
         // Log information for debugging
-        System.out.println("GamePanel: Obstacle Selection active. Checking piece at [" + row + "," + col + "]");
-        System.out.println("GamePanel: Piece type from model: " + pieceType + 
-                         " (BLOCKED=" + MapModel.BLOCKED + ")");
+        LOG.debug(() -> "Obstacle selection active, piece type " + pieceType + " at [" + row + "," + col + "]");
         
         // Check if this is a blocked piece
         if (pieceType == MapModel.BLOCKED) {
             // This is indeed a blocked piece - try to remove it
-            System.out.println("GamePanel: Confirmed obstacle at [" + row + "," + col + "] - Removing it");
-            
             // Call the controller to handle obstacle removal
             boolean success = controller.useObstacleRemoverProp(row, col);
-            System.out.println("GamePanel: Obstacle removal result: " + success);
+            LOG.debug(() -> "Obstacle removal result: " + success);
             
             if (success) {
                 // Reset obstacle selection mode
                 setObstacleSelectionMode(false);
                 
                 // Update the board to reflect the removal
-                System.out.println("GamePanel: Updating board after obstacle removal");
-                resetBoard(controller.getModel().getMatrix());
+                updateBoard(controller.getModel().getMatrix());
                 
                 // Show success message
                 JOptionPane.showMessageDialog(this, 
@@ -333,14 +325,14 @@ public class GamePanel extends ListenerPanel {
                     "Obstacle Removed", 
                     JOptionPane.INFORMATION_MESSAGE);
             } else {
-                System.out.println("GamePanel: Failed to remove obstacle");
+                LOG.debug("Failed to remove obstacle");
                 
                 // Reset obstacle selection mode even if failed
                 setObstacleSelectionMode(false);
             }
         } else {
             // Not a blocked piece
-            System.out.println("GamePanel: Not an obstacle at [" + row + "," + col + "]");
+            LOG.debug(() -> "Not an obstacle at [" + row + "," + col + "]");
             JOptionPane.showMessageDialog(this,
                 "The obstacle remover can only be used on obstacles (gray blocks).",
                 "Obstacle Remover",
@@ -365,28 +357,21 @@ public class GamePanel extends ListenerPanel {
         int pieceType = controller.getModel().getId(row, col);
         
         // Log information for debugging
-        System.out.println("GamePanel: Obstacle Remover active. Checking piece at [" + row + "," + col + "]");
-        System.out.println("GamePanel: Piece type from model: " + pieceType + 
-                         " (BLOCKED=" + MapModel.BLOCKED + ")");
-        System.out.println("GamePanel: Component color: " + clickedComponent.getColor());
-        System.out.println("GamePanel: Component is movable: " + clickedComponent.isMovable());
+        LOG.debug(() -> "Obstacle remover active, piece type " + pieceType + " at [" + row + "," + col + "]");
         
         // Check if this is a blocked piece
         if (pieceType == MapModel.BLOCKED) {
             // This is indeed a blocked piece - try to remove it
-            System.out.println("GamePanel: Confirmed obstacle at [" + row + "," + col + "] - Removing it");
-            
             // Call the controller to handle obstacle removal
             boolean success = controller.useObstacleRemoverProp(row, col);
-            System.out.println("GamePanel: Obstacle removal result: " + success);
+            LOG.debug(() -> "Obstacle removal result: " + success);
             
             if (success) {
                 // Reset obstacle remover mode
                 gameFrame.propPanel.resetObstacleRemoverMode();
                 
                 // Update the board to reflect the removal
-                System.out.println("GamePanel: Updating board after obstacle removal");
-                resetBoard(controller.getModel().getMatrix());
+                updateBoard(controller.getModel().getMatrix());
                 
                 // Force UI update
                 this.revalidate();
@@ -398,11 +383,11 @@ public class GamePanel extends ListenerPanel {
                     "Obstacle Removed", 
                     JOptionPane.INFORMATION_MESSAGE);
             } else {
-                System.out.println("GamePanel: Failed to remove obstacle");
+                LOG.debug("Failed to remove obstacle");
             }
         } else {
             // Not a blocked piece
-            System.out.println("GamePanel: Not an obstacle at [" + row + "," + col + "]");
+            LOG.debug(() -> "Not an obstacle at [" + row + "," + col + "]");
             JOptionPane.showMessageDialog(this,
                 "The obstacle remover can only be used on obstacles (gray blocks).",
                 "Obstacle Remover",
@@ -429,68 +414,39 @@ public class GamePanel extends ListenerPanel {
         }
     }
 
-    /**
-     * Checks if any box in the game is currently animating
-     * @return true if any box is animating, false otherwise
-     */
-    private boolean isAnyBoxAnimating() {
-        for (BoxComponent box : boxes) {
-            if (box.isAnimating()) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     @Override
     public void doMoveRight() {
-        System.out.println("Click VK_RIGHT");
-        // Only allow move if no animations are currently running
-        if (selectedBox != null && !isAnyBoxAnimating()) {
-            if (controller.doMove(selectedBox.getRow(), selectedBox.getCol(), Direction.RIGHT)) {
-                afterMove();
-            }
-        } else if (isAnyBoxAnimating()) {
-            System.out.println("Ignoring move - animation in progress");
+        LOG.trace("Key VK_RIGHT");
+        // Moves pressed while a piece is still sliding are queued by the controller
+        if (selectedBox != null && controller.requestMove(Direction.RIGHT)) {
+            afterMove();
         }
     }
 
     @Override
     public void doMoveLeft() {
-        System.out.println("Click VK_LEFT");
-        // Only allow move if no animations are currently running
-        if (selectedBox != null && !isAnyBoxAnimating()) {
-            if (controller.doMove(selectedBox.getRow(), selectedBox.getCol(), Direction.LEFT)) {
-                afterMove();
-            }
-        } else if (isAnyBoxAnimating()) {
-            System.out.println("Ignoring move - animation in progress");
+        LOG.trace("Key VK_LEFT");
+        // Moves pressed while a piece is still sliding are queued by the controller
+        if (selectedBox != null && controller.requestMove(Direction.LEFT)) {
+            afterMove();
         }
     }
 
     @Override
     public void doMoveUp() {
-        System.out.println("Click VK_Up");
-        // Only allow move if no animations are currently running
-        if (selectedBox != null && !isAnyBoxAnimating()) {
-            if (controller.doMove(selectedBox.getRow(), selectedBox.getCol(), Direction.UP)) {
-                afterMove();
-            }
-        } else if (isAnyBoxAnimating()) {
-            System.out.println("Ignoring move - animation in progress");
+        LOG.trace("Key VK_UP");
+        // Moves pressed while a piece is still sliding are queued by the controller
+        if (selectedBox != null && controller.requestMove(Direction.UP)) {
+            afterMove();
         }
     }
 
     @Override
     public void doMoveDown() {
-        System.out.println("Click VK_DOWN");
-        // Only allow move if no animations are currently running
-        if (selectedBox != null && !isAnyBoxAnimating()) {
-            if (controller.doMove(selectedBox.getRow(), selectedBox.getCol(), Direction.DOWN)) {
-                afterMove();
-            }
-        } else if (isAnyBoxAnimating()) {
-            System.out.println("Ignoring move - animation in progress");
+        LOG.trace("Key VK_DOWN");
+        // Moves pressed while a piece is still sliding are queued by the controller
+        if (selectedBox != null && controller.requestMove(Direction.DOWN)) {
+            afterMove();
         }
     }
 
@@ -511,10 +467,10 @@ public class GamePanel extends ListenerPanel {
         this.requestFocusInWindow(); // Ensure panel has focus for key events
         this.addFocusListener(new java.awt.event.FocusAdapter() {
             public void focusGained(java.awt.event.FocusEvent evt) {
-                System.out.println("GamePanel gained focus");
+                LOG.trace("Gained focus");
             }
             public void focusLost(java.awt.event.FocusEvent evt) {
-                System.out.println("GamePanel lost focus");
+                LOG.trace("Lost focus");
             }
         });
     }
@@ -545,6 +501,253 @@ public class GamePanel extends ListenerPanel {
         initialGame();
     }
 
+    /**
+     * The component covering a cell, in constant time
+     *
+     * @return null for empty cells and cells outside the board
+     */
+    public BoxComponent getBoxAt(int row, int col) {
+        if (boxGrid == null || row < 0 || col < 0 || row >= boxGrid.length || col >= boxGrid[0].length) {
+            return null;
+        }
+        return boxGrid[row][col];
+    }
+
+    /**
+     * Give a component a new top-left cell and update the cell index. Only the logical
+     * position changes; the caller moves or animates the component on screen.
+     */
+    public void relocateBox(BoxComponent box, int row, int col) {
+        indexBox(box, null);
+        box.setRow(row);
+        box.setCol(col);
+        indexBox(box, box);
+    }
+
+    /**
+     * Put a component at the pixel position of its current row and column, e.g. to end a
+     * slide early
+     */
+    public void placeBox(BoxComponent box) {
+        placeBox(box, box.getRow(), box.getCol());
+    }
+
+    /**
+     * Move a piece's component to another cell without rebuilding the board, e.g. for undo and redo
+     *
+     * @return false if no movable component has its top-left cell at (fromRow, fromCol)
+     */
+    public boolean moveBox(int fromRow, int fromCol, int toRow, int toCol) {
+        BoxComponent box = getBoxAt(fromRow, fromCol);
+        if (box == null || !box.isMovable() || box.getRow() != fromRow || box.getCol() != fromCol) {
+            return false;
+        }
+        relocateBox(box, toRow, toCol);
+        placeBox(box, toRow, toCol);
+        return true;
+    }
+
+    /**
+     * Point every cell the box covers at value. Clearing skips cells that another component
+     * has taken over, such as a removed obstacle a piece moved onto.
+     */
+    private void indexBox(BoxComponent box, BoxComponent value) {
+        int rows = Math.max(1, box.getHeight() / GRID_SIZE);
+        int cols = Math.max(1, box.getWidth() / GRID_SIZE);
+        for (int r = box.getRow(); r < box.getRow() + rows && r < boxGrid.length; r++) {
+            for (int c = box.getCol(); c < box.getCol() + cols && c < boxGrid[0].length; c++) {
+                if (value != null || boxGrid[r][c] == box) {
+                    boxGrid[r][c] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bring the components in line with a matrix by changing only what differs. Components
+     * that still show a piece of the new matrix are left alone, components whose piece moved
+     * are relocated, and only pieces that appeared or disappeared (an obstacle coming back,
+     * say) get a component created or removed. Swing repaints just the areas of the
+     * components that moved or went away. Falls back to resetBoard if the board size changed.
+     */
+    public void updateBoard(int[][] newMatrix) {
+        if (boxGrid == null || newMatrix.length != boxGrid.length || newMatrix[0].length != boxGrid[0].length) {
+            resetBoard(newMatrix);
+            return;
+        }
+        this.model = new MapModel(newMatrix);
+
+        Map<Long, BoxComponent> current = new HashMap<>();
+        for (BoxComponent box : boxes) {
+            current.put(pieceKey(box.getBlockType(), box.getRow(), box.getCol()), box);
+        }
+        List<int[]> missing = new ArrayList<>();
+        for (int[] piece : scanPieces(newMatrix)) {
+            if (current.remove(pieceKey(piece[0], piece[1], piece[2])) == null) {
+                missing.add(piece);
+            }
+        }
+        if (missing.isEmpty() && current.isEmpty()) {
+            return;
+        }
+
+        // What is left in current no longer matches; reuse those components for pieces of the same type
+        List<BoxComponent> stale = new ArrayList<>(current.values());
+        int moved = 0;
+        int added = 0;
+        for (int[] piece : missing) {
+            BoxComponent box = takeNearest(stale, piece);
+            if (box != null) {
+                relocateBox(box, piece[1], piece[2]);
+                moved++;
+            } else {
+                box = createBox(piece);
+                boxes.add(box);
+                this.add(box);
+                indexBox(box, box);
+                added++;
+            }
+            placeBox(box, piece[1], piece[2]);
+        }
+        for (BoxComponent box : stale) {
+            indexBox(box, null);
+            boxes.remove(box);
+            this.remove(box);
+            this.repaint(box.getBounds());
+            if (selectedBox == box) {
+                selectedBox = null;
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Updated board - " + moved + " moved, " + added + " added, " + stale.size() + " removed");
+        }
+    }
+
+    private static long pieceKey(int blockType, int row, int col) {
+        return ((long) blockType << 32) | ((long) row << 16) | col;
+    }
+
+    /**
+     * Remove and return the stale component of the piece's type and size closest to it, or null
+     */
+    private BoxComponent takeNearest(List<BoxComponent> stale, int[] piece) {
+        BoxComponent nearest = null;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (BoxComponent box : stale) {
+            if (box.getBlockType() != piece[0] || box.getHeight() != GRID_SIZE * piece[3]
+                    || box.getWidth() != GRID_SIZE * piece[4]) {
+                continue;
+            }
+            int distance = Math.abs(box.getRow() - piece[1]) + Math.abs(box.getCol() - piece[2]);
+            if (distance < nearestDistance) {
+                nearest = box;
+                nearestDistance = distance;
+            }
+        }
+        stale.remove(nearest);
+        return nearest;
+    }
+
+    /**
+     * Show an obstacle that came back on a free cell, touching only that cell: the marker
+     * of the removed obstacle (if still there) is replaced by an obstacle component
+     */
+    public void restoreObstacle(int row, int col) {
+        BoxComponent shown = getBoxAt(row, col);
+        if (shown != null && shown.getBlockType() == MapModel.BLOCKED) {
+            return;
+        }
+        for (java.util.Iterator<BoxComponent> it = boxes.iterator(); it.hasNext(); ) {
+            BoxComponent box = it.next();
+            if (box.getBlockType() == -MapModel.BLOCKED && box.getRow() == row && box.getCol() == col) {
+                indexBox(box, null);
+                it.remove();
+                this.remove(box);
+                this.repaint(box.getBounds());
+            }
+        }
+        BoxComponent obstacle = createBox(new int[] {MapModel.BLOCKED, row, col, 1, 1});
+        boxes.add(obstacle);
+        this.add(obstacle);
+        indexBox(obstacle, obstacle);
+        placeBox(obstacle, row, col);
+        if (noticeLabel != null) {
+            this.setComponentZOrder(noticeLabel, 0);
+        }
+    }
+
+    // How long a notice stays up, and how many are shown at once
+    private static final int NOTICE_MILLIS = 3000;
+    private static final int MAX_NOTICES = 3;
+    private JLabel noticeLabel;
+    private Timer noticeTimer;
+    // Notices on screen, oldest first, with the time each one expires
+    private final java.util.Deque<String> notices = new java.util.ArrayDeque<>();
+    private final java.util.Deque<Long> noticeExpiry = new java.util.ArrayDeque<>();
+
+    /**
+     * Show a short message over the top of the board for a few seconds. Unlike a dialog it
+     * does not block input or wait to be dismissed; newer notices stack below older ones.
+     */
+    public void showNotice(String message) {
+        if (noticeLabel == null) {
+            noticeLabel = new JLabel("", SwingConstants.CENTER);
+            noticeLabel.setOpaque(true);
+            noticeLabel.setBackground(new Color(255, 255, 210));
+            noticeLabel.setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createLineBorder(Color.DARK_GRAY, 1),
+                    BorderFactory.createEmptyBorder(4, 8, 4, 8)));
+            noticeLabel.setFont(new Font("Arial", Font.BOLD, 13));
+            noticeTimer = new Timer(250, e -> expireNotices());
+            this.add(noticeLabel);
+        }
+        if (notices.size() == MAX_NOTICES) {
+            notices.pollFirst();
+            noticeExpiry.pollFirst();
+        }
+        notices.addLast(message);
+        noticeExpiry.addLast(System.currentTimeMillis() + NOTICE_MILLIS);
+        layoutNotices();
+        noticeTimer.start();
+    }
+
+    private void expireNotices() {
+        long now = System.currentTimeMillis();
+        boolean changed = false;
+        while (!noticeExpiry.isEmpty() && noticeExpiry.peekFirst() <= now) {
+            notices.pollFirst();
+            noticeExpiry.pollFirst();
+            changed = true;
+        }
+        if (changed) {
+            layoutNotices();
+        }
+        if (notices.isEmpty()) {
+            noticeTimer.stop();
+        }
+    }
+
+    private void layoutNotices() {
+        if (notices.isEmpty()) {
+            noticeLabel.setVisible(false);
+            return;
+        }
+        StringBuilder text = new StringBuilder("<html>");
+        for (String notice : notices) {
+            if (text.length() > "<html>".length()) {
+                text.append("<br>");
+            }
+            text.append(notice);
+        }
+        noticeLabel.setText(text.append("</html>").toString());
+        Dimension size = noticeLabel.getPreferredSize();
+        int width = Math.min(size.width, getWidth() - 20);
+        noticeLabel.setBounds((getWidth() - width) / 2, 10, width, size.height);
+        this.setComponentZOrder(noticeLabel, 0);
+        noticeLabel.setVisible(true);
+        noticeLabel.repaint();
+    }
+
     private boolean exitHighlighted = false;
     private boolean caoHighlighted = false;
 
@@ -654,7 +857,7 @@ public class GamePanel extends ListenerPanel {
      * @param active Whether obstacle selection mode is active
      */
     public void setObstacleSelectionMode(boolean active) {
-        System.out.println("GamePanel: Setting obstacle selection mode to " + active);
+        LOG.debug(() -> "Setting obstacle selection mode to " + active);
         this.obstacleSelectionMode = active;
         this.setCursor(active ? Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR) : Cursor.getDefaultCursor());
     }
@@ -4,6 +4,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import model.LevelDefinition;
+import model.Log;
 import model.MapModel;
 import model.Prop;
 import controller.GameController;
@@ -12,6 +14,8 @@ import controller.GameController;
  * UI Panel that displays available props and allows the player to use them
  */
 public class PropPanel extends JPanel {
+    private static final Log LOG = Log.get(PropPanel.class);
+
     private final GameController controller;
     private final GameFrame gameFrame;
     
@@ -99,7 +103,8 @@ public class PropPanel extends JPanel {
         
         // Get current level info
         int currentLevel = controller.getCurrentLevel();
-        boolean propsAllowed = MapModel.LEVEL_PROPS_ALLOWED[currentLevel];
+        LevelDefinition definition = controller.getLevelDefinition();
+        boolean propsAllowed = definition.isPropsAllowed();
         
 //        System.out.println("PropPanel updating prop availability - level: " +
 //                         currentLevel + ", props allowed: " + propsAllowed);
@@ -146,17 +151,10 @@ public class PropPanel extends JPanel {
             }
         } else {
             // Easy or Master level - props disabled
-            if (currentLevel == 0) { // Easy
-                this.setBorder(BorderFactory.createTitledBorder(
-                    BorderFactory.createLineBorder(Color.GRAY, 2),
-                    "Props (Disabled in Easy)"
-                ));
-            } else { // Master
-                this.setBorder(BorderFactory.createTitledBorder(
-                    BorderFactory.createLineBorder(Color.RED, 2),
-                    "Props (Disabled in Master)"
-                ));
-            }
+            this.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createLineBorder(definition.isTimeAttackEnforced() ? Color.RED : Color.GRAY, 2),
+                "Props (Disabled in " + definition.getName() + ")"
+            ));
         }
         
         // Force repaint to reflect changes
@@ -165,10 +163,8 @@ public class PropPanel extends JPanel {
     }
     
     private void useHintProp() {
-        boolean success = controller.useHintProp();
-        if (success) {
-            updatePropAvailability();
-        }
+        // The hint comes back later; the controller refreshes this panel once the prop is spent
+        controller.useHintProp();
     }
     
     private void useTimeBonusProp() {
@@ -182,11 +178,11 @@ public class PropPanel extends JPanel {
         // Use new direct approach through GameFrame
         if (gameFrame != null) {
             // Call GameFrame's direct obstacle removal method
-            System.out.println("PropPanel: Using direct obstacle removal through GameFrame");
+            LOG.debug("Using direct obstacle removal through GameFrame");
             gameFrame.handleObstacleRemoval();
         } else {
             // Fallback to old approach if GameFrame is not available
-            System.out.println("PropPanel: WARNING - GameFrame is null, cannot use direct approach");
+            LOG.warn("GameFrame is null, cannot use direct approach");
             
             if (obstacleRemoverActive) {
                 // Deactivate obstacle remover mode
@@ -215,28 +211,28 @@ public class PropPanel extends JPanel {
      * Resets the obstacle remover mode to inactive
      */
     public void resetObstacleRemoverMode() {
-        System.out.println("PropPanel: Resetting obstacle remover mode to inactive");
+        LOG.debug("Resetting obstacle remover mode to inactive");
         this.obstacleRemoverActive = false;
         updatePropAvailability();
     }
     
     public void useObstacleRemoverAt(int row, int col) {
-        System.out.println("PropPanel: useObstacleRemoverAt called for [" + row + "," + col + "]");
-        System.out.println("PropPanel: obstacleRemoverActive = " + obstacleRemoverActive);
+        LOG.debug("useObstacleRemoverAt called for [" + row + "," + col + "]");
+        LOG.debug("obstacleRemoverActive = " + obstacleRemoverActive);
         
         if (obstacleRemoverActive) {
-            System.out.println("PropPanel: Attempting to remove obstacle at [" + row + "," + col + "]");
+            LOG.debug("Attempting to remove obstacle at [" + row + "," + col + "]");
             
             // Get the block type at the position from the model
             int blockType = controller.getModel().getId(row, col);
-            System.out.println("PropPanel: Block type at [" + row + "," + col + "] = " + blockType);
+            LOG.debug("Block type at [" + row + "," + col + "] = " + blockType);
             
             // Force the blockType to BLOCKED if it's in the valid range
             // Only call obstacle remover if we're sure it's a blocked piece
             if (blockType == MapModel.BLOCKED) {
                 // Direct call to controller with debug output
                 boolean success = controller.useObstacleRemoverProp(row, col);
-                System.out.println("PropPanel: Obstacle removal result: " + success);
+                LOG.debug("Obstacle removal result: " + success);
                 
                 if (success) {
                     JOptionPane.showMessageDialog(this,
@@ -244,7 +240,7 @@ public class PropPanel extends JPanel {
                         "Obstacle Remover",
                         JOptionPane.INFORMATION_MESSAGE);
                 } else {
-                    System.out.println("PropPanel: Failed to remove obstacle at [" + row + "," + col + "]");
+                    LOG.debug("Failed to remove obstacle at [" + row + "," + col + "]");
                     JOptionPane.showMessageDialog(this,
                         "Could not remove obstacle. Make sure you've clicked on a gray obstacle piece.",
                         "Obstacle Remover",
@@ -252,7 +248,7 @@ public class PropPanel extends JPanel {
                 }
             } else {
                 // Not a valid obstacle
-                System.out.println("PropPanel: Not a valid obstacle at [" + row + "," + col + "]");
+                LOG.debug("Not a valid obstacle at [" + row + "," + col + "]");
                 JOptionPane.showMessageDialog(this,
                     "The obstacle remover can only be used on gray obstacle pieces.",
                     "Obstacle Remover",
@@ -263,7 +259,7 @@ public class PropPanel extends JPanel {
             obstacleRemoverActive = false;
             updatePropAvailability();
         } else {
-            System.out.println("PropPanel: Obstacle remover not active, ignoring click");
+            LOG.debug("Obstacle remover not active, ignoring click");
         }
     }
     
@@ -2,21 +2,42 @@ package view.menu;
 
 import view.FrameUtil;
 import view.game.GameFrame;
+import model.DifficultyRater;
+import model.FileLevelPack;
+import model.LevelDefinition;
+import model.Log;
 import model.MapModel;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * This frame allows players to select game settings before starting:
  * - Difficulty level (1-3)
  * - Time Attack Mode (on/off)
+ *
+ * Each level button is annotated with the DifficultyRater's score once it has been
+ * computed in the background (ratings are cached for the rest of the session).
+ *
+ * Levels can also come from an external pack (see FileLevelPack). The pack list only
+ * reads the levels that are scrolled into view, so packs of any size open instantly.
  */
 public class GameSettingsFrame extends JFrame {
+    private static final Log LOG = Log.get(GameSettingsFrame.class);
+
+    // Level ratings are the same for every settings window, so compute them once
+    private static final DifficultyRater.Rating[] LEVEL_RATINGS = new DifficultyRater.Rating[MapModel.LEVELS.length];
+
     private final GameFrame gameFrame;
     private final SelectionMenuFrame parentFrame;
 
     private JRadioButton[] levelButtons;
+    private ButtonGroup levelGroup;
+    private FileLevelPack levelPack; // External pack, null until one is opened
+    private JList<Integer> packList;
     private JRadioButton normalModeButton;
     private JRadioButton timeAttackButton;
     private JRadioButton timer3MinButton;
@@ -60,7 +81,7 @@ public class GameSettingsFrame extends JFrame {
 
         // Create level buttons using level names from MapModel
         levelButtons = new JRadioButton[MapModel.LEVELS.length];
-        ButtonGroup levelGroup = new ButtonGroup();
+        levelGroup = new ButtonGroup();
 
         for (int i = 0; i < MapModel.LEVELS.length; i++) {
             levelButtons[i] = new JRadioButton(MapModel.LEVEL_NAMES[i]);
@@ -99,6 +120,9 @@ public class GameSettingsFrame extends JFrame {
             
             final int level = i;
             levelButtons[i].addActionListener(e -> {
+                if (packList != null) {
+                    packList.clearSelection();
+                }
                 // If Master level selected, enforce time attack mode
                 if (level == MapModel.LEVELS.length - 1) { // Master level
                     timeAttackButton.setSelected(true);
@@ -150,6 +174,9 @@ public class GameSettingsFrame extends JFrame {
             difficultyPanel.add(Box.createRigidArea(new Dimension(0, 10)));
         }
 
+        rateLevels();
+        difficultyPanel.add(createPackPanel());
+
         // Game Mode panel - Normal vs Time Attack
         JPanel gameModePanel = new JPanel();
         gameModePanel.setLayout(new BoxLayout(gameModePanel, BoxLayout.Y_AXIS));
@@ -442,7 +469,150 @@ public class GameSettingsFrame extends JFrame {
         });
     }
 
+    /**
+     * "Open Level Pack..." button and the list of the opened pack's levels
+     */
+    private JPanel createPackPanel() {
+        JPanel packPanel = new JPanel(new BorderLayout(0, 5));
+        packPanel.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        JLabel packLabel = new JLabel("No level pack loaded");
+        packLabel.setFont(new Font("serif", Font.ITALIC, 12));
+        JButton openButton = new JButton("Open Level Pack...");
+
+        packList = new JList<>();
+        packList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        packList.setVisibleRowCount(6);
+        // A prototype keeps JList from measuring every level to size the cells
+        packList.setPrototypeCellValue(-1);
+        packList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, describePackLevel((Integer) value), index,
+                        isSelected, cellHasFocus);
+            }
+        });
+        packList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && packList.getSelectedIndex() >= 0) {
+                levelGroup.clearSelection();
+            }
+        });
+        JScrollPane packScroll = new JScrollPane(packList);
+        packScroll.setVisible(false);
+
+        openButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser(new File("."));
+            if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            FileLevelPack opened;
+            try {
+                opened = FileLevelPack.open(chooser.getSelectedFile());
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Could not open level pack: " + ex.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            closeUnusedPack();
+            levelPack = opened;
+            int size = levelPack.size();
+            packList.setModel(new AbstractListModel<Integer>() {
+                @Override
+                public int getSize() {
+                    return size;
+                }
+
+                @Override
+                public Integer getElementAt(int index) {
+                    return index;
+                }
+            });
+            packLabel.setText(levelPack.getTitle() + " - " + size + " levels");
+            packScroll.setVisible(true);
+            packPanel.revalidate();
+        });
+
+        JPanel header = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        header.add(openButton);
+        header.add(packLabel);
+        packPanel.add(header, BorderLayout.NORTH);
+        packPanel.add(packScroll, BorderLayout.CENTER);
+        return packPanel;
+    }
+
+    private String describePackLevel(int index) {
+        if (index < 0 || levelPack == null) {
+            return "Level 00000 - a typical level name (00 moves)";
+        }
+        try {
+            LevelDefinition level = levelPack.get(index);
+            return (index + 1) + ". " + level.getName()
+                    + (level.getOptimalLength() >= 0 ? " (" + level.getOptimalLength() + " moves)" : "");
+        } catch (IllegalStateException e) {
+            return (index + 1) + ". (unreadable level)";
+        }
+    }
+
+    /**
+     * Rate every level off the EDT and annotate its button as each rating arrives
+     */
+    private void rateLevels() {
+        for (int i = 0; i < levelButtons.length; i++) {
+            if (LEVEL_RATINGS[i] != null) {
+                annotateLevel(i, LEVEL_RATINGS[i]);
+            }
+        }
+        new SwingWorker<Void, Integer>() {
+            @Override
+            protected Void doInBackground() {
+                DifficultyRater rater = new DifficultyRater();
+                for (int i = 0; i < MapModel.LEVELS.length; i++) {
+                    synchronized (LEVEL_RATINGS) {
+                        if (LEVEL_RATINGS[i] == null) {
+                            LEVEL_RATINGS[i] = rater.rate(MapModel.LEVELS[i]);
+                            int level = i;
+                            LOG.debug(() -> "Level " + MapModel.LEVEL_NAMES[level] + " rated: " + LEVEL_RATINGS[level]);
+                        }
+                    }
+                    publish(i);
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<Integer> levels) {
+                for (int level : levels) {
+                    annotateLevel(level, LEVEL_RATINGS[level]);
+                }
+            }
+        }.execute();
+    }
+
+    private void annotateLevel(int level, DifficultyRater.Rating rating) {
+        String summary;
+        if (!rating.isSolvable()) {
+            summary = "needs props to solve";
+        } else {
+            String bound = rating.optimalExact ? "" : "≥";
+            summary = String.format("difficulty %s%.0f, %s%d moves", bound, rating.difficulty, bound,
+                    rating.optimalLength);
+        }
+        levelButtons[level].setText(MapModel.LEVEL_NAMES[level] + "  (" + summary + ")");
+
+        String tooltip = levelButtons[level].getToolTipText();
+        int cut = tooltip != null ? tooltip.indexOf(" | ") : -1;
+        String base = cut >= 0 ? tooltip.substring(0, cut) : (tooltip != null ? tooltip : "");
+        levelButtons[level].setToolTipText(String.format("%s | %,d%s reachable boards, %.1f moves per board",
+                base, rating.reachableStates, rating.complete ? "" : "+", rating.branchingFactor));
+    }
+
     private void startGame() {
+        if (levelPack != null && packList.getSelectedIndex() >= 0) {
+            startPackLevel(packList.getSelectedIndex());
+            return;
+        }
+
         // Get selected level
         int selectedLevel = 0;
         for (int i = 0; i < levelButtons.length; i++) {
@@ -482,8 +652,52 @@ public class GameSettingsFrame extends JFrame {
         this.dispose();
     }
 
+    private void startPackLevel(int index) {
+        LevelDefinition level;
+        try {
+            level = levelPack.get(index);
+        } catch (IllegalStateException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Invalid Level", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        // Levels that enforce time attack bring their own limit; the rest follow the settings
+        boolean timeAttackMode = level.isTimeAttackEnforced() || timeAttackButton.isSelected();
+        int timeLimit = level.getTimeLimitMinutes() > 0 ? level.getTimeLimitMinutes() : selectedTimeLimit;
+        LOG.debug(() -> "Starting pack level " + (index + 1) + " (" + level + "), time attack: "
+                + timeAttackMode + ", " + timeLimit + " minutes");
+
+        gameFrame.getController().setLevel(levelPack, index);
+        gameFrame.setTimeAttackMode(timeAttackMode, timeLimit);
+        gameFrame.setParentFrame(parentFrame);
+        gameFrame.setVisible(true);
+        this.dispose();
+    }
+
     private void goBack() {
         parentFrame.setVisible(true);
         this.dispose();
     }
+
+    @Override
+    public void dispose() {
+        closeUnusedPack();
+        super.dispose();
+    }
+
+    /**
+     * Close the opened pack unless the game is now playing it; the controller closes
+     * that one when it moves on to another pack
+     */
+    private void closeUnusedPack() {
+        if (levelPack == null || gameFrame.getController().getLevelPack() == levelPack) {
+            return;
+        }
+        try {
+            levelPack.close();
+        } catch (IOException e) {
+            LOG.warn("Could not close level pack " + levelPack.getFile(), e);
+        }
+        levelPack = null;
+    }
 }
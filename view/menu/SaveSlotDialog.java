@@ -0,0 +1,199 @@
+package view.menu;
+
+import controller.GameController;
+import model.MapModel;
+import model.SaveSlots;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Lets the player pick a save slot to load (or resume the last journaled session).
+ *
+ * The list comes from the slot index alone, read on the save thread, so opening the
+ * dialog never reads or verifies the save files themselves; each slot shows its level,
+ * move count, save time and a thumbnail of the saved board.
+ */
+public class SaveSlotDialog extends JDialog {
+    private static final String RESUME = "Continue last session";
+    private static final int THUMBNAIL_CELL = 8;
+
+    private final GameController controller;
+    private final Runnable onLoaded;
+    private final DefaultListModel<Object> entries = new DefaultListModel<>();
+    private final JList<Object> slotList = new JList<>(entries);
+    private final JLabel statusLabel = new JLabel("Reading save slots...");
+
+    /**
+     * @param onLoaded Run on the EDT after a game has been restored (may be null)
+     */
+    public SaveSlotDialog(Window owner, GameController controller, Runnable onLoaded) {
+        super(owner, "Load Game", ModalityType.APPLICATION_MODAL);
+        this.controller = controller;
+        this.onLoaded = onLoaded;
+        this.setLayout(new BorderLayout());
+        this.setSize(420, 360);
+
+        slotList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        slotList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (value instanceof SaveSlots.Slot) {
+                    SaveSlots.Slot slot = (SaveSlots.Slot) value;
+                    setText("<html><b>" + escape(slot.getName()) + "</b><br>" + escape(slot.getLevelLabel())
+                            + " - " + slot.getMoveCount() + " moves<br>"
+                            + DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT)
+                                    .format(new Date(slot.getSavedAt())) + "</html>");
+                    setIcon(new BoardThumbnail(slot.getBoard()));
+                } else {
+                    setIcon(null);
+                }
+                setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+                return this;
+            }
+        });
+        slotList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    loadSelected();
+                }
+            }
+        });
+
+        JButton loadBtn = new JButton("Load");
+        loadBtn.addActionListener(e -> loadSelected());
+        JButton deleteBtn = new JButton("Delete");
+        deleteBtn.addActionListener(e -> deleteSelected());
+        JButton cancelBtn = new JButton("Cancel");
+        cancelBtn.addActionListener(e -> dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(deleteBtn);
+        buttonPanel.add(loadBtn);
+        buttonPanel.add(cancelBtn);
+
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(6, 8, 6, 8));
+        this.add(statusLabel, BorderLayout.NORTH);
+        this.add(new JScrollPane(slotList), BorderLayout.CENTER);
+        this.add(buttonPanel, BorderLayout.SOUTH);
+        this.setLocationRelativeTo(owner);
+
+        refresh();
+    }
+
+    private void refresh() {
+        controller.listSaveSlots().whenComplete((slots, error) -> SwingUtilities.invokeLater(() -> {
+            entries.clear();
+            if (controller.hasResumableSession()) {
+                entries.addElement(RESUME);
+            }
+            if (error != null) {
+                statusLabel.setText("Could not read save slots: " + error.getMessage());
+                return;
+            }
+            for (SaveSlots.Slot slot : slots) {
+                entries.addElement(slot);
+            }
+            statusLabel.setText(entries.isEmpty() ? "No saved games" : "Choose a game to load");
+            if (!entries.isEmpty()) {
+                slotList.setSelectedIndex(0);
+            }
+        }));
+    }
+
+    private void loadSelected() {
+        Object selected = slotList.getSelectedValue();
+        if (selected == null) {
+            return;
+        }
+        dispose();
+        if (selected instanceof SaveSlots.Slot) {
+            controller.loadGame(((SaveSlots.Slot) selected).getName(), onLoaded);
+        } else {
+            controller.loadGame(onLoaded);
+        }
+    }
+
+    private void deleteSelected() {
+        Object selected = slotList.getSelectedValue();
+        if (!(selected instanceof SaveSlots.Slot)) {
+            return;
+        }
+        String name = ((SaveSlots.Slot) selected).getName();
+        int answer = JOptionPane.showConfirmDialog(this, "Delete save slot \"" + name + "\"?", "Delete Save",
+                JOptionPane.YES_NO_OPTION);
+        if (answer == JOptionPane.YES_OPTION) {
+            controller.deleteSaveSlot(name).whenComplete((deleted, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    JOptionPane.showMessageDialog(this, "Failed to delete save: " + error.getMessage(), "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+                refresh();
+            }));
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * A few pixels per cell, in the same colors as the game board
+     */
+    private static class BoardThumbnail implements Icon {
+        private final int[][] board;
+
+        BoardThumbnail(int[][] board) {
+            this.board = board;
+        }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            for (int row = 0; row < board.length; row++) {
+                for (int col = 0; col < board[row].length; col++) {
+                    g.setColor(colorOf(board[row][col]));
+                    g.fillRect(x + col * THUMBNAIL_CELL, y + row * THUMBNAIL_CELL, THUMBNAIL_CELL - 1, THUMBNAIL_CELL - 1);
+                }
+            }
+        }
+
+        @Override
+        public int getIconWidth() {
+            return board[0].length * THUMBNAIL_CELL;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return board.length * THUMBNAIL_CELL;
+        }
+
+        private static Color colorOf(int cell) {
+            switch (cell) {
+                case MapModel.CAO_CAO:
+                    return Color.RED;
+                case MapModel.GUAN_YU:
+                    return Color.ORANGE;
+                case MapModel.GENERAL:
+                    return Color.BLUE;
+                case MapModel.SOLDIER:
+                    return Color.GREEN;
+                case MapModel.ZHOU_YU:
+                    return Color.MAGENTA;
+                case MapModel.BLOCKED:
+                    return Color.DARK_GRAY;
+                case MapModel.MILITARY_CAMP:
+                    return new Color(139, 69, 19);
+                default:
+                    return Color.LIGHT_GRAY;
+            }
+        }
+    }
+}
@@ -135,11 +135,11 @@ public class SelectionMenuFrame extends JFrame {
             this.gameFrame.setGuestMode(false);
         }
 
-        // Try to load the game
-        if (this.gameFrame.getController().loadGame()) {
+        // Pick a slot; the list comes from the slot index and the chosen save is read in the background
+        new SaveSlotDialog(this, this.gameFrame.getController(), () -> {
             this.gameFrame.setVisible(true);
             this.setVisible(false);
-        }
+        }).setVisible(true);
     }
 
     private void showGameRules() {